@@ -0,0 +1,51 @@
+package com.finaudy;
+
+/**
+ * Cabeçalho ADTS para frames AAC crus do MediaCodec. Com ele cada pedaço enviado é um
+ * trecho válido de um arquivo .aac e pode ser concatenado/decodificado sem container.
+ */
+final class AdtsFramer {
+
+    static final int HEADER_SIZE = 7;
+
+    private static final int[] SAMPLE_RATES = {
+            96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+
+    private final int profile;
+    private final int sampleRateIndex;
+    private final int channelConfig;
+
+    AdtsFramer(int aacProfile, int sampleRate, int channels) {
+        this.profile = aacProfile;
+        this.sampleRateIndex = sampleRateIndex(sampleRate);
+        this.channelConfig = channels;
+    }
+
+    void writeHeader(byte[] target, int offset, int payloadLength) {
+        int frameLength = payloadLength + HEADER_SIZE;
+        target[offset] = (byte) 0xFF;
+        // MPEG-4, layer 0, sem CRC
+        target[offset + 1] = (byte) 0xF1;
+        target[offset + 2] = (byte) (((profile - 1) << 6) | (sampleRateIndex << 2) | (channelConfig >> 2));
+        target[offset + 3] = (byte) (((channelConfig & 3) << 6) | (frameLength >> 11));
+        target[offset + 4] = (byte) ((frameLength & 0x7FF) >> 3);
+        target[offset + 5] = (byte) (((frameLength & 7) << 5) | 0x1F);
+        target[offset + 6] = (byte) 0xFC;
+    }
+
+    static int frameLength(byte[] header, int offset) {
+        return ((header[offset + 3] & 0x03) << 11)
+                | ((header[offset + 4] & 0xFF) << 3)
+                | ((header[offset + 5] & 0xE0) >> 5);
+    }
+
+    static int sampleRateIndex(int sampleRate) {
+        for (int i = 0; i < SAMPLE_RATES.length; i++) {
+            if (SAMPLE_RATES[i] == sampleRate) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Taxa de amostragem não suportada pelo ADTS: " + sampleRate);
+    }
+}
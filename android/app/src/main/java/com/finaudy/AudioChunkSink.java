@@ -0,0 +1,20 @@
+package com.finaudy;
+
+import java.io.IOException;
+
+/**
+ * Destino dos pedaços de áudio codificado produzidos pelo {@link StreamingAudioRecorder}
+ * enquanto o usuário ainda está falando.
+ */
+public interface AudioChunkSink {
+
+    void open(String mimeType) throws IOException;
+
+    void write(byte[] data, int offset, int length) throws IOException;
+
+    /** Fim normal da gravação; pode bloquear até os dados pendentes serem entregues. */
+    void finish() throws IOException;
+
+    /** Gravação cancelada ou com erro: descarta o que foi recebido. */
+    void abort();
+}
@@ -0,0 +1,348 @@
+package com.finaudy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Conexão com o Play Billing e o fluxo de assinatura, separados do BillingClient por
+ * {@link Client} (P é o ProductDetails no app e um tipo qualquer nos testes).
+ *
+ * - Reconecta sozinho quando o serviço cai, com backoff exponencial até MAX_BACKOFF_MS.
+ * - Guarda os detalhes dos produtos por productTtlMs: {@link #prefetch} roda na inicialização
+ *   ociosa e o toque em assinar abre o checkout sem consultar a Play Store de novo.
+ * - {@link #reconcile} (no onResume) entrega compras pagas e ainda não confirmadas, como as
+ *   concluídas com o app fechado; a página verifica no servidor e chama {@link #acknowledge}.
+ *
+ * Não é thread-safe: chamar sempre na UI thread, onde o BillingClient também responde.
+ */
+final class BillingManager<P> {
+
+    interface Clock {
+        long millis();
+    }
+
+    interface Scheduler {
+        void postDelayed(Runnable task, long delayMs);
+
+        void cancel(Runnable task);
+    }
+
+    /** Códigos de BillingClient.BillingResponseCode usados aqui. */
+    static final int OK = 0;
+    static final int USER_CANCELED = 1;
+    static final int SERVICE_UNAVAILABLE = 2;
+    static final int BILLING_UNAVAILABLE = 3;
+    static final int ITEM_UNAVAILABLE = 4;
+    static final int ERROR = 6;
+    static final int ITEM_ALREADY_OWNED = 7;
+    static final int SERVICE_DISCONNECTED = -1;
+    static final int SERVICE_TIMEOUT = -3;
+    static final int NETWORK_ERROR = 12;
+
+    static final int STATE_PURCHASED = 1;
+    static final int STATE_PENDING = 2;
+
+    /** O que o manager precisa do Purchase. */
+    static final class PurchaseInfo {
+        final String token;
+        final List<String> products;
+        final int state;
+        final boolean acknowledged;
+
+        PurchaseInfo(String token, List<String> products, int state, boolean acknowledged) {
+            this.token = token;
+            this.products = products;
+            this.state = state;
+            this.acknowledged = acknowledged;
+        }
+
+        String productId() {
+            return products.isEmpty() ? null : products.get(0);
+        }
+    }
+
+    interface ConnectionListener {
+        void onSetupFinished(int code);
+
+        void onDisconnected();
+    }
+
+    interface ProductsListener<P> {
+        void onProducts(int code, List<P> products);
+    }
+
+    interface PurchasesListener {
+        void onPurchases(int code, List<PurchaseInfo> purchases);
+    }
+
+    interface ResultListener {
+        void onResult(int code);
+    }
+
+    interface Client<P> {
+        void connect(ConnectionListener listener);
+
+        boolean isReady();
+
+        String productId(P product);
+
+        void queryProducts(List<String> productIds, ProductsListener<P> listener);
+
+        void queryPurchases(PurchasesListener listener);
+
+        void acknowledge(String purchaseToken, ResultListener listener);
+
+        /** Abre o checkout; devolve o código do launchBillingFlow. */
+        int launch(P product);
+
+        void disconnect();
+    }
+
+    interface Listener {
+        /** Compra paga a verificar no servidor (nova ou encontrada pela reconciliação). */
+        void onPurchase(PurchaseInfo purchase);
+
+        /** O checkout não abriu ou terminou sem compra (code USER_CANCELED quando o usuário desistiu). */
+        void onPurchaseFailed(int code, String message);
+    }
+
+    static final long INITIAL_BACKOFF_MS = 1000;
+    static final long MAX_BACKOFF_MS = 5 * 60 * 1000L;
+
+    private final Client<P> client;
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final Listener listener;
+    private final long productTtlMs;
+
+    private final Map<String, P> products = new HashMap<>();
+    private final Map<String, Long> productFetchedAt = new HashMap<>();
+    // Ações esperando a conexão e, para cada uma, o que fazer se ela falhar
+    private final List<Runnable> whenReady = new ArrayList<>();
+    private final List<Runnable> whenUnavailable = new ArrayList<>();
+    // Tokens já entregues à página neste processo: o onResume não repete a verificação
+    private final Set<String> delivered = new HashSet<>();
+    private boolean connecting;
+    private boolean closed;
+    private long backoffMs = INITIAL_BACKOFF_MS;
+    private int reconnects;
+    private final Runnable reconnect = this::connect;
+
+    BillingManager(Client<P> client, Clock clock, Scheduler scheduler, Listener listener, long productTtlMs) {
+        this.client = client;
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.listener = listener;
+        this.productTtlMs = productTtlMs;
+    }
+
+    void connect() {
+        if (closed || connecting || client.isReady()) {
+            return;
+        }
+        connecting = true;
+        client.connect(new ConnectionListener() {
+            @Override
+            public void onSetupFinished(int code) {
+                connecting = false;
+                if (closed) {
+                    return;
+                }
+                if (code == OK) {
+                    backoffMs = INITIAL_BACKOFF_MS;
+                    runQueued(whenReady);
+                } else {
+                    // Quem tocou em assinar não fica esperando o backoff; prefetch e reconciliação
+                    // voltam a rodar no próximo uso ou onResume
+                    runQueued(whenUnavailable);
+                    // Sem Play Store ou conta sem billing não adianta insistir até o próximo uso
+                    if (isRetryable(code)) {
+                        scheduleReconnect();
+                    }
+                }
+            }
+
+            @Override
+            public void onDisconnected() {
+                connecting = false;
+                if (!closed) {
+                    scheduleReconnect();
+                }
+            }
+        });
+    }
+
+    /** Detalhes dos produtos que ainda não estão no cache ou passaram do TTL. */
+    void prefetch(List<String> productIds) {
+        final List<String> missing = new ArrayList<>();
+        for (String id : productIds) {
+            if (cached(id) == null) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        whenReady(() -> client.queryProducts(missing, (code, result) -> store(code, result)), () -> { });
+    }
+
+    /** Abre o checkout do produto, do cache se possível. */
+    void purchase(final String productId) {
+        P product = cached(productId);
+        if (product != null && client.isReady()) {
+            launch(product);
+            return;
+        }
+        whenReady(() -> {
+            P fresh = cached(productId);
+            if (fresh != null) {
+                launch(fresh);
+                return;
+            }
+            client.queryProducts(Collections.singletonList(productId), (code, result) -> {
+                store(code, result);
+                P queried = products.get(productId);
+                if (queried != null) {
+                    launch(queried);
+                } else {
+                    listener.onPurchaseFailed(code == OK ? ITEM_UNAVAILABLE : code, "Produto indisponível: " + productId);
+                }
+            });
+        }, () -> listener.onPurchaseFailed(BILLING_UNAVAILABLE, "Play Store indisponível"));
+    }
+
+    /** Resultado do checkout, repassado pelo PurchasesUpdatedListener. */
+    void onPurchasesUpdated(int code, List<PurchaseInfo> purchases) {
+        if (code == ITEM_ALREADY_OWNED) {
+            // Já assinava; se a página nunca confirmou a compra, a reconciliação a entrega agora
+            listener.onPurchaseFailed(code, "Assinatura já ativa");
+            reconcile();
+            return;
+        }
+        if (code != OK || purchases == null) {
+            listener.onPurchaseFailed(code, code == USER_CANCELED ? "Compra cancelada" : "Compra não concluída");
+            return;
+        }
+        boolean paid = false;
+        for (PurchaseInfo purchase : purchases) {
+            if (purchase.state == STATE_PURCHASED) {
+                paid = true;
+                deliver(purchase);
+            }
+        }
+        if (!paid) {
+            // PENDING (ex.: boleto): a reconciliação entrega quando for pago
+            listener.onPurchaseFailed(OK, "Pagamento pendente");
+        }
+    }
+
+    /** Entrega compras pagas ainda sem acknowledge que a página não recebeu neste processo. */
+    void reconcile() {
+        whenReady(() -> client.queryPurchases((code, purchases) -> {
+            if (code != OK || purchases == null) {
+                return;
+            }
+            for (PurchaseInfo purchase : purchases) {
+                if (purchase.state == STATE_PURCHASED && !purchase.acknowledged
+                        && !delivered.contains(purchase.token)) {
+                    deliver(purchase);
+                }
+            }
+        }), () -> { });
+    }
+
+    /** Confirma a compra depois que o servidor liberou a assinatura; sem isso o Google estorna em 3 dias. */
+    void acknowledge(String purchaseToken, ResultListener result) {
+        whenReady(() -> client.acknowledge(purchaseToken, code -> {
+            if (code != OK && isRetryable(code)) {
+                // Volta a ser entregue no próximo onResume
+                delivered.remove(purchaseToken);
+            }
+            result.onResult(code);
+        }), () -> result.onResult(BILLING_UNAVAILABLE));
+    }
+
+    void close() {
+        closed = true;
+        scheduler.cancel(reconnect);
+        whenReady.clear();
+        whenUnavailable.clear();
+        client.disconnect();
+    }
+
+    int reconnects() {
+        return reconnects;
+    }
+
+    static boolean isRetryable(int code) {
+        return code == SERVICE_UNAVAILABLE || code == SERVICE_DISCONNECTED || code == SERVICE_TIMEOUT
+                || code == ERROR || code == NETWORK_ERROR;
+    }
+
+    private void deliver(PurchaseInfo purchase) {
+        delivered.add(purchase.token);
+        listener.onPurchase(purchase);
+    }
+
+    private void launch(P product) {
+        int code = client.launch(product);
+        if (code != OK) {
+            listener.onPurchaseFailed(code, "Não foi possível abrir a Play Store");
+        }
+    }
+
+    private P cached(String productId) {
+        Long fetchedAt = productFetchedAt.get(productId);
+        if (fetchedAt == null || clock.millis() - fetchedAt > productTtlMs) {
+            return null;
+        }
+        return products.get(productId);
+    }
+
+    private void store(int code, List<P> result) {
+        if (code != OK || result == null) {
+            return;
+        }
+        long now = clock.millis();
+        for (P product : result) {
+            String id = client.productId(product);
+            products.put(id, product);
+            productFetchedAt.put(id, now);
+        }
+    }
+
+    private void whenReady(Runnable action, Runnable ifUnavailable) {
+        if (closed) {
+            return;
+        }
+        if (client.isReady()) {
+            action.run();
+            return;
+        }
+        whenReady.add(action);
+        whenUnavailable.add(ifUnavailable);
+        connect();
+    }
+
+    private void runQueued(List<Runnable> queue) {
+        List<Runnable> actions = new ArrayList<>(queue);
+        whenReady.clear();
+        whenUnavailable.clear();
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    private void scheduleReconnect() {
+        reconnects++;
+        long delay = backoffMs;
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        scheduler.cancel(reconnect);
+        scheduler.postDelayed(reconnect, delay);
+    }
+}
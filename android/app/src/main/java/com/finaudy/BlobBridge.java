@@ -0,0 +1,44 @@
+package com.finaudy;
+
+import org.json.JSONObject;
+
+/** Leitura, gravação e liberação de blobs do {@link NativeBlobStore} pela ponte. */
+final class BlobBridge {
+
+    // Acima disso a página deve usar fetch(url), que lê o arquivo em streaming
+    private static final long MAX_BLOB_BYTES = 16L * 1024 * 1024;
+
+    private final NativeBlobStore store;
+
+    BlobBridge(NativeBlobStore store) {
+        this.store = store;
+    }
+
+    void register(MessagePortBridge bridge) {
+        bridge.register("readBlob", call -> {
+            NativeBlobStore.Entry entry = store.get(NativeBlobStore.idFromUrl(call.params.getString("url")));
+            if (entry == null) {
+                call.reject("Blob não encontrado");
+                return;
+            }
+            if (entry.length > MAX_BLOB_BYTES) {
+                call.reject("Blob grande demais para a ponte; use fetch(url)");
+                return;
+            }
+            JSONObject info = new JSONObject();
+            info.put("name", entry.name);
+            info.put("mimeType", entry.mimeType);
+            call.resolve(info, NativeBlobStore.readAll(entry));
+        });
+        bridge.register("putBlob", call -> {
+            if (!call.hasPayload()) {
+                call.reject("putBlob precisa de um ArrayBuffer");
+                return;
+            }
+            NativeBlobStore.Entry entry = store.put(call.openPayload(),
+                    call.optString("mimeType"), call.optString("name"));
+            call.resolve(entry.getUrl());
+        });
+        bridge.register("releaseBlob", call -> call.resolve(store.release(call.params.getString("url"))));
+    }
+}
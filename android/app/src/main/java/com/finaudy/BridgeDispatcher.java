@@ -0,0 +1,249 @@
+package com.finaudy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa o trabalho pedido pela página (ler arquivos, codificar imagens, responder à ponte)
+ * num pool limitado, fora da UI thread e da thread JavaBridge. Cada operação tem um limite
+ * de chamadas em andamento; o que passa do limite ou da fila é recusado na hora e avisado,
+ * em vez de se acumular. Ao navegar é cancelado o que pertence à página ({@link #cancelPage});
+ * ao destruir a activity, tudo.
+ */
+public class BridgeDispatcher {
+
+    public static final String REASON_BUSY = "busy";
+    public static final String REASON_OVERLOADED = "overloaded";
+    public static final String REASON_SHUTDOWN = "shutdown";
+
+    /**
+     * Operações canceladas enquanto estavam na fila ainda rodam, com o ticket já cancelado,
+     * para que possam liberar o que receberam (ex.: apagar um arquivo temporário).
+     * Devem checar {@link Ticket#isCancelled()} antes de entregar resultado à página.
+     */
+    public interface Operation {
+        void run(Ticket ticket) throws Exception;
+    }
+
+    public interface Rejection {
+        void onRejected(String operation, String reason);
+    }
+
+    public interface Listener extends Rejection {
+        void onError(String operation, Exception error);
+    }
+
+    public static final class Ticket {
+        final String operation;
+        private volatile boolean cancelled;
+        private Thread runner;
+
+        Ticket(String operation) {
+            this.operation = operation;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized void interrupt() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        synchronized void attach(Thread thread) {
+            runner = thread;
+        }
+
+        synchronized void detach() {
+            runner = null;
+            // Não deixa a interrupção vazar para a próxima tarefa do mesmo worker
+            Thread.interrupted();
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Listener listener;
+    private final int defaultLimit;
+    private final Map<String, Integer> limits = new HashMap<>();
+    private final Map<String, Integer> inFlight = new HashMap<>();
+    private final Set<String> outlivesPage = new HashSet<>();
+    private final Set<Ticket> tickets = new HashSet<>();
+    private boolean shutdown;
+    private long rejected;
+    private long cancelled;
+
+    public BridgeDispatcher(int threads, int queueCapacity, int defaultLimit, Listener listener) {
+        this.listener = listener;
+        this.defaultLimit = defaultLimit;
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new WorkerFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Máximo de chamadas da operação em andamento (rodando ou na fila). */
+    public synchronized BridgeDispatcher setLimit(String operation, int maxInFlight) {
+        limits.put(operation, maxInFlight);
+        return this;
+    }
+
+    /**
+     * Operações que não entregam nada ao documento (ex.: sync offline, revalidação de cache)
+     * continuam rodando quando a página navega.
+     */
+    public synchronized BridgeDispatcher setPageScoped(String operation, boolean pageScoped) {
+        if (pageScoped) {
+            outlivesPage.remove(operation);
+        } else {
+            outlivesPage.add(operation);
+        }
+        return this;
+    }
+
+    public Ticket submit(String operation, Operation work) {
+        return submit(operation, work, null);
+    }
+
+    /**
+     * @param onRejected recebe a recusa no lugar do listener geral (ex.: a ponte responde
+     *                   à própria chamada)
+     * @return null se a chamada foi recusada
+     */
+    public Ticket submit(final String operation, final Operation work, Rejection onRejected) {
+        final Ticket ticket = new Ticket(operation);
+        String reason;
+        synchronized (this) {
+            reason = admit(ticket);
+        }
+        if (reason == null) {
+            try {
+                executor.execute(() -> run(ticket, work));
+                return ticket;
+            } catch (RejectedExecutionException e) {
+                release(ticket);
+                reason = executor.isShutdown() ? REASON_SHUTDOWN : REASON_OVERLOADED;
+            }
+        }
+        synchronized (this) {
+            rejected++;
+        }
+        (onRejected != null ? onRejected : listener).onRejected(operation, reason);
+        return null;
+    }
+
+    /** A página navegou: nada do documento anterior deve mais entregar resultado. */
+    public int cancelPage() {
+        return cancel(true);
+    }
+
+    public int cancelAll() {
+        return cancel(false);
+    }
+
+    private int cancel(boolean pageOnly) {
+        List<Ticket> active = new ArrayList<>();
+        synchronized (this) {
+            for (Ticket ticket : tickets) {
+                if (!pageOnly || !outlivesPage.contains(ticket.operation)) {
+                    active.add(ticket);
+                }
+            }
+            cancelled += active.size();
+        }
+        // Marca todos antes de interromper: um worker liberado não pode pegar da fila
+        // uma tarefa que ainda pareça válida
+        for (Ticket ticket : active) {
+            ticket.cancelled = true;
+        }
+        for (Ticket ticket : active) {
+            ticket.interrupt();
+        }
+        return active.size();
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+        }
+        cancelAll();
+        executor.shutdown();
+    }
+
+    public synchronized int inFlight(String operation) {
+        Integer count = inFlight.get(operation);
+        return count != null ? count : 0;
+    }
+
+    public synchronized int inFlight() {
+        return tickets.size();
+    }
+
+    public synchronized long rejectedCount() {
+        return rejected;
+    }
+
+    public synchronized long cancelledCount() {
+        return cancelled;
+    }
+
+    private String admit(Ticket ticket) {
+        if (shutdown) {
+            return REASON_SHUTDOWN;
+        }
+        Integer limit = limits.get(ticket.operation);
+        int current = inFlight(ticket.operation);
+        if (current >= (limit != null ? limit : defaultLimit)) {
+            return REASON_BUSY;
+        }
+        inFlight.put(ticket.operation, current + 1);
+        tickets.add(ticket);
+        return null;
+    }
+
+    private synchronized void release(Ticket ticket) {
+        if (tickets.remove(ticket)) {
+            int remaining = inFlight(ticket.operation) - 1;
+            if (remaining > 0) {
+                inFlight.put(ticket.operation, remaining);
+            } else {
+                inFlight.remove(ticket.operation);
+            }
+        }
+    }
+
+    private void run(Ticket ticket, Operation work) {
+        ticket.attach(Thread.currentThread());
+        try {
+            work.run(ticket);
+        } catch (Exception e) {
+            if (!ticket.isCancelled()) {
+                listener.onError(ticket.operation, e);
+            }
+        } finally {
+            ticket.detach();
+            release(ticket);
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "bridge-worker-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.finaudy;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Mensagem binária do {@link MessagePortBridge}: 4 bytes (big-endian) com o tamanho do
+ * cabeçalho, o cabeçalho JSON em UTF-8 e depois o payload cru. O payload não é copiado
+ * na decodificação; aponta para o ArrayBuffer recebido.
+ */
+final class BridgeFrame {
+
+    static final int PREFIX_SIZE = 4;
+    static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    final String header;
+    final byte[] data;
+    final int payloadOffset;
+    final int payloadLength;
+
+    private BridgeFrame(String header, byte[] data, int payloadOffset, int payloadLength) {
+        this.header = header;
+        this.data = data;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+    }
+
+    InputStream openPayload() {
+        return new ByteArrayInputStream(data, payloadOffset, payloadLength);
+    }
+
+    static byte[] encode(String header, byte[] payload, int offset, int length) {
+        byte[] headerBytes = header.getBytes(UTF_8);
+        if (headerBytes.length > MAX_HEADER_BYTES) {
+            throw new IllegalArgumentException("Cabeçalho grande demais: " + headerBytes.length);
+        }
+        byte[] frame = new byte[PREFIX_SIZE + headerBytes.length + length];
+        frame[0] = (byte) (headerBytes.length >>> 24);
+        frame[1] = (byte) (headerBytes.length >>> 16);
+        frame[2] = (byte) (headerBytes.length >>> 8);
+        frame[3] = (byte) headerBytes.length;
+        System.arraycopy(headerBytes, 0, frame, PREFIX_SIZE, headerBytes.length);
+        if (length > 0) {
+            System.arraycopy(payload, offset, frame, PREFIX_SIZE + headerBytes.length, length);
+        }
+        return frame;
+    }
+
+    static BridgeFrame decode(byte[] frame) {
+        if (frame == null || frame.length < PREFIX_SIZE) {
+            throw new IllegalArgumentException("Mensagem binária sem cabeçalho");
+        }
+        int headerLength = ((frame[0] & 0xFF) << 24) | ((frame[1] & 0xFF) << 16)
+                | ((frame[2] & 0xFF) << 8) | (frame[3] & 0xFF);
+        if (headerLength < 0 || headerLength > MAX_HEADER_BYTES || PREFIX_SIZE + headerLength > frame.length) {
+            throw new IllegalArgumentException("Tamanho de cabeçalho inválido: " + headerLength);
+        }
+        String header = new String(frame, PREFIX_SIZE, headerLength, UTF_8);
+        int payloadOffset = PREFIX_SIZE + headerLength;
+        return new BridgeFrame(header, frame, payloadOffset, frame.length - payloadOffset);
+    }
+}
@@ -0,0 +1,258 @@
+package com.finaudy;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Métricas do que atravessa a ponte: por entrada (window.Android.x, método do MessagePort,
+ * evento nativo→JS ou fluxo como seletor→onFileSelected) conta chamadas e erros, soma bytes
+ * e guarda um histograma de latência log-linear (erro relativo de até 1/16, como o HDR)
+ * e em quais threads rodou. Desligado, {@link #start} devolve 0 e o resto sai na primeira linha.
+ *
+ * Thread-safe; uma instância compartilhada pelo processo em {@link #shared}.
+ */
+final class BridgeMetrics {
+
+    interface Clock {
+        long nanos();
+    }
+
+    // Sem ela, histogramas e fluxos ficariam espalhados entre o WebAppInterface, a ponte e o barramento
+    private static final BridgeMetrics SHARED = new BridgeMetrics(System::nanoTime);
+
+    static final String PREFIX_JS = "js.";
+    static final String PREFIX_PORT = "port.";
+    static final String PREFIX_EVENT = "event.";
+    static final String PREFIX_FLOW = "flow.";
+    static final String EVALUATE_JAVASCRIPT = "evaluateJavascript";
+    // Nomes de thread por entrada; o resto vira "other"
+    static final int MAX_THREADS_PER_ENTRY = 8;
+    static final String OTHER_THREAD = "other";
+
+    /** Histograma em microssegundos: 16 faixas por potência de 2, até ~9,5 h. */
+    static final class Histogram {
+        static final int SUB_BITS = 4;
+        static final int SUB_BUCKETS = 1 << SUB_BITS;
+        static final int MAX_EXPONENT = 35;
+
+        private final int[] counts = new int[(MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS];
+        private long total;
+        private long maxMicros;
+
+        void record(long micros) {
+            long value = Math.max(0, micros);
+            counts[index(value)]++;
+            total++;
+            maxMicros = Math.max(maxMicros, value);
+        }
+
+        static int index(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) micros;
+            }
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+            int sub = (int) (Math.min(micros >> (exponent - SUB_BITS), 2 * SUB_BUCKETS - 1)) - SUB_BUCKETS;
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /** Maior valor que cai na mesma faixa de index. */
+        static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+            int sub = index % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+
+        long count() {
+            return total;
+        }
+
+        /** Percentil (0–100) em microssegundos, pelo limite superior da faixa e nunca acima do máximo. */
+        long percentile(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+
+        long max() {
+            return maxMicros;
+        }
+    }
+
+    private static final class Entry {
+        long calls;
+        long errors;
+        long bytesIn;
+        long bytesOut;
+        final Histogram latency = new Histogram();
+        final Map<String, Long> threads = new TreeMap<>();
+    }
+
+    private final Clock clock;
+    private volatile boolean enabled = true;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Início de cada fluxo aberto (ex.: seletor de arquivo aberto, esperando o resultado)
+    private final Map<String, Long> flows = new ConcurrentHashMap<>();
+    private volatile long since;
+
+    BridgeMetrics(Clock clock) {
+        this.clock = clock;
+        this.since = clock.nanos();
+    }
+
+    static BridgeMetrics shared() {
+        return SHARED;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            flows.clear();
+        }
+    }
+
+    /** Marca o início de uma chamada; 0 com as métricas desligadas. */
+    long start() {
+        return enabled ? clock.nanos() : 0;
+    }
+
+    /**
+     * Fecha uma chamada aberta com {@link #start}, na thread em que ela rodou.
+     *
+     * @param bytesIn  o que chegou da página (argumentos, request)
+     * @param bytesOut o que voltou (resposta, script)
+     */
+    void record(String name, long startNanos, long bytesIn, long bytesOut, boolean ok) {
+        if (!enabled || startNanos == 0) {
+            return;
+        }
+        recordLatency(name, clock.nanos() - startNanos, bytesIn, bytesOut, ok);
+    }
+
+    /** Para quando a latência já foi medida por quem chama (ex.: tempo na fila de eventos). */
+    void recordLatency(String name, long latencyNanos, long bytesIn, long bytesOut, boolean ok) {
+        if (!enabled) {
+            return;
+        }
+        String thread = threadLabel(Thread.currentThread().getName());
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            // computeIfAbsent só existe a partir da API 24
+            Entry created = new Entry();
+            Entry raced = entries.putIfAbsent(name, created);
+            entry = raced != null ? raced : created;
+        }
+        synchronized (entry) {
+            entry.calls++;
+            if (!ok) {
+                entry.errors++;
+            }
+            entry.bytesIn += bytesIn;
+            entry.bytesOut += bytesOut;
+            entry.latency.record(latencyNanos / 1000);
+            if (!entry.threads.containsKey(thread) && entry.threads.size() >= MAX_THREADS_PER_ENTRY) {
+                thread = OTHER_THREAD;
+            }
+            Long count = entry.threads.get(thread);
+            entry.threads.put(thread, count != null ? count + 1 : 1);
+        }
+    }
+
+    /** Começo de um fluxo que termina em outra chamada (ex.: openFileChooser → onFileSelected). */
+    void beginFlow(String flow) {
+        if (enabled) {
+            flows.put(flow, clock.nanos());
+        }
+    }
+
+    /** Fim do fluxo; ok=false quando o usuário cancelou ou deu erro. Sem início aberto, nada. */
+    void endFlow(String flow, boolean ok) {
+        Long start = flows.remove(flow);
+        if (start != null) {
+            record(PREFIX_FLOW + flow, start, 0, 0, ok);
+        }
+    }
+
+    void reset() {
+        entries.clear();
+        flows.clear();
+        since = clock.nanos();
+    }
+
+    /** Mapa para a página: {"enabled", "sinceMs", "entries": {nome: {calls, p50Ms, ...}}}. */
+    Map<String, Object> snapshot() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("enabled", enabled);
+        json.put("sinceMs", (clock.nanos() - since) / 1_000_000);
+        Map<String, Object> all = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> item : new TreeMap<>(entries).entrySet()) {
+            Entry entry = item.getValue();
+            Map<String, Object> metric = new LinkedHashMap<>();
+            synchronized (entry) {
+                metric.put("calls", entry.calls);
+                metric.put("errors", entry.errors);
+                metric.put("bytesIn", entry.bytesIn);
+                metric.put("bytesOut", entry.bytesOut);
+                metric.put("p50Ms", entry.latency.percentile(50) / 1000.0);
+                metric.put("p90Ms", entry.latency.percentile(90) / 1000.0);
+                metric.put("p99Ms", entry.latency.percentile(99) / 1000.0);
+                metric.put("maxMs", entry.latency.max() / 1000.0);
+                metric.put("threads", new LinkedHashMap<String, Object>(entry.threads));
+            }
+            all.put(item.getKey(), metric);
+        }
+        json.put("entries", all);
+        return json;
+    }
+
+    /** Tabela para o dumpsys, uma linha por entrada. */
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Bridge metrics (" + (enabled ? "on" : "off") + ", "
+                + (clock.nanos() - since) / 1_000_000_000 + "s)");
+        for (Map.Entry<String, Entry> item : new TreeMap<>(entries).entrySet()) {
+            Entry entry = item.getValue();
+            synchronized (entry) {
+                writer.println(String.format(Locale.US,
+                        "%s  %-40s calls=%d errors=%d in=%dB out=%dB p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms threads=%s",
+                        prefix, item.getKey(), entry.calls, entry.errors, entry.bytesIn, entry.bytesOut,
+                        entry.latency.percentile(50) / 1000.0, entry.latency.percentile(90) / 1000.0,
+                        entry.latency.percentile(99) / 1000.0, entry.latency.max() / 1000.0, entry.threads));
+            }
+        }
+    }
+
+    /** "pool-3-thread-12" e "pool-4-thread-2" contam como a mesma thread. */
+    static String threadLabel(String name) {
+        StringBuilder label = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isDigit(c)) {
+                if (label.length() == 0 || label.charAt(label.length() - 1) != '#') {
+                    label.append('#');
+                }
+            } else {
+                label.append(c);
+            }
+        }
+        return label.toString();
+    }
+}
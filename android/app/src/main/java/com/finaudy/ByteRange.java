@@ -0,0 +1,74 @@
+package com.finaudy;
+
+/**
+ * Intervalo pedido num cabeçalho HTTP "Range: bytes=...". Só suporta um intervalo por pedido;
+ * pedidos com vários intervalos são respondidos com o conteúdo inteiro.
+ */
+final class ByteRange {
+
+    final long start;
+    final long end;
+
+    ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    long length() {
+        return end - start + 1;
+    }
+
+    String contentRange(long totalLength) {
+        return "bytes " + start + "-" + end + "/" + totalLength;
+    }
+
+    /**
+     * Retorna null quando o cabeçalho está ausente, é inválido ou pede vários intervalos,
+     * e um intervalo vazio (start > end) quando o pedido não pode ser satisfeito.
+     */
+    static ByteRange parse(String header, long totalLength) {
+        if (header == null) {
+            return null;
+        }
+        String value = header.trim();
+        if (!value.startsWith("bytes=") || value.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = value.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // bytes=-N: últimos N bytes
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return unsatisfiable();
+                }
+                return new ByteRange(Math.max(0, totalLength - suffix), totalLength - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? totalLength - 1 : Math.min(Long.parseLong(last), totalLength - 1);
+            if (start >= totalLength || end < start) {
+                return unsatisfiable();
+            }
+            return new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    boolean isSatisfiable() {
+        return start <= end;
+    }
+
+    private static ByteRange unsatisfiable() {
+        return new ByteRange(1, 0);
+    }
+}
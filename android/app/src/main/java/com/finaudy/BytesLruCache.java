@@ -0,0 +1,86 @@
+package com.finaudy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Cache LRU em memória limitado pelo total de bytes guardados. */
+final class BytesLruCache {
+
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    // Ordem de acesso: o primeiro item é o menos usado recentemente
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+
+    BytesLruCache(long maxBytes, int maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    synchronized byte[] get(String key) {
+        byte[] value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    /** @return false se o valor é grande demais para entrar no cache */
+    synchronized boolean put(String key, byte[] value) {
+        if (value.length > maxEntryBytes || value.length > maxBytes) {
+            return false;
+        }
+        byte[] previous = entries.put(key, value);
+        if (previous != null) {
+            totalBytes -= previous.length;
+        }
+        totalBytes += value.length;
+        Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            totalBytes -= eldest.getValue().length;
+            it.remove();
+        }
+        return true;
+    }
+
+    synchronized void remove(String key) {
+        byte[] removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.length;
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    synchronized long size() {
+        return totalBytes;
+    }
+
+    synchronized int count() {
+        return entries.size();
+    }
+
+    synchronized long hitCount() {
+        return hits;
+    }
+
+    synchronized long missCount() {
+        return misses;
+    }
+}
@@ -0,0 +1,440 @@
+package com.finaudy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache de GETs idempotentes do Supabase (PostgREST) para as tabelas que a página liberar.
+ * Dentro de maxAge a resposta sai do disco; até maxAge + staleWhileRevalidate sai do disco
+ * e é revalidada em segundo plano (If-None-Match / If-Modified-Since). Sem entrada ou com ela
+ * vencida a requisição segue pelo WebView, com CORS e credenciais dele, e a cópia do cache é
+ * buscada em segundo plano para a próxima leitura: nada bloqueia a thread de rede do WebView.
+ * Escritas na mesma tabela invalidam o que foi guardado para ela.
+ *
+ * Não depende do Android; o MainActivity converte {@link Response} em WebResourceResponse.
+ */
+final class CachingHttpFetcher {
+
+    static final String REST_PREFIX = "/rest/v1/";
+    static final String RPC_PREFIX = REST_PREFIX + "rpc/";
+    static final String SOURCE_HEADER = "X-Native-Cache";
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // Cabeçalhos que identificam o recurso além da URL: formato (objeto ou lista), paginação e contagem
+    private static final List<String> KEY_HEADERS = Arrays.asList("accept", "accept-profile", "prefer", "range");
+    // Não repassados ao servidor: a conexão cuida da compressão e o cache, dos validadores
+    private static final Set<String> DROPPED_REQUEST_HEADERS = new HashSet<>(Arrays.asList(
+            "accept-encoding", "host", "connection", "content-length", "if-none-match", "if-modified-since"));
+    private static final Set<String> DROPPED_RESPONSE_HEADERS = new HashSet<>(Arrays.asList(
+            "content-encoding", "content-length", "transfer-encoding", "connection", "keep-alive", "set-cookie"));
+    private static final Pattern JWT_SUBJECT = Pattern.compile("\"sub\"\\s*:\\s*\"([^\"]+)\"");
+
+    enum Source {
+        HIT, STALE, REVALIDATED, MISS, NETWORK
+    }
+
+    interface Clock {
+        long millis();
+    }
+
+    static final class Rule {
+        final String path;
+        final long maxAgeMs;
+        final long staleWhileRevalidateMs;
+
+        Rule(String path, long maxAgeMs, long staleWhileRevalidateMs) {
+            this.path = path;
+            this.maxAgeMs = maxAgeMs;
+            this.staleWhileRevalidateMs = staleWhileRevalidateMs;
+        }
+    }
+
+    static final class Response {
+        final int status;
+        final String reason;
+        final Map<String, String> headers;
+        final InputStream body;
+        final Source source;
+
+        Response(int status, String reason, Map<String, String> headers, InputStream body, Source source) {
+            this.status = status;
+            this.reason = reason;
+            this.headers = headers;
+            this.body = body;
+            this.source = source;
+        }
+
+        String mimeType() {
+            String type = header(headers, "Content-Type");
+            if (type == null) {
+                return "application/octet-stream";
+            }
+            int semicolon = type.indexOf(';');
+            return (semicolon >= 0 ? type.substring(0, semicolon) : type).trim();
+        }
+    }
+
+    static final class Stats {
+        final long hits;
+        final long staleHits;
+        final long revalidated;
+        final long misses;
+        final long errors;
+        final long invalidations;
+        final long evictions;
+        final long bytes;
+        final int entries;
+
+        Stats(long hits, long staleHits, long revalidated, long misses, long errors, long invalidations,
+              long evictions, long bytes, int entries) {
+            this.hits = hits;
+            this.staleHits = staleHits;
+            this.revalidated = revalidated;
+            this.misses = misses;
+            this.errors = errors;
+            this.invalidations = invalidations;
+            this.evictions = evictions;
+            this.bytes = bytes;
+            this.entries = entries;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "hits=%d stale=%d revalidated=%d misses=%d errors=%d invalidations=%d"
+                    + " evictions=%d bytes=%d entries=%d", hits, staleHits, revalidated, misses, errors,
+                    invalidations, evictions, bytes, entries);
+        }
+    }
+
+    private final HttpResponseCache cache;
+    private final Executor revalidator;
+    private final Clock clock;
+    private final int maxEntryBytes;
+    private volatile Map<String, Rule> rules = Collections.emptyMap();
+    private final Set<String> revalidating = Collections.synchronizedSet(new HashSet<String>());
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    CachingHttpFetcher(HttpResponseCache cache, Executor revalidator, Clock clock, int maxEntryBytes) {
+        this.cache = cache;
+        this.revalidator = revalidator;
+        this.clock = clock;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /** Lista vazia desliga o cache para novas requisições. */
+    void setRules(List<Rule> newRules) {
+        Map<String, Rule> byPath = new LinkedHashMap<>();
+        for (Rule rule : newRules) {
+            byPath.put(rule.path, rule);
+        }
+        rules = byPath;
+    }
+
+    boolean isEnabled() {
+        return !rules.isEmpty();
+    }
+
+    /** @return a regra do endpoint, ou null se a requisição deve ir direto para a rede */
+    Rule match(String method, URL url) {
+        if (!"GET".equalsIgnoreCase(method) || !isHttp(url)) {
+            return null;
+        }
+        return rules.get(url.getPath());
+    }
+
+    /**
+     * Chamado para requisições que não são GET. Uma escrita numa tabela invalida os GETs dela;
+     * uma RPC pode mexer em qualquer tabela e invalida tudo.
+     */
+    int onWrite(String method, URL url) {
+        if ("GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method)
+                || "OPTIONS".equalsIgnoreCase(method) || !isHttp(url) || rules.isEmpty()) {
+            return 0;
+        }
+        String path = url.getPath();
+        int removed;
+        if (path.startsWith(RPC_PREFIX)) {
+            removed = cache.count();
+            cache.clear();
+        } else if (path.startsWith(REST_PREFIX)) {
+            removed = cache.invalidatePath(path);
+        } else {
+            return 0;
+        }
+        invalidations.addAndGet(removed);
+        return removed;
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Resposta que pode sair do disco agora (HIT ou STALE), ou null para o WebView buscar ele
+     * mesmo; nesse caso a entrada é preenchida/revalidada em segundo plano.
+     */
+    Response lookup(Rule rule, URL url, Map<String, String> requestHeaders) throws IOException {
+        final String key = cacheKey(url, requestHeaders);
+        HttpResponseCache.Entry entry = cache.get(key);
+        long age = entry != null ? clock.millis() - entry.storedAt : Long.MAX_VALUE;
+        if (age <= rule.maxAgeMs) {
+            hits.incrementAndGet();
+            return fromEntry(entry, Source.HIT);
+        }
+        revalidateInBackground(url, requestHeaders, key, entry);
+        if (entry != null && age <= rule.maxAgeMs + rule.staleWhileRevalidateMs) {
+            staleHits.incrementAndGet();
+            return fromEntry(entry, Source.STALE);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    Stats stats() {
+        return new Stats(hits.get(), staleHits.get(), revalidated.get(), misses.get(), errors.get(),
+                invalidations.get(), cache.evictionCount(), cache.size(), cache.count());
+    }
+
+    /** entry null: primeira busca, só para guardar. */
+    private void revalidateInBackground(final URL url, final Map<String, String> requestHeaders,
+                                        final String key, final HttpResponseCache.Entry entry) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        final Map<String, String> headers = new LinkedHashMap<>(requestHeaders);
+        try {
+            revalidator.execute(() -> {
+                try {
+                    network(url, headers, key, entry, Source.MISS).body.close();
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                } finally {
+                    revalidating.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Fila cheia: a próxima leitura tenta de novo
+            revalidating.remove(key);
+        }
+    }
+
+    private Response network(URL url, Map<String, String> requestHeaders, String key,
+                             HttpResponseCache.Entry cached, Source source) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setUseCaches(false);
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            if (!DROPPED_REQUEST_HEADERS.contains(header.getKey().toLowerCase(Locale.US))) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        if (cached != null) {
+            String etag = cached.header("ETag");
+            String lastModified = cached.header("Last-Modified");
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        }
+
+        int status;
+        try {
+            status = connection.getResponseCode();
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            connection.disconnect();
+            revalidated.incrementAndGet();
+            return fromEntry(cache.refresh(cached, clock.millis()), Source.REVALIDATED);
+        }
+
+        String reason = connection.getResponseMessage();
+        if (reason == null || reason.isEmpty()) {
+            reason = status == 200 ? "OK" : "Status " + status;
+        }
+        Map<String, String> headers = responseHeaders(connection);
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) {
+            in = new ByteArrayInputStream(new byte[0]);
+        }
+        String cacheControl = header(headers, "Cache-Control");
+        // 206: resposta paginada/contada; a chave já inclui Range e Prefer
+        if ((status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL)
+                || (cacheControl != null && cacheControl.toLowerCase(Locale.US).contains("no-store"))) {
+            headers.put(SOURCE_HEADER, Source.NETWORK.name());
+            return new Response(status, reason, headers, in, Source.NETWORK);
+        }
+
+        // Lê até o limite de uma entrada; se couber, guarda, senão segue em streaming
+        ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(maxEntryBytes + 1, 64 * 1024));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        try {
+            while (head.size() <= maxEntryBytes && (read = in.read(buffer)) != -1) {
+                head.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        byte[] bytes = head.toByteArray();
+        if (bytes.length > maxEntryBytes) {
+            headers.put(SOURCE_HEADER, Source.NETWORK.name());
+            return new Response(status, reason, headers, new SequenceInputStream(new ByteArrayInputStream(bytes), in),
+                    Source.NETWORK);
+        }
+        in.close();
+        cache.put(key, url.toString(), url.getPath(), status, reason, headers, bytes, clock.millis());
+        Map<String, String> served = new LinkedHashMap<>(headers);
+        served.put(SOURCE_HEADER, source.name());
+        return new Response(status, reason, served, new ByteArrayInputStream(bytes), source);
+    }
+
+    private static Response fromEntry(HttpResponseCache.Entry entry, Source source) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>(entry.headers);
+        headers.put(SOURCE_HEADER, source.name());
+        return new Response(entry.status, entry.reason, headers, new FileInputStream(entry.body), source);
+    }
+
+    private static Map<String, String> responseHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> field : connection.getHeaderFields().entrySet()) {
+            String name = field.getKey();
+            if (name == null || DROPPED_RESPONSE_HEADERS.contains(name.toLowerCase(Locale.US))) {
+                continue;
+            }
+            StringBuilder value = new StringBuilder();
+            for (String part : field.getValue()) {
+                if (value.length() > 0) {
+                    value.append(", ");
+                }
+                value.append(part);
+            }
+            headers.put(name, value.toString());
+        }
+        return headers;
+    }
+
+    /**
+     * URL + cabeçalhos que mudam o conteúdo + usuário. O usuário vem do "sub" do JWT e não
+     * do token inteiro, para que a renovação horária do token não esvazie o cache.
+     */
+    static String cacheKey(URL url, Map<String, String> requestHeaders) {
+        StringBuilder key = new StringBuilder(url.toString());
+        for (String name : KEY_HEADERS) {
+            String value = header(requestHeaders, name);
+            key.append('\n').append(name).append('=').append(value != null ? value : "");
+        }
+        key.append("\nuser=").append(identity(header(requestHeaders, "Authorization")));
+        key.append("\napikey=").append(String.valueOf(header(requestHeaders, "apikey")));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String identity(String authorization) {
+        if (authorization == null) {
+            return "";
+        }
+        String token = authorization.regionMatches(true, 0, "Bearer ", 0, 7) ? authorization.substring(7).trim() : authorization;
+        String[] parts = token.split("\\.");
+        if (parts.length == 3) {
+            byte[] payload = decodeBase64Url(parts[1]);
+            if (payload != null) {
+                Matcher matcher = JWT_SUBJECT.matcher(new String(payload, StandardCharsets.UTF_8));
+                if (matcher.find()) {
+                    return "sub:" + matcher.group(1);
+                }
+            }
+        }
+        return "token:" + token;
+    }
+
+    static String header(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey() != null && header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isHttp(URL url) {
+        return "https".equalsIgnoreCase(url.getProtocol()) || "http".equalsIgnoreCase(url.getProtocol());
+    }
+
+    // java.util.Base64 só existe a partir da API 26
+    private static byte[] decodeBase64Url(String value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(value.length() * 3 / 4);
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            int digit;
+            if (c >= 'A' && c <= 'Z') {
+                digit = c - 'A';
+            } else if (c >= 'a' && c <= 'z') {
+                digit = c - 'a' + 26;
+            } else if (c >= '0' && c <= '9') {
+                digit = c - '0' + 52;
+            } else if (c == '-' || c == '+') {
+                digit = 62;
+            } else if (c == '_' || c == '/') {
+                digit = 63;
+            } else if (c == '=') {
+                break;
+            } else {
+                return null;
+            }
+            buffer = (buffer << 6) | digit;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out.write((buffer >> bits) & 0xff);
+            }
+        }
+        return out.toByteArray();
+    }
+}
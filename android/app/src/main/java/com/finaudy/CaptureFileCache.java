@@ -0,0 +1,86 @@
+package com.finaudy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Diretório limitado para as fotos em resolução cheia gravadas pela câmera via FileProvider.
+ * Arquivos antigos ou além do limite de quantidade/tamanho são apagados em collectGarbage.
+ */
+public class CaptureFileCache {
+
+    private static final String PREFIX = "capture_";
+    private static final String SUFFIX = ".jpg";
+
+    private final File dir;
+    private final int maxFiles;
+    private final long maxBytes;
+    private final long maxAgeMs;
+
+    public CaptureFileCache(File dir, int maxFiles, long maxBytes, long maxAgeMs) {
+        this.dir = dir;
+        this.maxFiles = maxFiles;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    public File newCaptureFile(long now) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Não foi possível criar " + dir);
+        }
+        File file = new File(dir, PREFIX + now + SUFFIX);
+        int suffix = 1;
+        while (file.exists()) {
+            file = new File(dir, PREFIX + now + "_" + suffix++ + SUFFIX);
+        }
+        if (!file.createNewFile()) {
+            throw new IOException("Não foi possível criar " + file);
+        }
+        return file;
+    }
+
+    /**
+     * Apaga capturas vencidas e, depois, as mais antigas até respeitar os limites.
+     * O arquivo em {@code keep} (captura em andamento) nunca é apagado.
+     */
+    public int collectGarbage(long now, File keep) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        // Mais recentes primeiro
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(b.lastModified(), a.lastModified());
+            }
+        });
+
+        int deleted = 0;
+        int kept = 0;
+        long keptBytes = 0;
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+            boolean protectedFile = file.equals(keep);
+            boolean expired = now - file.lastModified() > maxAgeMs;
+            boolean overLimit = kept >= maxFiles || keptBytes + file.length() > maxBytes;
+            if (!protectedFile && (expired || overLimit)) {
+                if (file.delete()) {
+                    deleted++;
+                }
+                continue;
+            }
+            kept++;
+            keptBytes += file.length();
+        }
+        return deleted;
+    }
+}
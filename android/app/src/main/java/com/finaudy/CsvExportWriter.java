@@ -0,0 +1,104 @@
+package com.finaudy;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * CSV no formato que o Excel em português abre direto: UTF-8 com BOM, ";" como separador,
+ * vírgula decimal e datas dd/MM/yyyy.
+ */
+final class CsvExportWriter implements ExportWriter {
+
+    private static final char SEPARATOR = ';';
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+    private List<Column> columns;
+
+    CsvExportWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, Charset.forName("UTF-8")), BUFFER_SIZE);
+    }
+
+    @Override
+    public void begin(List<Column> columns) throws IOException {
+        this.columns = columns;
+        // BOM: sem ele o Excel lê o arquivo como Latin-1
+        out.write('\uFEFF');
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(SEPARATOR);
+            }
+            writeText(columns.get(i).name);
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void row(Object[] cells) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(SEPARATOR);
+            }
+            Object cell = i < cells.length ? cells[i] : null;
+            if (cell == null) {
+                continue;
+            }
+            switch (columns.get(i).type) {
+                case NUMBER:
+                    out.write(decimal((Number) cell));
+                    break;
+                case MONEY:
+                    out.write(String.format(Locale.US, "%.2f", ((Number) cell).doubleValue()).replace('.', ','));
+                    break;
+                case DATE:
+                    String date = (String) cell;
+                    out.write(date.length() >= 10
+                            ? date.substring(8, 10) + '/' + date.substring(5, 7) + '/' + date.substring(0, 4)
+                            : date);
+                    break;
+                default:
+                    writeText(cell.toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void writeText(String value) throws IOException {
+        // Texto começando com =, +, - ou @ viraria fórmula na planilha
+        boolean formula = !value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0;
+        boolean quote = formula;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == SEPARATOR || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        if (formula) {
+            out.write('\'');
+        }
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static String decimal(Number value) {
+        if (value instanceof Long || value instanceof Integer) {
+            return value.toString();
+        }
+        return BigDecimal.valueOf(value.doubleValue()).stripTrailingZeros().toPlainString().replace('.', ',');
+    }
+}
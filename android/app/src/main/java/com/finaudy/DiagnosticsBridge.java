@@ -0,0 +1,59 @@
+package com.finaudy;
+
+import android.app.Activity;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Export, confirmação e resumo do {@link DiagnosticsLog} pela ponte. */
+final class DiagnosticsBridge {
+
+    /** Na UI thread; null se o diagnóstico não pôde ser ligado. */
+    interface Source {
+        @Nullable
+        DiagnosticsMonitor monitor();
+    }
+
+    private static final int EXPORT_LIMIT = 200;
+
+    private final Activity activity;
+    private final Source source;
+
+    DiagnosticsBridge(Activity activity, Source source) {
+        this.activity = activity;
+        this.source = source;
+    }
+
+    /** Os registros moram na thread de diagnóstico; a tarefa roda lá. */
+    private void withLog(MessagePortBridge.Call call, DiagnosticsMonitor.LogTask task) {
+        activity.runOnUiThread(() -> {
+            DiagnosticsMonitor monitor = source.monitor();
+            if (monitor == null) {
+                call.reject("Diagnóstico indisponível");
+                return;
+            }
+            monitor.post(task, call);
+        });
+    }
+
+    void register(MessagePortBridge bridge) {
+        bridge.register("diagnosticsExport", call -> {
+            int limit = call.params.optInt("limit", EXPORT_LIMIT);
+            withLog(call, log -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("records", log.export(limit));
+                call.resolve(new JSONObject(Json.stringify(result)));
+            });
+        });
+        bridge.register("diagnosticsAcknowledge", call -> {
+            long seq = call.params.getLong("seq");
+            withLog(call, log -> call.resolve(log.acknowledge(seq)));
+        });
+        bridge.register("diagnosticsSummary", call ->
+                withLog(call, log -> call.resolve(new JSONObject(Json.stringify(log.summary())))));
+    }
+}
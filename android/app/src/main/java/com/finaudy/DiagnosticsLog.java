@@ -0,0 +1,221 @@
+package com.finaudy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro em disco de travamentos, jank e violações do StrictMode, limitado a maxBytes: uma
+ * linha JSON por registro em dois arquivos que se revezam (quando o atual enche, o anterior é
+ * apagado). Cada registro leva seq, tipo, horário e versão do app; a página exporta em lotes
+ * e confirma com {@link #acknowledge} o que já enviou.
+ *
+ * Faz I/O em toda chamada: usar fora da main thread. Thread-safe.
+ */
+final class DiagnosticsLog {
+
+    interface Clock {
+        long millis();
+    }
+
+    static final String TYPE_STALL = "stall";
+    static final String TYPE_ANR = "anr";
+    static final String TYPE_FRAMES = "frames";
+    static final String TYPE_STRICT_MODE = "strictMode";
+
+    private final File current;
+    private final File previous;
+    private final long maxBytes;
+    private final String appVersion;
+    private final Clock clock;
+    private long nextSeq;
+
+    DiagnosticsLog(File dir, long maxBytes, String appVersion, Clock clock) {
+        dir.mkdirs();
+        this.current = new File(dir, "diagnostics-0.jsonl");
+        this.previous = new File(dir, "diagnostics-1.jsonl");
+        this.maxBytes = maxBytes;
+        this.appVersion = appVersion;
+        this.clock = clock;
+        dropTornTail(current);
+        List<Map<String, Object>> records = records();
+        nextSeq = records.isEmpty() ? 1 : seq(records.get(records.size() - 1)) + 1;
+    }
+
+    /** Grava um registro; um registro maior que meio buffer é descartado. */
+    synchronized void append(String type, Map<String, Object> fields) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("seq", nextSeq);
+        record.put("type", type);
+        record.put("at", clock.millis());
+        record.put("version", appVersion);
+        record.putAll(fields);
+        byte[] line = (Json.stringify(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        if (line.length > maxBytes / 2) {
+            return;
+        }
+        if (current.length() + line.length > maxBytes / 2) {
+            previous.delete();
+            if (!current.renameTo(previous)) {
+                current.delete();
+            }
+        }
+        try (OutputStream out = new FileOutputStream(current, true)) {
+            out.write(line);
+            nextSeq++;
+        } catch (IOException e) {
+            // Diagnóstico não pode derrubar o app; o registro se perde
+        }
+    }
+
+    /** Todos os registros, do mais antigo ao mais novo. */
+    synchronized List<Map<String, Object>> records() {
+        List<Map<String, Object>> records = new ArrayList<>();
+        read(previous, records);
+        read(current, records);
+        return records;
+    }
+
+    /** Lote para envio: os limit registros mais antigos ainda não confirmados. */
+    synchronized List<Map<String, Object>> export(int limit) {
+        List<Map<String, Object>> records = records();
+        return new ArrayList<>(records.subList(0, Math.min(limit, records.size())));
+    }
+
+    /** O servidor recebeu até seq: apaga esses registros. @return quantos foram apagados */
+    synchronized int acknowledge(long seq) {
+        List<Map<String, Object>> kept = new ArrayList<>();
+        int removed = 0;
+        for (Map<String, Object> record : records()) {
+            if (seq(record) <= seq) {
+                removed++;
+            } else {
+                kept.add(record);
+            }
+        }
+        if (removed == 0) {
+            return 0;
+        }
+        previous.delete();
+        File tmp = new File(current.getPath() + ".tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                for (Map<String, Object> record : kept) {
+                    out.write((Json.stringify(record) + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            if (!tmp.renameTo(current)) {
+                throw new IOException("Não foi possível substituir " + current);
+            }
+        } catch (IOException e) {
+            // No pior caso o próximo lote repete registros já enviados
+            tmp.delete();
+        }
+        return removed;
+    }
+
+    /**
+     * Resumo por versão do app: {"8.3": {"stall": {"count", "maxMs", "totalMs"}, "anr": {"count"},
+     * "frames": {"frames", "janky", "frozen", "jankRate"}, "strictMode": {"count", "violations": {...}}}}.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized Map<String, Object> summary() {
+        Map<String, Object> versions = new LinkedHashMap<>();
+        for (Map<String, Object> record : records()) {
+            String version = String.valueOf(record.get("version"));
+            Map<String, Object> summary = (Map<String, Object>) versions.get(version);
+            if (summary == null) {
+                summary = new LinkedHashMap<>();
+                versions.put(version, summary);
+            }
+            String type = String.valueOf(record.get("type"));
+            Map<String, Object> bucket = (Map<String, Object>) summary.get(type);
+            if (bucket == null) {
+                bucket = new LinkedHashMap<>();
+                summary.put(type, bucket);
+            }
+            add(bucket, "count", 1);
+            if (TYPE_STALL.equals(type)) {
+                long duration = number(record, "durationMs");
+                add(bucket, "totalMs", duration);
+                bucket.put("maxMs", Math.max(number(bucket, "maxMs"), duration));
+            } else if (TYPE_FRAMES.equals(type)) {
+                add(bucket, "frames", number(record, "frames"));
+                add(bucket, "janky", number(record, "janky"));
+                add(bucket, "frozen", number(record, "frozen"));
+                long frames = number(bucket, "frames");
+                bucket.put("jankRate", frames == 0 ? 0.0 : (double) number(bucket, "janky") / frames);
+            } else if (TYPE_STRICT_MODE.equals(type)) {
+                Map<String, Object> violations = (Map<String, Object>) bucket.get("violations");
+                if (violations == null) {
+                    violations = new LinkedHashMap<>();
+                    bucket.put("violations", violations);
+                }
+                add(violations, String.valueOf(record.get("violation")), Math.max(1, number(record, "count")));
+            }
+        }
+        return versions;
+    }
+
+    private static void read(File file, List<Map<String, Object>> into) {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    into.add(Json.parseObject(line));
+                } catch (RuntimeException e) {
+                    // Linha cortada pela morte do processo no meio da escrita
+                }
+            }
+        } catch (IOException e) {
+            // Arquivo ilegível: os registros dele se perdem
+        }
+    }
+
+    /** Sem isso o próximo append continuaria a linha cortada e os dois registros se perderiam. */
+    private static void dropTornTail(File file) {
+        if (file.length() == 0) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long end = raf.length();
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            raf.setLength(end);
+        } catch (IOException e) {
+            // Na pior hipótese perde-se um registro
+        }
+    }
+
+    private static long seq(Map<String, Object> record) {
+        return number(record, "seq");
+    }
+
+    private static long number(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static void add(Map<String, Object> map, String key, long delta) {
+        map.put(key, number(map, key) + delta);
+    }
+}
@@ -0,0 +1,250 @@
+package com.finaudy;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.os.strictmode.Violation;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.RequiresApi;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Liga o {@link MainThreadWatchdog}, o {@link FrameJankTracker} (FrameMetrics, API 24+) e o
+ * StrictMode com penaltyListener (API 28+) ao {@link DiagnosticsLog}. Tudo roda numa thread
+ * própria de baixa prioridade; a main thread só recebe o tick do watchdog. Vigia só com a
+ * activity em primeiro plano: {@link #start} no onResume, {@link #stop} no onPause.
+ */
+final class DiagnosticsMonitor {
+
+    interface LogTask {
+        void run(DiagnosticsLog log) throws Exception;
+    }
+
+    private static final String TAG = "Diagnostics";
+    private static final long CHECK_INTERVAL_MS = 100;
+    // Acima disso o usuário percebe a tela parada; o Android declara ANR com 5 s sem resposta a input
+    private static final long STALL_MS = 300;
+    private static final long ANR_MS = 5000;
+    private static final long MAX_BYTES = 256 * 1024;
+    private static final long FRAMES_FLUSH_MS = 60_000;
+    private static final int MAX_STACK_FRAMES = 40;
+    private static final String APP_PACKAGE = "com.finaudy";
+
+    private final Activity activity;
+    private final HandlerThread thread = new HandlerThread("Diagnostics", Process.THREAD_PRIORITY_BACKGROUND);
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MainThreadWatchdog watchdog;
+    private final FrameJankTracker frames;
+    // Só usados na thread de diagnóstico
+    private DiagnosticsLog log;
+    private final Map<String, Integer> violationRepeats = new HashMap<>();
+    private Object frameListener;
+    private boolean running;
+
+    private final Runnable checkLoop = new Runnable() {
+        @Override
+        public void run() {
+            watchdog.check();
+            handler.postDelayed(this, CHECK_INTERVAL_MS);
+        }
+    };
+    private final Runnable flushLoop = new Runnable() {
+        @Override
+        public void run() {
+            flushFrames();
+            handler.postDelayed(this, FRAMES_FLUSH_MS);
+        }
+    };
+
+    DiagnosticsMonitor(Activity activity, File dir, String appVersion) {
+        this.activity = activity;
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(() -> log = new DiagnosticsLog(dir, MAX_BYTES, appVersion, System::currentTimeMillis));
+        watchdog = new MainThreadWatchdog(new MainThreadWatchdog.MainThread() {
+            @Override
+            public void post(Runnable tick) {
+                mainHandler.post(tick);
+            }
+
+            @Override
+            public StackTraceElement[] stackTrace() {
+                return Looper.getMainLooper().getThread().getStackTrace();
+            }
+        }, SystemClock::uptimeMillis, STALL_MS, ANR_MS, new MainThreadWatchdog.Listener() {
+            @Override
+            public void onAnr(long blockedMs, StackTraceElement[] stack) {
+                Map<String, Object> fields = new LinkedHashMap<>();
+                fields.put("blockedMs", blockedMs);
+                fields.put("stack", stack(stack));
+                // Já na thread de diagnóstico: grava antes que o sistema mate o processo
+                log.append(DiagnosticsLog.TYPE_ANR, fields);
+                Log.w(TAG, "Main thread parada há " + blockedMs + " ms");
+            }
+
+            @Override
+            public void onStall(long durationMs, StackTraceElement[] stack, boolean reachedAnr) {
+                Map<String, Object> fields = new LinkedHashMap<>();
+                fields.put("durationMs", durationMs);
+                fields.put("reachedAnr", reachedAnr);
+                fields.put("stack", stack != null ? stack(stack) : null);
+                handler.post(() -> log.append(DiagnosticsLog.TYPE_STALL, fields));
+            }
+        });
+        frames = new FrameJankTracker(activity.getWindowManager().getDefaultDisplay().getRefreshRate());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            installStrictMode();
+        }
+    }
+
+    /** Na UI thread, no onResume. */
+    void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        handler.post(checkLoop);
+        handler.postDelayed(flushLoop, FRAMES_FLUSH_MS);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            watchFrames(activity.getWindow());
+        }
+    }
+
+    /** Na UI thread, no onPause: para de vigiar e grava o que acumulou. */
+    void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        handler.removeCallbacks(checkLoop);
+        handler.removeCallbacks(flushLoop);
+        watchdog.stop();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && frameListener != null) {
+            activity.getWindow().removeOnFrameMetricsAvailableListener((Window.OnFrameMetricsAvailableListener) frameListener);
+            frameListener = null;
+        }
+        handler.post(() -> {
+            flushFrames();
+            flushViolationRepeats();
+        });
+    }
+
+    void shutdown() {
+        stop();
+        thread.quitSafely();
+    }
+
+    /** Roda task com o log na thread de diagnóstico (export e resumo vindos da ponte). */
+    void post(LogTask task, MessagePortBridge.Call call) {
+        handler.post(() -> {
+            try {
+                task.run(log);
+            } catch (Exception e) {
+                call.reject(e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        });
+    }
+
+    @RequiresApi(Build.VERSION_CODES.N)
+    private void watchFrames(Window window) {
+        Window.OnFrameMetricsAvailableListener listener = (w, metrics, dropCount) -> {
+            // O primeiro frame de cada janela inclui layout inicial e não é jank de uso
+            if (metrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 0) {
+                frames.onFrame(metrics.getMetric(FrameMetrics.TOTAL_DURATION));
+            }
+        };
+        frameListener = listener;
+        window.addOnFrameMetricsAvailableListener(listener, handler);
+    }
+
+    @RequiresApi(Build.VERSION_CODES.P)
+    private void installStrictMode() {
+        // Só o listener: nada de log ou morte do processo, os registros vão para o DiagnosticsLog
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .penaltyListener(handler::post, violation -> onViolation("thread", violation))
+                .build());
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectLeakedClosableObjects()
+                .penaltyListener(handler::post, violation -> onViolation("vm", violation))
+                .build());
+    }
+
+    @RequiresApi(Build.VERSION_CODES.P)
+    private void onViolation(String policy, Violation violation) {
+        StackTraceElement[] stack = violation.getStackTrace();
+        String frame = appFrame(stack);
+        String signature = violation.getClass().getSimpleName() + "@" + frame;
+        Integer repeats = violationRepeats.get(signature);
+        if (repeats != null) {
+            // A mesma leitura a cada frame encheria o buffer: repetições saem somadas no onPause
+            violationRepeats.put(signature, repeats + 1);
+            return;
+        }
+        violationRepeats.put(signature, 0);
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("policy", policy);
+        fields.put("violation", violation.getClass().getSimpleName());
+        fields.put("frame", frame);
+        fields.put("count", 1);
+        fields.put("stack", stack(stack));
+        log.append(DiagnosticsLog.TYPE_STRICT_MODE, fields);
+    }
+
+    private void flushFrames() {
+        Map<String, Object> stats = frames.drain();
+        if (stats != null) {
+            log.append(DiagnosticsLog.TYPE_FRAMES, stats);
+        }
+    }
+
+    private void flushViolationRepeats() {
+        for (Map.Entry<String, Integer> entry : violationRepeats.entrySet()) {
+            if (entry.getValue() > 0) {
+                String signature = entry.getKey();
+                int at = signature.indexOf('@');
+                Map<String, Object> fields = new LinkedHashMap<>();
+                fields.put("violation", signature.substring(0, at));
+                fields.put("frame", signature.substring(at + 1));
+                fields.put("count", entry.getValue());
+                log.append(DiagnosticsLog.TYPE_STRICT_MODE, fields);
+                entry.setValue(0);
+            }
+        }
+    }
+
+    /** Primeiro frame do app na pilha (o que causou a violação), ou o topo se não houver. */
+    private static String appFrame(StackTraceElement[] stack) {
+        for (StackTraceElement element : stack) {
+            if (element.getClassName().startsWith(APP_PACKAGE)) {
+                return element.toString();
+            }
+        }
+        return stack.length > 0 ? stack[0].toString() : "?";
+    }
+
+    private static List<String> stack(StackTraceElement[] stack) {
+        List<String> lines = new ArrayList<>(Math.min(stack.length, MAX_STACK_FRAMES));
+        for (int i = 0; i < stack.length && i < MAX_STACK_FRAMES; i++) {
+            lines.add(stack[i].toString());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,178 @@
+package com.finaudy;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exportação de planilhas pela ponte: o seletor do sistema cria o arquivo e a página manda as
+ * linhas em lotes ({@link ExportJob}). Os jobs duram a activity; {@link #release} apaga os de
+ * uma página que foi embora.
+ */
+final class ExportBridge {
+
+    static final int REQUEST_CODE = 4;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    private final MainActivity activity;
+    private final Executor ioExecutor;
+    // Exportação esperando o usuário escolher o arquivo (só na UI thread), e as que já estão gravando
+    private MessagePortBridge.Call pendingCall;
+    private final Map<String, ExportJob> exports = new ConcurrentHashMap<>();
+    private final Map<String, Uri> uris = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+
+    ExportBridge(MainActivity activity, Executor ioExecutor) {
+        this.activity = activity;
+        this.ioExecutor = ioExecutor;
+    }
+
+    /** Arquivo de destino escolhido (ou seletor fechado). */
+    void onActivityResult(int resultCode, @Nullable Intent data) {
+        MessagePortBridge.Call call = pendingCall;
+        pendingCall = null;
+        if (call == null) {
+            return;
+        }
+        if (resultCode == Activity.RESULT_OK && data != null && data.getData() != null) {
+            start(call, data.getData());
+        } else {
+            call.reject("Exportação cancelada");
+        }
+    }
+
+    /** A página que mandava as linhas acabou: os arquivos ficariam incompletos. */
+    void release() {
+        for (String id : exports.keySet()) {
+            abort(id);
+        }
+    }
+
+    private ExportJob require(String id) {
+        ExportJob job = exports.get(id);
+        if (job == null) {
+            throw new CancellationException("Exportação " + id + " não existe ou foi cancelada");
+        }
+        return job;
+    }
+
+    /** Chamado com o arquivo escolhido no seletor: abre o stream e cria o job. */
+    private void start(MessagePortBridge.Call call, Uri uri) {
+        ioExecutor.execute(() -> {
+            String id = "export-" + ids.incrementAndGet();
+            try {
+                OutputStream out = activity.getContentResolver().openOutputStream(uri, "w");
+                if (out == null) {
+                    throw new IOException("Não foi possível abrir " + uri);
+                }
+                JSONArray sheets = call.params.optJSONArray("sheets");
+                ExportJob job = new ExportJob(id, call.params.getString("format"), out,
+                        ExportJob.columns(Json.parseArray(call.params.getJSONArray("columns").toString())),
+                        sheets != null ? ExportJob.sheets(Json.parseArray(sheets.toString()))
+                                : Collections.<XlsxExportWriter.Sheet>emptyList(),
+                        call.params.optLong("total", 0), PROGRESS_INTERVAL_MS,
+                        progress -> activity.getEventBus().postLatest("onExportProgress",
+                                progress.id, progress.rows(), progress.total));
+                uris.put(id, uri);
+                exports.put(id, job);
+                JSONObject result = new JSONObject();
+                result.put("id", id);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e("ExportBridge", "Erro ao iniciar exportação", e);
+                deleteDocument(uri);
+                call.reject(e.getMessage());
+            }
+        });
+    }
+
+    /** Cancela (ou desiste depois de um erro) e apaga o arquivo incompleto. */
+    private void abort(String id) {
+        ExportJob job = exports.remove(id);
+        Uri uri = uris.remove(id);
+        if (job != null) {
+            job.cancel();
+        }
+        if (uri != null) {
+            deleteDocument(uri);
+        }
+    }
+
+    private void deleteDocument(Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(activity.getContentResolver(), uri);
+        } catch (Exception e) {
+            // Provedor sem suporte a apagar: fica um arquivo incompleto, que o usuário vê e remove
+            Log.w("ExportBridge", "Não foi possível apagar a exportação incompleta", e);
+        }
+    }
+
+    void register(MessagePortBridge bridge) {
+        // {format: "csv" | "xlsx", fileName, columns: [{name, type, width}], total, sheets?: [{name,
+        // columns, rows}]}: abre o seletor do sistema e resolve com {id} quando o arquivo foi criado;
+        // as abas de sheets (resumo) vão na planilha antes das linhas
+        bridge.register("exportStart", call -> {
+            String format = call.params.getString("format");
+            String mimeType = ExportJob.FORMAT_XLSX.equals(format)
+                    ? "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" : "text/csv";
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                    .addCategory(Intent.CATEGORY_OPENABLE)
+                    .setType(mimeType)
+                    .putExtra(Intent.EXTRA_TITLE, call.params.getString("fileName"));
+            activity.runOnUiThread(() -> {
+                if (pendingCall != null) {
+                    pendingCall.reject("Outra exportação foi iniciada");
+                }
+                pendingCall = call;
+                activity.startActivityForResult(intent, REQUEST_CODE);
+            });
+        });
+        // {id, rows: [[...], ...]}: grava o lote antes de responder, então a página nunca está mais
+        // de um lote à frente do arquivo
+        bridge.register("exportRows", call -> {
+            ExportJob job = require(call.params.getString("id"));
+            try {
+                job.append(Json.parseArray(call.params.getJSONArray("rows").toString()));
+            } catch (IOException e) {
+                abort(job.id);
+                throw e;
+            }
+            call.resolve(job.rows());
+        });
+        bridge.register("exportFinish", call -> {
+            ExportJob job = require(call.params.getString("id"));
+            try {
+                job.finish();
+            } catch (IOException e) {
+                abort(job.id);
+                throw e;
+            }
+            exports.remove(job.id);
+            uris.remove(job.id);
+            JSONObject result = new JSONObject();
+            result.put("rows", job.rows());
+            result.put("bytes", job.bytes());
+            call.resolve(result);
+        });
+        bridge.register("exportCancel", call -> {
+            abort(call.params.getString("id"));
+            call.resolve(true);
+        });
+    }
+}
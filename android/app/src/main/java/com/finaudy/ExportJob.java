@@ -0,0 +1,206 @@
+package com.finaudy;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Uma exportação em andamento: recebe as linhas em lotes (na ordem em que a página as mostra),
+ * grava cada lote no arquivo escolhido pelo usuário e avisa o progresso no máximo a cada
+ * progressIntervalMs. Só o lote atual fica em memória.
+ */
+final class ExportJob {
+
+    static final String FORMAT_CSV = "csv";
+    static final String FORMAT_XLSX = "xlsx";
+
+    interface Listener {
+        void onProgress(ExportJob job);
+    }
+
+    /** Conta os bytes gravados, para o progresso e o resultado. */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    final String id;
+    // Linhas esperadas, informadas pela página; 0 se desconhecido
+    final long total;
+    private final CountingOutputStream out;
+    private final ExportWriter writer;
+    private final List<ExportWriter.Column> columns;
+    private final long progressIntervalMs;
+    private final Listener listener;
+    private volatile boolean cancelled;
+    private boolean closed;
+    private long rows;
+    private long lastProgressAt;
+
+    ExportJob(String id, String format, OutputStream out, List<ExportWriter.Column> columns, long total,
+              long progressIntervalMs, Listener listener) throws IOException {
+        this(id, format, out, columns, Collections.<XlsxExportWriter.Sheet>emptyList(), total,
+                progressIntervalMs, listener);
+    }
+
+    /** @param sheets abas prontas gravadas antes das linhas (só na planilha; o CSV as ignora) */
+    ExportJob(String id, String format, OutputStream out, List<ExportWriter.Column> columns,
+              List<XlsxExportWriter.Sheet> sheets, long total, long progressIntervalMs,
+              Listener listener) throws IOException {
+        this.id = id;
+        this.total = total;
+        this.out = new CountingOutputStream(out);
+        this.columns = columns;
+        this.progressIntervalMs = progressIntervalMs;
+        this.listener = listener;
+        if (FORMAT_CSV.equals(format)) {
+            writer = new CsvExportWriter(this.out);
+        } else if (FORMAT_XLSX.equals(format)) {
+            writer = new XlsxExportWriter(this.out, "Transações", sheets);
+        } else {
+            throw new IllegalArgumentException("Formato de exportação inválido: " + format);
+        }
+        writer.begin(columns);
+    }
+
+    synchronized long rows() {
+        return rows;
+    }
+
+    synchronized long bytes() {
+        return out.count;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @param batch linhas como arrays JSON, uma célula por coluna
+     * @throws CancellationException se a exportação foi cancelada
+     */
+    synchronized void append(List<Object> batch) throws IOException {
+        Object[] cells = new Object[columns.size()];
+        for (Object row : batch) {
+            if (cancelled) {
+                throw new CancellationException("Exportação " + id + " cancelada");
+            }
+            List<?> values = (List<?>) row;
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = i < values.size() ? cell(columns.get(i).type, values.get(i)) : null;
+            }
+            writer.row(cells);
+            rows++;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastProgressAt >= progressIntervalMs) {
+            lastProgressAt = now;
+            listener.onProgress(this);
+        }
+    }
+
+    /** Fecha o arquivo; o último progresso sai sempre, com o total final. */
+    synchronized void finish() throws IOException {
+        if (cancelled) {
+            throw new CancellationException("Exportação " + id + " cancelada");
+        }
+        writer.finish();
+        closed = true;
+        out.close();
+        listener.onProgress(this);
+    }
+
+    /** Interrompe o lote em andamento e fecha o arquivo incompleto; quem chamou apaga o documento. */
+    void cancel() {
+        cancelled = true;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // Arquivo incompleto vai ser apagado de qualquer forma
+            }
+        }
+    }
+
+    private static Object cell(ExportWriter.Type type, Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (type) {
+            case NUMBER:
+            case MONEY:
+                if (value instanceof Number) {
+                    return value;
+                }
+                try {
+                    return Double.parseDouble(value.toString().replace(',', '.'));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            default:
+                return value.toString();
+        }
+    }
+
+    /** Abas prontas como a página manda: [{name, columns, rows: [[...], ...]}]. */
+    static List<XlsxExportWriter.Sheet> sheets(List<Object> specs) {
+        List<XlsxExportWriter.Sheet> sheets = new ArrayList<>();
+        for (Object item : specs) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> spec = (Map<String, Object>) item;
+            @SuppressWarnings("unchecked")
+            List<ExportWriter.Column> columns = columns((List<Object>) spec.get("columns"));
+            List<Object[]> rows = new ArrayList<>();
+            for (Object row : (List<?>) spec.get("rows")) {
+                List<?> values = (List<?>) row;
+                Object[] cells = new Object[columns.size()];
+                for (int i = 0; i < cells.length; i++) {
+                    cells[i] = i < values.size() ? cell(columns.get(i).type, values.get(i)) : null;
+                }
+                rows.add(cells);
+            }
+            sheets.add(new XlsxExportWriter.Sheet(Json.string(spec, "name"), columns, rows));
+        }
+        return sheets;
+    }
+
+    /** Colunas como a página manda: [{name, type: "text" | "number" | "money" | "date", width}]. */
+    static List<ExportWriter.Column> columns(List<Object> specs) {
+        List<ExportWriter.Column> columns = new ArrayList<>();
+        for (Object item : specs) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> spec = (Map<String, Object>) item;
+            String type = Json.string(spec, "type");
+            Object width = spec.get("width");
+            columns.add(new ExportWriter.Column(Json.string(spec, "name"),
+                    ExportWriter.Type.valueOf((type != null ? type : "text").toUpperCase(Locale.US)),
+                    width instanceof Number ? ((Number) width).intValue() : 15));
+        }
+        return columns;
+    }
+}
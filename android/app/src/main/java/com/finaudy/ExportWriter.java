@@ -0,0 +1,43 @@
+package com.finaudy;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Grava uma tabela (cabeçalho + linhas) direto num OutputStream, linha a linha, sem montar o
+ * arquivo em memória: a exportação de uma conta grande custa o mesmo que a de uma pequena.
+ */
+interface ExportWriter {
+
+    enum Type {
+        TEXT,
+        NUMBER,
+        // Valor em reais: duas casas e formato de moeda onde o formato permite
+        MONEY,
+        // "yyyy-MM-dd"
+        DATE
+    }
+
+    final class Column {
+        final String name;
+        final Type type;
+        // Largura em caracteres (só a planilha usa)
+        final int width;
+
+        Column(String name, Type type, int width) {
+            this.name = name;
+            this.type = type;
+            this.width = width;
+        }
+    }
+
+    void begin(List<Column> columns) throws IOException;
+
+    /**
+     * @param cells uma por coluna: String (TEXT, DATE), Number (NUMBER, MONEY) ou null (vazia)
+     */
+    void row(Object[] cells) throws IOException;
+
+    /** Fecha a estrutura do arquivo e descarrega o buffer; não fecha o stream. */
+    void finish() throws IOException;
+}
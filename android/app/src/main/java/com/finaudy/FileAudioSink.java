@@ -0,0 +1,58 @@
+package com.finaudy;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Grava os pedaços de áudio num arquivo local (usado para entregar o blob à página). */
+public class FileAudioSink implements AudioChunkSink {
+
+    private final File file;
+    private OutputStream out;
+    private long bytesWritten;
+
+    public FileAudioSink(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void open(String mimeType) throws IOException {
+        out = new BufferedOutputStream(new FileOutputStream(file));
+        bytesWritten = 0;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        out.write(data, offset, length);
+        bytesWritten += length;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.close();
+        out = null;
+    }
+
+    @Override
+    public void abort() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // o arquivo será apagado de qualquer forma
+            }
+            out = null;
+        }
+        file.delete();
+    }
+}
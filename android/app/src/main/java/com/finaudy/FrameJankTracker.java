@@ -0,0 +1,54 @@
+package com.finaudy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estatística dos frames desenhados (FrameMetrics TOTAL_DURATION): jank é o frame que passou
+ * do orçamento do display, congelado o que levou FROZEN_NANOS ou mais. {@link #drain} devolve
+ * o acumulado desde a última chamada e zera, para virar um registro no DiagnosticsLog.
+ */
+final class FrameJankTracker {
+
+    // Mesmo corte do Android vitals para "frozen frame"
+    static final long FROZEN_NANOS = 700_000_000L;
+
+    private final long budgetNanos;
+    private BridgeMetrics.Histogram durations = new BridgeMetrics.Histogram();
+    private long janky;
+    private long frozen;
+
+    FrameJankTracker(float refreshRate) {
+        this.budgetNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    synchronized void onFrame(long durationNanos) {
+        durations.record(durationNanos / 1000);
+        if (durationNanos > budgetNanos) {
+            janky++;
+        }
+        if (durationNanos >= FROZEN_NANOS) {
+            frozen++;
+        }
+    }
+
+    /** {"frames", "janky", "frozen", "p50Ms", "p90Ms", "p99Ms", "worstMs", "budgetMs"}; null sem frames. */
+    synchronized Map<String, Object> drain() {
+        if (durations.count() == 0) {
+            return null;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("frames", durations.count());
+        stats.put("janky", janky);
+        stats.put("frozen", frozen);
+        stats.put("p50Ms", durations.percentile(50) / 1000.0);
+        stats.put("p90Ms", durations.percentile(90) / 1000.0);
+        stats.put("p99Ms", durations.percentile(99) / 1000.0);
+        stats.put("worstMs", durations.max() / 1000.0);
+        stats.put("budgetMs", budgetNanos / 1e6);
+        durations = new BridgeMetrics.Histogram();
+        janky = 0;
+        frozen = 0;
+        return stats;
+    }
+}
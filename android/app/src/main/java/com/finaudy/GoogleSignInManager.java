@@ -0,0 +1,165 @@
+package com.finaudy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Login Google em três degraus, do mais barato ao mais caro: o ID token em cache (da última
+ * conta logada) se ainda vale por MIN_VALIDITY_MS, o silentSignIn (rede, sem UI) e por último o
+ * fluxo interativo com o seletor de contas. O caminho usado e o tempo até o token vão para a página.
+ *
+ * Não é thread-safe: chamar sempre na UI thread, onde o GoogleSignInClient também responde.
+ */
+final class GoogleSignInManager {
+
+    interface Clock {
+        long millis();
+    }
+
+    interface Callback {
+        /** idToken null quando falhou; errorCode é o status do ApiException (0 sem erro). */
+        void onResult(String idToken, int errorCode);
+    }
+
+    interface Client {
+        /** ID token da última conta logada neste aparelho, sem rede; null se não houver. */
+        String cachedIdToken();
+
+        void silentSignIn(Callback callback);
+
+        /**
+         * Abre o seletor de contas; chooseAccount desconecta a conta atual antes. O resultado
+         * volta por {@link GoogleSignInManager#onInteractiveResult}.
+         */
+        void launchInteractive(boolean chooseAccount);
+
+        /** Esquece a conta conectada, para o próximo login não reaproveitar token nem login silencioso. */
+        void signOut();
+    }
+
+    interface Listener {
+        void onSignedIn(String idToken, String path, long elapsedMs);
+
+        void onFailed(int errorCode, String path, long elapsedMs);
+    }
+
+    static final String PATH_CACHED = "cached";
+    static final String PATH_SILENT = "silent";
+    static final String PATH_INTERACTIVE = "interactive";
+    // O Supabase valida o token logo em seguida; com menos que isso, melhor renovar
+    static final long MIN_VALIDITY_MS = 5 * 60 * 1000L;
+    static final int SIGN_IN_CANCELLED = 12501;
+
+    private final Client client;
+    private final Clock clock;
+    private final Listener listener;
+    private boolean inProgress;
+    private long startedAt;
+
+    GoogleSignInManager(Client client, Clock clock, Listener listener) {
+        this.client = client;
+        this.clock = clock;
+        this.listener = listener;
+    }
+
+    /** @param chooseAccount pula os atalhos e mostra o seletor (ex.: "usar outra conta") */
+    void signIn(boolean chooseAccount) {
+        if (inProgress) {
+            // Toque duplo no botão: o login em andamento responde pelos dois
+            return;
+        }
+        inProgress = true;
+        startedAt = clock.millis();
+        if (chooseAccount) {
+            client.launchInteractive(true);
+            return;
+        }
+        String cached = client.cachedIdToken();
+        if (cached != null && expiresAtMs(cached) - clock.millis() >= MIN_VALIDITY_MS) {
+            succeed(cached, PATH_CACHED);
+            return;
+        }
+        client.silentSignIn((idToken, errorCode) -> {
+            if (idToken != null) {
+                succeed(idToken, PATH_SILENT);
+            } else {
+                // SIGN_IN_REQUIRED, consentimento revogado ou rede: o fluxo interativo resolve ou mostra o erro
+                client.launchInteractive(false);
+            }
+        });
+    }
+
+    /** Logout do app: sem isso o próximo login entraria de novo, sem seletor, na mesma conta. */
+    void signOut() {
+        client.signOut();
+    }
+
+    /** Resultado do Intent de login (onActivityResult). */
+    void onInteractiveResult(String idToken, int errorCode) {
+        if (!inProgress) {
+            return;
+        }
+        if (idToken != null) {
+            succeed(idToken, PATH_INTERACTIVE);
+        } else {
+            inProgress = false;
+            listener.onFailed(errorCode, PATH_INTERACTIVE, clock.millis() - startedAt);
+        }
+    }
+
+    private void succeed(String idToken, String path) {
+        inProgress = false;
+        listener.onSignedIn(idToken, path, clock.millis() - startedAt);
+    }
+
+    /** Campo exp do JWT em ms; 0 se o token não puder ser lido (e então não é reaproveitado). */
+    static long expiresAtMs(String idToken) {
+        int start = idToken.indexOf('.');
+        int end = start < 0 ? -1 : idToken.indexOf('.', start + 1);
+        if (end < 0) {
+            return 0;
+        }
+        try {
+            Map<String, Object> claims = Json.parseObject(new String(decodeBase64Url(idToken.substring(start + 1, end)),
+                    StandardCharsets.UTF_8));
+            Object exp = claims.get("exp");
+            return exp instanceof Number ? ((Number) exp).longValue() * 1000 : 0;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    // java.util.Base64 só existe a partir da API 26 e android.util.Base64 não roda nos testes
+    private static byte[] decodeBase64Url(String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() * 3 / 4);
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int value;
+            if (c >= 'A' && c <= 'Z') {
+                value = c - 'A';
+            } else if (c >= 'a' && c <= 'z') {
+                value = c - 'a' + 26;
+            } else if (c >= '0' && c <= '9') {
+                value = c - '0' + 52;
+            } else if (c == '-' || c == '+') {
+                value = 62;
+            } else if (c == '_' || c == '/') {
+                value = 63;
+            } else if (c == '=') {
+                break;
+            } else {
+                throw new IllegalArgumentException("Base64 inválido");
+            }
+            buffer = (buffer << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out.write((buffer >> bits) & 0xFF);
+            }
+        }
+        return out.toByteArray();
+    }
+}
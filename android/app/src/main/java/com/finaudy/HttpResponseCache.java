@@ -0,0 +1,283 @@
+package com.finaudy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Respostas HTTP guardadas em disco, limitadas pelo total de bytes e descartadas da menos
+ * usada para a mais usada. Cada entrada são dois arquivos: {key}.meta (status, cabeçalhos,
+ * validadores) e {key}.body. A ordem de uso sobrevive ao processo pela data de modificação
+ * do .meta.
+ */
+final class HttpResponseCache {
+
+    private static final String META_SUFFIX = ".meta";
+    private static final String BODY_SUFFIX = ".body";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    static final class Entry {
+        final String key;
+        final String url;
+        final String path;
+        final int status;
+        final String reason;
+        final Map<String, String> headers;
+        final long storedAt;
+        final File body;
+        final long length;
+
+        Entry(String key, String url, String path, int status, String reason, Map<String, String> headers,
+              long storedAt, File body, long length) {
+            this.key = key;
+            this.url = url;
+            this.path = path;
+            this.status = status;
+            this.reason = reason;
+            this.headers = Collections.unmodifiableMap(headers);
+            this.storedAt = storedAt;
+            this.body = body;
+            this.length = length;
+        }
+
+        String header(String name) {
+            return CachingHttpFetcher.header(headers, name);
+        }
+
+        Entry withStoredAt(long now) {
+            return new Entry(key, url, path, status, reason, headers, now, body, length);
+        }
+    }
+
+    private final File dir;
+    private final long maxBytes;
+    // Ordem de acesso: o primeiro item é o menos usado recentemente
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean loaded;
+    private long totalBytes;
+    private long evictions;
+
+    HttpResponseCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized Entry get(String key) {
+        load();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.body.exists()) {
+            remove(key);
+            return null;
+        }
+        new File(dir, key + META_SUFFIX).setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    synchronized Entry put(String key, String url, String path, int status, String reason,
+                           Map<String, String> headers, byte[] body, long now) throws IOException {
+        load();
+        if (body.length > maxBytes) {
+            return null;
+        }
+        File bodyFile = new File(dir, key + BODY_SUFFIX);
+        File tmp = new File(dir, key + BODY_SUFFIX + TMP_SUFFIX);
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(body);
+        }
+        remove(key);
+        if (!tmp.renameTo(bodyFile)) {
+            tmp.delete();
+            throw new IOException("Não foi possível gravar " + bodyFile);
+        }
+        Entry entry = new Entry(key, url, path, status, reason, new LinkedHashMap<>(headers), now, bodyFile, body.length);
+        writeMeta(entry);
+        entries.put(key, entry);
+        totalBytes += entry.length;
+        trimToSize(maxBytes, key);
+        return entry;
+    }
+
+    /** Resposta 304: o corpo guardado continua válido a partir de agora. */
+    synchronized Entry refresh(Entry entry, long now) throws IOException {
+        Entry current = entries.get(entry.key);
+        if (current == null) {
+            return entry.withStoredAt(now);
+        }
+        Entry refreshed = current.withStoredAt(now);
+        writeMeta(refreshed);
+        entries.put(entry.key, refreshed);
+        return refreshed;
+    }
+
+    /** @return quantas entradas tinham exatamente esse path (ex.: "/rest/v1/transactions") */
+    synchronized int invalidatePath(String path) {
+        load();
+        List<String> keys = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.path.equals(path)) {
+                keys.add(entry.key);
+            }
+        }
+        for (String key : keys) {
+            remove(key);
+        }
+        return keys.size();
+    }
+
+    synchronized void clear() {
+        load();
+        for (String key : new ArrayList<>(entries.keySet())) {
+            remove(key);
+        }
+    }
+
+    synchronized long size() {
+        load();
+        return totalBytes;
+    }
+
+    synchronized int count() {
+        load();
+        return entries.size();
+    }
+
+    synchronized long evictionCount() {
+        return evictions;
+    }
+
+    private void trimToSize(long limit, String keep) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > limit && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            if (eldest.key.equals(keep)) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= eldest.length;
+            deleteFiles(eldest.key);
+            evictions++;
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.length;
+        }
+        deleteFiles(key);
+    }
+
+    private void deleteFiles(String key) {
+        new File(dir, key + META_SUFFIX).delete();
+        new File(dir, key + BODY_SUFFIX).delete();
+    }
+
+    /** Reconstrói o índice a partir do disco no primeiro acesso, fora da UI thread. */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> metas = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(META_SUFFIX)) {
+                metas.add(file);
+            } else if (name.endsWith(TMP_SUFFIX)
+                    || (name.endsWith(BODY_SUFFIX) && !new File(dir, name.replace(BODY_SUFFIX, META_SUFFIX)).exists())) {
+                // Sobras de uma escrita interrompida
+                file.delete();
+            }
+        }
+        Collections.sort(metas, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File meta : metas) {
+            Entry entry = readMeta(meta);
+            if (entry == null || !entry.body.exists()) {
+                deleteFiles(meta.getName().substring(0, meta.getName().length() - META_SUFFIX.length()));
+                continue;
+            }
+            entries.put(entry.key, entry);
+            totalBytes += entry.length;
+        }
+        trimToSize(maxBytes, null);
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        File meta = new File(dir, entry.key + META_SUFFIX);
+        File tmp = new File(dir, entry.key + META_SUFFIX + TMP_SUFFIX);
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            out.write("url\t" + clean(entry.url) + "\n");
+            out.write("path\t" + clean(entry.path) + "\n");
+            out.write("status\t" + entry.status + "\n");
+            out.write("reason\t" + clean(entry.reason) + "\n");
+            out.write("storedAt\t" + entry.storedAt + "\n");
+            out.write("length\t" + entry.length + "\n");
+            for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+                out.write("h\t" + clean(header.getKey()) + "\t" + clean(header.getValue()) + "\n");
+            }
+        }
+        if (!tmp.renameTo(meta)) {
+            tmp.delete();
+            throw new IOException("Não foi possível gravar " + meta);
+        }
+    }
+
+    private Entry readMeta(File meta) {
+        String key = meta.getName().substring(0, meta.getName().length() - META_SUFFIX.length());
+        Map<String, String> fields = new LinkedHashMap<>();
+        Map<String, String> headers = new LinkedHashMap<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(meta), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                List<String> parts = Arrays.asList(line.split("\t", 3));
+                if (parts.size() == 3 && parts.get(0).equals("h")) {
+                    headers.put(parts.get(1), parts.get(2));
+                } else if (parts.size() >= 2) {
+                    fields.put(parts.get(0), line.substring(parts.get(0).length() + 1));
+                }
+            }
+            if (fields.get("url") == null || fields.get("path") == null) {
+                return null;
+            }
+            return new Entry(key, fields.get("url"), fields.get("path"), Integer.parseInt(fields.get("status")),
+                    fields.get("reason"), headers, Long.parseLong(fields.get("storedAt")),
+                    new File(dir, key + BODY_SUFFIX), Long.parseLong(fields.get("length")));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
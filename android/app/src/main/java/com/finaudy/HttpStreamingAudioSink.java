@@ -0,0 +1,163 @@
+package com.finaudy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envia o áudio para o servidor num único POST com Transfer-Encoding: chunked, um pedaço
+ * por vez, para a transcrição começar antes de o usuário soltar o botão. O envio roda numa
+ * thread própria para a rede nunca bloquear a captura.
+ */
+public class HttpStreamingAudioSink implements AudioChunkSink {
+
+    public interface ResponseListener {
+        void onResponse(int statusCode, String body);
+    }
+
+    private static final byte[] END_OF_STREAM = new byte[0];
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+    private static final long FINISH_TIMEOUT_MS = 45_000;
+
+    private final URL url;
+    private final Map<String, String> headers;
+    private final ResponseListener responseListener;
+    private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+
+    private Thread sender;
+    private volatile HttpURLConnection connection;
+    private volatile IOException failure;
+    private volatile boolean aborted;
+    private volatile long bytesSent;
+
+    public HttpStreamingAudioSink(URL url, Map<String, String> headers, ResponseListener responseListener) {
+        this.url = url;
+        this.headers = headers != null ? new LinkedHashMap<>(headers) : new LinkedHashMap<String, String>();
+        this.responseListener = responseListener;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public void open(final String mimeType) {
+        sender = new Thread(() -> send(mimeType), "audio-upload");
+        sender.start();
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        queue.add(Arrays.copyOfRange(data, offset, offset + length));
+    }
+
+    @Override
+    public void finish() throws IOException {
+        queue.add(END_OF_STREAM);
+        try {
+            sender.join(FINISH_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new IOException("Envio de áudio interrompido", e);
+        }
+        if (sender.isAlive()) {
+            abort();
+            throw new IOException("Tempo esgotado ao enviar áudio");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void abort() {
+        aborted = true;
+        queue.clear();
+        queue.add(END_OF_STREAM);
+        HttpURLConnection open = connection;
+        if (open != null) {
+            open.disconnect();
+        }
+    }
+
+    private void send(String mimeType) {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) url.openConnection();
+            connection = conn;
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.setChunkedStreamingMode(0);
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setRequestProperty("Content-Type", mimeType);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                conn.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            OutputStream out = conn.getOutputStream();
+            while (!aborted) {
+                byte[] chunk = queue.poll(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (chunk == null) {
+                    throw new IOException("Nenhum áudio recebido por " + READ_TIMEOUT_MS + "ms");
+                }
+                if (chunk == END_OF_STREAM) {
+                    break;
+                }
+                out.write(chunk);
+                // flush força o envio do pedaço agora em vez de esperar o buffer encher
+                out.flush();
+                bytesSent += chunk.length;
+            }
+            if (aborted) {
+                return;
+            }
+            out.close();
+
+            int status = conn.getResponseCode();
+            String body = readBody(status >= 400 ? conn.getErrorStream() : conn.getInputStream());
+            if (responseListener != null) {
+                responseListener.onResponse(status, body);
+            }
+            if (status >= 400) {
+                failure = new IOException("Servidor respondeu " + status);
+            }
+        } catch (IOException e) {
+            if (!aborted) {
+                failure = e;
+            }
+        } catch (InterruptedException e) {
+            failure = new IOException("Envio de áudio interrompido", e);
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            NativeBlobStore.copy(in, body);
+            return body.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
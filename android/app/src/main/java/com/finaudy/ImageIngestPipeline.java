@@ -0,0 +1,351 @@
+package com.finaudy;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.exifinterface.media.ExifInterface;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Ingestão de imagens da câmera/galeria fora da thread principal: lê só as dimensões,
+ * decodifica com inSampleSize próximo da resolução útil para o OCR, aplica a rotação EXIF
+ * e codifica dentro de um orçamento de bytes direto para o {@link NativeBlobStore}.
+ * Roda no {@link BridgeDispatcher}, com o limite da operação e cancelada quando a página navega.
+ */
+public class ImageIngestPipeline {
+
+    private static final String TAG = "ImageIngestPipeline";
+    private static final int MAX_ENCODE_ATTEMPTS = 5;
+
+    public enum OutputFormat {
+        JPEG("image/jpeg", "jpg"),
+        WEBP("image/webp", "webp");
+
+        final String mimeType;
+        final String extension;
+
+        OutputFormat(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+    }
+
+    public static final class Options {
+        // Recibos ficam legíveis para o OCR com ~2000px no lado maior
+        int targetLongEdge = 2048;
+        long maxBytes = 1536 * 1024;
+        int minQuality = 50;
+        int maxQuality = 90;
+        OutputFormat format = OutputFormat.JPEG;
+        String name = "image";
+
+        public Options setTargetLongEdge(int targetLongEdge) {
+            this.targetLongEdge = targetLongEdge;
+            return this;
+        }
+
+        public Options setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        public Options setQualityRange(int minQuality, int maxQuality) {
+            this.minQuality = minQuality;
+            this.maxQuality = maxQuality;
+            return this;
+        }
+
+        public Options setFormat(OutputFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        public Options setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Orçamento e formato pedidos pela página: {"maxBytes": 800000, "format": "jpeg" | "webp"}.
+         * Campos ausentes ou inválidos ficam no padrão.
+         */
+        public Options apply(@Nullable String json) {
+            if (json == null || json.isEmpty()) {
+                return this;
+            }
+            Map<String, Object> params;
+            try {
+                params = Json.parseObject(json);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Opções de imagem inválidas: " + json, e);
+                return this;
+            }
+            Object maxBytes = params.get("maxBytes");
+            if (maxBytes instanceof Number && ((Number) maxBytes).longValue() > 0) {
+                setMaxBytes(((Number) maxBytes).longValue());
+            }
+            String format = Json.string(params, "format");
+            if ("webp".equalsIgnoreCase(format)) {
+                setFormat(OutputFormat.WEBP);
+            } else if ("jpeg".equalsIgnoreCase(format) || "jpg".equalsIgnoreCase(format)) {
+                setFormat(OutputFormat.JPEG);
+            }
+            return this;
+        }
+    }
+
+    public static final class Metrics {
+        int sourceWidth;
+        int sourceHeight;
+        int outputWidth;
+        int outputHeight;
+        int sampleSize;
+        int rotation;
+        int quality;
+        int encodeAttempts;
+        boolean withinBudget;
+        long decodeMs;
+        long encodeMs;
+        long outputBytes;
+
+        public JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            try {
+                json.put("sourceWidth", sourceWidth);
+                json.put("sourceHeight", sourceHeight);
+                json.put("outputWidth", outputWidth);
+                json.put("outputHeight", outputHeight);
+                json.put("sampleSize", sampleSize);
+                json.put("rotation", rotation);
+                json.put("quality", quality);
+                json.put("encodeAttempts", encodeAttempts);
+                json.put("withinBudget", withinBudget);
+                json.put("decodeMs", decodeMs);
+                json.put("encodeMs", encodeMs);
+                json.put("outputBytes", outputBytes);
+            } catch (JSONException e) {
+                Log.e(TAG, "Erro ao serializar métricas", e);
+            }
+            return json;
+        }
+    }
+
+    public interface Callback {
+        void onComplete(NativeBlobStore.Entry blob, Metrics metrics);
+
+        void onError(Exception error);
+    }
+
+    public static final class Job {
+        private volatile boolean cancelled;
+        private volatile BitmapFactory.Options decodeOptions;
+        // Preenchido quando o dispatcher começa a rodar o job
+        private volatile BridgeDispatcher.Ticket ticket;
+
+        public void cancel() {
+            cancelled = true;
+            BitmapFactory.Options options = decodeOptions;
+            if (options != null) {
+                options.requestCancelDecode();
+            }
+            BridgeDispatcher.Ticket running = ticket;
+            if (running != null) {
+                running.interrupt();
+            }
+        }
+
+        /** Cancelado por quem pediu ou pelo dispatcher (a página navegou). */
+        public boolean isCancelled() {
+            BridgeDispatcher.Ticket running = ticket;
+            return cancelled || (running != null && running.isCancelled());
+        }
+
+        void throwIfCancelled() {
+            if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Processamento de imagem cancelado");
+            }
+        }
+    }
+
+    private final ContentResolver contentResolver;
+    private final NativeBlobStore blobStore;
+    private final BridgeDispatcher dispatcher;
+    private final String operation;
+
+    /** @param operation operação do dispatcher, com o limite de imagens em andamento */
+    public ImageIngestPipeline(ContentResolver contentResolver, NativeBlobStore blobStore,
+                               BridgeDispatcher dispatcher, String operation) {
+        this.contentResolver = contentResolver;
+        this.blobStore = blobStore;
+        this.dispatcher = dispatcher;
+        this.operation = operation;
+    }
+
+    /** Recusado pelo dispatcher (ocupado ou encerrando), o callback recebe o erro na hora. */
+    public Job process(final Uri source, final Options options, final Callback callback) {
+        final Job job = new Job();
+        dispatcher.submit(operation, ticket -> {
+            job.ticket = ticket;
+            run(job, source, options, callback);
+        }, (op, reason) -> callback.onError(
+                new RejectedExecutionException("Processamento de imagem recusado: " + reason)));
+        return job;
+    }
+
+    private void run(Job job, Uri source, Options options, Callback callback) {
+        try {
+            Metrics metrics = new Metrics();
+            long decodeStart = SystemClock.elapsedRealtime();
+
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            InputStream boundsStream = open(source);
+            try {
+                BitmapFactory.decodeStream(boundsStream, null, bounds);
+            } finally {
+                boundsStream.close();
+            }
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+                throw new IOException("Imagem inválida ou formato não suportado");
+            }
+            metrics.sourceWidth = bounds.outWidth;
+            metrics.sourceHeight = bounds.outHeight;
+
+            int orientation = readOrientation(source);
+            metrics.rotation = ImageSizing.rotationDegrees(orientation);
+            job.throwIfCancelled();
+
+            BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+            decodeOptions.inSampleSize = ImageSizing.sampleSizeFor(bounds.outWidth, bounds.outHeight, options.targetLongEdge);
+            metrics.sampleSize = decodeOptions.inSampleSize;
+            job.decodeOptions = decodeOptions;
+
+            Bitmap decoded;
+            InputStream decodeStream = open(source);
+            try {
+                decoded = BitmapFactory.decodeStream(decodeStream, null, decodeOptions);
+            } finally {
+                decodeStream.close();
+            }
+            job.throwIfCancelled();
+            if (decoded == null) {
+                throw new IOException("Falha ao decodificar imagem");
+            }
+
+            final Bitmap output = transform(decoded, orientation, options.targetLongEdge);
+            metrics.outputWidth = output.getWidth();
+            metrics.outputHeight = output.getHeight();
+            metrics.decodeMs = SystemClock.elapsedRealtime() - decodeStart;
+
+            long encodeStart = SystemClock.elapsedRealtime();
+            final Bitmap.CompressFormat compressFormat = compressFormat(options.format);
+            final QualityBudgetSearch.Result result;
+            try {
+                result = QualityBudgetSearch.search(quality -> {
+                    job.throwIfCancelled();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+                    output.compress(compressFormat, quality, out);
+                    return out.toByteArray();
+                }, options.maxBytes, options.minQuality, options.maxQuality, MAX_ENCODE_ATTEMPTS);
+            } finally {
+                output.recycle();
+            }
+            metrics.encodeMs = SystemClock.elapsedRealtime() - encodeStart;
+            metrics.quality = result.quality;
+            metrics.encodeAttempts = result.attempts;
+            metrics.withinBudget = result.withinBudget;
+            metrics.outputBytes = result.bytes.length;
+            job.throwIfCancelled();
+
+            NativeBlobStore.Entry blob = blobStore.write(options.format.mimeType,
+                    options.name + "." + options.format.extension, out -> out.write(result.bytes));
+
+            Log.d(TAG, "Imagem processada: " + metrics.toJson());
+            callback.onComplete(blob, metrics);
+        } catch (CancellationException e) {
+            Log.d(TAG, "Processamento cancelado: " + source);
+        } catch (Exception | OutOfMemoryError e) {
+            if (job.isCancelled()) {
+                Log.d(TAG, "Processamento cancelado: " + source);
+                return;
+            }
+            Log.e(TAG, "Erro ao processar imagem " + source, e);
+            callback.onError(e instanceof Exception ? (Exception) e : new IOException("Memória insuficiente para a imagem", e));
+        }
+    }
+
+    private InputStream open(Uri source) throws IOException {
+        InputStream in = contentResolver.openInputStream(source);
+        if (in == null) {
+            throw new IOException("Não foi possível abrir " + source);
+        }
+        return in;
+    }
+
+    private int readOrientation(Uri source) {
+        try {
+            InputStream in = open(source);
+            try {
+                return new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Não foi possível ler o EXIF de " + source, e);
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    /** Redimensiona até o tamanho alvo e aplica a orientação EXIF numa única cópia. */
+    private static Bitmap transform(Bitmap source, int orientation, int targetLongEdge) {
+        int[] size = ImageSizing.scaledSize(source.getWidth(), source.getHeight(), targetLongEdge);
+        boolean resize = size[0] != source.getWidth() || size[1] != source.getHeight();
+        if (!resize && !ImageSizing.needsTransform(orientation)) {
+            return source;
+        }
+
+        Matrix matrix = new Matrix();
+        if (resize) {
+            matrix.postScale((float) size[0] / source.getWidth(), (float) size[1] / source.getHeight());
+        }
+        int rotation = ImageSizing.rotationDegrees(orientation);
+        if (rotation != 0) {
+            matrix.postRotate(rotation);
+        }
+        if (ImageSizing.isMirrored(orientation)) {
+            matrix.postScale(-1, 1);
+        }
+
+        Bitmap result = Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+        if (result != source) {
+            source.recycle();
+        }
+        return result;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat compressFormat(OutputFormat format) {
+        if (format == OutputFormat.WEBP) {
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY
+                    : Bitmap.CompressFormat.WEBP;
+        }
+        return Bitmap.CompressFormat.JPEG;
+    }
+}
@@ -0,0 +1,73 @@
+package com.finaudy;
+
+/**
+ * Cálculos de dimensão e orientação usados pelo {@link ImageIngestPipeline}.
+ * Não depende do Android para poder ser testado na JVM.
+ */
+final class ImageSizing {
+
+    // Valores de ExifInterface.TAG_ORIENTATION
+    static final int ORIENTATION_FLIP_HORIZONTAL = 2;
+    static final int ORIENTATION_ROTATE_180 = 3;
+    static final int ORIENTATION_FLIP_VERTICAL = 4;
+    static final int ORIENTATION_TRANSPOSE = 5;
+    static final int ORIENTATION_ROTATE_90 = 6;
+    static final int ORIENTATION_TRANSVERSE = 7;
+    static final int ORIENTATION_ROTATE_270 = 8;
+
+    private ImageSizing() {
+    }
+
+    /** Maior potência de 2 que mantém o lado maior decodificado >= targetLongEdge. */
+    static int sampleSizeFor(int width, int height, int targetLongEdge) {
+        if (width <= 0 || height <= 0 || targetLongEdge <= 0) {
+            return 1;
+        }
+        int longEdge = Math.max(width, height);
+        int sampleSize = 1;
+        while (longEdge / (sampleSize * 2) >= targetLongEdge) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /** Dimensões finais (largura, altura) com o lado maior limitado a targetLongEdge. */
+    static int[] scaledSize(int width, int height, int targetLongEdge) {
+        int longEdge = Math.max(width, height);
+        if (targetLongEdge <= 0 || longEdge <= targetLongEdge) {
+            return new int[]{width, height};
+        }
+        double scale = (double) targetLongEdge / longEdge;
+        return new int[]{
+                Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale))
+        };
+    }
+
+    static int rotationDegrees(int exifOrientation) {
+        switch (exifOrientation) {
+            case ORIENTATION_ROTATE_180:
+            case ORIENTATION_FLIP_VERTICAL:
+                return 180;
+            case ORIENTATION_ROTATE_90:
+            case ORIENTATION_TRANSPOSE:
+                return 90;
+            case ORIENTATION_ROTATE_270:
+            case ORIENTATION_TRANSVERSE:
+                return 270;
+            default:
+                return 0;
+        }
+    }
+
+    static boolean isMirrored(int exifOrientation) {
+        return exifOrientation == ORIENTATION_FLIP_HORIZONTAL
+                || exifOrientation == ORIENTATION_FLIP_VERTICAL
+                || exifOrientation == ORIENTATION_TRANSPOSE
+                || exifOrientation == ORIENTATION_TRANSVERSE;
+    }
+
+    static boolean needsTransform(int exifOrientation) {
+        return rotationDegrees(exifOrientation) != 0 || isMirrored(exifOrientation);
+    }
+}
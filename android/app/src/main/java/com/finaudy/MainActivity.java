@@ -2,28 +2,37 @@ package com.finaudy;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
 import androidx.webkit.WebViewAssetLoader;
 import androidx.webkit.WebViewClientCompat;
 
 import android.Manifest;
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.ViewGroup;
 import android.util.Log;
 import android.webkit.PermissionRequest;
+import android.webkit.RenderProcessGoneDetail;
 import android.webkit.WebChromeClient;
 import android.webkit.WebResourceRequest;
 import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.widget.Toast;
-import android.media.MediaRecorder;
-import android.util.Base64;
 import android.provider.MediaStore;
 import android.content.Intent;
 import android.graphics.Bitmap;
@@ -31,28 +40,30 @@ import android.app.Activity;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 
-import com.google.android.gms.auth.api.signin.GoogleSignIn;
-import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
-import com.google.android.gms.common.api.ApiException;
-import com.google.android.gms.tasks.Task;
+import com.google.firebase.analytics.FirebaseAnalytics;
+import com.google.firebase.messaging.FirebaseMessaging;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import com.android.billingclient.api.BillingClient;
-import com.android.billingclient.api.BillingClientStateListener;
-import com.android.billingclient.api.BillingFlowParams;
-import com.android.billingclient.api.BillingResult;
-import com.android.billingclient.api.Purchase;
-import com.android.billingclient.api.PurchasesUpdatedListener;
-import com.android.billingclient.api.SkuDetails;
-import com.android.billingclient.api.SkuDetailsParams;
+import com.android.billingclient.api.ProductDetails;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -61,12 +72,114 @@ public class MainActivity extends AppCompatActivity {
     public static final int RC_SIGN_IN = 1001;
     private static final int GALLERY_REQUEST_CODE = 2;
     private static final int FILE_CHOOSER_REQUEST_CODE = 3;
+    private static final long NATIVE_BLOB_MAX_BYTES = 64L * 1024 * 1024;
+    private static final String APP_ORIGIN = "https://appassets.androidplatform.net";
+    private static final int BRIDGE_THREADS = 3;
+    private static final int BRIDGE_QUEUE_CAPACITY = 16;
+    private static final int BRIDGE_DEFAULT_LIMIT = 4;
+    private static final String OP_AUDIO_FINALIZE = "audio.finalize";
+    private static final String OP_IMAGE_ENCODE = "image.encode";
+    private static final String OP_FILE_IMPORT = "file.import";
+    private static final String OP_HTTP_REVALIDATE = "http.revalidate";
+    private static final String OP_OFFLINE_SYNC = OfflineBridge.OP_SYNC;
+    private static final String SUPABASE_HOST_SUFFIX = ".supabase.co";
+    private static final long HTTP_CACHE_MAX_BYTES = 20L * 1024 * 1024;
+    private static final int HTTP_CACHE_MAX_ENTRY_BYTES = 2 * 1024 * 1024;
+    private static final int CAPTURE_MAX_FILES = 5;
+    private static final long CAPTURE_MAX_BYTES = 80L * 1024 * 1024;
+    private static final long CAPTURE_MAX_AGE_MS = 24L * 60 * 60 * 1000;
+    private static final String STATE_PENDING_CAPTURE = "pending_capture_path";
+    private static final String STATE_PENDING_IMAGE_OPTIONS = "pending_image_options";
+    private static final long MIN_AUDIO_DURATION_MS = 500;
+    private static final long WEB_ASSET_CACHE_BYTES = 4L * 1024 * 1024;
+    private static final int WEB_ASSET_MAX_ENTRY_BYTES = 512 * 1024;
+    private static final String WEB_APP_URL = "https://appassets.androidplatform.net/index.html";
+    // Fluxos medidos do pedido da página até o evento com o resultado (BridgeMetrics "flow.*")
+    private static final String FLOW_GALLERY = "gallery";
+    private static final String FLOW_FILE_CHOOSER = "fileChooser";
+    private static final String FLOW_CAMERA = "camera";
+    private static final String TASK_STORES = "stores";
+    private static final String TASK_BRIDGE = "bridge";
+    private static final String TASK_WEB_VIEW = "webView";
+    private static final String TASK_CAPTURE_GC = "captureGc";
+    private static final String TASK_NOTIFICATION_CHANNEL = "notificationChannel";
+    private static final String TASK_NOTIFICATION_PERMISSION = "notificationPermission";
+    private static final String TASK_ANALYTICS = "analytics";
+    private static final String TASK_BILLING = "billing";
+    // IDs do Google Play Console; os mesmos de useGooglePlayPurchase
+    private static final List<String> BILLING_PRODUCTS = Arrays.asList("premium_monthly", "vip_monthly");
+    private static final long BILLING_PRODUCT_TTL_MS = 6 * 60 * 60 * 1000L;
+    private static final String TASK_OFFLINE_NETWORK = "offlineNetwork";
+    private static final String TASK_DIAGNOSTICS = "diagnostics";
+    static final String MARK_ACTIVITY_CREATE = "activityCreate";
+    static final String MARK_CRITICAL_DONE = "criticalDone";
+    static final String MARK_FIRST_FRAME = "firstFrame";
+    static final String MARK_PAGE_FINISHED = "pageFinished";
+    static final String MARK_WEB_READY = "webReady";
+    static final String MARK_IDLE_DONE = "idleDone";
+    // Bundles antigos não chamam notifyWebReady; não adia as tarefas ociosas para sempre
+    private static final long WEB_READY_FALLBACK_MS = 3000;
+    private static final int STARTUP_TRACE_LAUNCHES = 30;
     private static MainActivity instance;
+    // Só a primeira activity do processo mede cold start; recriações medem a partir do onCreate
+    private static boolean processStartTraced;
+    // Coleta do Analytics já religada neste processo (a flag do Firebase persiste entre aberturas)
+    private static boolean analyticsEnabled;
 
     private WebView webView;
-    private BillingClient billingClient;
-    private MediaRecorder mediaRecorder;
-    private String audioFilePath = null;
+    private PrecompressedAssetPathHandler assetHandler;
+    private WebViewLifecycle webViewLifecycle;
+    private NativeEventBus eventBus;
+    private MessagePortBridge bridge;
+    private BillingManager<ProductDetails> billing;
+    private GoogleSignInManager googleSignIn;
+    // Criada no primeiro Intent de notificação: a maioria das aberturas nem lê o arquivo
+    private NotificationIntentQueue<JSONObject> notificationQueue;
+    private StreamingAudioRecorder audioRecorder;
+    // Parada pelo usuário e ainda codificando/enviando; a próxima gravação espera o microfone dela
+    private StreamingAudioRecorder finishingRecorder;
+    // Por padrão remove silêncio; a parada automática só liga se a página pedir
+    private volatile SilenceTrimmer.Options voiceActivityOptions = new SilenceTrimmer.Options();
+    private NativeBlobStore blobStore;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private BridgeDispatcher dispatcher;
+    private ImageIngestPipeline imagePipeline;
+    private ImageIngestPipeline.Job galleryJob;
+    private ImageIngestPipeline.Job captureJob;
+    private CaptureFileCache captureCache;
+    // Só na UI thread
+    private File pendingCaptureFile;
+    // JSON de opções da imagem pedida pela página (openCamera/openGallery), até o resultado chegar;
+    // só na UI thread
+    private String pendingImageOptions;
+    private NativeBlobPathHandler blobPathHandler;
+    private CachingHttpFetcher httpCache;
+    private ConnectivityManager.NetworkCallback networkCallback;
+    // Métodos da ponte por funcionalidade; sobrevivem à recriação do WebView
+    private OfflineBridge offlineBridge;
+    private TransactionAnalyticsBridge analyticsBridge;
+    private ExportBridge exportBridge;
+    private StatementImportBridge importBridge;
+    private BlobBridge blobBridge;
+    private DiagnosticsBridge diagnosticsBridge;
+    private StartupTrace startupTrace;
+    private StartupOrchestrator startup;
+    private boolean coldStart;
+    private boolean idleStartupScheduled;
+    private boolean resumed;
+    private DiagnosticsMonitor diagnostics;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final BridgeMetrics bridgeMetrics = BridgeMetrics.shared();
+    private final Runnable webReadyFallback = this::scheduleIdleStartup;
+
+    /** Muda a cada instalação/atualização do APK, que é quando os assets web mudam. */
+    private String assetBuildId() {
+        try {
+            return Long.toHexString(getPackageManager().getPackageInfo(getPackageName(), 0).lastUpdateTime);
+        } catch (PackageManager.NameNotFoundException e) {
+            return "0";
+        }
+    }
 
     public static MainActivity getInstance() {
         return instance;
@@ -80,17 +193,172 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         instance = this;
+        coldStart = !processStartTraced && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N;
+        processStartTraced = true;
+        if (!analyticsEnabled) {
+            // O Firebase guarda o setAnalyticsCollectionEnabled(true) da abertura anterior e ignora
+            // o manifest: desliga de novo até a página ficar pronta
+            FirebaseAnalytics.getInstance(this).setAnalyticsCollectionEnabled(false);
+        }
+        startupTrace = new StartupTrace(SystemClock::elapsedRealtimeNanos, coldStart
+                ? Process.getStartElapsedRealtime() * 1_000_000L : SystemClock.elapsedRealtimeNanos());
+        startupTrace.mark(MARK_ACTIVITY_CREATE);
+
         webView = (WebView) findViewById(R.id.webview);
+        eventBus = new NativeEventBus(webView);
+
+        // Antes do primeiro frame só o que a página precisa para carregar; o resto espera
+        // a página ficar pronta (IDLE) ou o primeiro uso (ON_DEMAND)
+        startup = new StartupOrchestrator(startupTrace,
+                (task, error) -> Log.e("MainActivity", "Falha na tarefa de inicialização " + task, error))
+                .add(TASK_STORES, StartupOrchestrator.Phase.CRITICAL, () -> setupStores(savedInstanceState))
+                .add(TASK_BRIDGE, StartupOrchestrator.Phase.CRITICAL, this::setupBridge, TASK_STORES)
+                .add(TASK_WEB_VIEW, StartupOrchestrator.Phase.CRITICAL, this::setupWebView, TASK_STORES, TASK_BRIDGE)
+                .add(TASK_CAPTURE_GC, StartupOrchestrator.Phase.IDLE, this::collectCaptureGarbage, TASK_STORES)
+                .add(TASK_NOTIFICATION_CHANNEL, StartupOrchestrator.Phase.IDLE, this::createNotificationChannel)
+                .add(TASK_NOTIFICATION_PERMISSION, StartupOrchestrator.Phase.IDLE,
+                        this::requestNotificationPermission, TASK_NOTIFICATION_CHANNEL)
+                .add(TASK_ANALYTICS, StartupOrchestrator.Phase.IDLE, this::enableAnalytics)
+                .add(TASK_OFFLINE_NETWORK, StartupOrchestrator.Phase.IDLE, this::watchNetworkForOfflineSync, TASK_STORES)
+                .add(TASK_BILLING, StartupOrchestrator.Phase.IDLE, this::setupBilling)
+                .add(TASK_DIAGNOSTICS, StartupOrchestrator.Phase.IDLE, this::setupDiagnostics);
+        startup.runPhase(StartupOrchestrator.Phase.CRITICAL);
+        startupTrace.mark(MARK_CRITICAL_DONE);
+
+        // O callback roda no início do frame; o post cai depois do desenho desse mesmo frame
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos ->
+                mainHandler.postAtFrontOfQueue(() -> startupTrace.mark(MARK_FIRST_FRAME)));
+
+        // App aberto por uma notificação; o clique espera na fila até a página chamar notificationsReady
+        handleNotificationIntent(getIntent(), savedInstanceState != null);
+    }
+
+    private void setupStores(@Nullable Bundle savedInstanceState) {
+        blobStore = new NativeBlobStore(new File(getCacheDir(), "native-blobs"), NATIVE_BLOB_MAX_BYTES);
+        blobPathHandler = new NativeBlobPathHandler(blobStore);
+        captureCache = new CaptureFileCache(new File(getCacheDir(), "captures"),
+                CAPTURE_MAX_FILES, CAPTURE_MAX_BYTES, CAPTURE_MAX_AGE_MS);
+        // Só passa a guardar respostas depois que a página liberar os endpoints (configureHttpCache)
+        httpCache = new CachingHttpFetcher(new HttpResponseCache(new File(getCacheDir(), "http-cache"), HTTP_CACHE_MAX_BYTES),
+                task -> {
+                    if (dispatcher.submit(OP_HTTP_REVALIDATE, ticket -> task.run(), (operation, reason) -> { }) == null) {
+                        throw new RejectedExecutionException(OP_HTTP_REVALIDATE);
+                    }
+                }, System::currentTimeMillis, HTTP_CACHE_MAX_ENTRY_BYTES);
+        if (savedInstanceState != null && savedInstanceState.getString(STATE_PENDING_CAPTURE) != null) {
+            // O processo pode ter morrido enquanto o app da câmera estava aberto
+            pendingCaptureFile = new File(savedInstanceState.getString(STATE_PENDING_CAPTURE));
+        }
+        if (savedInstanceState != null) {
+            pendingImageOptions = savedInstanceState.getString(STATE_PENDING_IMAGE_OPTIONS);
+        }
+    }
+
+    private void collectCaptureGarbage() {
+        final File keepCapture = pendingCaptureFile;
+        ioExecutor.execute(() -> captureCache.collectGarbage(System.currentTimeMillis(), keepCapture));
+    }
+
+    private void setupBridge() {
+        dispatcher = new BridgeDispatcher(BRIDGE_THREADS, BRIDGE_QUEUE_CAPACITY, BRIDGE_DEFAULT_LIMIT, new BridgeDispatcher.Listener() {
+            @Override
+            public void onRejected(String operation, String reason) {
+                Log.w("MainActivity", "Operação recusada: " + operation + " (" + reason + ")");
+                eventBus.post("onNativeOperationRejected", operation, reason);
+            }
+
+            @Override
+            public void onError(String operation, Exception error) {
+                Log.e("MainActivity", "Erro em " + operation, error);
+            }
+        })
+                .setLimit(OP_AUDIO_FINALIZE, 1)
+                // Uma imagem rodando e a que substitui uma cancelada (nova foto antes da anterior terminar)
+                .setLimit(OP_IMAGE_ENCODE, 2)
+                .setLimit(OP_FILE_IMPORT, 2)
+                .setLimit(OP_HTTP_REVALIDATE, 2)
+                .setLimit(OP_OFFLINE_SYNC, 1)
+                // Não entregam nada ao documento: um sync no meio do envio do outbox ou a
+                // revalidação do cache não podem morrer porque a página recarregou
+                .setPageScoped(OP_OFFLINE_SYNC, false)
+                .setPageScoped(OP_HTTP_REVALIDATE, false)
+                .setLimit("bridge.readBlob", 2)
+                .setLimit("bridge.putBlob", 2);
+        imagePipeline = new ImageIngestPipeline(getContentResolver(), blobStore, dispatcher, OP_IMAGE_ENCODE);
+        offlineBridge = new OfflineBridge(this, dispatcher, ioExecutor);
+        analyticsBridge = new TransactionAnalyticsBridge(offlineBridge);
+        offlineBridge.setChangeListener(analyticsBridge);
+        exportBridge = new ExportBridge(this, ioExecutor);
+        importBridge = new StatementImportBridge(this, offlineBridge, ioExecutor);
+        blobBridge = new BlobBridge(blobStore);
+        diagnosticsBridge = new DiagnosticsBridge(this, () -> startup.ensure(TASK_DIAGNOSTICS) ? diagnostics : null);
+        bridge = new MessagePortBridge(webView, Uri.parse(APP_ORIGIN), dispatcher);
+        registerBridgeMethods();
+    }
 
+    private void setupWebView() {
+        if (assetHandler == null) {
+            assetHandler = new PrecompressedAssetPathHandler(getAssets(),
+                    WEB_ASSET_CACHE_BYTES, WEB_ASSET_MAX_ENTRY_BYTES, assetBuildId());
+        }
         final WebViewAssetLoader assetLoader = new WebViewAssetLoader.Builder()
-                .addPathHandler("/", new WebViewAssetLoader.AssetsPathHandler(this))
+                .addPathHandler(NativeBlobStore.PATH_PREFIX, blobPathHandler)
+                .addPathHandler("/", assetHandler)
                 .build();
 
         webView.setWebViewClient(new WebViewClientCompat() {
             @Override
             public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+                WebResourceResponse rangeResponse = blobPathHandler.handleRangeRequest(request);
+                if (rangeResponse != null) {
+                    return rangeResponse;
+                }
+                WebResourceResponse cachedResponse = interceptSupabaseRequest(request);
+                if (cachedResponse != null) {
+                    return cachedResponse;
+                }
                 return assetLoader.shouldInterceptRequest(request.getUrl());
             }
+
+            @Override
+            public void onPageStarted(WebView view, String url, Bitmap favicon) {
+                super.onPageStarted(view, url, favicon);
+                // Resultados pedidos pelo documento anterior não têm mais quem os receba
+                int cancelled = dispatcher.cancelPage();
+                if (cancelled > 0) {
+                    Log.d("MainActivity", "Navegação cancelou " + cancelled + " operações nativas");
+                }
+                if (notificationQueue != null) {
+                    notificationQueue.reset();
+                }
+            }
+
+            @Override
+            public void onPageFinished(WebView view, String url) {
+                super.onPageFinished(view, url);
+                // Cada documento novo precisa de um canal novo; páginas externas não recebem a porta
+                if (url != null && url.startsWith(APP_ORIGIN + "/")) {
+                    bridge.connect();
+                    if (startupTrace.mark(MARK_PAGE_FINISHED)) {
+                        mainHandler.postDelayed(webReadyFallback, WEB_READY_FALLBACK_MS);
+                    }
+                }
+            }
+
+            @Override
+            @RequiresApi(Build.VERSION_CODES.O)
+            public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+                if (view != webView) {
+                    // Um WebView já substituído avisando tarde
+                    return true;
+                }
+                // Sem isso o Android mata o app junto com o renderer (imagens grandes em base64 esgotam a memória dele)
+                WebViewLifecycle.Restore restore = webViewLifecycle().onRendererGone(detail.didCrash());
+                Log.w("MainActivity", "Renderer " + (detail.didCrash() ? "caiu" : "foi morto pelo sistema")
+                        + "; recriando o WebView em " + (restore.route != null ? restore.route : "início"));
+                recreateWebView();
+                return true;
+            }
         });
 
         // Configurações avançadas do WebView
@@ -107,117 +375,446 @@ public class MainActivity extends AppCompatActivity {
 
         webView.addJavascriptInterface(new WebAppInterface(this), "Android");
 
-        webView.loadUrl("https://appassets.androidplatform.net/index.html");
+        webView.loadUrl(WEB_APP_URL);
+    }
 
-        audioFilePath = getExternalCacheDir().getAbsolutePath() + "/audio_record.3gp";
-        requestNotificationPermission();
-        createNotificationChannel();
-        setupBillingClient();
+    private synchronized WebViewLifecycle webViewLifecycle() {
+        if (webViewLifecycle == null) {
+            webViewLifecycle = new WebViewLifecycle(new File(getFilesDir(), "webview-lifecycle.json"),
+                    System::currentTimeMillis);
+        }
+        return webViewLifecycle;
     }
 
-    private void setupBillingClient() {
-        PurchasesUpdatedListener purchasesUpdatedListener = new PurchasesUpdatedListener() {
-            @Override
-            public void onPurchasesUpdated(BillingResult billingResult, @Nullable List<Purchase> purchases) {
-                if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK && purchases != null) {
-                    for (Purchase purchase : purchases) {
-                        handlePurchase(purchase);
-                    }
-                } else {
-                    // Lida com outros erros ou compras canceladas pelo usuário
-                    String script = String.format("javascript:window.onGooglePlayPurchaseFinished(null, null);");
-                    runOnUiThread(() -> webView.evaluateJavascript(script, null));
-                }
+    /**
+     * Troca o WebView cujo renderer morreu por um novo no mesmo lugar do layout, com ponte e
+     * barramento de eventos novos. A página recarrega e pede a rota e o estado com takeWebViewRestore.
+     */
+    private void recreateWebView() {
+        WebView dead = webView;
+        ViewGroup parent = (ViewGroup) dead.getParent();
+        ViewGroup.LayoutParams params = dead.getLayoutParams();
+        int index = parent.indexOfChild(dead);
+        releasePageOperations();
+        dispatcher.cancelPage();
+        bridge.close();
+        eventBus.close();
+        parent.removeView(dead);
+        dead.destroy();
+
+        webView = new WebView(this);
+        webView.setId(R.id.webview);
+        parent.addView(webView, index, params);
+        eventBus = new NativeEventBus(webView);
+        bridge = new MessagePortBridge(webView, Uri.parse(APP_ORIGIN), dispatcher);
+        registerBridgeMethods();
+        setupWebView();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        WebViewLifecycle.Pressure pressure = WebViewLifecycle.pressureFor(level);
+        webViewLifecycle().onTrimMemory(pressure);
+        Log.i("MainActivity", "onTrimMemory(" + level + "): liberando nível " + pressure.wireName);
+        // Assets já lidos voltam do APK; nada aqui é estado do usuário
+        if (assetHandler != null) {
+            assetHandler.trimMemory();
+        }
+        if (pressure.compareTo(WebViewLifecycle.Pressure.LOW) >= 0) {
+            // Totais e índices de busca são refeitos do espelho offline na próxima consulta
+            if (analyticsBridge != null) {
+                ioExecutor.execute(analyticsBridge::trimMemory);
             }
-        };
+            if (blobStore != null) {
+                blobStore.trimToSize(pressure == WebViewLifecycle.Pressure.CRITICAL ? 0 : NATIVE_BLOB_MAX_BYTES / 4);
+            }
+        }
+        // A página solta os próprios caches (consultas inativas, imagens decodificadas)
+        if (eventBus != null) {
+            eventBus.post("onMemoryPressure", pressure.wireName);
+        }
+    }
 
-        billingClient = BillingClient.newBuilder(this)
-                .setListener(purchasesUpdatedListener)
-                .enablePendingPurchases()
-                .build();
+    /**
+     * GETs do Supabase liberados pela página saem do cache em disco; escritas passam direto,
+     * mas invalidam o que estava guardado para a mesma tabela.
+     */
+    @Nullable
+    private WebResourceResponse interceptSupabaseRequest(WebResourceRequest request) {
+        String host = request.getUrl().getHost();
+        if (host == null || !host.endsWith(SUPABASE_HOST_SUFFIX) || !httpCache.isEnabled()) {
+            return null;
+        }
+        URL url;
+        try {
+            url = new URL(request.getUrl().toString());
+        } catch (MalformedURLException e) {
+            return null;
+        }
+        CachingHttpFetcher.Rule rule = httpCache.match(request.getMethod(), url);
+        if (rule == null) {
+            httpCache.onWrite(request.getMethod(), url);
+            return null;
+        }
+        try {
+            // Só disco: falta ou entrada vencida seguem pelo WebView, sem rede nesta thread
+            CachingHttpFetcher.Response response = httpCache.lookup(rule, url, request.getRequestHeaders());
+            if (response == null) {
+                return null;
+            }
+            return new WebResourceResponse(response.mimeType(), "utf-8", response.status, response.reason,
+                    response.headers, response.body);
+        } catch (IOException e) {
+            Log.w("HttpCache", "Falha ao ler " + url.getPath() + " do cache; seguindo pelo WebView", e);
+            return null;
+        }
+    }
 
-        billingClient.startConnection(new BillingClientStateListener() {
-            @Override
-            public void onBillingSetupFinished(BillingResult billingResult) {
-                if (billingResult.getResponseCode() ==  BillingClient.BillingResponseCode.OK) {
-                    Log.d("BillingClient", "Setup successful.");
+    /**
+     * {"endpoints": [{"path": "/rest/v1/categories", "maxAgeMs": 300000, "staleWhileRevalidateMs": 86400000}]}
+     * liga o cache para esses GETs; {"enabled": false} desliga e apaga o que foi guardado.
+     */
+    public void configureHttpCache(String configJson) {
+        List<CachingHttpFetcher.Rule> rules = new ArrayList<>();
+        try {
+            JSONObject config = new JSONObject(configJson);
+            JSONArray endpoints = config.optJSONArray("endpoints");
+            if (config.optBoolean("enabled", true) && endpoints != null) {
+                for (int i = 0; i < endpoints.length(); i++) {
+                    JSONObject endpoint = endpoints.getJSONObject(i);
+                    rules.add(new CachingHttpFetcher.Rule(endpoint.getString("path"),
+                            endpoint.optLong("maxAgeMs", 0), endpoint.optLong("staleWhileRevalidateMs", 0)));
                 }
             }
+        } catch (JSONException e) {
+            Log.w("HttpCache", "Configuração inválida: " + configJson, e);
+            return;
+        }
+        httpCache.setRules(rules);
+        if (rules.isEmpty()) {
+            clearHttpCache();
+        }
+    }
+
+    public void clearHttpCache() {
+        ioExecutor.execute(() -> httpCache.clear());
+    }
+
+    private void watchNetworkForOfflineSync() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return;
+        }
+        ConnectivityManager connectivity = getSystemService(ConnectivityManager.class);
+        if (connectivity == null) {
+            return;
+        }
+        networkCallback = new ConnectivityManager.NetworkCallback() {
             @Override
-            public void onBillingServiceDisconnected() {
-                Log.d("BillingClient", "Service disconnected.");
+            public void onAvailable(Network network) {
+                // A rede voltou: não espera o fim do backoff para mandar a outbox
+                mainHandler.post(() -> offlineBridge.requestSync(0));
+            }
+        };
+        connectivity.registerDefaultNetworkCallback(networkCallback);
+    }
+
+    /** A página montou a primeira tela (chamado via window.Android.notifyWebReady). */
+    public void onWebReady() {
+        runOnUiThread(() -> {
+            if (startupTrace.mark(MARK_WEB_READY)) {
+                mainHandler.removeCallbacks(webReadyFallback);
+                scheduleIdleStartup();
             }
         });
     }
 
-    private void handlePurchase(Purchase purchase) {
-        if (purchase.getPurchaseState() == Purchase.PurchaseState.PURCHASED) {
-            // O token de compra é o que precisamos enviar para o backend
-            String purchaseToken = purchase.getPurchaseToken();
-            String sku = purchase.getSkus().get(0); // Obter o ID do produto
+    private void scheduleIdleStartup() {
+        if (idleStartupScheduled) {
+            return;
+        }
+        idleStartupScheduled = true;
+        Looper.myQueue().addIdleHandler(() -> {
+            if (!isDestroyed()) {
+                runIdleStartup();
+            }
+            return false;
+        });
+    }
 
-            String script = String.format("javascript:window.onGooglePlayPurchaseFinished('%s', '%s');", purchaseToken, sku);
-            runOnUiThread(() -> webView.evaluateJavascript(script, null));
+    private void runIdleStartup() {
+        startup.runPhase(StartupOrchestrator.Phase.IDLE);
+        startupTrace.mark(MARK_IDLE_DONE);
+        Log.i("Startup", startupTrace.toJson());
+        if (!coldStart) {
+            return;
         }
+        final Map<String, Double> marks = startupTrace.marks();
+        final long launchId = System.currentTimeMillis();
+        ioExecutor.execute(() -> {
+            try {
+                startupTraceLog().append(launchId, marks);
+            } catch (IOException e) {
+                Log.w("Startup", "Não foi possível gravar o trace de inicialização", e);
+            }
+        });
     }
 
-    public void launchPurchaseFlow(String productId) {
-        if (billingClient.isReady()) {
-            List<String> skuList = new ArrayList<>();
-            skuList.add(productId);
-            SkuDetailsParams.Builder params = SkuDetailsParams.newBuilder();
-            params.setSkusList(skuList).setType(BillingClient.SkuType.SUBS);
-
-            billingClient.querySkuDetailsAsync(params.build(), (billingResult, skuDetailsList) -> {
-                if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK && skuDetailsList != null) {
-                    for (SkuDetails skuDetails : skuDetailsList) {
-                        if (skuDetails.getSku().equals(productId)) {
-                            BillingFlowParams billingFlowParams = BillingFlowParams.newBuilder()
-                                    .setSkuDetails(skuDetails)
-                                    .build();
-                            billingClient.launchBillingFlow(this, billingFlowParams);
+    private StartupTraceLog startupTraceLog() {
+        return new StartupTraceLog(new File(getFilesDir(), "startup-trace.tsv"), STARTUP_TRACE_LAUNCHES);
+    }
+
+    private void enableAnalytics() {
+        // A coleta começa desligada no manifest para não competir com a abertura
+        FirebaseAnalytics.getInstance(this).setAnalyticsCollectionEnabled(true);
+        analyticsEnabled = true;
+    }
+
+    private void setupDiagnostics() {
+        String version;
+        try {
+            version = getPackageManager().getPackageInfo(getPackageName(), 0).versionName;
+        } catch (PackageManager.NameNotFoundException e) {
+            version = "?";
+        }
+        diagnostics = new DiagnosticsMonitor(this, new File(getFilesDir(), "diagnostics"), version);
+        if (resumed) {
+            diagnostics.start();
+        }
+    }
+
+    /** Conecta ao Play Billing antes do clique em assinar (ex.: ao abrir o SubscriptionModal). */
+    public void prepareBilling() {
+        runOnUiThread(() -> {
+            if (startup.ensure(TASK_BILLING)) {
+                billing.prefetch(BILLING_PRODUCTS);
+            }
+        });
+    }
+
+    private void setupBilling() {
+        billing = new BillingManager<>(new PlayBillingClient(this, (code, purchases) -> billing.onPurchasesUpdated(code, purchases)),
+                System::currentTimeMillis, new BillingManager.Scheduler() {
+                    @Override
+                    public void postDelayed(Runnable task, long delayMs) {
+                        mainHandler.postDelayed(task, delayMs);
+                    }
+
+                    @Override
+                    public void cancel(Runnable task) {
+                        mainHandler.removeCallbacks(task);
+                    }
+                }, new BillingManager.Listener() {
+                    @Override
+                    public void onPurchase(BillingManager.PurchaseInfo purchase) {
+                        // A página verifica o token no servidor e depois chama acknowledgePurchase
+                        eventBus.post("onGooglePlayPurchaseFinished", purchase.token, purchase.productId());
+                    }
+
+                    @Override
+                    public void onPurchaseFailed(int code, String message) {
+                        Log.d("BillingClient", "Compra não concluída (" + code + "): " + message);
+                        if (code != BillingManager.USER_CANCELED && code != BillingManager.OK) {
+                            Toast.makeText(MainActivity.this, "Erro ao conectar com a Play Store.", Toast.LENGTH_SHORT).show();
                         }
+                        eventBus.post("onGooglePlayPurchaseFinished", null, null);
                     }
+                }, BILLING_PRODUCT_TTL_MS);
+        // Preço e oferta já em cache quando o usuário tocar em assinar
+        billing.prefetch(BILLING_PRODUCTS);
+        billing.reconcile();
+    }
+
+    private void registerBridgeMethods() {
+        blobBridge.register(bridge);
+        // Espelho offline: leituras locais, escritas na outbox e sync em segundo plano
+        offlineBridge.register(bridge);
+        analyticsBridge.register(bridge);
+        exportBridge.register(bridge);
+        importBridge.register(bridge);
+        diagnosticsBridge.register(bridge);
+        // O resto lê estado da própria activity: trace, cache HTTP, notificações, WebView e billing
+        bridge.register("getFCMToken", call -> FirebaseMessaging.getInstance().getToken()
+                .addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
+                        PushTokenWorker.onToken(this, task.getResult());
+                        call.resolve(task.getResult());
+                    } else {
+                        call.reject("Falha ao obter token FCM: " + task.getException());
+                    }
+                }));
+        bridge.register("getStartupTrace", call -> {
+            JSONObject result = new JSONObject(startupTrace.toJson());
+            result.put("coldStart", coldStart);
+            JSONObject history = new JSONObject();
+            StartupTraceLog log = startupTraceLog();
+            for (String mark : new String[]{MARK_FIRST_FRAME, MARK_WEB_READY, MARK_IDLE_DONE}) {
+                StartupTraceLog.Summary summary = log.summarize(mark);
+                JSONObject item = new JSONObject();
+                item.put("count", summary.count);
+                item.put("p50", summary.p50);
+                item.put("p90", summary.p90);
+                item.put("max", summary.max);
+                history.put(mark, item);
+            }
+            result.put("history", history);
+            call.resolve(result);
+        });
+        bridge.register("getHttpCacheStats", call -> {
+            CachingHttpFetcher.Stats stats = httpCache.stats();
+            JSONObject result = new JSONObject();
+            result.put("enabled", httpCache.isEnabled());
+            result.put("hits", stats.hits);
+            result.put("staleHits", stats.staleHits);
+            result.put("revalidated", stats.revalidated);
+            result.put("misses", stats.misses);
+            result.put("errors", stats.errors);
+            result.put("invalidations", stats.invalidations);
+            result.put("evictions", stats.evictions);
+            result.put("bytes", stats.bytes);
+            result.put("entries", stats.entries);
+            call.resolve(result);
+        });
+        bridge.register("notificationsReady", call -> runOnUiThread(() -> {
+            flushNotificationClicks(notificationQueue != null ? notificationQueue.ready() : null);
+            call.resolve(null);
+        }));
+        bridge.register("saveWebViewState", call -> {
+            webViewLifecycle().saveState(call.params.getString("route"),
+                    call.params.has("snapshot") ? call.params.getString("snapshot") : null);
+            call.resolve(null);
+        });
+        bridge.register("takeWebViewRestore", call -> {
+            WebViewLifecycle.Restore restore = webViewLifecycle().takeRestore();
+            call.resolve(restore != null ? new JSONObject(Json.stringify(restore.toMap())) : null);
+        });
+        bridge.register("webViewStats", call ->
+                call.resolve(new JSONObject(Json.stringify(webViewLifecycle().stats()))));
+        bridge.register("acknowledgePurchase", call -> {
+            String purchaseToken = call.params.getString("purchaseToken");
+            runOnUiThread(() -> {
+                if (!startup.ensure(TASK_BILLING)) {
+                    call.reject("Play Billing indisponível");
+                    return;
                 }
+                billing.acknowledge(purchaseToken, code -> {
+                    if (code == BillingManager.OK) {
+                        call.resolve(true);
+                    } else {
+                        call.reject("Falha ao confirmar a compra (" + code + ")");
+                    }
+                });
             });
-        } else {
-            Log.e("BillingClient", "Billing client not ready.");
-            Toast.makeText(this, "Erro ao conectar com a Play Store.", Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    public void launchPurchaseFlow(String productId) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            runOnUiThread(() -> launchPurchaseFlow(productId));
+            return;
+        }
+        // Antes do idle (toque muito cedo) a conexão começa aqui e a compra segue quando ela abrir
+        if (!startup.ensure(TASK_BILLING)) {
+            eventBus.post("onGooglePlayPurchaseFinished", null, null);
+            return;
         }
+        billing.purchase(productId);
     }
 
     @Override
     protected void onNewIntent(Intent intent) {
         super.onNewIntent(intent);
         setIntent(intent);
-        handleNotificationIntent(intent);
+        handleNotificationIntent(intent, false);
     }
 
-    private void handleNotificationIntent(Intent intent) {
+    /** restored: o Intent é o da activity recriada, que já foi tratado antes. */
+    private void handleNotificationIntent(Intent intent, boolean restored) {
         if (intent != null && intent.getExtras() != null) {
             Bundle extras = intent.getExtras();
             JSONObject jsonData = new JSONObject();
             JSONObject data = new JSONObject();
+            Map<String, String> fields = new HashMap<>();
             try {
                 for (String key : extras.keySet()) {
-                    data.put(key, extras.get(key));
+                    Object value = extras.get(key);
+                    data.put(key, value);
+                    if (value instanceof String) {
+                        fields.put(key, (String) value);
+                    }
                 }
                 jsonData.put("data", data);
-
-                String script = String.format("javascript:window.onNotificationClicked(%s);", jsonData.toString());
-                if (webView != null) {
-                    runOnUiThread(() -> webView.evaluateJavascript(script, null));
-                }
             } catch (Exception e) {
                 Log.e("MainActivity", "Error creating JSON from notification extras", e);
+                return;
+            }
+            String clickId = NotificationIntentQueue.idFor(fields);
+            if (clickId == null && restored) {
+                // Sem id a fila não reconhece a repetição; basta não tratar o Intent restaurado
+                return;
+            }
+            if (!notificationQueue().accept(clickId)) {
+                // Mesmo Intent de novo (recriação, volta pelos recentes): o clique já foi entregue
+                return;
             }
+            String prefetchKey = NotificationPrefetch.key(fields);
+            if (prefetchKey == null || NotificationPrefetch.requestsFor(fields).isEmpty()) {
+                offerNotificationClick(clickId, jsonData);
+                return;
+            }
+            // Disco fora da main thread; o clique sai com os registros do prefetch, se chegaram a tempo
+            ioExecutor.execute(() -> {
+                Map<String, Object> records = PrefetchWorker.prefetch(this).take(prefetchKey);
+                if (records != null) {
+                    try {
+                        jsonData.put("prefetched", new JSONObject(Json.stringify(records)));
+                    } catch (JSONException e) {
+                        Log.w("MainActivity", "Prefetch ilegível para " + prefetchKey, e);
+                    }
+                }
+                Log.d("MainActivity", "Prefetch " + (records != null ? "usado" : "ausente") + " para " + prefetchKey
+                        + ", taxa de acerto " + PrefetchWorker.prefetch(this).stats().get("hitRate"));
+                runOnUiThread(() -> offerNotificationClick(clickId, jsonData));
+            });
         }
     }
 
-    public void openGallery() {
+    private NotificationIntentQueue<JSONObject> notificationQueue() {
+        if (notificationQueue == null) {
+            notificationQueue = new NotificationIntentQueue<>(new File(getFilesDir(), "notification-clicks.json"));
+        }
+        return notificationQueue;
+    }
+
+    private void offerNotificationClick(String clickId, JSONObject jsonData) {
+        flushNotificationClicks(notificationQueue().offer(clickId, jsonData));
+    }
+
+    private void flushNotificationClicks(List<JSONObject> clicks) {
+        if (clicks == null || eventBus == null) {
+            return;
+        }
+        // Postados no mesmo ciclo, saem num só evaluateJavascript (NativeEventBus)
+        for (JSONObject click : clicks) {
+            eventBus.post("onNotificationClicked", click);
+        }
+    }
+
+    /**
+     * @param imageOptions orçamento e formato da imagem entregue à página, ex.
+     *                     {"maxBytes": 800000, "format": "webp"} (ver {@link ImageIngestPipeline.Options#apply})
+     */
+    public void openGallery(@Nullable String imageOptions) {
+        // Como em openCamera: pendingImageOptions só é tocado na UI thread
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            runOnUiThread(() -> openGallery(imageOptions));
+            return;
+        }
         Intent galleryIntent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
         galleryIntent.setType("image/*");
         if (galleryIntent.resolveActivity(getPackageManager()) != null) {
+            bridgeMetrics.beginFlow(FLOW_GALLERY);
+            pendingImageOptions = imageOptions;
             startActivityForResult(galleryIntent, GALLERY_REQUEST_CODE);
         } else {
             Toast.makeText(this, "Nenhum app de galeria encontrado", Toast.LENGTH_SHORT).show();
@@ -229,93 +826,251 @@ public class MainActivity extends AppCompatActivity {
         intent.setType(acceptType);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
         if (intent.resolveActivity(getPackageManager()) != null) {
+            bridgeMetrics.beginFlow(FLOW_FILE_CHOOSER);
             startActivityForResult(Intent.createChooser(intent, "Escolher arquivo"), FILE_CHOOSER_REQUEST_CODE);
         } else {
             Toast.makeText(this, "Nenhum app para escolher arquivos encontrado", Toast.LENGTH_SHORT).show();
         }
     }
 
-    public void openCamera() {
+    /** @param imageOptions como em {@link #openGallery} */
+    public void openCamera(@Nullable String imageOptions) {
+        // Chamado pela thread JavascriptInterface; pendingCaptureFile só é tocado na UI thread
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            runOnUiThread(() -> openCamera(imageOptions));
+            return;
+        }
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
             requestSpecificPermission(Manifest.permission.CAMERA);
             return;
         }
         Intent cameraIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
         if (cameraIntent.resolveActivity(getPackageManager()) != null) {
+            // A câmera grava a foto em resolução cheia num arquivo privado do app
+            try {
+                pendingCaptureFile = captureCache.newCaptureFile(System.currentTimeMillis());
+                Uri captureUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", pendingCaptureFile);
+                cameraIntent.putExtra(MediaStore.EXTRA_OUTPUT, captureUri);
+                cameraIntent.addFlags(Intent.FLAG_GRANT_WRITE_URI_PERMISSION | Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            } catch (IOException | IllegalArgumentException e) {
+                Log.e("MainActivity", "Erro ao preparar arquivo da câmera, usando miniatura", e);
+                pendingCaptureFile = null;
+            }
+            bridgeMetrics.beginFlow(FLOW_CAMERA);
+            pendingImageOptions = imageOptions;
             startActivityForResult(cameraIntent, CAMERA_REQUEST_CODE);
         } else {
             Toast.makeText(this, "Nenhum app de câmera encontrado", Toast.LENGTH_SHORT).show();
         }
     }
 
+    /** Opções pedidas na abertura da câmera/galeria; consumidas pelo resultado. */
+    private ImageIngestPipeline.Options takeImageOptions(String name) {
+        String options = pendingImageOptions;
+        pendingImageOptions = null;
+        return new ImageIngestPipeline.Options().setName(name).apply(options);
+    }
+
+    private void handleCameraResult(int resultCode, Intent data) {
+        final File captureFile = pendingCaptureFile;
+        pendingCaptureFile = null;
+        final ImageIngestPipeline.Options options = takeImageOptions("camera");
+
+        if (resultCode != Activity.RESULT_OK) {
+            bridgeMetrics.endFlow(FLOW_CAMERA, false);
+            if (captureFile != null) {
+                captureFile.delete();
+            }
+            return;
+        }
+
+        if (captureFile != null && captureFile.length() > 0) {
+            if (captureJob != null) {
+                captureJob.cancel();
+            }
+            captureJob = imagePipeline.process(Uri.fromFile(captureFile), options,
+                    new ImageIngestPipeline.Callback() {
+                        @Override
+                        public void onComplete(NativeBlobStore.Entry blob, ImageIngestPipeline.Metrics metrics) {
+                            captureFile.delete();
+                            eventBus.post("onImageCaptureComplete", blob.getUrl(), metrics.toJson());
+                            bridgeMetrics.endFlow(FLOW_CAMERA, true);
+                        }
+
+                        @Override
+                        public void onError(Exception error) {
+                            captureFile.delete();
+                            bridgeMetrics.endFlow(FLOW_CAMERA, false);
+                            Log.e("MainActivity", "Erro ao processar foto da câmera", error);
+                            runOnUiThread(() -> Toast.makeText(MainActivity.this, "Erro ao processar imagem", Toast.LENGTH_SHORT).show());
+                        }
+                    });
+            return;
+        }
+
+        if (captureFile != null) {
+            captureFile.delete();
+        }
+        // Alguns apps de câmera ignoram EXTRA_OUTPUT e só devolvem a miniatura
+        if (data != null && data.getExtras() != null) {
+            Bitmap imageBitmap = (Bitmap) data.getExtras().get("data");
+            if (imageBitmap != null) {
+                sendImageAsBlob(imageBitmap);
+                return;
+            }
+        }
+        bridgeMetrics.endFlow(FLOW_CAMERA, false);
+    }
+
+    /**
+     * Ajusta a remoção de silêncio das próximas gravações. Ex.:
+     * {"trimSilence": true, "autoStopSilenceMs": 2500, "thresholdDb": 10}
+     */
+    public void setVoiceActivityOptions(String optionsJson) {
+        try {
+            JSONObject json = new JSONObject(optionsJson);
+            if (!json.optBoolean("trimSilence", true)) {
+                voiceActivityOptions = null;
+                return;
+            }
+            SilenceTrimmer.Options options = new SilenceTrimmer.Options()
+                    .setAutoStopSilenceMs(json.optInt("autoStopSilenceMs", 0));
+            if (json.has("thresholdDb")) {
+                options.setThresholdDb(json.getDouble("thresholdDb"));
+            }
+            if (json.has("hangoverMs")) {
+                options.setHangoverMs(json.getInt("hangoverMs"));
+            }
+            if (json.has("preRollMs")) {
+                options.setPreRollMs(json.getInt("preRollMs"));
+            }
+            voiceActivityOptions = options;
+        } catch (JSONException e) {
+            Log.e("MainActivity", "Opções de detecção de voz inválidas: " + optionsJson, e);
+        }
+    }
+
     public void startAudioRecording() {
+        startAudioRecording(null, null);
+    }
+
+    /**
+     * Grava e, ao mesmo tempo, envia o áudio em pedaços para uploadUrl (POST chunked), para a
+     * transcrição começar sem esperar o fim da gravação. A resposta chega em onAudioStreamResponse;
+     * a gravação local segue em onAudioRecordingComplete como fallback.
+     */
+    public void startStreamingAudioRecording(String uploadUrl, String headersJson) {
+        try {
+            Map<String, String> headers = new HashMap<>();
+            if (headersJson != null && !headersJson.isEmpty()) {
+                JSONObject json = new JSONObject(headersJson);
+                Iterator<String> keys = json.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    headers.put(key, json.getString(key));
+                }
+            }
+            startAudioRecording(new URL(uploadUrl), headers);
+        } catch (Exception e) {
+            Log.e("MainActivity", "Parâmetros de streaming de áudio inválidos", e);
+            startAudioRecording(null, null);
+        }
+    }
+
+    private void startAudioRecording(@Nullable URL uploadUrl, @Nullable Map<String, String> uploadHeaders) {
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
             requestSpecificPermission(Manifest.permission.RECORD_AUDIO);
             return;
         }
 
         runOnUiThread(() -> {
-            try {
-                mediaRecorder = new MediaRecorder();
-                mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
-                mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.THREE_GPP);
-                mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AMR_NB);
-                mediaRecorder.setOutputFile(audioFilePath);
-                mediaRecorder.prepare();
-                mediaRecorder.start();
-                Toast.makeText(this, "Gravação iniciada...", Toast.LENGTH_SHORT).show();
-            } catch (IOException e) {
-                e.printStackTrace();
-                Toast.makeText(this, "Falha ao iniciar gravação", Toast.LENGTH_SHORT).show();
+            StreamingAudioRecorder previous = audioRecorder != null ? audioRecorder : finishingRecorder;
+            if (audioRecorder != null) {
+                audioRecorder.cancel();
+            }
+            finishingRecorder = null;
+            // Um arquivo por gravação: cancelar a anterior não pode apagar a nova
+            final File audioFile = new File(getCacheDir(), "audio_record_" + System.currentTimeMillis() + ".aac");
+            List<AudioChunkSink> sinks = new ArrayList<>();
+            sinks.add(new FileAudioSink(audioFile));
+            if (uploadUrl != null) {
+                sinks.add(new HttpStreamingAudioSink(uploadUrl, uploadHeaders,
+                        (status, body) -> eventBus.post("onAudioStreamResponse", status, body)));
             }
+
+            audioRecorder = new StreamingAudioRecorder(sinks, voiceActivityOptions, new StreamingAudioRecorder.Listener() {
+                @Override
+                public void onComplete(StreamingAudioRecorder.Result result) {
+                    if (result.getDurationMs() < MIN_AUDIO_DURATION_MS) {
+                        runOnUiThread(() -> Toast.makeText(MainActivity.this, "Nenhuma fala detectada.", Toast.LENGTH_SHORT).show());
+                        audioFile.delete();
+                        // URL vazia tira a página do estado de processamento
+                        notifyAudioRecordingComplete("", result.toJson());
+                        return;
+                    }
+                    sendAudioFileAsBlob(audioFile, result.toJson());
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    runOnUiThread(() -> Toast.makeText(MainActivity.this, "Falha ao iniciar gravação", Toast.LENGTH_SHORT).show());
+                    audioFile.delete();
+                }
+            });
+            audioRecorder.start(previous);
+            Toast.makeText(this, "Gravação iniciada...", Toast.LENGTH_SHORT).show();
         });
     }
 
     public void stopAudioRecording() {
         runOnUiThread(() -> {
-            if (mediaRecorder != null) {
-                try {
-                    mediaRecorder.stop();
-                    mediaRecorder.release();
-                    mediaRecorder = null;
-                    Toast.makeText(this, "Gravação finalizada.", Toast.LENGTH_SHORT).show();
-                    sendAudioFileAsBase64();
-                } catch (RuntimeException stopException) {
-                    Toast.makeText(this, "Gravação muito curta.", Toast.LENGTH_SHORT).show();
-                    cleanupAudioFile();
-                }
+            if (audioRecorder != null) {
+                // O encoder termina de drenar na thread de captura e chama o listener
+                audioRecorder.stop();
+                finishingRecorder = audioRecorder;
+                audioRecorder = null;
+                Toast.makeText(this, "Gravação finalizada.", Toast.LENGTH_SHORT).show();
             }
         });
     }
 
-    private void sendAudioFileAsBase64() {
-        File audioFile = new File(audioFilePath);
+    private void sendAudioFileAsBlob(final File audioFile, final JSONObject metrics) {
         if (!audioFile.exists()) {
             return;
         }
 
-        try {
-            FileInputStream fis = new FileInputStream(audioFile);
-            byte[] bytes = new byte[(int) audioFile.length()];
-            fis.read(bytes);
-            fis.close();
-
-            String base64Audio = Base64.encodeToString(bytes, Base64.NO_WRAP);
-            String script = String.format("javascript:onAudioRecordingComplete('%s');", base64Audio);
-            
-            runOnUiThread(() -> webView.evaluateJavascript(script, null));
+        dispatcher.submit(OP_AUDIO_FINALIZE, ticket -> {
+            File m4aFile = new File(audioFile.getPath().replaceFirst("\\.aac$", "") + ".m4a");
+            try {
+                if (ticket.isCancelled()) {
+                    return;
+                }
+                NativeBlobStore.Entry blob;
+                try {
+                    StreamingAudioRecorder.remuxToMp4(audioFile, m4aFile);
+                    blob = blobStore.adopt(m4aFile, StreamingAudioRecorder.MP4_MIME_TYPE, m4aFile.getName());
+                } catch (IOException e) {
+                    // Sem o m4a a página ainda recebe o ADTS, com o tipo verdadeiro
+                    Log.w("MainActivity", "Falha ao converter gravação para m4a", e);
+                    blob = blobStore.adopt(audioFile, StreamingAudioRecorder.MIME_TYPE, audioFile.getName());
+                }
+                notifyAudioRecordingComplete(blob.getUrl(), metrics);
+            } catch (IOException e) {
+                Log.e("MainActivity", "Erro ao salvar gravação de áudio", e);
+            } finally {
+                audioFile.delete();
+                m4aFile.delete();
+            }
+        });
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            cleanupAudioFile();
-        }
+    private void notifyAudioRecordingComplete(String url, JSONObject metrics) {
+        eventBus.post("onAudioRecordingComplete", url, metrics);
     }
 
-    private void cleanupAudioFile() {
-        File file = new File(audioFilePath);
-        if (file.exists()) {
-            file.delete();
+    public void releaseNativeBlob(String urlOrId) {
+        if (blobStore != null) {
+            blobStore.release(urlOrId);
         }
     }
 
@@ -358,8 +1113,7 @@ public class MainActivity extends AppCompatActivity {
         }
         
         if (!permissionName.isEmpty()) {
-            final String script = String.format("javascript:onPermissionResult('%s', %b);", permissionName, granted);
-            runOnUiThread(() -> webView.evaluateJavascript(script, null));
+            eventBus.post("onPermissionResult", permissionName, granted);
         }
     }
 
@@ -367,135 +1121,99 @@ public class MainActivity extends AppCompatActivity {
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         
-        // Tratar resultado da câmera
-        if (requestCode == CAMERA_REQUEST_CODE && resultCode == Activity.RESULT_OK) {
-            if (data != null && data.getExtras() != null) {
-                Bitmap imageBitmap = (Bitmap) data.getExtras().get("data");
-                if (imageBitmap != null) {
-                    sendImageAsBase64(imageBitmap);
-                }
+        // Seletor fechado sem escolha: o fluxo medido termina aqui
+        if (resultCode != Activity.RESULT_OK) {
+            if (requestCode == GALLERY_REQUEST_CODE) {
+                bridgeMetrics.endFlow(FLOW_GALLERY, false);
+            } else if (requestCode == FILE_CHOOSER_REQUEST_CODE) {
+                bridgeMetrics.endFlow(FLOW_FILE_CHOOSER, false);
             }
         }
+
+        // Tratar resultado da câmera
+        if (requestCode == CAMERA_REQUEST_CODE) {
+            handleCameraResult(resultCode, data);
+        }
         
         // Tratar resultado da galeria
         else if (requestCode == GALLERY_REQUEST_CODE && resultCode == Activity.RESULT_OK) {
             if (data != null && data.getData() != null) {
                 Uri imageUri = data.getData();
-                try {
-                    InputStream inputStream = getContentResolver().openInputStream(imageUri);
-                    Bitmap bitmap = android.graphics.BitmapFactory.decodeStream(inputStream);
-                    if (bitmap != null) {
-                        sendGalleryImageAsBase64(bitmap);
-                    }
-                    inputStream.close();
-                } catch (Exception e) {
-                    Log.e("MainActivity", "Erro ao processar imagem da galeria", e);
-                    Toast.makeText(this, "Erro ao processar imagem", Toast.LENGTH_SHORT).show();
+                // Decodificação reduzida e codificação rodam fora da UI thread
+                if (galleryJob != null) {
+                    galleryJob.cancel();
                 }
+                galleryJob = imagePipeline.process(imageUri, takeImageOptions("gallery"),
+                        new ImageIngestPipeline.Callback() {
+                            @Override
+                            public void onComplete(NativeBlobStore.Entry blob, ImageIngestPipeline.Metrics metrics) {
+                                eventBus.post("onGalleryImageSelected", blob.getUrl(), metrics.toJson());
+                                bridgeMetrics.endFlow(FLOW_GALLERY, true);
+                            }
+
+                            @Override
+                            public void onError(Exception error) {
+                                bridgeMetrics.endFlow(FLOW_GALLERY, false);
+                                Log.e("MainActivity", "Erro ao processar imagem da galeria", error);
+                                runOnUiThread(() -> Toast.makeText(MainActivity.this, "Erro ao processar imagem", Toast.LENGTH_SHORT).show());
+                            }
+                        });
             }
         }
         
         // Tratar resultado do file chooser
         else if (requestCode == FILE_CHOOSER_REQUEST_CODE && resultCode == Activity.RESULT_OK) {
             if (data != null && data.getData() != null) {
-                Uri fileUri = data.getData();
-                try {
-                    String fileName = getFileName(fileUri);
-                    String mimeType = getContentResolver().getType(fileUri);
-                    
-                    InputStream inputStream = getContentResolver().openInputStream(fileUri);
-                    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                    byte[] buffer = new byte[1024];
-                    int bytesRead;
-                    while ((bytesRead = inputStream.read(buffer)) != -1) {
-                        byteArrayOutputStream.write(buffer, 0, bytesRead);
+                final Uri fileUri = data.getData();
+                dispatcher.submit(OP_FILE_IMPORT, ticket -> {
+                    try {
+                        if (ticket.isCancelled()) {
+                            return;
+                        }
+                        String fileName = getFileName(fileUri);
+                        String mimeType = getContentResolver().getType(fileUri);
+
+                        // Copia em streaming para o blob store, sem carregar o arquivo em memória
+                        InputStream inputStream = getContentResolver().openInputStream(fileUri);
+                        NativeBlobStore.Entry blob = blobStore.put(inputStream, mimeType, fileName);
+                        if (ticket.isCancelled()) {
+                            blobStore.release(blob.id);
+                            return;
+                        }
+
+                        sendFileAsBlob(blob);
+                    } catch (Exception e) {
+                        if (ticket.isCancelled()) {
+                            return;
+                        }
+                        bridgeMetrics.endFlow(FLOW_FILE_CHOOSER, false);
+                        Log.e("MainActivity", "Erro ao processar arquivo", e);
+                        runOnUiThread(() -> Toast.makeText(this, "Erro ao processar arquivo", Toast.LENGTH_SHORT).show());
                     }
-                    inputStream.close();
-                    
-                    byte[] fileBytes = byteArrayOutputStream.toByteArray();
-                    String base64File = Base64.encodeToString(fileBytes, Base64.NO_WRAP);
-                    String fileDataUrl = "data:" + mimeType + ";base64," + base64File;
-                    
-                    sendFileAsBase64(fileDataUrl, fileName, mimeType);
-                } catch (Exception e) {
-                    Log.e("MainActivity", "Erro ao processar arquivo", e);
-                    Toast.makeText(this, "Erro ao processar arquivo", Toast.LENGTH_SHORT).show();
-                }
+                });
             }
         }
         
+        else if (requestCode == ExportBridge.REQUEST_CODE) {
+            exportBridge.onActivityResult(resultCode, data);
+        }
+
+        else if (requestCode == StatementImportBridge.REQUEST_CODE) {
+            importBridge.onActivityResult(resultCode, data);
+        }
+
         // Tratar resultado do Google Sign-In
         else if (requestCode == RC_SIGN_IN) {
-            Log.d("MainActivity", "📱 Resultado do Google Sign-In recebido");
-            
-            Task<GoogleSignInAccount> task = GoogleSignIn.getSignedInAccountFromIntent(data);
-            
-            try {
-                // Login bem-sucedido, obter conta Google
-                GoogleSignInAccount account = task.getResult(ApiException.class);
-                
-                if (account != null) {
-                    String idToken = account.getIdToken();
-                    String email = account.getEmail();
-                    String displayName = account.getDisplayName();
-                    
-                    Log.d("MainActivity", "✅ Login Google bem-sucedido!");
-                    Log.d("MainActivity", "📧 Email: " + email);
-                    Log.d("MainActivity", "👤 Nome: " + displayName);
-                    Log.d("MainActivity", "🎫 ID Token disponível: " + (idToken != null));
-                    
-                    if (idToken != null) {
-                        // Enviar ID Token para o JavaScript
-                        String script = String.format(
-                            "console.log('📱 Recebido ID Token do Android'); " +
-                            "if(window.onGoogleSignInSuccess) { " +
-                            "  window.onGoogleSignInSuccess('%s'); " +
-                            "} else { " +
-                            "  console.error('❌ window.onGoogleSignInSuccess não encontrado'); " +
-                            "}",
-                            idToken
-                        );
-                        
-                        runOnUiThread(() -> webView.evaluateJavascript(script, null));
-                    } else {
-                        sendGoogleSignInError("ID Token não encontrado. Verifique a configuração do WEB Client ID.");
-                    }
-                } else {
-                    sendGoogleSignInError("Conta Google não encontrada na resposta.");
-                }
-                
-            } catch (ApiException e) {
-                Log.e("MainActivity", "❌ Erro no Google Sign-In: " + e.getStatusCode() + " - " + e.getMessage());
-                
-                String errorMessage;
-                switch (e.getStatusCode()) {
-                    case 10: // DEVELOPER_ERROR - Configuração incorreta
-                        errorMessage = "ERRO 10: SHA-1 fingerprint de PRODUÇÃO não configurado no Google Cloud Console. " +
-                                     "Debug funciona mas produção (.aab) precisa do SHA-1 da chave de release.";
-                        Log.e("MainActivity", "🚨 DEVELOPER_ERROR (10): Configuração incorreta para produção");
-                        Log.e("MainActivity", "🔧 SOLUÇÃO: Adicione o SHA-1 de PRODUÇÃO no Google Cloud Console");
-                        Log.e("MainActivity", "🔧 COMANDO: keytool -keystore meu-app-release-key.keystore -list -v");
-                        break;
-                    case 12501: // SIGN_IN_CANCELLED
-                        errorMessage = "Login cancelado pelo usuário";
-                        break;
-                    case 12502: // SIGN_IN_FAILED
-                        errorMessage = "Falha no login. Verifique a configuração do Google Cloud Console";
-                        break;
-                    case 12500: // SIGN_IN_REQUIRED
-                        errorMessage = "Login necessário";
-                        break;
-                    default:
-                        errorMessage = "Erro no login: " + e.getStatusCode() + " - " + e.getMessage();
-                        break;
-                }
-                
-                sendGoogleSignInError(errorMessage);
+            PlayServicesSignInClient.Result result = PlayServicesSignInClient.fromIntent(data);
+            Log.d("MainActivity", "📱 Resultado do Google Sign-In: " + (result.idToken != null
+                    ? "ok (" + result.email + ")" : "erro " + result.errorCode));
+            if (googleSignIn != null) {
+                googleSignIn.onInteractiveResult(result.idToken, result.errorCode);
             }
         }
     }
 
-    private String getFileName(Uri uri) {
+    String getFileName(Uri uri) {
         String fileName = "unknown";
         if (uri.getScheme().equals("content")) {
             android.database.Cursor cursor = getContentResolver().query(uri, null, null, null, null);
@@ -515,51 +1233,106 @@ public class MainActivity extends AppCompatActivity {
         return fileName;
     }
 
-    private void sendGalleryImageAsBase64(Bitmap bitmap) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 80, byteArrayOutputStream);
-        byte[] byteArray = byteArrayOutputStream.toByteArray();
-        String base64Image = Base64.encodeToString(byteArray, Base64.NO_WRAP);
-        
-        String imageDataUrl = "data:image/jpeg;base64," + base64Image;
-
-        String script = String.format("javascript:onGalleryImageSelected('%s');", imageDataUrl);
-        runOnUiThread(() -> webView.evaluateJavascript(script, null));
+    private void sendFileAsBlob(NativeBlobStore.Entry blob) {
+        eventBus.post("onFileSelected", blob.getUrl(), blob.name, blob.mimeType);
+        bridgeMetrics.endFlow(FLOW_FILE_CHOOSER, true);
     }
 
-    private void sendFileAsBase64(String fileDataUrl, String fileName, String mimeType) {
-        String script = String.format("javascript:onFileSelected('%s', '%s', '%s');", 
-            fileDataUrl, fileName, mimeType);
-        runOnUiThread(() -> webView.evaluateJavascript(script, null));
+    /** O fluxo medido termina quando o evento sai para a página, não quando o encode é agendado. */
+    private void sendBitmapAsBlob(Bitmap bitmap, String name, String callback, String flow) {
+        dispatcher.submit(OP_IMAGE_ENCODE, ticket -> {
+            if (ticket.isCancelled()) {
+                return;
+            }
+            try {
+                // Comprime direto para o arquivo do blob, sem byte[] intermediário
+                NativeBlobStore.Entry blob = blobStore.write("image/jpeg", name,
+                        out -> bitmap.compress(Bitmap.CompressFormat.JPEG, 80, out));
+                if (ticket.isCancelled()) {
+                    blobStore.release(blob.id);
+                    return;
+                }
+                eventBus.post(callback, blob.getUrl());
+                bridgeMetrics.endFlow(flow, true);
+            } catch (IOException e) {
+                bridgeMetrics.endFlow(flow, false);
+                Log.e("MainActivity", "Erro ao salvar imagem", e);
+            }
+        }, (operation, reason) -> bridgeMetrics.endFlow(flow, false));
     }
     
-    private void sendGoogleSignInError(String error) {
-        Log.e("MainActivity", "🚨 Enviando erro para JavaScript: " + error);
-        
-        String script = String.format(
-            "console.error('❌ Erro Android: %s'); " +
-            "if(window.onGoogleSignInError) { " +
-            "  window.onGoogleSignInError('%s'); " +
-            "} else { " +
-            "  console.error('❌ window.onGoogleSignInError não encontrado'); " +
-            "}",
-            error.replace("'", "\\'"),
-            error.replace("'", "\\'")
-        );
-        
-        runOnUiThread(() -> webView.evaluateJavascript(script, null));
+    /**
+     * Login Google pelo caminho mais rápido disponível (token em cache, silencioso ou seletor);
+     * chooseAccount força o seletor para trocar de conta.
+     */
+    public void signInWithGoogle(boolean chooseAccount) {
+        runOnUiThread(() -> googleSignIn().signIn(chooseAccount));
     }
 
-    private void sendImageAsBase64(Bitmap bitmap) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 80, byteArrayOutputStream);
-        byte[] byteArray = byteArrayOutputStream.toByteArray();
-        String base64Image = Base64.encodeToString(byteArray, Base64.NO_WRAP);
-        
-        String imageDataUrl = "data:image/jpeg;base64," + base64Image;
+    /** Desconecta a conta Google junto com o logout do app. */
+    public void signOutGoogle() {
+        runOnUiThread(() -> googleSignIn().signOut());
+    }
+
+    private GoogleSignInManager googleSignIn() {
+        if (googleSignIn == null) {
+            googleSignIn = new GoogleSignInManager(
+                    new PlayServicesSignInClient(this, getString(R.string.web_client_id), RC_SIGN_IN),
+                    SystemClock::elapsedRealtime, new GoogleSignInManager.Listener() {
+                        @Override
+                        public void onSignedIn(String idToken, String path, long elapsedMs) {
+                            Log.d("MainActivity", "✅ Login Google via " + path + " em " + elapsedMs + " ms");
+                            eventBus.post("onGoogleSignInSuccess", idToken, null, signInInfo(path, elapsedMs));
+                        }
 
-        String script = String.format("javascript:onImageCaptureComplete('%s');", imageDataUrl);
-        runOnUiThread(() -> webView.evaluateJavascript(script, null));
+                        @Override
+                        public void onFailed(int errorCode, String path, long elapsedMs) {
+                            sendGoogleSignInError(googleSignInErrorMessage(errorCode), signInInfo(path, elapsedMs));
+                        }
+                    });
+        }
+        return googleSignIn;
+    }
+
+    private static JSONObject signInInfo(String path, long elapsedMs) {
+        JSONObject info = new JSONObject();
+        try {
+            info.put("path", path);
+            info.put("elapsedMs", elapsedMs);
+        } catch (JSONException e) {
+            Log.w("MainActivity", "Erro ao serializar métricas do login", e);
+        }
+        return info;
+    }
+
+    private static String googleSignInErrorMessage(int statusCode) {
+        switch (statusCode) {
+            case 0: // Conta sem ID token
+                return "ID Token não encontrado. Verifique a configuração do WEB Client ID.";
+            case 10: // DEVELOPER_ERROR - Configuração incorreta
+                Log.e("MainActivity", "🚨 DEVELOPER_ERROR (10): Configuração incorreta para produção");
+                Log.e("MainActivity", "🔧 SOLUÇÃO: Adicione o SHA-1 de PRODUÇÃO no Google Cloud Console");
+                Log.e("MainActivity", "🔧 COMANDO: keytool -keystore meu-app-release-key.keystore -list -v");
+                return "ERRO 10: SHA-1 fingerprint de PRODUÇÃO não configurado no Google Cloud Console. " +
+                        "Debug funciona mas produção (.aab) precisa do SHA-1 da chave de release.";
+            case GoogleSignInManager.SIGN_IN_CANCELLED:
+                return "Login cancelado pelo usuário";
+            case 12502: // SIGN_IN_FAILED
+                return "Falha no login. Verifique a configuração do Google Cloud Console";
+            case 12500: // SIGN_IN_REQUIRED
+                return "Login necessário";
+            default:
+                return "Erro no login: " + statusCode;
+        }
+    }
+
+    private void sendGoogleSignInError(String error, JSONObject info) {
+        Log.e("MainActivity", "🚨 Enviando erro para JavaScript: " + error);
+        eventBus.post("onGoogleSignInError", error, info);
+    }
+
+    private void sendImageAsBlob(Bitmap bitmap) {
+        sendBitmapAsBlob(bitmap, "camera.jpg", "onImageCaptureComplete", FLOW_CAMERA);
     }
 
     @Override
@@ -571,17 +1344,69 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (pendingCaptureFile != null) {
+            outState.putString(STATE_PENDING_CAPTURE, pendingCaptureFile.getAbsolutePath());
+        }
+        outState.putString(STATE_PENDING_IMAGE_OPTIONS, pendingImageOptions);
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
-        // Lida com o intent caso o app tenha sido aberto por uma notificação
-        handleNotificationIntent(getIntent());
+        resumed = true;
+        if (diagnostics != null) {
+            diagnostics.start();
+        }
+        if (offlineBridge != null) {
+            offlineBridge.requestSync(0);
+        }
+        if (billing != null) {
+            // Compras concluídas fora do app (ou com a página fechada) ainda sem confirmação
+            billing.reconcile();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        resumed = false;
+        if (diagnostics != null) {
+            // Em segundo plano a main thread parada não é travamento que o usuário vê
+            diagnostics.stop();
+        }
     }
 
     public WebView getWebView() {
         return webView;
     }
 
+    public NativeEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * adb shell dumpsys activity com.finaudy/.MainActivity [bridge-metrics on|off|reset]
+     * imprime as métricas da ponte; os argumentos ligam, desligam ou zeram a coleta antes.
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        if (args != null && args.length >= 2 && "bridge-metrics".equals(args[0])) {
+            if ("on".equals(args[1]) || "off".equals(args[1])) {
+                bridgeMetrics.setEnabled("on".equals(args[1]));
+            } else if ("reset".equals(args[1])) {
+                bridgeMetrics.reset();
+            }
+        }
+        bridgeMetrics.dump(prefix, writer);
+        if (eventBus != null) {
+            writer.println(prefix + "Native events: " + eventBus.getStats());
+        }
+    }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             CharSequence name = getString(R.string.app_name);
@@ -599,9 +1424,51 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /** Operações que só fazem sentido com a página que as pediu. */
+    private void releasePageOperations() {
+        if (exportBridge != null) {
+            exportBridge.release();
+            importBridge.release();
+        }
+        if (audioRecorder != null) {
+            audioRecorder.cancel();
+            audioRecorder = null;
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (galleryJob != null) {
+            galleryJob.cancel();
+        }
+        if (captureJob != null) {
+            captureJob.cancel();
+        }
+        releasePageOperations();
+        if (bridge != null) {
+            bridge.close();
+        }
+        if (eventBus != null) {
+            eventBus.close();
+        }
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        if (offlineBridge != null) {
+            offlineBridge.close();
+        }
+        if (networkCallback != null) {
+            getSystemService(ConnectivityManager.class).unregisterNetworkCallback(networkCallback);
+        }
+        if (billing != null) {
+            billing.close();
+        }
+        if (diagnostics != null) {
+            diagnostics.shutdown();
+        }
+        ioExecutor.shutdown();
         instance = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.finaudy;
+
+/**
+ * Detecta travamentos da main thread: a cada {@link #check} (chamado periodicamente por outra
+ * thread) posta um tick na main thread; se o tick não roda em stallMs, guarda a pilha da main
+ * thread naquele momento. Passando de anrMs avisa na hora ({@link Listener#onAnr}), porque o
+ * processo pode não sobreviver; quando o tick finalmente roda, informa a duração total.
+ *
+ * Não depende do Android: a main thread e o relógio são injetados, e os testes rodam os ticks
+ * com um looper de mentira.
+ */
+final class MainThreadWatchdog {
+
+    interface Clock {
+        long millis();
+    }
+
+    interface MainThread {
+        void post(Runnable tick);
+
+        StackTraceElement[] stackTrace();
+    }
+
+    interface Listener {
+        /** Chamado na thread do watchdog: a main thread continua parada há blockedMs. */
+        void onAnr(long blockedMs, StackTraceElement[] stack);
+
+        /**
+         * Chamado na main thread quando ela volta a andar. stack é a pilha de quando o travamento
+         * foi detectado, ou null se ele começou e terminou entre dois checks.
+         */
+        void onStall(long durationMs, StackTraceElement[] stack, boolean reachedAnr);
+    }
+
+    private final MainThread mainThread;
+    private final Clock clock;
+    private final long stallMs;
+    private final long anrMs;
+    private final Listener listener;
+    private long tickPostedAt = -1;
+    private StackTraceElement[] stallStack;
+    private boolean anrReported;
+    // Ticks postados antes de um stop() não valem mais
+    private int generation;
+
+    MainThreadWatchdog(MainThread mainThread, Clock clock, long stallMs, long anrMs, Listener listener) {
+        this.mainThread = mainThread;
+        this.clock = clock;
+        this.stallMs = stallMs;
+        this.anrMs = anrMs;
+        this.listener = listener;
+    }
+
+    void check() {
+        StackTraceElement[] anrStack = null;
+        long blocked;
+        synchronized (this) {
+            long now = clock.millis();
+            if (tickPostedAt < 0) {
+                tickPostedAt = now;
+                final int tickGeneration = generation;
+                mainThread.post(() -> onTick(tickGeneration));
+                return;
+            }
+            blocked = now - tickPostedAt;
+            if (blocked >= stallMs && stallStack == null) {
+                stallStack = mainThread.stackTrace();
+            }
+            if (blocked >= anrMs && !anrReported) {
+                anrReported = true;
+                anrStack = mainThread.stackTrace();
+            }
+        }
+        if (anrStack != null) {
+            listener.onAnr(blocked, anrStack);
+        }
+    }
+
+    /** Para de vigiar (activity em segundo plano); o tick pendente é ignorado. */
+    synchronized void stop() {
+        generation++;
+        reset();
+    }
+
+    private void onTick(int tickGeneration) {
+        long duration;
+        StackTraceElement[] stack;
+        boolean reachedAnr;
+        synchronized (this) {
+            if (tickGeneration != generation || tickPostedAt < 0) {
+                return;
+            }
+            duration = clock.millis() - tickPostedAt;
+            stack = stallStack;
+            reachedAnr = anrReported;
+            reset();
+        }
+        if (duration >= stallMs) {
+            listener.onStall(duration, stack, reachedAnr);
+        }
+    }
+
+    private void reset() {
+        tickPostedAt = -1;
+        stallStack = null;
+        anrReported = false;
+    }
+}
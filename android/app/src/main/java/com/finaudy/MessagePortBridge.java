@@ -0,0 +1,246 @@
+package com.finaudy;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.annotation.Nullable;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canal request/response com a página sobre um WebMessagePort, ao lado do WebAppInterface.
+ * Cada chamada leva um id e recebe sua própria resposta, então chamadas simultâneas não
+ * disputam um callback global; payloads binários trafegam como ArrayBuffer
+ * ({@link BridgeFrame}) sem passar por base64.
+ */
+public class MessagePortBridge {
+
+    private static final String TAG = "MessagePortBridge";
+    public static final String HELLO_TYPE = "finaudy-bridge";
+    public static final int PROTOCOL_VERSION = 1;
+
+    public interface Method {
+        void invoke(Call call) throws Exception;
+    }
+
+    public final class Call {
+        public final long id;
+        public final String method;
+        public final JSONObject params;
+        @Nullable
+        private final BridgeFrame frame;
+        private final WebMessagePortCompat port;
+        private final long startNanos;
+        private final long bytesIn;
+        private boolean replied;
+
+        Call(long id, String method, JSONObject params, @Nullable BridgeFrame frame, WebMessagePortCompat port,
+             long startNanos, long bytesIn) {
+            this.id = id;
+            this.method = method;
+            this.params = params;
+            this.frame = frame;
+            this.port = port;
+            this.startNanos = startNanos;
+            this.bytesIn = bytesIn;
+        }
+
+        /**
+         * Parâmetro opcional como texto; ausente ou null no JSON dá null. (optString(key, null)
+         * devolve a string "null" para {"key": null}.)
+         */
+        @Nullable
+        public String optString(String key) {
+            return params.isNull(key) ? null : params.optString(key);
+        }
+
+        public boolean hasPayload() {
+            return frame != null;
+        }
+
+        /** Lê o ArrayBuffer enviado junto com a chamada. */
+        public InputStream openPayload() {
+            if (frame == null) {
+                throw new IllegalStateException("Chamada " + method + " não trouxe payload");
+            }
+            return frame.openPayload();
+        }
+
+        public void resolve(@Nullable Object result) {
+            reply(header("result", result), null, true);
+        }
+
+        /** Responde com um ArrayBuffer; result vai no cabeçalho (ex.: nome e tipo do arquivo). */
+        public void resolve(@Nullable Object result, byte[] payload) {
+            if (!binarySupported) {
+                reject("ArrayBuffer não suportado por este WebView");
+                return;
+            }
+            reply(header("result", result), payload, true);
+        }
+
+        public void reject(String message) {
+            reply(header("error", message != null ? message : "Erro desconhecido"), null, false);
+        }
+
+        private synchronized void reply(String header, @Nullable byte[] payload, boolean ok) {
+            if (replied) {
+                Log.w(TAG, "Resposta duplicada para " + method + " #" + id);
+                return;
+            }
+            replied = true;
+            // Da chegada da mensagem à resposta, incluindo a espera no dispatcher; a thread é a que respondeu
+            metrics.record(BridgeMetrics.PREFIX_PORT + method, startNanos, bytesIn,
+                    header.length() + (payload != null ? payload.length : 0), ok);
+            final WebMessageCompat message = payload != null
+                    ? new WebMessageCompat(BridgeFrame.encode(header, payload, 0, payload.length))
+                    : new WebMessageCompat(header);
+            mainHandler.post(() -> {
+                // A página recarregou: a porta antiga foi fechada e a chamada não tem mais dono
+                if (port != currentPort) {
+                    return;
+                }
+                try {
+                    port.postMessage(message);
+                } catch (IllegalStateException e) {
+                    Log.w(TAG, "Porta fechada ao responder " + method, e);
+                }
+            });
+        }
+
+        private String header(String key, @Nullable Object value) {
+            JSONObject json = new JSONObject();
+            try {
+                json.put("id", id);
+                json.put(key, value == null ? JSONObject.NULL : value);
+            } catch (JSONException e) {
+                Log.e(TAG, "Erro ao serializar resposta", e);
+            }
+            return json.toString();
+        }
+    }
+
+    private final WebView webView;
+    private final Uri targetOrigin;
+    private final BridgeDispatcher dispatcher;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Method> methods = new ConcurrentHashMap<>();
+    private final BridgeMetrics metrics = BridgeMetrics.shared();
+    private volatile WebMessagePortCompat currentPort;
+    private volatile boolean binarySupported;
+
+    public MessagePortBridge(WebView webView, Uri targetOrigin, BridgeDispatcher dispatcher) {
+        this.webView = webView;
+        this.targetOrigin = targetOrigin;
+        this.dispatcher = dispatcher;
+    }
+
+    public static boolean isSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_SET_MESSAGE_CALLBACK);
+    }
+
+    public void register(String name, Method method) {
+        methods.put(name, method);
+    }
+
+    /**
+     * Cria um canal novo e entrega uma das portas à página. Chamar na UI thread a cada
+     * carregamento de página, já que a porta anterior morre com o documento.
+     */
+    public void connect() {
+        if (!isSupported()) {
+            Log.w(TAG, "WebMessagePort não suportado; a página continua só com window.Android");
+            return;
+        }
+        close();
+        binarySupported = WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER);
+
+        WebMessagePortCompat[] channel = WebViewCompat.createWebMessageChannel(webView);
+        final WebMessagePortCompat nativePort = channel[0];
+        nativePort.setWebMessageCallback(mainHandler, new WebMessagePortCompat.WebMessageCallbackCompat() {
+            @Override
+            public void onMessage(WebMessagePortCompat port, @Nullable WebMessageCompat message) {
+                if (message != null) {
+                    dispatch(nativePort, message);
+                }
+            }
+        });
+        currentPort = nativePort;
+
+        JSONObject hello = new JSONObject();
+        try {
+            hello.put("type", HELLO_TYPE);
+            hello.put("version", PROTOCOL_VERSION);
+            hello.put("binary", binarySupported);
+        } catch (JSONException e) {
+            Log.e(TAG, "Erro ao montar mensagem inicial", e);
+        }
+        WebViewCompat.postWebMessage(webView,
+                new WebMessageCompat(hello.toString(), new WebMessagePortCompat[]{channel[1]}), targetOrigin);
+    }
+
+    public void close() {
+        WebMessagePortCompat port = currentPort;
+        currentPort = null;
+        if (port != null && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_CLOSE)) {
+            port.close();
+        }
+    }
+
+    private void dispatch(WebMessagePortCompat port, WebMessageCompat message) {
+        long start = metrics.start();
+        final BridgeFrame frame;
+        final JSONObject request;
+        long bytesIn;
+        try {
+            if (binarySupported && message.getType() == WebMessageCompat.TYPE_ARRAY_BUFFER) {
+                byte[] buffer = message.getArrayBuffer();
+                bytesIn = buffer.length;
+                frame = BridgeFrame.decode(buffer);
+                request = new JSONObject(frame.header);
+            } else {
+                frame = null;
+                String data = message.getData();
+                bytesIn = data != null ? data.length() : 0;
+                request = new JSONObject(data);
+            }
+        } catch (JSONException | IllegalArgumentException e) {
+            Log.w(TAG, "Mensagem inválida recebida da página", e);
+            return;
+        }
+
+        String name = request.optString("method");
+        JSONObject params = request.optJSONObject("params");
+        final Call call = new Call(request.optLong("id"), name, params != null ? params : new JSONObject(), frame, port,
+                start, bytesIn);
+        final Method method = methods.get(name);
+        if (method == null) {
+            call.reject("Método desconhecido: " + name);
+            return;
+        }
+        // Cada método tem seu próprio limite no dispatcher ("bridge.readBlob", ...)
+        dispatcher.submit("bridge." + name, ticket -> {
+            try {
+                method.invoke(call);
+            } catch (Exception e) {
+                Log.e(TAG, "Erro em " + call.method, e);
+                call.reject(e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }, (operation, reason) -> call.reject(reason));
+    }
+}
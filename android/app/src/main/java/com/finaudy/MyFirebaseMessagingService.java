@@ -13,8 +13,10 @@ import androidx.core.app.NotificationManagerCompat;
 import com.google.firebase.messaging.FirebaseMessagingService;
 import com.google.firebase.messaging.RemoteMessage;
 
+import java.io.File;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
+import java.util.UUID;
 
 public class MyFirebaseMessagingService extends FirebaseMessagingService {
 
@@ -22,6 +24,16 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
     private static final String CHANNEL_ID = "finaudy_channel";
     private static final String CHANNEL_NAME = "Notificações Finaudy";
     private static final String CHANNEL_DESCRIPTION = "Notificações gerais e lembretes do Finaudy";
+    private static final String PLANNER_FILE = "notification-planner.json";
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    // Pushes do mesmo tipo com menos que isso entre si viram um resumo
+    private static final long COALESCE_MS = 2 * 60 * 1000L;
+    private static final long DEDUP_TTL_MS = 24 * HOUR_MS;
+    private static final long CONTENT_DEDUP_MS = 10 * 60 * 1000L;
+    private static final int DEFAULT_ALERTS_PER_HOUR = 6;
+
+    private static volatile boolean channelCreated;
+    private static NotificationPlanner planner;
 
     @Override
     public void onMessageReceived(RemoteMessage remoteMessage) {
@@ -56,7 +68,8 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
     @Override
     public void onNewToken(String token) {
         Log.d(TAG, "Refreshed FCM token: " + token);
-        // Enviar token para o JavaScript para registrar no servidor
+        // Registro no servidor pelo nativo, mesmo com o app fechado; a página só é avisada se estiver aberta
+        PushTokenWorker.onToken(this, token);
         sendTokenToWebView(token);
     }
 
@@ -64,57 +77,112 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
         // Encontra MainActivity e executa JavaScript para atualizar o token
         try {
             MainActivity mainActivity = MainActivity.getInstance();
-            if (mainActivity != null && mainActivity.getWebView() != null) {
-                mainActivity.runOnUiThread(() -> {
-                    String script = String.format("javascript:onFCMTokenReceived('%s');", token);
-                    mainActivity.getWebView().evaluateJavascript(script, null);
-                });
+            if (mainActivity != null && mainActivity.getEventBus() != null) {
+                // Só o token mais recente interessa se vários chegarem no mesmo frame
+                mainActivity.getEventBus().postLatest("onFCMTokenReceived", token);
             }
         } catch (Exception e) {
             Log.e(TAG, "Error sending token to WebView: " + e.getMessage());
         }
     }
 
+    /** Um planejador por processo: o estado em memória e o arquivo andam juntos. */
+    private NotificationPlanner planner() {
+        synchronized (MyFirebaseMessagingService.class) {
+            if (planner == null) {
+                Map<String, NotificationPlanner.Limit> limits = new HashMap<>();
+                limits.put("reminder", new NotificationPlanner.Limit(3, HOUR_MS));
+                limits.put("subscription", new NotificationPlanner.Limit(3, HOUR_MS));
+                limits.put("budget_exceeded", new NotificationPlanner.Limit(2, HOUR_MS));
+                planner = new NotificationPlanner(new File(getFilesDir(), PLANNER_FILE), System::currentTimeMillis,
+                        COALESCE_MS, DEDUP_TTL_MS, CONTENT_DEDUP_MS, limits,
+                        new NotificationPlanner.Limit(DEFAULT_ALERTS_PER_HOUR, HOUR_MS));
+            }
+            return planner;
+        }
+    }
+
     private void sendNotification(String title, String messageBody, Map<String, String> data) {
+        NotificationPlanner.Plan plan = planner().plan(NotificationPlanner.Message.from(title, messageBody, data));
+        if (plan == null) {
+            Log.d(TAG, "Notificação repetida descartada: " + data.get("dedup_key"));
+            return;
+        }
         createNotificationChannel();
+        // Os registros citados vêm no push ou são buscados com rede: chegam ao disco antes do toque
+        PrefetchWorker.schedule(this, data);
 
         // Intent para abrir o app ao clicar na notificação
         Intent intent = new Intent(this, MainActivity.class);
         intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
         
-        // Adiciona dados extras se disponível
+        // Adiciona dados extras se disponível (no resumo, os da mensagem mais recente)
         if (data != null && !data.isEmpty()) {
             for (Map.Entry<String, String> entry : data.entrySet()) {
-                intent.putExtra(entry.getKey(), entry.getValue());
+                // Os registros chegam à página pelo NotificationPrefetch, não pelos extras
+                if (!NotificationPrefetch.EXTRA_RECORDS.equals(entry.getKey())) {
+                    intent.putExtra(entry.getKey(), entry.getValue());
+                }
             }
         }
+        // Cada toque é entregue à página uma vez só, mesmo com o Intent voltando em onResume ou nos recentes
+        intent.putExtra(NotificationIntentQueue.EXTRA_ID, UUID.randomUUID().toString());
 
-        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent,
-                PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_IMMUTABLE);
-
-        // Gera ID único para cada notificação para evitar substituições
-        int notificationId = new Random().nextInt();
+        // requestCode por notificação: com o mesmo código, FLAG_ONE_SHOT faria todas abrirem com os extras da última.
+        // O resumo reaproveita o id a cada mensagem: FLAG_UPDATE_CURRENT troca os extras (e o EXTRA_ID) pelos novos
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, plan.id, intent,
+                PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
 
         NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setSmallIcon(R.drawable.ic_notification)
-                .setContentTitle(title)
-                .setContentText(messageBody)
                 .setAutoCancel(true)
-                .setSound(android.provider.Settings.System.DEFAULT_NOTIFICATION_URI)
                 .setContentIntent(pendingIntent)
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                .setDefaults(NotificationCompat.DEFAULT_ALL);
+                .setPriority(NotificationCompat.PRIORITY_HIGH);
+
+        if (plan.alert) {
+            notificationBuilder
+                    .setSound(android.provider.Settings.System.DEFAULT_NOTIFICATION_URI)
+                    .setDefaults(NotificationCompat.DEFAULT_ALL);
+        } else {
+            // Passou do limite do tipo: atualiza a bandeja sem tocar nem acordar a tela
+            notificationBuilder.setSilent(true);
+        }
 
-        // Adiciona estilo expandido para mensagens longas
-        if (messageBody != null && messageBody.length() > 40) {
-            notificationBuilder.setStyle(new NotificationCompat.BigTextStyle().bigText(messageBody));
+        if (plan.isSummary()) {
+            // Resumo como notificação comum em InboxStyle: um group summary sem filhos some em
+            // algumas versões do Android, e os filhos são justamente o que queremos tirar da bandeja
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+                    .setBigContentTitle(plan.count + " notificações");
+            for (String line : plan.lines) {
+                style.addLine(line);
+            }
+            if (plan.count > plan.lines.size()) {
+                style.setSummaryText("+" + (plan.count - plan.lines.size()) + " anteriores");
+            }
+            notificationBuilder
+                    .setContentTitle(plan.count + " notificações")
+                    .setContentText(plan.title + ": " + plan.body)
+                    .setNumber(plan.count)
+                    .setStyle(style);
+        } else {
+            notificationBuilder
+                    .setContentTitle(plan.title)
+                    .setContentText(plan.body);
+            // Adiciona estilo expandido para mensagens longas
+            if (plan.body != null && plan.body.length() > 40) {
+                notificationBuilder.setStyle(new NotificationCompat.BigTextStyle().bigText(plan.body));
+            }
         }
 
         NotificationManagerCompat notificationManager = NotificationManagerCompat.from(this);
         
         try {
-            notificationManager.notify(notificationId, notificationBuilder.build());
-            Log.d(TAG, "✅ Notification sent successfully with ID: " + notificationId);
+            for (int id : plan.cancel) {
+                notificationManager.cancel(id);
+            }
+            notificationManager.notify(plan.id, notificationBuilder.build());
+            Log.d(TAG, "✅ Notification sent successfully with ID: " + plan.id
+                    + (plan.isSummary() ? " (resumo de " + plan.count + ")" : ""));
         } catch (SecurityException e) {
             Log.e(TAG, "❌ Permission denied for notifications: " + e.getMessage());
         } catch (Exception e) {
@@ -122,7 +190,11 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
         }
     }
 
+    /** O canal só precisa ser registrado uma vez por processo. */
     private void createNotificationChannel() {
+        if (channelCreated) {
+            return;
+        }
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
                     CHANNEL_ID,
@@ -140,5 +212,6 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
                 Log.d(TAG, "✅ Notification channel created successfully");
             }
         }
+        channelCreated = true;
     }
 }
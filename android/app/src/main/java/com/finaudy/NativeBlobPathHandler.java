@@ -0,0 +1,164 @@
+package com.finaudy;
+
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.webkit.WebViewAssetLoader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serve os blobs do {@link NativeBlobStore} em /native-blob/{id} fazendo streaming direto do
+ * arquivo, com Content-Type correto e suporte a Range (usado por &lt;audio&gt; e &lt;video&gt;).
+ */
+public class NativeBlobPathHandler implements WebViewAssetLoader.PathHandler {
+
+    private static final String TAG = "NativeBlobPathHandler";
+
+    private final NativeBlobStore blobStore;
+
+    public NativeBlobPathHandler(NativeBlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    @Nullable
+    @WorkerThread
+    @Override
+    public WebResourceResponse handle(@NonNull String path) {
+        return serve(NativeBlobStore.idFromUrl(path), null);
+    }
+
+    /**
+     * O PathHandler não recebe os cabeçalhos do pedido, então pedidos com Range são
+     * atendidos aqui antes de chegarem ao WebViewAssetLoader.
+     */
+    @Nullable
+    @WorkerThread
+    public WebResourceResponse handleRangeRequest(WebResourceRequest request) {
+        String path = request.getUrl().getPath();
+        if (path == null || !path.startsWith(NativeBlobStore.PATH_PREFIX)) {
+            return null;
+        }
+        String range = findHeader(request.getRequestHeaders(), "Range");
+        if (range == null) {
+            return null;
+        }
+        return serve(NativeBlobStore.idFromUrl(path), range);
+    }
+
+    private WebResourceResponse serve(String id, @Nullable String rangeHeader) {
+        NativeBlobStore.Entry entry = blobStore.get(id);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cache-Control", "no-store");
+        headers.put("Accept-Ranges", "bytes");
+
+        if (entry == null || !entry.file.exists()) {
+            Log.w(TAG, "Blob não encontrado: " + id);
+            return new WebResourceResponse("text/plain", "UTF-8", 404, "Not Found", headers, null);
+        }
+
+        try {
+            ByteRange range = ByteRange.parse(rangeHeader, entry.length);
+            if (range == null) {
+                headers.put("Content-Length", String.valueOf(entry.length));
+                return new WebResourceResponse(entry.mimeType, null, 200, "OK", headers,
+                        new FileInputStream(entry.file));
+            }
+            if (!range.isSatisfiable()) {
+                headers.put("Content-Range", "bytes */" + entry.length);
+                return new WebResourceResponse(entry.mimeType, null, 416, "Range Not Satisfiable", headers, null);
+            }
+            headers.put("Content-Range", range.contentRange(entry.length));
+            headers.put("Content-Length", String.valueOf(range.length()));
+            return new WebResourceResponse(entry.mimeType, null, 206, "Partial Content", headers,
+                    openRange(entry.file, range));
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao abrir blob " + id, e);
+            return new WebResourceResponse("text/plain", "UTF-8", 500, "Internal Server Error", headers, null);
+        }
+    }
+
+    private static InputStream openRange(File file, ByteRange range) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(range.start);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BoundedInputStream(in, range.length());
+    }
+
+    @Nullable
+    private static String findHeader(@Nullable Map<String, String> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = super.read();
+            if (value != -1) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.finaudy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Guarda em disco os arquivos gerados pelo lado nativo (áudio, imagens, arquivos escolhidos)
+ * para que a página os leia em /native-blob/{id} em vez de receber strings base64.
+ */
+public class NativeBlobStore {
+
+    public static final String PATH_PREFIX = "/native-blob/";
+    public static final String BASE_URL = "https://appassets.androidplatform.net" + PATH_PREFIX;
+    public static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    public interface BlobWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    public static final class Entry {
+        public final String id;
+        public final File file;
+        public final String mimeType;
+        public final String name;
+        public final long length;
+
+        Entry(String id, File file, String mimeType, String name, long length) {
+            this.id = id;
+            this.file = file;
+            this.mimeType = mimeType;
+            this.name = name;
+            this.length = length;
+        }
+
+        public String getUrl() {
+            return BASE_URL + id;
+        }
+    }
+
+    private final File dir;
+    private final long maxBytes;
+    // Ordem de acesso: o primeiro item é o menos usado recentemente
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public NativeBlobStore(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        // Blobs de um processo anterior não têm mais dono na página
+        deleteContents(dir);
+        dir.mkdirs();
+    }
+
+    public Entry write(String mimeType, String name, BlobWriter writer) throws IOException {
+        String id = newId();
+        File file = new File(dir, id);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            writer.writeTo(out);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            file.delete();
+            throw e;
+        }
+        out.close();
+        return register(id, file, mimeType, name);
+    }
+
+    public Entry put(final InputStream in, String mimeType, String name) throws IOException {
+        try {
+            return write(mimeType, name, new BlobWriter() {
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    copy(in, out);
+                }
+            });
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Move um arquivo já gravado (ex.: gravação de áudio) para dentro do store. */
+    public Entry adopt(File source, String mimeType, String name) throws IOException {
+        String id = newId();
+        File file = new File(dir, id);
+        if (!source.renameTo(file)) {
+            // renameTo falha entre sistemas de arquivos (cache externo -> interno)
+            Entry copied = put(new FileInputStream(source), mimeType, name);
+            source.delete();
+            return copied;
+        }
+        return register(id, file, mimeType, name);
+    }
+
+    public synchronized Entry get(String id) {
+        return id == null ? null : entries.get(id);
+    }
+
+    public synchronized boolean release(String idOrUrl) {
+        Entry entry = entries.remove(idFromUrl(idOrUrl));
+        if (entry == null) {
+            return false;
+        }
+        totalBytes -= entry.length;
+        entry.file.delete();
+        return true;
+    }
+
+    public synchronized void trimToSize(long targetBytes) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > targetBytes && it.hasNext()) {
+            Entry entry = it.next().getValue();
+            it.remove();
+            totalBytes -= entry.length;
+            entry.file.delete();
+        }
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    public synchronized long size() {
+        return totalBytes;
+    }
+
+    public synchronized int count() {
+        return entries.size();
+    }
+
+    public static String idFromUrl(String idOrUrl) {
+        if (idOrUrl == null) {
+            return null;
+        }
+        int index = idOrUrl.lastIndexOf(PATH_PREFIX);
+        String id = index >= 0 ? idOrUrl.substring(index + PATH_PREFIX.length()) : idOrUrl;
+        int query = id.indexOf('?');
+        return query >= 0 ? id.substring(0, query) : id;
+    }
+
+    /** Lê o blob inteiro para memória; só para blobs pequenos (ex.: resposta binária da ponte). */
+    public static byte[] readAll(Entry entry) throws IOException {
+        if (entry.length > Integer.MAX_VALUE) {
+            throw new IOException("Blob grande demais para memória: " + entry.length);
+        }
+        byte[] bytes = new byte[(int) entry.length];
+        InputStream in = new FileInputStream(entry.file);
+        try {
+            int total = 0;
+            while (total < bytes.length) {
+                int read = in.read(bytes, total, bytes.length - total);
+                if (read == -1) {
+                    throw new IOException("Blob truncado: " + entry.id);
+                }
+                total += read;
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private synchronized Entry register(String id, File file, String mimeType, String name) {
+        Entry entry = new Entry(id, file,
+                mimeType != null ? mimeType : DEFAULT_MIME_TYPE,
+                name != null ? name : id,
+                file.length());
+        entries.put(id, entry);
+        totalBytes += entry.length;
+        evictOverflow(id);
+        return entry;
+    }
+
+    private void evictOverflow(String keepId) {
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        List<String> evicted = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            // Nunca descarta o blob que acabou de ser criado
+            if (entry.id.equals(keepId)) {
+                continue;
+            }
+            evicted.add(entry.id);
+            totalBytes -= entry.length;
+            entry.file.delete();
+        }
+        for (String id : evicted) {
+            entries.remove(id);
+        }
+    }
+
+    private static String newId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private static void deleteContents(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+}
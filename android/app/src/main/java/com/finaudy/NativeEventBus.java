@@ -0,0 +1,122 @@
+package com.finaudy;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+import android.webkit.WebView;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Único caminho de eventos nativo→JS. Os eventos postados de qualquer thread são
+ * serializados em JSON na hora e saem juntos, num só evaluateJavascript no próximo frame.
+ */
+public class NativeEventBus implements Choreographer.FrameCallback {
+
+    private static final String TAG = "NativeEventBus";
+    // Sem vsync (tela desligada, janela oculta) o frame não chega; não segura o evento além disso
+    private static final long MAX_FRAME_WAIT_MS = 100;
+
+    private final WebView webView;
+    private final BridgeMetrics metrics = BridgeMetrics.shared();
+    private final NativeEventQueue queue = new NativeEventQueue(metrics);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable scheduleFrame = this::scheduleFrame;
+    private final Runnable fallbackFlush = this::flush;
+    private volatile boolean closed;
+
+    public NativeEventBus(WebView webView) {
+        this.webView = webView;
+    }
+
+    /** Envia window[name](...args); args podem ser String, Number, Boolean, JSONObject ou JSONArray. */
+    public void post(String name, Object... args) {
+        if (!closed && queue.enqueue(name, toJsonArgs(args), SystemClock.elapsedRealtimeNanos())) {
+            requestFlush();
+        }
+    }
+
+    /** Como {@link #post}, mas substitui um evento de mesmo nome que ainda não saiu. */
+    public void postLatest(String name, Object... args) {
+        if (!closed && queue.enqueueLatest(name, toJsonArgs(args), SystemClock.elapsedRealtimeNanos())) {
+            requestFlush();
+        }
+    }
+
+    public NativeEventQueue.Stats getStats() {
+        return queue.stats();
+    }
+
+    /**
+     * Na UI thread, antes de destruir o WebView: cancela o frame e o envio de reserva agendados e
+     * descarta os eventos que ainda não saíram. Os posts que chegarem depois são ignorados.
+     */
+    public void close() {
+        closed = true;
+        Choreographer.getInstance().removeFrameCallback(this);
+        mainHandler.removeCallbacks(scheduleFrame);
+        mainHandler.removeCallbacks(fallbackFlush);
+        int dropped = queue.clear();
+        if (dropped > 0) {
+            Log.d(TAG, dropped + " eventos descartados com o WebView");
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        flush();
+    }
+
+    private void requestFlush() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            scheduleFrame();
+        } else {
+            mainHandler.post(scheduleFrame);
+        }
+    }
+
+    private void scheduleFrame() {
+        if (closed) {
+            // Post de outra thread que passou pela checagem antes do close
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+        mainHandler.postDelayed(fallbackFlush, MAX_FRAME_WAIT_MS);
+    }
+
+    private void flush() {
+        Choreographer.getInstance().removeFrameCallback(this);
+        mainHandler.removeCallbacks(fallbackFlush);
+        int depth = queue.depth();
+        String script = queue.drainScript(SystemClock.elapsedRealtimeNanos());
+        if (script == null) {
+            return;
+        }
+        if (depth > 1) {
+            Log.v(TAG, "Batch com " + depth + " eventos");
+        }
+        long start = metrics.start();
+        webView.evaluateJavascript(script, null);
+        // Só o custo na UI thread de entregar o script; o tempo de cada evento na fila sai em "event.*"
+        metrics.record(BridgeMetrics.EVALUATE_JAVASCRIPT, start, 0, script.length(), true);
+    }
+
+    private static Object[] toJsonArgs(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        Object[] converted = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg instanceof JSONObject || arg instanceof JSONArray) {
+                converted[i] = new NativeEventQueue.RawJson(arg.toString());
+            } else {
+                converted[i] = arg == JSONObject.NULL ? null : arg;
+            }
+        }
+        return converted;
+    }
+}
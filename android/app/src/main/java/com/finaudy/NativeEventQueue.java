@@ -0,0 +1,243 @@
+package com.finaudy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fila de eventos nativo→JS. Cada evento vira {"name", "args"} em JSON e todos os pendentes
+ * saem num único script para window.__nativeEvents(batch). Não depende do Android para
+ * poder ser testada na JVM; quem agenda o envio por frame é o {@link NativeEventBus}.
+ */
+final class NativeEventQueue {
+
+    static final String ENTRY_POINT = "window.__nativeEvents";
+
+    // Usado enquanto a página ainda não instalou o dispatcher: chama window[name](...args)
+    private static final String FALLBACK_DISPATCHER = "function(b){for(var i=0;i<b.length;i++){"
+            + "var f=window[b[i].name];if(typeof f==='function'){try{f.apply(window,b[i].args);}"
+            + "catch(e){console.error(e);}}else{console.warn('Callback nativo ausente: '+b[i].name);}}}";
+
+    /** JSON já serializado (ex.: JSONObject.toString()) que entra no batch sem aspas. */
+    static final class RawJson {
+        final String json;
+
+        RawJson(String json) {
+            this.json = json;
+        }
+    }
+
+    static final class Stats {
+        final int depth;
+        final int maxDepth;
+        final long batches;
+        final long events;
+        final long coalesced;
+        final double avgLatencyMs;
+        final double maxLatencyMs;
+
+        Stats(int depth, int maxDepth, long batches, long events, long coalesced, double avgLatencyMs, double maxLatencyMs) {
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.batches = batches;
+            this.events = events;
+            this.coalesced = coalesced;
+            this.avgLatencyMs = avgLatencyMs;
+            this.maxLatencyMs = maxLatencyMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "depth=%d maxDepth=%d batches=%d events=%d coalesced=%d avgLatency=%.2fms maxLatency=%.2fms",
+                    depth, maxDepth, batches, events, coalesced, avgLatencyMs, maxLatencyMs);
+        }
+    }
+
+    private static final class Event {
+        final String name;
+        String json;
+        final long enqueuedNanos;
+
+        Event(String name, String json, long enqueuedNanos) {
+            this.name = name;
+            this.json = json;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final BridgeMetrics metrics;
+    private final List<Event> pending = new ArrayList<>();
+    private int maxDepth;
+    private long batches;
+    private long dispatched;
+    private long coalesced;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    NativeEventQueue() {
+        this(null);
+    }
+
+    /** @param metrics recebe tempo na fila e tamanho de cada evento enviado ("event.nome"); pode ser null */
+    NativeEventQueue(BridgeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** @return true se a fila estava vazia, ou seja, é preciso agendar um envio */
+    synchronized boolean enqueue(String name, Object[] args, long nowNanos) {
+        pending.add(new Event(name, serialize(name, args), nowNanos));
+        maxDepth = Math.max(maxDepth, pending.size());
+        return pending.size() == 1;
+    }
+
+    /**
+     * Para eventos de estado (token, permissão): um evento pendente com o mesmo nome é
+     * substituído, mantendo a posição e o horário original.
+     */
+    synchronized boolean enqueueLatest(String name, Object[] args, long nowNanos) {
+        for (Event event : pending) {
+            if (event.name.equals(name)) {
+                event.json = serialize(name, args);
+                coalesced++;
+                return false;
+            }
+        }
+        return enqueue(name, args, nowNanos);
+    }
+
+    /** Monta o script do batch e esvazia a fila; null se não havia nada pendente. */
+    synchronized String drainScript(long nowNanos) {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        StringBuilder script = new StringBuilder(256);
+        script.append('(').append(ENTRY_POINT).append("||").append(FALLBACK_DISPATCHER).append(")([");
+        for (int i = 0; i < pending.size(); i++) {
+            Event event = pending.get(i);
+            if (i > 0) {
+                script.append(',');
+            }
+            script.append(event.json);
+            long latency = nowNanos - event.enqueuedNanos;
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            if (metrics != null) {
+                metrics.recordLatency(BridgeMetrics.PREFIX_EVENT + event.name, latency, 0, event.json.length(), true);
+            }
+        }
+        script.append("]);");
+        dispatched += pending.size();
+        batches++;
+        pending.clear();
+        return script.toString();
+    }
+
+    /** Descarta o que não saiu (o WebView de destino acabou); devolve quantos eventos eram. */
+    synchronized int clear() {
+        int dropped = pending.size();
+        pending.clear();
+        return dropped;
+    }
+
+    synchronized int depth() {
+        return pending.size();
+    }
+
+    synchronized Stats stats() {
+        double avg = dispatched == 0 ? 0 : totalLatencyNanos / 1e6 / dispatched;
+        return new Stats(pending.size(), maxDepth, batches, dispatched, coalesced, avg, maxLatencyNanos / 1e6);
+    }
+
+    private static String serialize(String name, Object[] args) {
+        StringBuilder json = new StringBuilder(64);
+        json.append("{\"name\":");
+        appendQuoted(json, name);
+        json.append(",\"args\":[");
+        if (args != null) {
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                appendJson(json, args[i]);
+            }
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    static void appendJson(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String) {
+            appendQuoted(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.append(value.toString());
+        } else if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            // NaN e infinito não existem em JSON
+            out.append(Double.isNaN(number) || Double.isInfinite(number) ? "null" : value.toString());
+        } else if (value instanceof RawJson) {
+            out.append(((RawJson) value).json);
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                appendQuoted(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                appendJson(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof Collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object item : (Collection<?>) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                appendJson(out, item);
+            }
+            out.append(']');
+        } else {
+            appendQuoted(out, value.toString());
+        }
+    }
+
+    static void appendQuoted(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    // < 0x20 é inválido em JSON; U+2028/U+2029 terminam a linha em JS antigo
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
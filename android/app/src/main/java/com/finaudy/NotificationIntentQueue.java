@@ -0,0 +1,172 @@
+package com.finaudy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cliques em notificação a caminho da página, entregues uma única vez. O id do clique é o extra
+ * {@link #EXTRA_ID} posto pelo app ou o message_id do FCM; ele só conta como consumido quando o
+ * clique sai para a página, e os consumidos ficam em disco: o Intent que o Android devolve a cada
+ * onResume, ou ao recriar o processo pela tela de recentes, não dispara a navegação de novo.
+ * Cliques sem id são entregues sem essa checagem. Enquanto a página não avisa que está pronta, os
+ * cliques ficam na fila e saem todos juntos em {@link #ready}.
+ *
+ * Não é thread-safe: chamar sempre na UI thread.
+ */
+final class NotificationIntentQueue<E> {
+
+    static final String EXTRA_ID = "notification_id";
+    // Extra que o FCM põe no Intent quando a notificação é exibida pelo sistema (app em segundo plano)
+    static final String EXTRA_FCM_MESSAGE_ID = "google.message_id";
+    // Um clique por notificação; poucas dezenas bastam para cobrir os Intents que o Android ainda guarda
+    static final int MAX_CONSUMED = 64;
+
+    private final File file;
+    private final Set<String> consumed = new LinkedHashSet<>();
+    // Aceitos e ainda não entregues (alguns esperam o prefetch antes de virar evento)
+    private final Set<String> accepted = new HashSet<>();
+    private final List<String> pendingIds = new ArrayList<>();
+    private final List<E> pending = new ArrayList<>();
+    private boolean pageReady;
+
+    NotificationIntentQueue(File file) {
+        this.file = file;
+        load();
+    }
+
+    /** Id do clique a partir dos extras do Intent; null se a notificação não trouxe um. */
+    static String idFor(Map<String, String> extras) {
+        if (extras == null || extras.isEmpty()) {
+            return null;
+        }
+        String id = extras.get(EXTRA_ID);
+        // Sem id (versões antigas do app) não há como separar um Intent repetido de duas
+        // notificações com os mesmos dados: melhor entregar de novo do que perder um clique
+        return id != null ? id : extras.get(EXTRA_FCM_MESSAGE_ID);
+    }
+
+    /**
+     * Reserva o id para entrega. false se o clique já foi entregue ou está a caminho; nesse caso
+     * o Intent deve ser ignorado. Um clique sem id é sempre aceito.
+     */
+    boolean accept(String id) {
+        if (id == null) {
+            return true;
+        }
+        if (consumed.contains(id) || accepted.contains(id)) {
+            return false;
+        }
+        accepted.add(id);
+        return true;
+    }
+
+    /**
+     * Evento do clique aceito em {@link #accept}. Com a página pronta volta para ser postado já
+     * (e o id é consumido); senão fica na fila e a lista volta vazia.
+     */
+    List<E> offer(String id, E event) {
+        if (id != null && !accepted.contains(id)) {
+            return Collections.emptyList();
+        }
+        pendingIds.add(id);
+        pending.add(event);
+        return pageReady ? drain() : Collections.<E>emptyList();
+    }
+
+    /** A página montou o listener: devolve a fila inteira, em ordem de chegada, para um só batch. */
+    List<E> ready() {
+        pageReady = true;
+        return drain();
+    }
+
+    /** Documento novo (reload ou navegação): até o próximo ready os cliques voltam a esperar. */
+    void reset() {
+        pageReady = false;
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    boolean isConsumed(String id) {
+        return consumed.contains(id);
+    }
+
+    private List<E> drain() {
+        if (pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<E> events = new ArrayList<>(pending);
+        for (String id : pendingIds) {
+            if (id == null) {
+                continue;
+            }
+            accepted.remove(id);
+            consumed.remove(id);
+            consumed.add(id);
+        }
+        pending.clear();
+        pendingIds.clear();
+        while (consumed.size() > MAX_CONSUMED) {
+            consumed.remove(consumed.iterator().next());
+        }
+        save();
+        return events;
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            for (Object id : Json.parseArray(new String(readBytes(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+                if (id instanceof String) {
+                    consumed.add((String) id);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Lista ilegível: no pior caso um clique antigo navega de novo
+            consumed.clear();
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                out.write(Json.stringify(new ArrayList<Object>(consumed)).getBytes(StandardCharsets.UTF_8));
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Não foi possível substituir " + file);
+            }
+        } catch (IOException e) {
+            // Sem a lista gravada só um processo novo repetiria o clique
+            tmp.delete();
+        }
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
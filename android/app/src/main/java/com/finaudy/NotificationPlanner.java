@@ -0,0 +1,320 @@
+package com.finaudy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decide o que fazer com cada push recebido: descarta repetidos (pela dedup_key do servidor ou,
+ * sem ela, pelo conteúdo), junta mensagens do mesmo tipo que chegam em sequência num resumo
+ * (InboxStyle) e limita quantas fazem som/vibração por tipo. O estado fica num JSON pequeno,
+ * então rajadas que atravessam reinícios do processo continuam agrupadas.
+ */
+final class NotificationPlanner {
+
+    interface Clock {
+        long millis();
+    }
+
+    /** No máximo maxAlerts notificações com som por janela de windowMs; o resto chega em silêncio. */
+    static final class Limit {
+        final int maxAlerts;
+        final long windowMs;
+
+        Limit(int maxAlerts, long windowMs) {
+            this.maxAlerts = maxAlerts;
+            this.windowMs = windowMs;
+        }
+    }
+
+    static final class Message {
+        final String type;
+        // null quando o servidor não mandou dedup_key
+        final String key;
+        final String title;
+        final String body;
+
+        Message(String type, String key, String title, String body) {
+            this.type = type != null && !type.isEmpty() ? type : "general";
+            this.key = key != null && !key.isEmpty() ? key : null;
+            this.title = title;
+            this.body = body;
+        }
+
+        static Message from(String title, String body, Map<String, String> data) {
+            return new Message(data.get("type"), data.get("dedup_key"), title, body);
+        }
+    }
+
+    static final class Plan {
+        final int id;
+        final String group;
+        final String title;
+        final String body;
+        // Linhas do resumo, mais recente primeiro; vazio para uma notificação individual
+        final List<String> lines;
+        final int count;
+        final boolean alert;
+        // Notificações individuais que o resumo substitui
+        final List<Integer> cancel;
+
+        Plan(int id, String group, String title, String body, List<String> lines, int count, boolean alert,
+             List<Integer> cancel) {
+            this.id = id;
+            this.group = group;
+            this.title = title;
+            this.body = body;
+            this.lines = lines;
+            this.count = count;
+            this.alert = alert;
+            this.cancel = cancel;
+        }
+
+        boolean isSummary() {
+            return !lines.isEmpty();
+        }
+    }
+
+    static final int SUMMARY_LINES = 5;
+    // Chaves lembradas, o suficiente para qualquer rajada de um cron
+    private static final int MAX_SEEN = 500;
+    private static final String GROUP_PREFIX = "finaudy.";
+
+    private static final class Entry {
+        final int id;
+        final String line;
+        boolean shown;
+
+        Entry(int id, String line, boolean shown) {
+            this.id = id;
+            this.line = line;
+            this.shown = shown;
+        }
+    }
+
+    private static final class Group {
+        long lastAt;
+        int count;
+        // Só as últimas SUMMARY_LINES; count guarda o total
+        final List<Entry> entries = new ArrayList<>();
+    }
+
+    private final File file;
+    private final Clock clock;
+    private final long coalesceMs;
+    private final long dedupTtlMs;
+    private final long contentDedupMs;
+    private final Map<String, Limit> limits;
+    private final Limit defaultLimit;
+    // chave → expira em
+    private final LinkedHashMap<String, Long> seen = new LinkedHashMap<>();
+    private final Map<String, List<Long>> alerts = new HashMap<>();
+    private final Map<String, Group> groups = new HashMap<>();
+
+    /**
+     * @param coalesceMs     mensagens do mesmo tipo com intervalo menor que isso vão para o resumo
+     * @param dedupTtlMs     por quanto tempo uma dedup_key do servidor é lembrada
+     * @param contentDedupMs idem para mensagens sem chave, comparadas por tipo, título e texto
+     */
+    NotificationPlanner(File file, Clock clock, long coalesceMs, long dedupTtlMs, long contentDedupMs,
+                        Map<String, Limit> limits, Limit defaultLimit) {
+        this.file = file;
+        this.clock = clock;
+        this.coalesceMs = coalesceMs;
+        this.dedupTtlMs = dedupTtlMs;
+        this.contentDedupMs = contentDedupMs;
+        this.limits = limits;
+        this.defaultLimit = defaultLimit;
+        load();
+    }
+
+    /** @return o que postar, ou null se a mensagem é repetida */
+    synchronized Plan plan(Message message) {
+        long now = clock.millis();
+        prune(now);
+        String key = message.key != null ? "k:" + message.key
+                : "c:" + message.type + '\n' + message.title + '\n' + message.body;
+        if (seen.containsKey(key)) {
+            return null;
+        }
+        seen.put(key, now + (message.key != null ? dedupTtlMs : contentDedupMs));
+
+        boolean alert = allowAlert(message.type, now);
+        Group group = groups.get(message.type);
+        if (group == null || now - group.lastAt > coalesceMs) {
+            group = new Group();
+            groups.put(message.type, group);
+        }
+        group.lastAt = now;
+        group.count++;
+        int id = key.hashCode();
+        String line = message.title + ": " + message.body;
+        Plan plan;
+        if (group.count == 1) {
+            group.entries.add(new Entry(id, line, true));
+            plan = new Plan(id, GROUP_PREFIX + message.type, message.title, message.body,
+                    new ArrayList<String>(), 1, alert, new ArrayList<Integer>());
+        } else {
+            List<Integer> cancel = new ArrayList<>();
+            for (Entry entry : group.entries) {
+                if (entry.shown) {
+                    cancel.add(entry.id);
+                    entry.shown = false;
+                }
+            }
+            group.entries.add(new Entry(id, line, false));
+            while (group.entries.size() > SUMMARY_LINES) {
+                group.entries.remove(0);
+            }
+            List<String> lines = new ArrayList<>();
+            for (int i = group.entries.size() - 1; i >= 0; i--) {
+                lines.add(group.entries.get(i).line);
+            }
+            plan = new Plan(summaryId(message.type), GROUP_PREFIX + message.type, message.title, message.body,
+                    lines, group.count, alert, cancel);
+        }
+        save();
+        return plan;
+    }
+
+    static int summaryId(String type) {
+        return ("summary:" + type).hashCode();
+    }
+
+    private boolean allowAlert(String type, long now) {
+        Limit limit = limits.containsKey(type) ? limits.get(type) : defaultLimit;
+        List<Long> times = alerts.get(type);
+        if (times == null) {
+            times = new ArrayList<>();
+            alerts.put(type, times);
+        }
+        for (Iterator<Long> it = times.iterator(); it.hasNext(); ) {
+            if (now - it.next() >= limit.windowMs) {
+                it.remove();
+            }
+        }
+        if (times.size() >= limit.maxAlerts) {
+            return false;
+        }
+        times.add(now);
+        return true;
+    }
+
+    private void prune(long now) {
+        for (Iterator<Long> it = seen.values().iterator(); it.hasNext(); ) {
+            if (it.next() <= now) {
+                it.remove();
+            }
+        }
+        // Mais antigas primeiro (ordem de inserção)
+        Iterator<String> oldest = seen.keySet().iterator();
+        while (seen.size() >= MAX_SEEN && oldest.hasNext()) {
+            oldest.next();
+            oldest.remove();
+        }
+        for (Iterator<Group> it = groups.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastAt > coalesceMs) {
+                it.remove();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            Map<String, Object> state;
+            InputStream in = new FileInputStream(file);
+            try {
+                byte[] bytes = new byte[(int) file.length()];
+                int length = 0;
+                int read;
+                while (length < bytes.length && (read = in.read(bytes, length, bytes.length - length)) > 0) {
+                    length += read;
+                }
+                state = Json.parseObject(new String(bytes, 0, length, Charset.forName("UTF-8")));
+            } finally {
+                in.close();
+            }
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) state.get("seen")).entrySet()) {
+                seen.put(entry.getKey(), ((Number) entry.getValue()).longValue());
+            }
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) state.get("alerts")).entrySet()) {
+                List<Long> times = new ArrayList<>();
+                for (Object time : (List<Object>) entry.getValue()) {
+                    times.add(((Number) time).longValue());
+                }
+                alerts.put(entry.getKey(), times);
+            }
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) state.get("groups")).entrySet()) {
+                Map<String, Object> saved = (Map<String, Object>) entry.getValue();
+                Group group = new Group();
+                group.lastAt = ((Number) saved.get("lastAt")).longValue();
+                group.count = ((Number) saved.get("count")).intValue();
+                for (Object item : (List<Object>) saved.get("entries")) {
+                    Map<String, Object> e = (Map<String, Object>) item;
+                    group.entries.add(new Entry(((Number) e.get("id")).intValue(), Json.string(e, "line"),
+                            Boolean.TRUE.equals(e.get("shown"))));
+                }
+                groups.put(entry.getKey(), group);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Estado corrompido: na pior das hipóteses uma repetida passa e a rajada reagrupa
+            seen.clear();
+            alerts.clear();
+            groups.clear();
+        }
+    }
+
+    private void save() {
+        Map<String, Object> groupState = new LinkedHashMap<>();
+        for (Map.Entry<String, Group> entry : groups.entrySet()) {
+            Group group = entry.getValue();
+            List<Object> entries = new ArrayList<>();
+            for (Entry e : group.entries) {
+                Map<String, Object> saved = new LinkedHashMap<>();
+                saved.put("id", e.id);
+                saved.put("line", e.line);
+                saved.put("shown", e.shown);
+                entries.add(saved);
+            }
+            Map<String, Object> saved = new LinkedHashMap<>();
+            saved.put("lastAt", group.lastAt);
+            saved.put("count", group.count);
+            saved.put("entries", entries);
+            groupState.put(entry.getKey(), saved);
+        }
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("seen", seen);
+        state.put("alerts", alerts);
+        state.put("groups", groupState);
+        // Grava ao lado e renomeia: um processo morto no meio não deixa o arquivo pela metade
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(Json.stringify(state).getBytes(Charset.forName("UTF-8")));
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Não foi possível substituir " + file);
+            }
+        } catch (IOException e) {
+            // Sem o estado gravado, o próximo processo só deixa de reconhecer esta rajada
+            temp.delete();
+        }
+    }
+}
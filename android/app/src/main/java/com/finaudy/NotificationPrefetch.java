@@ -0,0 +1,320 @@
+package com.finaudy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Registros citados por um push (lembrete, assinatura, orçamento), guardados até o usuário tocar
+ * na notificação. O servidor manda os registros no próprio push ({@link #EXTRA_RECORDS}) quando
+ * cabem; senão são buscados em segundo plano com a sessão gravada, que pode já ter vencido. No toque, a página recebe
+ * os registros junto com o clique e mostra o conteúdo sem esperar o Supabase. Os contadores
+ * (buscados, falhas, acertos, faltas, vencidos) ficam gravados para medir a taxa de acerto.
+ */
+final class NotificationPrefetch {
+
+    interface Clock {
+        long millis();
+    }
+
+    /** Uma consulta ao PostgREST; o resultado vai para records[table]. */
+    static final class Request {
+        final String table;
+        final String query;
+
+        Request(String table, String query) {
+            this.table = table;
+            this.query = query;
+        }
+    }
+
+    /** Campo do push com o JSON {tabela: [linhas]} buscado pelo servidor (send-push-notification). */
+    static final String EXTRA_RECORDS = "prefetch_records";
+
+    static final String STAT_SCHEDULED = "scheduled";
+    static final String STAT_STORED = "stored";
+    static final String STAT_FAILED = "failed";
+    static final String STAT_HITS = "hits";
+    static final String STAT_MISSES = "misses";
+    static final String STAT_STALE = "stale";
+    private static final String STATS_FILE = "stats.json";
+    private static final String SESSION_FILE = "session.json";
+    // Registros guardados além disso são de notificações que ninguém tocou
+    private static final int MAX_ENTRIES = 50;
+
+    private final File dir;
+    private final Clock clock;
+    private final long ttlMs;
+
+    NotificationPrefetch(File dir, Clock clock, long ttlMs) {
+        this.dir = dir;
+        this.clock = clock;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Chave da notificação: a dedup_key do servidor ou, sem ela, o tipo e os campos *_id.
+     * null quando a mensagem não cita nenhum registro.
+     */
+    static String key(Map<String, String> data) {
+        String dedupKey = data.get("dedup_key");
+        if (dedupKey != null && !dedupKey.isEmpty()) {
+            return dedupKey;
+        }
+        StringBuilder key = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(data).entrySet()) {
+            // Extras do sistema (google.message_id etc.) não fazem parte da chave
+            if (entry.getKey().endsWith("_id") && entry.getKey().indexOf('.') < 0) {
+                key.append(key.length() > 0 ? "," : "").append(entry.getKey()).append('=').append(entry.getValue());
+            }
+        }
+        return key.length() > 0 ? data.get("type") + ":" + key : null;
+    }
+
+    /** O que buscar para cada tipo de push; vazio se o tipo não tem tela de detalhe. */
+    static List<Request> requestsFor(Map<String, String> data) {
+        List<Request> requests = new ArrayList<>();
+        String type = data.get("type");
+        if (type == null) {
+            return requests;
+        }
+        switch (type) {
+            case "reminder":
+            case "bill_reminder":
+                add(requests, "bill_reminders", data.get("reminder_id"));
+                break;
+            case "subscription":
+            case "subscription_renewal":
+            case "overdue_subscription":
+                add(requests, "subscriptions", data.get("subscription_id"));
+                break;
+            case "budget_exceeded":
+                add(requests, "category_budgets", data.get("budget_id"));
+                add(requests, "categories", data.get("category_id"));
+                break;
+            case "installment":
+            case "overdue_installment":
+                add(requests, "installments", data.get("installment_id"));
+                break;
+            default:
+                break;
+        }
+        return requests;
+    }
+
+    private static void add(List<Request> requests, String table, String id) {
+        if (id != null && !id.isEmpty()) {
+            requests.add(new Request(table, "select=*&id=eq." + PostgrestClient.encode(id)));
+        }
+    }
+
+    /** Busca e guarda os registros do push; uma falha em qualquer consulta descarta o conjunto. */
+    void fetch(String key, List<Request> requests, OfflineSyncEngine.Remote remote) throws IOException {
+        Map<String, Object> records = new LinkedHashMap<>();
+        try {
+            for (Request request : requests) {
+                records.put(request.table, remote.select(request.table, request.query));
+            }
+        } catch (IOException | RuntimeException e) {
+            count(STAT_FAILED);
+            throw e;
+        }
+        store(key, records);
+    }
+
+    /**
+     * Guarda os registros que vieram no push, sem rede nem token. false se o push não os trouxe
+     * (ou vieram ilegíveis) e é preciso buscar.
+     */
+    boolean storeFromPush(String key, Map<String, String> data) throws IOException {
+        String json = data.get(EXTRA_RECORDS);
+        if (json == null || json.isEmpty()) {
+            return false;
+        }
+        Map<String, Object> records;
+        try {
+            records = Json.parseObject(json);
+        } catch (RuntimeException e) {
+            return false;
+        }
+        store(key, records);
+        return true;
+    }
+
+    private void store(String key, Map<String, Object> records) throws IOException {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("fetchedAt", clock.millis());
+        entry.put("records", records);
+        synchronized (this) {
+            dir.mkdirs();
+            write(file(key), Json.stringify(entry));
+            trim();
+        }
+        count(STAT_STORED);
+    }
+
+    /**
+     * Registros guardados para a notificação tocada, já removidos do disco; null (e conta uma
+     * falta) se o prefetch não terminou a tempo, ou se passaram de ttlMs.
+     */
+    synchronized Map<String, Object> take(String key) {
+        File file = file(key);
+        Map<String, Object> entry = null;
+        if (file.exists()) {
+            try {
+                entry = Json.parseObject(read(file));
+            } catch (IOException | RuntimeException e) {
+                entry = null;
+            }
+            file.delete();
+        }
+        if (entry == null) {
+            count(STAT_MISSES);
+            return null;
+        }
+        Object fetchedAt = entry.get("fetchedAt");
+        if (!(fetchedAt instanceof Number) || clock.millis() - ((Number) fetchedAt).longValue() > ttlMs) {
+            count(STAT_STALE);
+            return null;
+        }
+        count(STAT_HITS);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> records = (Map<String, Object>) entry.get("records");
+        return records;
+    }
+
+    /**
+     * Guarda a sessão do Supabase para os jobs, que podem rodar com o app fechado. Um token vencido
+     * só faz o prefetch falhar; o app renova a sessão quando abre.
+     */
+    synchronized void saveSession(String url, String apikey, String accessToken, String userId) throws IOException {
+        Map<String, Object> session = new LinkedHashMap<>();
+        session.put("url", url);
+        session.put("apikey", apikey);
+        session.put("accessToken", accessToken);
+        session.put("userId", userId);
+        dir.mkdirs();
+        write(new File(dir, SESSION_FILE), Json.stringify(session));
+    }
+
+    /** Sessão gravada por saveSession; null depois do logout ou se nunca houve login. */
+    synchronized Map<String, Object> session() {
+        File file = new File(dir, SESSION_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            Map<String, Object> session = Json.parseObject(read(file));
+            return session.get("url") instanceof String && session.get("accessToken") instanceof String
+                    ? session : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Logout: esquece a sessão e os registros da conta que saiu. */
+    synchronized void clearSession() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.getName().equals(STATS_FILE)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    synchronized void count(String stat) {
+        Map<String, Object> stats = readStats();
+        stats.put(stat, number(stats, stat) + 1);
+        try {
+            dir.mkdirs();
+            write(new File(dir, STATS_FILE), Json.stringify(stats));
+        } catch (IOException ignored) {
+            // Métrica perdida não afeta o prefetch
+        }
+    }
+
+    /** Contadores mais hitRate: acertos sobre toques em notificações que tinham prefetch. */
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = readStats();
+        long hits = number(stats, STAT_HITS);
+        long taps = hits + number(stats, STAT_MISSES) + number(stats, STAT_STALE);
+        stats.put("hitRate", taps > 0 ? (double) hits / taps : 0.0);
+        return stats;
+    }
+
+    private Map<String, Object> readStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        File file = new File(dir, STATS_FILE);
+        if (file.exists()) {
+            try {
+                stats.putAll(Json.parseObject(read(file)));
+            } catch (IOException | RuntimeException ignored) {
+                // Contadores corrompidos recomeçam do zero
+            }
+        }
+        return stats;
+    }
+
+    private static long number(Map<String, Object> stats, String key) {
+        Object value = stats.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private File file(String key) {
+        // A chave vem do servidor: o nome do arquivo é o hash, nunca o texto
+        return new File(dir, Integer.toHexString(key.hashCode()) + "-" + key.length() + ".json");
+    }
+
+    /** Mantém só os MAX_ENTRIES mais recentes. */
+    private void trim() {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= MAX_ENTRIES + 2) {
+            return;
+        }
+        List<File> entries = new ArrayList<>();
+        for (File file : files) {
+            if (!file.getName().equals(STATS_FILE) && !file.getName().equals(SESSION_FILE)) {
+                entries.add(file);
+            }
+        }
+        Collections.sort(entries, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < entries.size() - MAX_ENTRIES; i++) {
+            entries.get(i).delete();
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int length = 0;
+            int read;
+            while (length < bytes.length && (read = in.read(bytes, length, bytes.length - length)) > 0) {
+                length += read;
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Não foi possível gravar " + file);
+        }
+    }
+}
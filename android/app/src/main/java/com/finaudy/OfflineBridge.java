@@ -0,0 +1,204 @@
+package com.finaudy;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Métodos da ponte do espelho offline: sessão, leituras locais, escritas na outbox e o sync em
+ * segundo plano, agendado aqui com debounce. Dura a activity inteira; a cada WebView novo só
+ * {@link #register} roda de novo.
+ */
+final class OfflineBridge {
+
+    /** Avisado depois de cada escrita local e de um sync que trouxe dados novos, fora da UI thread. */
+    interface ChangeListener {
+        /** rowJson com a linha gravada, ou removedId com a apagada. */
+        void onLocalChange(String table, String accountId, @Nullable String rowJson, @Nullable String removedId);
+
+        void onServerChange(String accountId);
+    }
+
+    static final String OP_SYNC = "offline.sync";
+    static final String TABLE_TRANSACTIONS = "transactions";
+    static final String TABLE_CATEGORIES = "categories";
+    // Escritas em sequência (ex.: editar vários campos) sobem num lote só
+    private static final long SYNC_DEBOUNCE_MS = 1500;
+
+    private final MainActivity activity;
+    private final BridgeDispatcher dispatcher;
+    private final Executor ioExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final OfflineStorage storage;
+    private final PostgrestClient postgrest = new PostgrestClient();
+    private final OfflineSyncEngine sync;
+    private final Runnable syncRunnable = this::runSync;
+    private volatile String accountId;
+    private volatile boolean syncAgain;
+    private ChangeListener listener;
+
+    OfflineBridge(MainActivity activity, BridgeDispatcher dispatcher, Executor ioExecutor) {
+        this.activity = activity;
+        this.dispatcher = dispatcher;
+        this.ioExecutor = ioExecutor;
+        // O banco só é aberto na primeira leitura/escrita, já fora da UI thread
+        storage = new SqliteOfflineStorage(activity);
+        sync = new OfflineSyncEngine(storage, postgrest, System::currentTimeMillis, Arrays.asList(
+                new OfflineSyncEngine.Table(TABLE_TRANSACTIONS, "user_id=eq.{account}", true),
+                new OfflineSyncEngine.Table(TABLE_CATEGORIES, "or=(user_id.eq.{account},is_default.eq.true)", false),
+                new OfflineSyncEngine.Table("category_budgets", "user_id=eq.{account}", true)),
+                (table, id, localJson, serverJson, reason) ->
+                        activity.getEventBus().post("onOfflineConflict", table, id, localJson, serverJson, reason));
+    }
+
+    /** Antes do primeiro register. */
+    void setChangeListener(ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    OfflineStorage storage() {
+        return storage;
+    }
+
+    /** A página manda a conta em cada chamada; sem ela vale a da última offlineSession. */
+    String requireAccount(JSONObject params) {
+        String account = params.isNull("accountId") ? accountId : params.optString("accountId");
+        if (account == null) {
+            throw new IllegalStateException("Nenhuma conta para o armazenamento offline");
+        }
+        return account;
+    }
+
+    /** Várias linhas pela outbox, como offlineWrite, com um sync só no fim (importação de extrato). */
+    void writeAll(String table, String account, List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            String json = sync.write(table, account, row);
+            if (listener != null) {
+                listener.onLocalChange(table, account, json, null);
+            }
+        }
+        activity.runOnUiThread(() -> requestSync(SYNC_DEBOUNCE_MS));
+    }
+
+    /** Agenda um sync; pedidos dentro do intervalo se juntam num só. */
+    void requestSync(long delayMs) {
+        mainHandler.removeCallbacks(syncRunnable);
+        mainHandler.postDelayed(syncRunnable, Math.max(0, delayMs));
+    }
+
+    void close() {
+        mainHandler.removeCallbacks(syncRunnable);
+    }
+
+    private void runSync() {
+        final String account = accountId;
+        if (account == null || !postgrest.hasSession() || activity.isDestroyed()) {
+            return;
+        }
+        // Um sync por vez; o pedido que chega durante um sync roda logo depois dele
+        dispatcher.submit(OP_SYNC, ticket -> {
+            syncAgain = false;
+            OfflineSyncEngine.Result result = sync.sync(account);
+            Log.i("OfflineSync", Json.stringify(result.toMap()));
+            if ((result.pulled > 0 || result.removed > 0 || result.conflicts > 0) && listener != null) {
+                listener.onServerChange(account);
+            }
+            activity.getEventBus().postLatest("onOfflineSyncComplete", Json.stringify(result.toMap()));
+            if (syncAgain) {
+                requestSync(0);
+            } else if (result.retryAt > 0) {
+                requestSync(result.retryAt - System.currentTimeMillis());
+            }
+        }, (operation, reason) -> syncAgain = true);
+    }
+
+    private void changed(String table, String account, @Nullable String rowJson, @Nullable String removedId) {
+        if (listener != null) {
+            listener.onLocalChange(table, account, rowJson, removedId);
+        }
+        activity.runOnUiThread(() -> requestSync(SYNC_DEBOUNCE_MS));
+    }
+
+    void register(MessagePortBridge bridge) {
+        bridge.register("offlineSession", call -> {
+            String account = call.optString("accountId");
+            if (account == null) {
+                // Logout: a outbox fica guardada para quando a mesma conta voltar
+                accountId = null;
+                ioExecutor.execute(() -> PrefetchWorker.prefetch(activity).clearSession());
+                call.resolve(true);
+                return;
+            }
+            String url = call.params.getString("url");
+            String apikey = call.params.getString("apikey");
+            String accessToken = call.params.getString("accessToken");
+            postgrest.setSession(url, apikey, accessToken);
+            accountId = account;
+            activity.runOnUiThread(() -> requestSync(0));
+            String userId = call.optString("userId");
+            // Os jobs de prefetch e do token FCM rodam com o app fechado e precisam da sessão em disco
+            ioExecutor.execute(() -> {
+                try {
+                    PrefetchWorker.prefetch(activity).saveSession(url, apikey, accessToken, userId);
+                } catch (IOException e) {
+                    Log.w("OfflineSync", "Sessão do prefetch não gravada", e);
+                    return;
+                }
+                if (PushTokenWorker.registrar(activity).needsRegistration(userId)) {
+                    PushTokenWorker.schedule(activity);
+                }
+            });
+            call.resolve(true);
+        });
+        bridge.register("prefetchStats", call ->
+                call.resolve(new JSONObject(Json.stringify(PrefetchWorker.prefetch(activity).stats()))));
+        bridge.register("offlineQuery", call -> {
+            List<String> rows = sync.query(call.params.getString("table"), requireAccount(call.params));
+            // Já são JSON: a página recebe o array como texto, sem passar por JSONObject aqui
+            StringBuilder json = new StringBuilder(rows.size() * 256).append('[');
+            for (int i = 0; i < rows.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(rows.get(i));
+            }
+            call.resolve(json.append(']').toString());
+        });
+        bridge.register("offlineWrite", call -> {
+            String table = call.params.getString("table");
+            String account = requireAccount(call.params);
+            String row = sync.write(table, account, Json.parseObject(call.params.getJSONObject("row").toString()));
+            changed(table, account, row, null);
+            call.resolve(row);
+        });
+        bridge.register("offlineDelete", call -> {
+            String table = call.params.getString("table");
+            String account = requireAccount(call.params);
+            String id = call.params.getString("id");
+            sync.delete(table, account, id);
+            changed(table, account, null, id);
+            call.resolve(true);
+        });
+        bridge.register("offlineSync", call -> {
+            activity.runOnUiThread(() -> requestSync(0));
+            call.resolve(true);
+        });
+        bridge.register("offlineStatus", call -> {
+            JSONObject result = new JSONObject();
+            result.put("accountId", accountId != null ? accountId : JSONObject.NULL);
+            result.put("pending", storage.pendingCount());
+            result.put("conflicts", storage.conflictCount());
+            call.resolve(result);
+        });
+    }
+}
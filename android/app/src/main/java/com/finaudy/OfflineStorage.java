@@ -0,0 +1,95 @@
+package com.finaudy;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Espelho local das tabelas do Supabase e fila de escritas pendentes (outbox). Toda escrita
+ * local grava a linha e a entrada da outbox na mesma transação; enquanto uma linha tem
+ * escrita pendente, o que vem do servidor não a sobrescreve.
+ */
+interface OfflineStorage {
+
+    String OP_UPSERT = "upsert";
+    String OP_DELETE = "delete";
+
+    final class Row {
+        final String table;
+        final String accountId;
+        final String id;
+        final String json;
+        final String updatedAt;
+
+        Row(String table, String accountId, String id, String json, String updatedAt) {
+            this.table = table;
+            this.accountId = accountId;
+            this.id = id;
+            this.json = json;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    final class OutboxEntry {
+        final long seq;
+        final String table;
+        final String accountId;
+        final String recordId;
+        final String op;
+        final String json;
+        // updated_at da cópia local quando a edição começou; null para linhas criadas offline
+        final String baseUpdatedAt;
+        final int attempts;
+        final long nextAttemptAt;
+
+        OutboxEntry(long seq, String table, String accountId, String recordId, String op, String json,
+                    String baseUpdatedAt, int attempts, long nextAttemptAt) {
+            this.seq = seq;
+            this.table = table;
+            this.accountId = accountId;
+            this.recordId = recordId;
+            this.op = op;
+            this.json = json;
+            this.baseUpdatedAt = baseUpdatedAt;
+            this.attempts = attempts;
+            this.nextAttemptAt = nextAttemptAt;
+        }
+    }
+
+    /** Linhas da conta em JSON, na ordem em que foram gravadas. */
+    List<String> query(String table, String accountId);
+
+    Row get(String table, String accountId, String id);
+
+    /** Grava (ou apaga, se op for OP_DELETE) a linha local e enfileira a escrita. */
+    void writeLocal(Row row, String op, String baseUpdatedAt, long now);
+
+    /** As entradas mais antigas da outbox, em ordem de seq. */
+    List<OutboxEntry> peekOutbox(int limit);
+
+    /**
+     * Remove as entradas enviadas e aplica a versão devolvida pelo servidor, exceto em linhas
+     * que ganharam outra escrita local nesse meio tempo.
+     */
+    void completeOutbox(Collection<Long> seqs, String table, String accountId, List<Row> serverRows);
+
+    void deferOutbox(Collection<Long> seqs, String error, long nextAttemptAt);
+
+    void recordConflict(OutboxEntry entry, String serverJson, String reason, long now);
+
+    /** Aplica linhas do servidor, ignorando as que têm escrita local pendente. */
+    void applyServerRows(String table, String accountId, List<Row> rows);
+
+    /** Apaga linhas locais que não existem mais no servidor (e não têm escrita pendente). */
+    int retainOnly(String table, String accountId, Set<String> ids);
+
+    String cursor(String table, String accountId);
+
+    void setCursor(String table, String accountId, String cursor);
+
+    int pendingCount();
+
+    int conflictCount();
+
+    void clear();
+}
@@ -0,0 +1,414 @@
+package com.finaudy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sincroniza o {@link OfflineStorage} com o Supabase. As leituras da página saem sempre do
+ * espelho local; as escritas entram na outbox e sobem em lotes (upsert/delete em bloco por
+ * tabela), com backoff exponencial quando a rede ou o servidor falham.
+ *
+ * Conflito: se a linha mudou no servidor depois da versão que o usuário editou (updated_at
+ * diferente) ou foi apagada lá, a versão do servidor vence e a edição local vai para a
+ * tabela de conflitos, avisando a página. Recusas definitivas (400, 403, 409...) têm o
+ * mesmo destino, para que uma escrita inválida não trave a fila.
+ */
+final class OfflineSyncEngine {
+
+    static final int BATCH_SIZE = 50;
+    static final int PAGE_SIZE = 500;
+    static final long BASE_BACKOFF_MS = 5_000;
+    static final long MAX_BACKOFF_MS = 15 * 60_000;
+
+    interface Remote {
+        List<Map<String, Object>> select(String table, String query) throws IOException;
+
+        List<Map<String, Object>> upsert(String table, List<Map<String, Object>> rows) throws IOException;
+
+        void delete(String table, Collection<String> ids) throws IOException;
+    }
+
+    interface Clock {
+        long millis();
+    }
+
+    interface Listener {
+        void onConflict(String table, String id, String localJson, String serverJson, String reason);
+    }
+
+    /** Tabela espelhada; accountFilter recebe o id da conta em {account}. */
+    static final class Table {
+        final String name;
+        final String accountFilter;
+        final boolean hasUpdatedAt;
+
+        Table(String name, String accountFilter, boolean hasUpdatedAt) {
+            this.name = name;
+            this.accountFilter = accountFilter;
+            this.hasUpdatedAt = hasUpdatedAt;
+        }
+
+        String filter(String accountId) {
+            return accountFilter.replace("{account}", PostgrestClient.encode(accountId));
+        }
+    }
+
+    static final class Result {
+        int pushed;
+        int conflicts;
+        int pulled;
+        int removed;
+        int pending;
+        // Momento da próxima tentativa se a outbox ficou parada em backoff; 0 se não
+        long retryAt;
+        String error;
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("pushed", pushed);
+            map.put("conflicts", conflicts);
+            map.put("pulled", pulled);
+            map.put("removed", removed);
+            map.put("pending", pending);
+            map.put("retryAt", retryAt);
+            map.put("error", error);
+            return map;
+        }
+    }
+
+    private final OfflineStorage storage;
+    private final Remote remote;
+    private final Clock clock;
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+    private final Listener listener;
+
+    OfflineSyncEngine(OfflineStorage storage, Remote remote, Clock clock, List<Table> tables, Listener listener) {
+        this.storage = storage;
+        this.remote = remote;
+        this.clock = clock;
+        this.listener = listener;
+        for (Table table : tables) {
+            this.tables.put(table.name, table);
+        }
+    }
+
+    List<String> query(String table, String accountId) {
+        return storage.query(requireTable(table).name, accountId);
+    }
+
+    /**
+     * Grava a linha localmente (mesclando com a cópia existente, para edições parciais) e
+     * enfileira o envio.
+     *
+     * @return a linha completa como ficou no espelho
+     */
+    String write(String table, String accountId, Map<String, Object> changes) {
+        requireTable(table);
+        String id = Json.string(changes, "id");
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("Linha sem id para " + table);
+        }
+        OfflineStorage.Row current = storage.get(table, accountId, id);
+        Map<String, Object> row = current != null ? Json.parseObject(current.json) : new LinkedHashMap<String, Object>();
+        row.putAll(changes);
+        String json = Json.stringify(row);
+        String base = current != null ? current.updatedAt : null;
+        storage.writeLocal(new OfflineStorage.Row(table, accountId, id, json, Json.string(row, "updated_at")),
+                OfflineStorage.OP_UPSERT, base, clock.millis());
+        return json;
+    }
+
+    void delete(String table, String accountId, String id) {
+        requireTable(table);
+        OfflineStorage.Row current = storage.get(table, accountId, id);
+        storage.writeLocal(new OfflineStorage.Row(table, accountId, id, current != null ? current.json : null, null),
+                OfflineStorage.OP_DELETE, current != null ? current.updatedAt : null, clock.millis());
+    }
+
+    /** Envia a outbox e depois traz as mudanças do servidor para as tabelas da conta. */
+    synchronized Result sync(String accountId) {
+        Result result = new Result();
+        // Mesmo com a outbox parada o pull é seguro: linhas com escrita pendente não são tocadas
+        push(result);
+        for (Table table : tables.values()) {
+            try {
+                pull(table, accountId, result);
+            } catch (IOException | IllegalArgumentException e) {
+                if (result.error == null) {
+                    result.error = table.name + ": " + e.getMessage();
+                }
+                break;
+            }
+        }
+        result.pending = storage.pendingCount();
+        return result;
+    }
+
+    /** @return false se a outbox parou por falha de rede/servidor */
+    private boolean push(Result result) {
+        while (true) {
+            List<OfflineStorage.OutboxEntry> batch = storage.peekOutbox(BATCH_SIZE);
+            if (batch.isEmpty()) {
+                return true;
+            }
+            if (batch.get(0).nextAttemptAt > clock.millis()) {
+                result.retryAt = batch.get(0).nextAttemptAt;
+                result.error = "Aguardando nova tentativa";
+                return false;
+            }
+            // Entradas consecutivas da mesma tabela e operação sobem juntas, sem mudar a ordem. Upserts
+            // só juntam linhas com as mesmas colunas: o PostgREST recusa o lote misto (PGRST102)
+            int start = 0;
+            while (start < batch.size()) {
+                OfflineStorage.OutboxEntry first = batch.get(start);
+                Set<String> columns = OfflineStorage.OP_DELETE.equals(first.op) ? null : columns(first);
+                int end = start + 1;
+                while (end < batch.size() && batch.get(end).table.equals(first.table)
+                        && batch.get(end).op.equals(first.op) && batch.get(end).accountId.equals(first.accountId)
+                        && (columns == null || columns.equals(columns(batch.get(end))))) {
+                    end++;
+                }
+                List<OfflineStorage.OutboxEntry> group = batch.subList(start, end);
+                try {
+                    if (OfflineStorage.OP_DELETE.equals(first.op)) {
+                        pushDeletes(group, result);
+                    } else {
+                        pushUpserts(group, result);
+                    }
+                } catch (PostgrestClient.HttpStatusException e) {
+                    if (e.isRetryable()) {
+                        defer(group, e, result);
+                        return false;
+                    }
+                    for (OfflineStorage.OutboxEntry entry : group) {
+                        conflict(entry, null, "rejected: " + e.getMessage(), result);
+                    }
+                    storage.completeOutbox(seqs(group), first.table, first.accountId, restore(group));
+                } catch (IOException | IllegalArgumentException e) {
+                    defer(group, e, result);
+                    return false;
+                }
+                start = end;
+            }
+        }
+    }
+
+    private void pushUpserts(List<OfflineStorage.OutboxEntry> group, Result result) throws IOException {
+        OfflineStorage.OutboxEntry first = group.get(0);
+        Table table = requireTable(first.table);
+        List<OfflineStorage.OutboxEntry> accepted = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>();
+
+        // A versão do servidor das linhas editadas: decide o conflito e, se houver, é o que fica
+        Map<String, Map<String, Object>> serverVersions = null;
+        Set<String> edited = new HashSet<>();
+        for (OfflineStorage.OutboxEntry entry : group) {
+            if (entry.baseUpdatedAt != null) {
+                edited.add(entry.recordId);
+            }
+        }
+        if (table.hasUpdatedAt && !edited.isEmpty()) {
+            serverVersions = fetch(table.name, edited);
+        }
+        List<OfflineStorage.Row> winners = new ArrayList<>();
+        for (OfflineStorage.OutboxEntry entry : group) {
+            if (serverVersions != null && entry.baseUpdatedAt != null) {
+                Map<String, Object> server = serverVersions.get(entry.recordId);
+                if (server == null) {
+                    conflict(entry, null, "deleted on server", result);
+                    rejected.add(entry.seq);
+                    continue;
+                }
+                String serverUpdatedAt = Json.string(server, "updated_at");
+                if (serverUpdatedAt != null && !sameInstant(serverUpdatedAt, entry.baseUpdatedAt)) {
+                    conflict(entry, Json.stringify(server), "modified on server", result);
+                    rejected.add(entry.seq);
+                    winners.add(toRow(table.name, first.accountId, server));
+                    continue;
+                }
+            }
+            accepted.add(entry);
+        }
+
+        // Várias edições da mesma linha no lote: a última já tem a linha completa
+        Map<String, Map<String, Object>> rows = new LinkedHashMap<>();
+        for (OfflineStorage.OutboxEntry entry : accepted) {
+            rows.remove(entry.recordId);
+            rows.put(entry.recordId, Json.parseObject(entry.json));
+        }
+        List<OfflineStorage.Row> serverRows = new ArrayList<>();
+        if (!rows.isEmpty()) {
+            for (Map<String, Object> row : remote.upsert(table.name, new ArrayList<>(rows.values()))) {
+                serverRows.add(toRow(table.name, first.accountId, row));
+            }
+        }
+        if (!rejected.isEmpty()) {
+            storage.completeOutbox(rejected, table.name, first.accountId, winners);
+        }
+        storage.completeOutbox(seqs(accepted), table.name, first.accountId, serverRows);
+        result.pushed += accepted.size();
+    }
+
+    private static Set<String> columns(OfflineStorage.OutboxEntry entry) {
+        return Json.parseObject(entry.json).keySet();
+    }
+
+    private Map<String, Map<String, Object>> fetch(String table, Set<String> ids) throws IOException {
+        Map<String, Map<String, Object>> rows = new HashMap<>();
+        for (Map<String, Object> row : remote.select(table, "select=*&id=" + PostgrestClient.encode(PostgrestClient.inList(ids)))) {
+            rows.put(Json.string(row, "id"), row);
+        }
+        return rows;
+    }
+
+    /**
+     * O servidor recusou o lote: volta as linhas locais para a versão do servidor. Linhas que
+     * só existiam localmente somem no próximo pull.
+     */
+    private List<OfflineStorage.Row> restore(List<OfflineStorage.OutboxEntry> group) {
+        List<OfflineStorage.Row> rows = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (OfflineStorage.OutboxEntry entry : group) {
+            ids.add(entry.recordId);
+        }
+        OfflineStorage.OutboxEntry first = group.get(0);
+        try {
+            for (Map<String, Object> row : fetch(first.table, ids).values()) {
+                rows.add(toRow(first.table, first.accountId, row));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // O próximo pull completo acerta; a recusa já foi registrada
+        }
+        return rows;
+    }
+
+    private void pushDeletes(List<OfflineStorage.OutboxEntry> group, Result result) throws IOException {
+        OfflineStorage.OutboxEntry first = group.get(0);
+        Set<String> ids = new HashSet<>();
+        for (OfflineStorage.OutboxEntry entry : group) {
+            ids.add(entry.recordId);
+        }
+        remote.delete(first.table, ids);
+        storage.completeOutbox(seqs(group), first.table, first.accountId, new ArrayList<OfflineStorage.Row>());
+        result.pushed += group.size();
+    }
+
+    private void pull(Table table, String accountId, Result result) throws IOException {
+        String filter = table.filter(accountId);
+        if (table.hasUpdatedAt) {
+            // Paginação por (updated_at, id): linhas com o mesmo updated_at não se perdem entre páginas
+            while (true) {
+                String cursor = storage.cursor(table.name, accountId);
+                StringBuilder query = new StringBuilder(filter)
+                        .append("&select=*&order=updated_at.asc,id.asc&limit=").append(PAGE_SIZE);
+                if (cursor != null) {
+                    int bar = cursor.lastIndexOf('|');
+                    String updatedAt = cursor.substring(0, bar);
+                    String id = cursor.substring(bar + 1);
+                    query.append("&or=").append(PostgrestClient.encode("(updated_at.gt.\"" + updatedAt
+                            + "\",and(updated_at.eq.\"" + updatedAt + "\",id.gt.\"" + id + "\"))"));
+                }
+                List<Map<String, Object>> page = remote.select(table.name, query.toString());
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<OfflineStorage.Row> rows = new ArrayList<>();
+                for (Map<String, Object> row : page) {
+                    rows.add(toRow(table.name, accountId, row));
+                }
+                storage.applyServerRows(table.name, accountId, rows);
+                OfflineStorage.Row last = rows.get(rows.size() - 1);
+                storage.setCursor(table.name, accountId, last.updatedAt + "|" + last.id);
+                result.pulled += rows.size();
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+        } else {
+            List<OfflineStorage.Row> rows = new ArrayList<>();
+            for (Map<String, Object> row : remote.select(table.name, filter + "&select=*")) {
+                rows.add(toRow(table.name, accountId, row));
+            }
+            storage.applyServerRows(table.name, accountId, rows);
+            result.pulled += rows.size();
+        }
+
+        // Apagadas no servidor não aparecem na busca incremental: compara só os ids
+        Set<String> ids = new HashSet<>();
+        for (Map<String, Object> row : remote.select(table.name, filter + "&select=id")) {
+            ids.add(Json.string(row, "id"));
+        }
+        result.removed += storage.retainOnly(table.name, accountId, ids);
+    }
+
+    private void conflict(OfflineStorage.OutboxEntry entry, String serverJson, String reason, Result result) {
+        storage.recordConflict(entry, serverJson, reason, clock.millis());
+        result.conflicts++;
+        listener.onConflict(entry.table, entry.recordId, entry.json, serverJson, reason);
+    }
+
+    private void defer(List<OfflineStorage.OutboxEntry> group, Exception error, Result result) {
+        int attempts = group.get(0).attempts + 1;
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts - 1, 20));
+        result.retryAt = clock.millis() + delay;
+        result.error = error.getMessage();
+        storage.deferOutbox(seqs(group), error.getMessage(), result.retryAt);
+    }
+
+    private Table requireTable(String name) {
+        Table table = tables.get(name);
+        if (table == null) {
+            throw new IllegalArgumentException("Tabela não espelhada: " + name);
+        }
+        return table;
+    }
+
+    private static OfflineStorage.Row toRow(String table, String accountId, Map<String, Object> row) {
+        return new OfflineStorage.Row(table, accountId, Json.string(row, "id"), Json.stringify(row),
+                Json.string(row, "updated_at"));
+    }
+
+    private static List<Long> seqs(List<OfflineStorage.OutboxEntry> entries) {
+        List<Long> seqs = new ArrayList<>(entries.size());
+        for (OfflineStorage.OutboxEntry entry : entries) {
+            seqs.add(entry.seq);
+        }
+        return seqs;
+    }
+
+    /** O PostgREST pode devolver o mesmo instante com outra precisão ("...:00+00:00" vs "...:00.000Z"). */
+    static boolean sameInstant(String a, String b) {
+        return normalizeTimestamp(a).equals(normalizeTimestamp(b));
+    }
+
+    private static String normalizeTimestamp(String value) {
+        String normalized = value.trim().toUpperCase(Locale.US).replace(' ', 'T');
+        if (normalized.endsWith("Z")) {
+            normalized = normalized.substring(0, normalized.length() - 1) + "+00:00";
+        }
+        int t = normalized.indexOf('T');
+        int zone = Math.max(normalized.lastIndexOf('+'), normalized.lastIndexOf('-'));
+        if (t < 0 || zone < t) {
+            zone = normalized.length();
+        }
+        String time = normalized.substring(0, zone);
+        String offset = normalized.substring(zone);
+        if (offset.length() == 3) {
+            offset += ":00";
+        }
+        int dot = time.indexOf('.');
+        if (dot >= 0) {
+            String fraction = time.substring(dot + 1).replaceAll("0+$", "");
+            time = fraction.isEmpty() ? time.substring(0, dot) : time.substring(0, dot + 1) + fraction;
+        }
+        return time + offset;
+    }
+}
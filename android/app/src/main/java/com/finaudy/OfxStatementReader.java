@@ -0,0 +1,189 @@
+package com.finaudy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lê os lançamentos (&lt;STMTTRN&gt;) de um extrato OFX um a um, sem montar a árvore do
+ * documento. Aceita o OFX 1.x em SGML, em que as folhas não têm tag de fechamento
+ * ("&lt;TRNAMT&gt;-12.50"), e o OFX 2.x em XML.
+ */
+final class OfxStatementReader {
+
+    private static final String TRANSACTION = "STMTTRN";
+    private static final int MAX_TOKEN_LENGTH = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buffer = new char[16 * 1024];
+    private int position;
+    private int limit;
+    // Um caractere devolvido e uma tag relida, consumidos antes do buffer
+    private int pending = -1;
+    private String replay;
+    private int replayPosition;
+    private final Set<String> opened = new HashSet<>();
+
+    OfxStatementReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return os campos do próximo lançamento (TRNTYPE, DTPOSTED, TRNAMT, FITID, NAME, MEMO…)
+     *         em maiúsculas, ou null no fim do arquivo
+     */
+    Map<String, String> next() throws IOException {
+        Map<String, String> fields = null;
+        StringBuilder token = new StringBuilder();
+        while (true) {
+            // Texto até a próxima tag
+            token.setLength(0);
+            int c = read();
+            while (c != -1 && c != '<') {
+                append(token, c);
+                c = read();
+            }
+            if (c == -1) {
+                // Arquivo truncado no meio de um lançamento: aproveita o que veio
+                return fields;
+            }
+            token.setLength(0);
+            c = read();
+            while (c != -1 && c != '>') {
+                append(token, c);
+                c = read();
+            }
+            String tag = token.toString().trim().toUpperCase(Locale.ROOT);
+            if (tag.isEmpty() || tag.charAt(0) == '?' || tag.charAt(0) == '!') {
+                continue;
+            }
+            if (tag.equals(TRANSACTION)) {
+                if (fields != null) {
+                    // SGML sem </STMTTRN>: o lançamento anterior termina aqui
+                    pending = '<';
+                    unreadTag(TRANSACTION);
+                    return fields;
+                }
+                fields = new HashMap<>();
+                opened.clear();
+            } else if (fields == null) {
+                continue;
+            } else if (tag.charAt(0) == '/') {
+                // Fecha uma tag aberta no lançamento (folha do XML ou agregado como PAYEE) ou
+                // algo de fora: </STMTTRN>, ou </BANKTRANLIST> no SGML sem fechamento
+                if (!opened.contains(tag.substring(1))) {
+                    return fields;
+                }
+            } else {
+                opened.add(tag);
+                String value = text(token);
+                if (!value.isEmpty()) {
+                    fields.put(tag, value);
+                }
+            }
+        }
+    }
+
+    /** Texto da folha: até a próxima tag, sem espaços nas pontas e com entidades resolvidas. */
+    private String text(StringBuilder token) throws IOException {
+        token.setLength(0);
+        int c = read();
+        while (c != -1 && c != '<') {
+            append(token, c);
+            c = read();
+        }
+        if (c == '<') {
+            pending = '<';
+        }
+        return decodeEntities(token.toString().trim());
+    }
+
+    /** Devolve uma tag já lida para a próxima chamada de next(). */
+    private void unreadTag(String tag) {
+        replay = tag + ">";
+        replayPosition = 0;
+    }
+
+    private int read() throws IOException {
+        if (pending != -1) {
+            int c = pending;
+            pending = -1;
+            return c;
+        }
+        if (replay != null) {
+            char c = replay.charAt(replayPosition++);
+            if (replayPosition == replay.length()) {
+                replay = null;
+            }
+            return c;
+        }
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private static void append(StringBuilder token, int c) throws IOException {
+        if (token.length() >= MAX_TOKEN_LENGTH) {
+            throw new IOException("OFX inválido: texto grande demais");
+        }
+        token.append((char) c);
+    }
+
+    static String decodeEntities(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            int end = c == '&' ? value.indexOf(';', i) : -1;
+            if (end < 0 || end - i > 10) {
+                out.append(c);
+                i++;
+                continue;
+            }
+            String entity = value.substring(i + 1, end);
+            String decoded;
+            if (entity.equals("amp")) {
+                decoded = "&";
+            } else if (entity.equals("lt")) {
+                decoded = "<";
+            } else if (entity.equals("gt")) {
+                decoded = ">";
+            } else if (entity.equals("quot")) {
+                decoded = "\"";
+            } else if (entity.equals("apos")) {
+                decoded = "'";
+            } else if (entity.startsWith("#")) {
+                try {
+                    int code = entity.startsWith("#x") || entity.startsWith("#X")
+                            ? Integer.parseInt(entity.substring(2), 16) : Integer.parseInt(entity.substring(1));
+                    decoded = String.valueOf((char) code);
+                } catch (NumberFormatException e) {
+                    decoded = null;
+                }
+            } else {
+                decoded = null;
+            }
+            if (decoded == null) {
+                out.append(c);
+                i++;
+            } else {
+                out.append(decoded);
+                i = end + 1;
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,133 @@
+package com.finaudy;
+
+import android.app.Activity;
+
+import com.android.billingclient.api.AcknowledgePurchaseParams;
+import com.android.billingclient.api.BillingClient;
+import com.android.billingclient.api.BillingClientStateListener;
+import com.android.billingclient.api.BillingFlowParams;
+import com.android.billingclient.api.BillingResult;
+import com.android.billingclient.api.ProductDetails;
+import com.android.billingclient.api.Purchase;
+import com.android.billingclient.api.QueryProductDetailsParams;
+import com.android.billingclient.api.QueryPurchasesParams;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link BillingManager.Client} sobre o BillingClient do Play, com a API de ProductDetails
+ * (assinaturas). Todas as respostas voltam para a UI thread, onde o BillingManager roda.
+ */
+final class PlayBillingClient implements BillingManager.Client<ProductDetails> {
+
+    interface PurchasesCallback {
+        void onPurchasesUpdated(int code, List<BillingManager.PurchaseInfo> purchases);
+    }
+
+    private final Activity activity;
+    private final BillingClient client;
+
+    PlayBillingClient(Activity activity, PurchasesCallback callback) {
+        this.activity = activity;
+        this.client = BillingClient.newBuilder(activity)
+                .setListener((result, purchases) -> callback.onPurchasesUpdated(result.getResponseCode(),
+                        purchases != null ? toInfo(purchases) : null))
+                .enablePendingPurchases()
+                .build();
+    }
+
+    @Override
+    public void connect(BillingManager.ConnectionListener listener) {
+        client.startConnection(new BillingClientStateListener() {
+            @Override
+            public void onBillingSetupFinished(BillingResult result) {
+                activity.runOnUiThread(() -> listener.onSetupFinished(result.getResponseCode()));
+            }
+
+            @Override
+            public void onBillingServiceDisconnected() {
+                activity.runOnUiThread(listener::onDisconnected);
+            }
+        });
+    }
+
+    @Override
+    public boolean isReady() {
+        return client.isReady();
+    }
+
+    @Override
+    public String productId(ProductDetails product) {
+        return product.getProductId();
+    }
+
+    @Override
+    public void queryProducts(List<String> productIds, BillingManager.ProductsListener<ProductDetails> listener) {
+        List<QueryProductDetailsParams.Product> products = new ArrayList<>();
+        for (String id : productIds) {
+            products.add(QueryProductDetailsParams.Product.newBuilder()
+                    .setProductId(id)
+                    .setProductType(BillingClient.ProductType.SUBS)
+                    .build());
+        }
+        client.queryProductDetailsAsync(QueryProductDetailsParams.newBuilder().setProductList(products).build(),
+                (result, details) -> activity.runOnUiThread(() -> listener.onProducts(result.getResponseCode(), details)));
+    }
+
+    @Override
+    public void queryPurchases(BillingManager.PurchasesListener listener) {
+        client.queryPurchasesAsync(QueryPurchasesParams.newBuilder().setProductType(BillingClient.ProductType.SUBS).build(),
+                (result, purchases) -> activity.runOnUiThread(() ->
+                        listener.onPurchases(result.getResponseCode(), toInfo(purchases))));
+    }
+
+    @Override
+    public void acknowledge(String purchaseToken, BillingManager.ResultListener listener) {
+        client.acknowledgePurchase(AcknowledgePurchaseParams.newBuilder().setPurchaseToken(purchaseToken).build(),
+                result -> activity.runOnUiThread(() -> listener.onResult(result.getResponseCode())));
+    }
+
+    @Override
+    public int launch(ProductDetails product) {
+        List<ProductDetails.SubscriptionOfferDetails> offers = product.getSubscriptionOfferDetails();
+        if (offers == null || offers.isEmpty()) {
+            return BillingManager.ITEM_UNAVAILABLE;
+        }
+        // O plano base (sem offerId) a menos que só existam ofertas promocionais
+        String offerToken = offers.get(0).getOfferToken();
+        for (ProductDetails.SubscriptionOfferDetails offer : offers) {
+            if (offer.getOfferId() == null) {
+                offerToken = offer.getOfferToken();
+                break;
+            }
+        }
+        BillingFlowParams params = BillingFlowParams.newBuilder()
+                .setProductDetailsParamsList(Collections.singletonList(BillingFlowParams.ProductDetailsParams.newBuilder()
+                        .setProductDetails(product)
+                        .setOfferToken(offerToken)
+                        .build()))
+                .build();
+        return client.launchBillingFlow(activity, params).getResponseCode();
+    }
+
+    @Override
+    public void disconnect() {
+        client.endConnection();
+    }
+
+    private static List<BillingManager.PurchaseInfo> toInfo(List<Purchase> purchases) {
+        List<BillingManager.PurchaseInfo> info = new ArrayList<>();
+        if (purchases == null) {
+            return info;
+        }
+        for (Purchase purchase : purchases) {
+            int state = purchase.getPurchaseState() == Purchase.PurchaseState.PURCHASED ? BillingManager.STATE_PURCHASED
+                    : purchase.getPurchaseState() == Purchase.PurchaseState.PENDING ? BillingManager.STATE_PENDING : 0;
+            info.add(new BillingManager.PurchaseInfo(purchase.getPurchaseToken(), purchase.getProducts(), state,
+                    purchase.isAcknowledged()));
+        }
+        return info;
+    }
+}
@@ -0,0 +1,88 @@
+package com.finaudy;
+
+import android.app.Activity;
+import android.content.Intent;
+
+import com.google.android.gms.auth.api.signin.GoogleSignIn;
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.auth.api.signin.GoogleSignInClient;
+import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
+import com.google.android.gms.common.api.ApiException;
+import com.google.android.gms.tasks.Task;
+
+/** {@link GoogleSignInManager.Client} sobre o GoogleSignInClient do Play Services, criado uma vez por activity. */
+final class PlayServicesSignInClient implements GoogleSignInManager.Client {
+
+    private final Activity activity;
+    private final int requestCode;
+    private final GoogleSignInClient client;
+
+    PlayServicesSignInClient(Activity activity, String webClientId, int requestCode) {
+        this.activity = activity;
+        this.requestCode = requestCode;
+        this.client = GoogleSignIn.getClient(activity, new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
+                .requestIdToken(webClientId)
+                .requestEmail()
+                .requestProfile()
+                .build());
+    }
+
+    @Override
+    public String cachedIdToken() {
+        GoogleSignInAccount account = GoogleSignIn.getLastSignedInAccount(activity);
+        return account != null ? account.getIdToken() : null;
+    }
+
+    @Override
+    public void silentSignIn(GoogleSignInManager.Callback callback) {
+        client.silentSignIn().addOnCompleteListener(activity, task -> {
+            Result result = result(task);
+            callback.onResult(result.idToken, result.errorCode);
+        });
+    }
+
+    @Override
+    public void launchInteractive(boolean chooseAccount) {
+        if (chooseAccount) {
+            // Sem a conta atual o Intent sempre mostra o seletor
+            client.signOut().addOnCompleteListener(activity,
+                    task -> activity.startActivityForResult(client.getSignInIntent(), requestCode));
+        } else {
+            activity.startActivityForResult(client.getSignInIntent(), requestCode);
+        }
+    }
+
+    @Override
+    public void signOut() {
+        client.signOut();
+    }
+
+    static final class Result {
+        final String idToken;
+        final int errorCode;
+        final String email;
+
+        Result(String idToken, int errorCode, String email) {
+            this.idToken = idToken;
+            this.errorCode = errorCode;
+            this.email = email;
+        }
+    }
+
+    /** Lê o resultado do Intent de login (onActivityResult). */
+    static Result fromIntent(Intent data) {
+        return result(GoogleSignIn.getSignedInAccountFromIntent(data));
+    }
+
+    private static Result result(Task<GoogleSignInAccount> task) {
+        try {
+            GoogleSignInAccount account = task.getResult(ApiException.class);
+            if (account == null) {
+                return new Result(null, 0, null);
+            }
+            return new Result(account.getIdToken(), 0, account.getEmail());
+        } catch (ApiException e) {
+            return new Result(null, e.getStatusCode(), null);
+        }
+    }
+}
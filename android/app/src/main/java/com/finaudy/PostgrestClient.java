@@ -0,0 +1,160 @@
+package com.finaudy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Acesso ao PostgREST do Supabase com a sessão do usuário logado na página. A sessão
+ * (URL, anon key e access token) é repassada pela página a cada login/renovação.
+ */
+final class PostgrestClient implements OfflineSyncEngine.Remote {
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    /** Resposta HTTP de erro; o status decide entre tentar de novo e desistir da escrita. */
+    static final class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        final String body;
+
+        HttpStatusException(int status, String body) {
+            super("HTTP " + status + ": " + body);
+            this.status = status;
+            this.body = body;
+        }
+
+        /** 401 (token vencido), 408, 429 e 5xx passam; o resto é recusa definitiva. */
+        boolean isRetryable() {
+            return status == 401 || status == 408 || status == 429 || status >= 500;
+        }
+    }
+
+    private volatile String baseUrl;
+    private volatile String apiKey;
+    private volatile String accessToken;
+
+    void setSession(String baseUrl, String apiKey, String accessToken) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.apiKey = apiKey;
+        this.accessToken = accessToken;
+    }
+
+    boolean hasSession() {
+        return baseUrl != null && accessToken != null;
+    }
+
+    static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> select(String table, String query) throws IOException {
+        return rows(request("GET", table + "?" + query, null, null));
+    }
+
+    @Override
+    public List<Map<String, Object>> upsert(String table, List<Map<String, Object>> rows) throws IOException {
+        return rows(request("POST", table, "resolution=merge-duplicates,return=representation", Json.stringify(rows)));
+    }
+
+    @Override
+    public void delete(String table, Collection<String> ids) throws IOException {
+        request("DELETE", table + "?id=" + encode(inList(ids)), "return=minimal", null);
+    }
+
+    static String inList(Collection<String> ids) {
+        StringBuilder list = new StringBuilder("in.(");
+        boolean first = true;
+        for (String id : ids) {
+            if (!first) {
+                list.append(',');
+            }
+            first = false;
+            list.append('"').append(id.replace("\"", "")).append('"');
+        }
+        return list.append(')').toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> rows(String body) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (body == null || body.isEmpty()) {
+            return rows;
+        }
+        for (Object item : Json.parseArray(body)) {
+            if (item instanceof Map) {
+                rows.add((Map<String, Object>) item);
+            }
+        }
+        return rows;
+    }
+
+    private String request(String method, String pathAndQuery, String prefer, String body) throws IOException {
+        String base = baseUrl;
+        String token = accessToken;
+        if (base == null || token == null) {
+            throw new HttpStatusException(401, "Sem sessão");
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(base + CachingHttpFetcher.REST_PREFIX + pathAndQuery).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("apikey", apiKey);
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+            connection.setRequestProperty("Accept", "application/json");
+            if (prefer != null) {
+                connection.setRequestProperty("Prefer", prefer);
+            }
+            if (body != null) {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setFixedLengthStreamingMode(bytes.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(bytes);
+                }
+            }
+            int status = connection.getResponseCode();
+            String response = read(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+            if (status >= 400) {
+                throw new HttpStatusException(status, response);
+            }
+            return response;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.finaudy;
+
+import android.content.res.AssetManager;
+import android.os.SystemClock;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.webkit.WebViewAssetLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Substitui o AssetsPathHandler para o bundle web. O Gradle (compressWebApp) grava os
+ * arquivos de texto como .gz sem recompressão do APK, o que deixa o APK menor e a leitura
+ * mais barata; os assets quentes ficam descomprimidos num LRU em memória e as respostas
+ * levam Cache-Control/ETag de acordo com o {@link StaticAssetPolicy}.
+ *
+ * O WebView não decodifica Content-Encoding em respostas interceptadas, por isso o gzip
+ * é aberto aqui e a página recebe o conteúdo original.
+ */
+public class PrecompressedAssetPathHandler implements WebViewAssetLoader.PathHandler {
+
+    private static final String TAG = "AssetPathHandler";
+    static final String GZIP_SUFFIX = ".gz";
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    private final AssetManager assets;
+    private final BytesLruCache cache;
+    private final String etagPrefix;
+
+    /** @param buildId muda a cada versão do app; os assets só mudam com ela */
+    public PrecompressedAssetPathHandler(AssetManager assets, long cacheBytes, int maxEntryBytes, String buildId) {
+        this.assets = assets;
+        this.cache = new BytesLruCache(cacheBytes, maxEntryBytes);
+        this.etagPrefix = "\"" + buildId + "-";
+    }
+
+    @Nullable
+    @Override
+    @WorkerThread
+    public WebResourceResponse handle(@NonNull String path) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        String mimeType = StaticAssetPolicy.mimeType(path);
+        String source;
+        InputStream body;
+
+        byte[] cached = cache.get(path);
+        if (cached != null) {
+            source = "memória";
+            body = new ByteArrayInputStream(cached);
+        } else {
+            try {
+                InputStream opened;
+                try {
+                    opened = new GZIPInputStream(assets.open(path + GZIP_SUFFIX, AssetManager.ACCESS_STREAMING), STREAM_BUFFER_SIZE);
+                    source = "gzip";
+                } catch (FileNotFoundException e) {
+                    opened = assets.open(path, AssetManager.ACCESS_STREAMING);
+                    source = "asset";
+                }
+                body = readThroughCache(path, opened);
+            } catch (IOException e) {
+                Log.w(TAG, "Asset não encontrado: " + path);
+                return new WebResourceResponse(null, null, null);
+            }
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cache-Control", StaticAssetPolicy.cacheControl(path));
+        headers.put("ETag", etagPrefix + Integer.toHexString(path.hashCode()) + "\"");
+        WebResourceResponse response = new WebResourceResponse(mimeType,
+                StaticAssetPolicy.isText(mimeType) ? "utf-8" : null, 200, "OK", headers, body);
+
+        Log.d(TAG, String.format(Locale.US, "%s (%s) em %.2f ms", path, source,
+                (SystemClock.elapsedRealtimeNanos() - start) / 1e6));
+        return response;
+    }
+
+    /**
+     * Lê até o limite de uma entrada do cache: se o asset couber, é guardado descomprimido;
+     * se não, o que já foi lido é devolvido na frente do restante do stream.
+     */
+    private InputStream readThroughCache(String path, InputStream in) throws IOException {
+        int limit = cache.maxEntryBytes();
+        ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(limit + 1, 64 * 1024));
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        int read;
+        try {
+            while (head.size() <= limit && (read = in.read(buffer)) != -1) {
+                head.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        byte[] bytes = head.toByteArray();
+        if (bytes.length <= limit) {
+            in.close();
+            cache.put(path, bytes);
+            return new ByteArrayInputStream(bytes);
+        }
+        return new SequenceInputStream(new ByteArrayInputStream(bytes), in);
+    }
+
+    public void trimMemory() {
+        cache.clear();
+    }
+}
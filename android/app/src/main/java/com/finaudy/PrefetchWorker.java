@@ -0,0 +1,127 @@
+package com.finaudy;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Job agendado pelo push que não trouxe os registros: com rede, busca no Supabase os registros que
+ * a notificação cita e os deixa em NotificationPrefetch para o toque. Roda com o app fechado,
+ * usando a sessão gravada pela última offlineSession (se o token venceu, o toque busca na página).
+ */
+public class PrefetchWorker extends Worker {
+
+    private static final String TAG = "PrefetchWorker";
+    private static final String PREFETCH_DIR = "notification-prefetch";
+    // Depois disso o registro pode ter mudado; a página busca de novo
+    private static final long TTL_MS = 6 * 60 * 60 * 1000L;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String KEY_PREFETCH = "prefetch_key";
+
+    private static NotificationPrefetch prefetch;
+
+    public PrefetchWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Uma instância por processo: serviço, job e activity travam no mesmo objeto. */
+    static NotificationPrefetch prefetch(Context context) {
+        synchronized (PrefetchWorker.class) {
+            if (prefetch == null) {
+                prefetch = new NotificationPrefetch(new File(context.getFilesDir(), PREFETCH_DIR),
+                        System::currentTimeMillis, TTL_MS);
+            }
+            return prefetch;
+        }
+    }
+
+    /**
+     * Guarda os registros que vieram no push ou agenda a busca, se ele cita algo que a página vai
+     * abrir. Sem sessão gravada (ninguém logado) nada é guardado.
+     */
+    static void schedule(Context context, Map<String, String> data) {
+        String key = NotificationPrefetch.key(data);
+        if (key == null || NotificationPrefetch.requestsFor(data).isEmpty()) {
+            return;
+        }
+        NotificationPrefetch prefetch = prefetch(context);
+        if (prefetch.session() == null) {
+            return;
+        }
+        try {
+            if (prefetch.storeFromPush(key, data)) {
+                return;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Não foi possível guardar os registros do push (" + key + ")", e);
+        }
+        Data.Builder input = new Data.Builder().putString(KEY_PREFETCH, key);
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            if (!NotificationPrefetch.EXTRA_RECORDS.equals(entry.getKey())) {
+                input.putString(entry.getKey(), entry.getValue());
+            }
+        }
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PrefetchWorker.class)
+                .setConstraints(new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+                .setInputData(input.build())
+                .build();
+        // Push repetido para o mesmo registro substitui o job anterior
+        WorkManager.getInstance(context).enqueueUniqueWork("prefetch:" + key, ExistingWorkPolicy.REPLACE, request);
+        prefetch.count(NotificationPrefetch.STAT_SCHEDULED);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        NotificationPrefetch prefetch = prefetch(getApplicationContext());
+        Map<String, Object> session = prefetch.session();
+        if (session == null) {
+            Log.d(TAG, "Sem sessão gravada; prefetch ignorado");
+            return Result.success();
+        }
+        Map<String, String> data = new HashMap<>();
+        for (Map.Entry<String, Object> entry : getInputData().getKeyValueMap().entrySet()) {
+            if (entry.getValue() instanceof String) {
+                data.put(entry.getKey(), (String) entry.getValue());
+            }
+        }
+        String key = data.remove(KEY_PREFETCH);
+        List<NotificationPrefetch.Request> requests = NotificationPrefetch.requestsFor(data);
+        if (key == null || requests.isEmpty()) {
+            return Result.success();
+        }
+        PostgrestClient postgrest = new PostgrestClient();
+        postgrest.setSession(Json.string(session, "url"), Json.string(session, "apikey"),
+                Json.string(session, "accessToken"));
+        try {
+            prefetch.fetch(key, requests, postgrest);
+            Log.d(TAG, "Prefetch pronto: " + key);
+            return Result.success();
+        } catch (IOException e) {
+            // 401 não melhora sem o app renovar o token; rede e 5xx ganham mais tentativas
+            boolean retryable = !(e instanceof PostgrestClient.HttpStatusException)
+                    || (((PostgrestClient.HttpStatusException) e).isRetryable()
+                    && ((PostgrestClient.HttpStatusException) e).status != 401);
+            Log.w(TAG, "Prefetch falhou (" + key + "): " + e.getMessage());
+            return retryable && getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.success();
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Prefetch falhou (" + key + ")", e);
+            return Result.success();
+        }
+    }
+}
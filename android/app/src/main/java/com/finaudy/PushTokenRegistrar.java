@@ -0,0 +1,164 @@
+package com.finaudy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registro do token FCM no servidor (função save-push-token), feito pelo nativo: guarda o último
+ * token recebido e o par token/usuário já registrado, e só chama a função quando um dos dois muda.
+ * Funciona sem WebView, então um token renovado com o app fechado também chega ao servidor.
+ */
+final class PushTokenRegistrar {
+
+    static final String FUNCTION_PATH = "/functions/v1/save-push-token";
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    private final File file;
+    private String token;
+    private String registeredToken;
+    private String registeredUserId;
+
+    PushTokenRegistrar(File file) {
+        this.file = file;
+        load();
+    }
+
+    /** Token atual do FCM; true se mudou (e precisa ser registrado de novo). */
+    synchronized boolean updateToken(String token) {
+        if (token == null || token.isEmpty() || token.equals(this.token)) {
+            return false;
+        }
+        this.token = token;
+        save();
+        return true;
+    }
+
+    synchronized String token() {
+        return token;
+    }
+
+    /** true se há token e ele ainda não foi registrado para este usuário. */
+    synchronized boolean needsRegistration(String userId) {
+        return token != null && userId != null
+                && !(token.equals(registeredToken) && userId.equals(registeredUserId));
+    }
+
+    /**
+     * Registra o token atual para userId, se preciso. Falhas saem como IOException
+     * (HttpStatusException com o status) e não mudam o estado: a próxima tentativa repete.
+     *
+     * @return true se chamou o servidor, false se não havia nada novo
+     */
+    boolean register(String baseUrl, String apiKey, String accessToken, String userId) throws IOException {
+        String current;
+        synchronized (this) {
+            if (!needsRegistration(userId)) {
+                return false;
+            }
+            current = token;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("token", current);
+        body.put("platform", "android");
+        post(baseUrl, apiKey, accessToken, Json.stringify(body));
+        synchronized (this) {
+            // Um token que chegou durante a chamada continua pendente
+            if (current.equals(token)) {
+                registeredToken = current;
+                registeredUserId = userId;
+                save();
+            }
+        }
+        return true;
+    }
+
+    private static void post(String baseUrl, String apiKey, String accessToken, String body) throws IOException {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        HttpURLConnection connection = (HttpURLConnection) new URL(base + FUNCTION_PATH).openConnection();
+        try {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("apikey", apiKey);
+            connection.setRequestProperty("Authorization", "Bearer " + accessToken);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(bytes);
+            }
+            int status = connection.getResponseCode();
+            if (status >= 400) {
+                throw new PostgrestClient.HttpStatusException(status, read(connection.getErrorStream()));
+            }
+            read(connection.getInputStream());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            Map<String, Object> state = Json.parseObject(new String(readBytes(new FileInputStream(file)),
+                    StandardCharsets.UTF_8));
+            token = Json.string(state, "token");
+            registeredToken = Json.string(state, "registeredToken");
+            registeredUserId = Json.string(state, "registeredUserId");
+        } catch (IOException | RuntimeException e) {
+            // Estado ilegível: no pior caso o token é registrado de novo
+            token = null;
+            registeredToken = null;
+            registeredUserId = null;
+        }
+    }
+
+    private void save() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("token", token);
+        state.put("registeredToken", registeredToken);
+        state.put("registeredUserId", registeredUserId);
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                out.write(Json.stringify(state).getBytes(StandardCharsets.UTF_8));
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Não foi possível substituir " + file);
+            }
+        } catch (IOException e) {
+            // Sem o estado gravado o próximo processo só repete um registro
+            tmp.delete();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        return in == null ? "" : new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.finaudy;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Job que leva o token FCM ao servidor com a sessão gravada pela última offlineSession. Agendado
+ * quando o token muda (onNewToken, mesmo com o app fechado) e quando a sessão chega; falhas de
+ * rede ou do servidor voltam com backoff exponencial do WorkManager. Sessão vencida (401) não é
+ * repetida: espera a página mandar um token novo.
+ */
+public class PushTokenWorker extends Worker {
+
+    private static final String TAG = "PushTokenWorker";
+    private static final String STATE_FILE = "push-token.json";
+    private static final String WORK_NAME = "push-token";
+    private static final long BACKOFF_SECONDS = 30;
+    private static final int MAX_ATTEMPTS = 8;
+
+    private static PushTokenRegistrar registrar;
+
+    public PushTokenWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    static PushTokenRegistrar registrar(Context context) {
+        synchronized (PushTokenWorker.class) {
+            if (registrar == null) {
+                registrar = new PushTokenRegistrar(new File(context.getFilesDir(), STATE_FILE));
+            }
+            return registrar;
+        }
+    }
+
+    /** Token recebido do FCM; agenda o registro se for novo. */
+    static void onToken(Context context, String token) {
+        if (registrar(context).updateToken(token)) {
+            schedule(context);
+        }
+    }
+
+    static void schedule(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PushTokenWorker.class)
+                .setConstraints(new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        // Só o estado mais recente importa: um job novo substitui o que estava esperando
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.REPLACE, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Map<String, Object> session = PrefetchWorker.prefetch(getApplicationContext()).session();
+        String userId = session != null ? Json.string(session, "userId") : null;
+        if (userId == null) {
+            // Sem login: a próxima offlineSession agenda de novo
+            return Result.success();
+        }
+        try {
+            boolean sent = registrar(getApplicationContext()).register(Json.string(session, "url"),
+                    Json.string(session, "apikey"), Json.string(session, "accessToken"), userId);
+            Log.d(TAG, sent ? "Token FCM registrado" : "Token FCM já registrado");
+            return Result.success();
+        } catch (IOException e) {
+            int status = e instanceof PostgrestClient.HttpStatusException
+                    ? ((PostgrestClient.HttpStatusException) e).status : -1;
+            if (status == 401) {
+                // O access token gravado vence em ~1 h e não há refresh token no nativo: repetir não
+                // adianta. O token continua pendente e a próxima offlineSession (login ou renovação
+                // na página) agenda o registro de novo
+                Log.i(TAG, "Sessão vencida; registro do token FCM adiado até a página renovar");
+                return Result.success();
+            }
+            boolean retryable = status < 0 || ((PostgrestClient.HttpStatusException) e).isRetryable();
+            Log.w(TAG, "Falha ao registrar token FCM: " + e.getMessage());
+            return retryable && getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+        }
+    }
+}
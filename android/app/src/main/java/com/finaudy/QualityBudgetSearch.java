@@ -0,0 +1,69 @@
+package com.finaudy;
+
+import java.io.IOException;
+
+/**
+ * Procura a maior qualidade de compressão cujo resultado cabe no orçamento de bytes,
+ * com um número limitado de tentativas (cada tentativa é uma codificação completa).
+ */
+final class QualityBudgetSearch {
+
+    interface Encoder {
+        byte[] encode(int quality) throws IOException;
+    }
+
+    static final class Result {
+        final byte[] bytes;
+        final int quality;
+        final int attempts;
+        final boolean withinBudget;
+
+        Result(byte[] bytes, int quality, int attempts, boolean withinBudget) {
+            this.bytes = bytes;
+            this.quality = quality;
+            this.attempts = attempts;
+            this.withinBudget = withinBudget;
+        }
+    }
+
+    private QualityBudgetSearch() {
+    }
+
+    static Result search(Encoder encoder, long maxBytes, int minQuality, int maxQuality, int maxAttempts)
+            throws IOException {
+        int attempts = 1;
+        byte[] bytes = encoder.encode(maxQuality);
+        if (bytes.length <= maxBytes) {
+            return new Result(bytes, maxQuality, attempts, true);
+        }
+
+        byte[] best = null;
+        int bestQuality = -1;
+        int lastQuality = maxQuality;
+        int low = minQuality;
+        int high = maxQuality - 1;
+        while (low <= high && attempts < maxAttempts) {
+            int quality = (low + high) >>> 1;
+            bytes = encoder.encode(quality);
+            attempts++;
+            lastQuality = quality;
+            if (bytes.length <= maxBytes) {
+                best = bytes;
+                bestQuality = quality;
+                low = quality + 1;
+            } else {
+                high = quality - 1;
+            }
+        }
+        if (best != null) {
+            return new Result(best, bestQuality, attempts, true);
+        }
+
+        // Nada coube: devolve a menor qualidade permitida e deixa o chamador decidir
+        if (lastQuality != minQuality) {
+            bytes = encoder.encode(minQuality);
+            attempts++;
+        }
+        return new Result(bytes, minQuality, attempts, bytes.length <= maxBytes);
+    }
+}
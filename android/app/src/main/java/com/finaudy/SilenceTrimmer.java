@@ -0,0 +1,190 @@
+package com.finaudy;
+
+/**
+ * Remove o silêncio do PCM antes do encoder: descarta o começo e o fim sem fala e encurta
+ * as pausas longas para no máximo pré-roll + hangover. Opcionalmente sinaliza que a
+ * gravação pode parar depois de um silêncio prolongado após alguma fala.
+ */
+final class SilenceTrimmer {
+
+    public interface Output {
+        void write(byte[] pcm, int offset, int length);
+    }
+
+    public static final class Options {
+        int frameMs = 20;
+        // Quanto acima do piso de ruído um frame precisa estar para contar como fala
+        double thresholdDb = 10;
+        // Abaixo disso é silêncio mesmo que o ambiente seja muito quieto
+        double minSpeechDbfs = -45;
+        int noiseWindowMs = 1500;
+        // Início de fala confirmado só após esse tempo contínuo (ignora cliques e toques na tela)
+        int minSpeechMs = 60;
+        // Preserva o ataque da primeira sílaba, que costuma ficar abaixo do limiar
+        int preRollMs = 250;
+        int hangoverMs = 300;
+        int autoStopSilenceMs = 0;
+
+        public Options setThresholdDb(double thresholdDb) {
+            this.thresholdDb = thresholdDb;
+            return this;
+        }
+
+        public Options setMinSpeechDbfs(double minSpeechDbfs) {
+            this.minSpeechDbfs = minSpeechDbfs;
+            return this;
+        }
+
+        public Options setMinSpeechMs(int minSpeechMs) {
+            this.minSpeechMs = minSpeechMs;
+            return this;
+        }
+
+        public Options setPreRollMs(int preRollMs) {
+            this.preRollMs = preRollMs;
+            return this;
+        }
+
+        public Options setHangoverMs(int hangoverMs) {
+            this.hangoverMs = hangoverMs;
+            return this;
+        }
+
+        /** 0 desativa a parada automática. */
+        public Options setAutoStopSilenceMs(int autoStopSilenceMs) {
+            this.autoStopSilenceMs = autoStopSilenceMs;
+            return this;
+        }
+    }
+
+    private final int sampleRate;
+    private final int frameBytes;
+    private final int minSpeechFrames;
+    private final int hangoverFrames;
+    private final int autoStopFrames;
+    private final VoiceActivityDetector detector;
+
+    private final byte[] frame;
+    private int frameFill;
+
+    // Frames de silêncio recentes, emitidos se a fala começar logo em seguida
+    private final byte[][] ring;
+    private int ringStart;
+    private int ringCount;
+
+    private boolean inSpeech;
+    private boolean speechDetected;
+    private int speechRun;
+    private int hangoverLeft;
+    private int silenceRun;
+    private long inputSamples;
+    private long outputSamples;
+
+    SilenceTrimmer(int sampleRate, Options options) {
+        this.sampleRate = sampleRate;
+        int frameSamples = sampleRate * options.frameMs / 1000;
+        this.frameBytes = frameSamples * 2;
+        this.frame = new byte[frameBytes];
+        this.minSpeechFrames = Math.max(1, framesFor(options.minSpeechMs, options.frameMs));
+        this.hangoverFrames = framesFor(options.hangoverMs, options.frameMs);
+        this.autoStopFrames = framesFor(options.autoStopSilenceMs, options.frameMs);
+        // O início de fala ainda não confirmado também fica no anel
+        int preRollFrames = framesFor(options.preRollMs, options.frameMs);
+        this.ring = new byte[preRollFrames + minSpeechFrames][frameBytes];
+        // O piso se forma durante o primeiro pré-roll: se a fala começar logo, esses frames voltam pelo anel
+        this.detector = new VoiceActivityDetector(Math.max(1, framesFor(options.noiseWindowMs, options.frameMs)),
+                preRollFrames, options.thresholdDb, options.minSpeechDbfs);
+    }
+
+    void process(byte[] pcm, int offset, int length, Output out) {
+        inputSamples += length / 2;
+        int end = offset + length;
+        while (offset < end) {
+            int copy = Math.min(frameBytes - frameFill, end - offset);
+            System.arraycopy(pcm, offset, frame, frameFill, copy);
+            frameFill += copy;
+            offset += copy;
+            if (frameFill == frameBytes) {
+                processFrame(out);
+                frameFill = 0;
+            }
+        }
+    }
+
+    /** Fim da gravação: um frame incompleto só é mantido se estiver dentro de um trecho de fala. */
+    void flush(Output out) {
+        if (inSpeech && frameFill > 0) {
+            emit(frame, frameFill, out);
+        }
+        frameFill = 0;
+        ringCount = 0;
+    }
+
+    boolean shouldAutoStop() {
+        return autoStopFrames > 0 && speechDetected && silenceRun >= autoStopFrames;
+    }
+
+    boolean hasSpeech() {
+        return speechDetected;
+    }
+
+    long getInputDurationMs() {
+        return inputSamples * 1000 / sampleRate;
+    }
+
+    long getOutputDurationMs() {
+        return outputSamples * 1000 / sampleRate;
+    }
+
+    long getOutputSamples() {
+        return outputSamples;
+    }
+
+    private void processFrame(Output out) {
+        boolean speech = detector.isSpeech(frame, 0, frameBytes);
+        silenceRun = speech ? 0 : silenceRun + 1;
+        if (inSpeech) {
+            emit(frame, frameBytes, out);
+            if (speech) {
+                hangoverLeft = hangoverFrames;
+            } else if (--hangoverLeft <= 0) {
+                inSpeech = false;
+                speechRun = 0;
+            }
+            return;
+        }
+
+        pushToRing(frame);
+        speechRun = speech ? speechRun + 1 : 0;
+        if (speechRun >= minSpeechFrames) {
+            for (int i = 0; i < ringCount; i++) {
+                emit(ring[(ringStart + i) % ring.length], frameBytes, out);
+            }
+            ringCount = 0;
+            inSpeech = true;
+            speechDetected = true;
+            hangoverLeft = hangoverFrames;
+        }
+    }
+
+    private void pushToRing(byte[] source) {
+        int slot;
+        if (ringCount < ring.length) {
+            slot = (ringStart + ringCount) % ring.length;
+            ringCount++;
+        } else {
+            slot = ringStart;
+            ringStart = (ringStart + 1) % ring.length;
+        }
+        System.arraycopy(source, 0, ring[slot], 0, frameBytes);
+    }
+
+    private void emit(byte[] data, int length, Output out) {
+        out.write(data, 0, length);
+        outputSamples += length / 2;
+    }
+
+    private static int framesFor(int durationMs, int frameMs) {
+        return (durationMs + frameMs - 1) / frameMs;
+    }
+}
@@ -0,0 +1,270 @@
+package com.finaudy;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link OfflineStorage} em SQLite ("offline.db"). WAL com synchronous=FULL: uma escrita
+ * confirmada à página sobrevive a queda de energia ou ao processo ser morto antes do sync.
+ */
+final class SqliteOfflineStorage extends SQLiteOpenHelper implements OfflineStorage {
+
+    private static final String DB_NAME = "offline.db";
+    private static final int DB_VERSION = 1;
+
+    SqliteOfflineStorage(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.rawQuery("PRAGMA synchronous=FULL", null).close();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE records (tbl TEXT NOT NULL, account_id TEXT NOT NULL, id TEXT NOT NULL, "
+                + "json TEXT NOT NULL, updated_at TEXT, PRIMARY KEY (tbl, account_id, id))");
+        db.execSQL("CREATE TABLE outbox (seq INTEGER PRIMARY KEY AUTOINCREMENT, tbl TEXT NOT NULL, "
+                + "account_id TEXT NOT NULL, record_id TEXT NOT NULL, op TEXT NOT NULL, json TEXT, "
+                + "base_updated_at TEXT, attempts INTEGER NOT NULL DEFAULT 0, next_attempt_at INTEGER NOT NULL DEFAULT 0, "
+                + "last_error TEXT, created_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX outbox_record ON outbox (tbl, account_id, record_id)");
+        db.execSQL("CREATE TABLE conflicts (id INTEGER PRIMARY KEY AUTOINCREMENT, tbl TEXT NOT NULL, "
+                + "account_id TEXT NOT NULL, record_id TEXT NOT NULL, op TEXT NOT NULL, local_json TEXT, "
+                + "server_json TEXT, reason TEXT, created_at INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE cursors (tbl TEXT NOT NULL, account_id TEXT NOT NULL, cursor TEXT, "
+                + "PRIMARY KEY (tbl, account_id))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Primeira versão; migrações entram aqui
+    }
+
+    @Override
+    public List<String> query(String table, String accountId) {
+        List<String> rows = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT json FROM records WHERE tbl = ? AND account_id = ? ORDER BY rowid",
+                new String[]{table, accountId})) {
+            while (cursor.moveToNext()) {
+                rows.add(cursor.getString(0));
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public Row get(String table, String accountId, String id) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT json, updated_at FROM records WHERE tbl = ? AND account_id = ? AND id = ?",
+                new String[]{table, accountId, id})) {
+            return cursor.moveToFirst() ? new Row(table, accountId, id, cursor.getString(0), cursor.getString(1)) : null;
+        }
+    }
+
+    @Override
+    public void writeLocal(Row row, String op, String baseUpdatedAt, long now) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (OP_DELETE.equals(op)) {
+                deleteRecord(db, row.table, row.accountId, row.id);
+            } else {
+                putRecord(db, row);
+            }
+            ContentValues entry = new ContentValues();
+            entry.put("tbl", row.table);
+            entry.put("account_id", row.accountId);
+            entry.put("record_id", row.id);
+            entry.put("op", op);
+            entry.put("json", row.json);
+            entry.put("base_updated_at", baseUpdatedAt);
+            entry.put("created_at", now);
+            db.insert("outbox", null, entry);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public List<OutboxEntry> peekOutbox(int limit) {
+        List<OutboxEntry> entries = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT seq, tbl, account_id, record_id, op, json, base_updated_at, attempts, next_attempt_at "
+                        + "FROM outbox ORDER BY seq LIMIT " + limit, null)) {
+            while (cursor.moveToNext()) {
+                entries.add(new OutboxEntry(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getString(4), cursor.getString(5), cursor.getString(6),
+                        cursor.getInt(7), cursor.getLong(8)));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void completeOutbox(Collection<Long> seqs, String table, String accountId, List<Row> serverRows) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Long seq : seqs) {
+                db.delete("outbox", "seq = ?", new String[]{String.valueOf(seq)});
+            }
+            for (Row row : serverRows) {
+                if (!hasPending(db, table, accountId, row.id)) {
+                    putRecord(db, row);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public void deferOutbox(Collection<Long> seqs, String error, long nextAttemptAt) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Long seq : seqs) {
+                db.execSQL("UPDATE outbox SET attempts = attempts + 1, next_attempt_at = ?, last_error = ? WHERE seq = ?",
+                        new Object[]{nextAttemptAt, error, seq});
+            }
+            // A fila anda em ordem: nada atrás do lote adiado pode passar na frente
+            db.execSQL("UPDATE outbox SET next_attempt_at = ? WHERE next_attempt_at < ?",
+                    new Object[]{nextAttemptAt, nextAttemptAt});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public void recordConflict(OutboxEntry entry, String serverJson, String reason, long now) {
+        ContentValues values = new ContentValues();
+        values.put("tbl", entry.table);
+        values.put("account_id", entry.accountId);
+        values.put("record_id", entry.recordId);
+        values.put("op", entry.op);
+        values.put("local_json", entry.json);
+        values.put("server_json", serverJson);
+        values.put("reason", reason);
+        values.put("created_at", now);
+        getWritableDatabase().insert("conflicts", null, values);
+    }
+
+    @Override
+    public void applyServerRows(String table, String accountId, List<Row> rows) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Row row : rows) {
+                if (!hasPending(db, table, accountId, row.id)) {
+                    putRecord(db, row);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public int retainOnly(String table, String accountId, Set<String> ids) {
+        SQLiteDatabase db = getWritableDatabase();
+        List<String> stale = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT id FROM records WHERE tbl = ? AND account_id = ?",
+                new String[]{table, accountId})) {
+            while (cursor.moveToNext()) {
+                if (!ids.contains(cursor.getString(0))) {
+                    stale.add(cursor.getString(0));
+                }
+            }
+        }
+        int removed = 0;
+        db.beginTransaction();
+        try {
+            for (String id : stale) {
+                if (!hasPending(db, table, accountId, id)) {
+                    removed += deleteRecord(db, table, accountId, id);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return removed;
+    }
+
+    @Override
+    public String cursor(String table, String accountId) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT cursor FROM cursors WHERE tbl = ? AND account_id = ?", new String[]{table, accountId})) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    @Override
+    public void setCursor(String table, String accountId, String value) {
+        ContentValues values = new ContentValues();
+        values.put("tbl", table);
+        values.put("account_id", accountId);
+        values.put("cursor", value);
+        getWritableDatabase().insertWithOnConflict("cursors", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    @Override
+    public int pendingCount() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), "outbox");
+    }
+
+    @Override
+    public int conflictCount() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), "conflicts");
+    }
+
+    @Override
+    public void clear() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (String table : new String[]{"records", "outbox", "conflicts", "cursors"}) {
+                db.delete(table, null, null);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static boolean hasPending(SQLiteDatabase db, String table, String accountId, String id) {
+        return DatabaseUtils.queryNumEntries(db, "outbox", "tbl = ? AND account_id = ? AND record_id = ?",
+                new String[]{table, accountId, id}) > 0;
+    }
+
+    private static void putRecord(SQLiteDatabase db, Row row) {
+        ContentValues values = new ContentValues();
+        values.put("tbl", row.table);
+        values.put("account_id", row.accountId);
+        values.put("id", row.id);
+        values.put("json", row.json);
+        values.put("updated_at", row.updatedAt);
+        db.insertWithOnConflict("records", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static int deleteRecord(SQLiteDatabase db, String table, String accountId, String id) {
+        return db.delete("records", "tbl = ? AND account_id = ? AND id = ?", new String[]{table, accountId, id});
+    }
+}
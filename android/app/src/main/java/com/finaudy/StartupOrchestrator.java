@@ -0,0 +1,132 @@
+package com.finaudy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Grafo das tarefas de inicialização da MainActivity. CRITICAL roda antes do primeiro
+ * frame, IDLE quando a página já está pronta e a UI thread está ociosa, e ON_DEMAND só no
+ * primeiro uso. {@link #ensure} antecipa uma tarefa IDLE que a página pediu antes da hora
+ * (ex.: tocar em assinar antes da conexão ociosa com o Play Billing). A duração de cada
+ * tarefa vai para o {@link StartupTrace} como "task:<nome>".
+ *
+ * Não é thread-safe: chamar sempre na UI thread.
+ */
+final class StartupOrchestrator {
+
+    enum Phase {
+        CRITICAL, IDLE, ON_DEMAND
+    }
+
+    interface Listener {
+        void onTaskFailed(String task, RuntimeException error);
+    }
+
+    private static final class Task {
+        final String name;
+        final Phase phase;
+        final Runnable work;
+        final List<String> dependsOn;
+        boolean done;
+
+        Task(String name, Phase phase, Runnable work, List<String> dependsOn) {
+            this.name = name;
+            this.phase = phase;
+            this.work = work;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    private final StartupTrace trace;
+    private final Listener listener;
+    // Ordem de inserção já é uma ordem topológica: dependências são adicionadas antes
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+
+    StartupOrchestrator(StartupTrace trace, Listener listener) {
+        this.trace = trace;
+        this.listener = listener;
+    }
+
+    /**
+     * @param dependsOn tarefas já adicionadas, de fase igual ou anterior; assim o grafo não
+     *                  tem ciclos e uma tarefa crítica nunca espera por uma adiada
+     */
+    StartupOrchestrator add(String name, Phase phase, Runnable work, String... dependsOn) {
+        if (tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Tarefa duplicada: " + name);
+        }
+        for (String dependency : dependsOn) {
+            Task required = tasks.get(dependency);
+            if (required == null) {
+                throw new IllegalArgumentException(name + " depende de tarefa desconhecida: " + dependency);
+            }
+            if (required.phase.ordinal() > phase.ordinal()) {
+                throw new IllegalArgumentException(name + " (" + phase + ") não pode esperar "
+                        + dependency + " (" + required.phase + ")");
+            }
+        }
+        tasks.put(name, new Task(name, phase, work, Arrays.asList(dependsOn)));
+        return this;
+    }
+
+    /** @return quantas tarefas rodaram agora */
+    int runPhase(Phase phase) {
+        int ran = 0;
+        // Uma tarefa que falhou nesta rodada não é repetida pelas que dependem dela
+        Set<String> failed = new HashSet<>();
+        for (Task task : new ArrayList<>(tasks.values())) {
+            if (task.phase == phase && !task.done && run(task, failed)) {
+                ran++;
+            }
+        }
+        return ran;
+    }
+
+    /**
+     * Garante que a tarefa (e suas dependências) já rodou. Uma tarefa que falhou continua
+     * pendente e é tentada de novo na próxima chamada.
+     *
+     * @return false se a tarefa ou alguma dependência falhou
+     */
+    boolean ensure(String name) {
+        Task task = tasks.get(name);
+        if (task == null) {
+            throw new IllegalArgumentException("Tarefa desconhecida: " + name);
+        }
+        return task.done || run(task, new HashSet<String>());
+    }
+
+    boolean isDone(String name) {
+        Task task = tasks.get(name);
+        return task != null && task.done;
+    }
+
+    private boolean run(Task task, Set<String> failed) {
+        if (failed.contains(task.name)) {
+            return false;
+        }
+        for (String dependency : task.dependsOn) {
+            Task required = tasks.get(dependency);
+            if (!required.done && !run(required, failed)) {
+                return false;
+            }
+        }
+        long start = trace.now();
+        try {
+            task.work.run();
+        } catch (RuntimeException e) {
+            trace.span("task:" + task.name + ":failed", start, trace.now());
+            failed.add(task.name);
+            listener.onTaskFailed(task.name, e);
+            return false;
+        }
+        task.done = true;
+        trace.span("task:" + task.name, start, trace.now());
+        return true;
+    }
+}
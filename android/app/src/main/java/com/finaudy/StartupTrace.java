@@ -0,0 +1,64 @@
+package com.finaudy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Marcos de uma abertura do app (firstFrame, webReady, ...) e a duração de cada tarefa de
+ * inicialização, em milissegundos desde o início do processo. Não depende do Android; o
+ * relógio é injetado para que os testes controlem o tempo.
+ */
+final class StartupTrace {
+
+    interface Clock {
+        long nanos();
+    }
+
+    private final Clock clock;
+    private final long originNanos;
+    private final Map<String, Double> marks = new LinkedHashMap<>();
+    private final Map<String, Double> spans = new LinkedHashMap<>();
+
+    StartupTrace(Clock clock, long originNanos) {
+        this.clock = clock;
+        this.originNanos = originNanos;
+    }
+
+    long now() {
+        return clock.nanos();
+    }
+
+    /** Registra o marco só na primeira vez: reabrir a activity não reescreve a abertura. */
+    synchronized boolean mark(String name) {
+        if (marks.containsKey(name)) {
+            return false;
+        }
+        marks.put(name, (clock.nanos() - originNanos) / 1e6);
+        return true;
+    }
+
+    synchronized void span(String name, long startNanos, long endNanos) {
+        spans.put(name, (endNanos - startNanos) / 1e6);
+    }
+
+    synchronized Double get(String mark) {
+        return marks.get(mark);
+    }
+
+    synchronized Map<String, Double> marks() {
+        return new LinkedHashMap<>(marks);
+    }
+
+    synchronized Map<String, Double> spans() {
+        return new LinkedHashMap<>(spans);
+    }
+
+    synchronized String toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("marks", marks);
+        json.put("spans", spans);
+        StringBuilder out = new StringBuilder(256);
+        NativeEventQueue.appendJson(out, json);
+        return out.toString();
+    }
+}
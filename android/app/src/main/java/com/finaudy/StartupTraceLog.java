@@ -0,0 +1,146 @@
+package com.finaudy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Histórico local das últimas aberturas do app, uma linha por marco
+ * ("<abertura>\t<marco>\t<ms>"), para consultar tempos de cold start sem backend.
+ */
+final class StartupTraceLog {
+
+    static final class Summary {
+        final int count;
+        final double p50;
+        final double p90;
+        final double max;
+
+        Summary(int count, double p50, double p90, double max) {
+            this.count = count;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.max = max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "n=%d p50=%.1fms p90=%.1fms max=%.1fms", count, p50, p90, max);
+        }
+    }
+
+    private static final class Line {
+        final long launch;
+        final String name;
+        final double ms;
+
+        Line(long launch, String name, double ms) {
+            this.launch = launch;
+            this.name = name;
+            this.ms = ms;
+        }
+    }
+
+    private final File file;
+    private final int maxLaunches;
+
+    StartupTraceLog(File file, int maxLaunches) {
+        this.file = file;
+        this.maxLaunches = maxLaunches;
+    }
+
+    /** Grava os marcos de uma abertura e descarta as aberturas mais antigas que o limite. */
+    synchronized void append(long launchId, Map<String, Double> marks) throws IOException {
+        List<Line> lines = read();
+        for (Map.Entry<String, Double> mark : marks.entrySet()) {
+            lines.add(new Line(launchId, mark.getKey(), mark.getValue()));
+        }
+        Set<Long> launches = new LinkedHashSet<>();
+        for (Line line : lines) {
+            launches.add(line.launch);
+        }
+        int drop = launches.size() - maxLaunches;
+        Set<Long> dropped = new LinkedHashSet<>();
+        for (Long launch : launches) {
+            if (drop-- <= 0) {
+                break;
+            }
+            dropped.add(launch);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            for (Line line : lines) {
+                if (!dropped.contains(line.launch)) {
+                    out.write(String.format(Locale.US, "%d\t%s\t%.2f\n", line.launch, line.name, line.ms));
+                }
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Não foi possível gravar " + file);
+        }
+    }
+
+    /** Valores do marco nas aberturas guardadas, da mais antiga para a mais recente. */
+    synchronized List<Double> values(String mark) throws IOException {
+        List<Double> values = new ArrayList<>();
+        for (Line line : read()) {
+            if (line.name.equals(mark)) {
+                values.add(line.ms);
+            }
+        }
+        return values;
+    }
+
+    synchronized Summary summarize(String mark) throws IOException {
+        List<Double> values = values(mark);
+        if (values.isEmpty()) {
+            return new Summary(0, 0, 0, 0);
+        }
+        Collections.sort(values);
+        return new Summary(values.size(), percentile(values, 0.5), percentile(values, 0.9),
+                values.get(values.size() - 1));
+    }
+
+    private static double percentile(List<Double> sorted, double p) {
+        // Nearest-rank: com poucas aberturas não inventa valores intermediários
+        int rank = (int) Math.ceil(p * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private List<Line> read() throws IOException {
+        List<Line> lines = new ArrayList<>();
+        if (!file.exists()) {
+            return lines;
+        }
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String raw;
+            while ((raw = in.readLine()) != null) {
+                String[] parts = raw.split("\t");
+                if (parts.length != 3) {
+                    continue;
+                }
+                try {
+                    lines.add(new Line(Long.parseLong(parts[0]), parts[1], Double.parseDouble(parts[2])));
+                } catch (NumberFormatException ignored) {
+                    // Linha truncada por um processo morto no meio da escrita
+                }
+            }
+        }
+        return lines;
+    }
+}
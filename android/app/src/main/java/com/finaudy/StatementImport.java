@@ -0,0 +1,551 @@
+package com.finaudy;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Importação de extrato bancário (CSV ou OFX) lida em streaming: cada chamada de
+ * {@link #next(int)} lê do arquivo só o necessário para montar o próximo lote, então a memória
+ * não depende do tamanho do extrato. Cada lançamento ganha um hash (data, valor com sinal,
+ * descrição normalizada); lançamentos cujo hash já existe na conta são contados como
+ * duplicados e ficam de fora. O hash é contado como multiconjunto: duas compras iguais no
+ * mesmo dia no extrato, com só uma já lançada, importam a segunda.
+ */
+final class StatementImport implements Closeable {
+
+    static final String FORMAT_CSV = "csv";
+    static final String FORMAT_OFX = "ofx";
+
+    private static final int SNIFF_BYTES = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Pattern SPACES = Pattern.compile(" +");
+
+    /** Índices das colunas do CSV; -1 quando não existe. Débito/crédito substituem o valor. */
+    static final class Mapping {
+        int date = -1;
+        int description = -1;
+        int amount = -1;
+        int debit = -1;
+        int credit = -1;
+
+        boolean isComplete() {
+            return date >= 0 && description >= 0 && (amount >= 0 || debit >= 0 || credit >= 0);
+        }
+    }
+
+    static final class Progress {
+        long bytesRead;
+        final long totalBytes;
+        int parsed;
+        int imported;
+        int duplicates;
+        int skipped;
+
+        Progress(long totalBytes) {
+            this.totalBytes = totalBytes;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("bytesRead", bytesRead);
+            map.put("totalBytes", totalBytes);
+            map.put("parsed", parsed);
+            map.put("imported", imported);
+            map.put("duplicates", duplicates);
+            map.put("skipped", skipped);
+            return map;
+        }
+    }
+
+    /** Conta os bytes consumidos do arquivo, para o progresso. */
+    private final class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                progress.bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                progress.bytesRead += read;
+            }
+            return read;
+        }
+    }
+
+    final String format;
+    private final Map<String, Integer> existing;
+    private final Progress progress;
+    private final Reader reader;
+    private CsvRecordReader csv;
+    private OfxStatementReader ofx;
+    private Mapping mapping;
+    private String[] header;
+    private boolean done;
+
+    /**
+     * @param existingHashes contagem dos hashes ({@link #hash}) dos lançamentos da conta;
+     *                       é consumida durante a importação
+     * @param mapping        colunas do CSV; null para detectar pelo cabeçalho
+     */
+    StatementImport(InputStream in, long totalBytes, String fileName, Map<String, Integer> existingHashes,
+                    Mapping mapping) throws IOException {
+        this.progress = new Progress(totalBytes);
+        this.existing = existingHashes;
+        this.mapping = mapping;
+        BufferedInputStream buffered = new BufferedInputStream(new CountingInputStream(in), SNIFF_BYTES);
+        buffered.mark(SNIFF_BYTES);
+        byte[] head = new byte[SNIFF_BYTES];
+        int length = 0;
+        int read;
+        while (length < head.length && (read = buffered.read(head, length, head.length - length)) > 0) {
+            length += read;
+        }
+        buffered.reset();
+        String headText = new String(head, 0, length, Charset.forName("ISO-8859-1"));
+        format = detectFormat(fileName, headText);
+        Charset charset = detectCharset(format, head, length, headText);
+        if (charset.name().equals("UTF-8") && length >= 3
+                && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF) {
+            buffered.skip(3);
+        }
+        reader = new InputStreamReader(buffered, charset);
+        if (FORMAT_OFX.equals(format)) {
+            ofx = new OfxStatementReader(reader);
+        } else {
+            int lineEnd = headText.indexOf('\n');
+            csv = new CsvRecordReader(reader, CsvRecordReader.detectDelimiter(lineEnd >= 0 ? headText.substring(0, lineEnd) : headText));
+        }
+    }
+
+    Progress progress() {
+        return progress;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    /** Cabeçalho do CSV como veio no arquivo; null para OFX ou antes do primeiro lote. */
+    String[] header() {
+        return header;
+    }
+
+    /**
+     * Próximos lançamentos novos, no máximo batchSize, como linhas da tabela transactions
+     * (date, description, amount positivo, type) mais hash e fit_id (OFX). Lista vazia no fim.
+     *
+     * @throws IllegalArgumentException se as colunas do CSV não foram reconhecidas
+     */
+    List<Map<String, Object>> next(int batchSize) throws IOException {
+        List<Map<String, Object>> batch = new ArrayList<>();
+        while (batch.size() < batchSize && !done) {
+            Map<String, Object> row = FORMAT_OFX.equals(format) ? nextOfx() : nextCsv();
+            if (row == null) {
+                if (done) {
+                    break;
+                }
+                progress.skipped++;
+                continue;
+            }
+            progress.parsed++;
+            String hash = (String) row.get("hash");
+            Integer count = existing.get(hash);
+            if (count != null && count > 0) {
+                existing.put(hash, count - 1);
+                progress.duplicates++;
+                continue;
+            }
+            progress.imported++;
+            batch.add(row);
+        }
+        return batch;
+    }
+
+    /** @return a linha, ou null se a linha foi pulada (ou o arquivo acabou: done) */
+    private Map<String, Object> nextCsv() throws IOException {
+        if (header == null) {
+            header = csv.next();
+            if (header == null) {
+                done = true;
+                return null;
+            }
+            if (mapping == null) {
+                mapping = detectColumns(header);
+            }
+            if (!mapping.isComplete()) {
+                // String.join é da API 26
+                StringBuilder columns = new StringBuilder();
+                for (String name : header) {
+                    columns.append(columns.length() > 0 ? ", " : "").append(name);
+                }
+                throw new IllegalArgumentException("Colunas não reconhecidas: " + columns);
+            }
+        }
+        String[] fields = csv.next();
+        if (fields == null) {
+            done = true;
+            return null;
+        }
+        String date = parseDate(field(fields, mapping.date));
+        String description = field(fields, mapping.description).trim();
+        Long cents;
+        if (mapping.amount >= 0) {
+            cents = parseCents(field(fields, mapping.amount));
+        } else {
+            Long debit = parseCents(field(fields, mapping.debit));
+            Long credit = parseCents(field(fields, mapping.credit));
+            cents = debit != null && debit != 0 ? Long.valueOf(-Math.abs(debit))
+                    : credit != null ? Long.valueOf(Math.abs(credit)) : null;
+        }
+        if (date == null || cents == null || cents == 0) {
+            return null;
+        }
+        return row(date, description, cents, null);
+    }
+
+    private Map<String, Object> nextOfx() throws IOException {
+        Map<String, String> fields = ofx.next();
+        if (fields == null) {
+            done = true;
+            return null;
+        }
+        String date = parseDate(fields.get("DTPOSTED"));
+        Long cents = parseCents(fields.get("TRNAMT"));
+        String description = fields.containsKey("MEMO") && !fields.containsKey("NAME") ? fields.get("MEMO")
+                : fields.containsKey("NAME") ? fields.get("NAME") : "";
+        if (date == null || cents == null || cents == 0) {
+            return null;
+        }
+        return row(date, description.trim(), cents, fields.get("FITID"));
+    }
+
+    private static Map<String, Object> row(String date, String description, long cents, String fitId) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("date", date);
+        row.put("description", description);
+        row.put("amount", Math.abs(cents) / 100.0);
+        row.put("type", cents < 0 ? "expense" : "income");
+        row.put("hash", hash(date, cents, description));
+        if (fitId != null) {
+            row.put("fit_id", fitId);
+        }
+        return row;
+    }
+
+    private static String field(String[] fields, int index) {
+        return index >= 0 && index < fields.length ? fields[index] : "";
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        reader.close();
+    }
+
+    /**
+     * Hash de dedupe: data, centavos com sinal (despesa negativa) e descrição sem acentos,
+     * caixa e espaços repetidos.
+     */
+    static String hash(String date, long signedCents, String description) {
+        String normalized = SPACES.matcher(TransactionSearchIndex.normalize(description).trim()).replaceAll(" ");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest((date + '|' + signedCents + '|' + normalized).getBytes(Charset.forName("UTF-8")));
+            char[] hex = new char[16];
+            for (int i = 0; i < 8; i++) {
+                hex[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX[bytes[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Hash de um lançamento já existente (linha do espelho offline); null se faltam campos. */
+    static String hash(Map<String, Object> transaction) {
+        String date = Json.string(transaction, "date");
+        Object amount = transaction.get("amount");
+        if (date == null || date.length() < 10 || !(amount instanceof Number)) {
+            return null;
+        }
+        long cents = TransactionAggregator.cents((Number) amount);
+        String description = Json.string(transaction, "description");
+        return hash(date.substring(0, 10), "income".equals(Json.string(transaction, "type")) ? cents : -cents,
+                description != null ? description : "");
+    }
+
+    static String detectFormat(String fileName, String head) {
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        String start = head.trim().toUpperCase(Locale.ROOT);
+        if (name.endsWith(".ofx") || name.endsWith(".qfx") || start.startsWith("OFXHEADER")
+                || start.contains("<OFX>")) {
+            return FORMAT_OFX;
+        }
+        return FORMAT_CSV;
+    }
+
+    /**
+     * OFX 1.x declara CHARSET no cabeçalho e o 2.x o encoding do XML; CSV de banco costuma vir
+     * em Windows-1252, então sem BOM só vale UTF-8 se o começo do arquivo for UTF-8 válido.
+     */
+    private static Charset detectCharset(String format, byte[] head, int length, String headText) {
+        String upper = headText.toUpperCase(Locale.ROOT);
+        if (FORMAT_OFX.equals(format)) {
+            if (upper.contains("CHARSET:1252") || upper.contains("WINDOWS-1252")) {
+                return Charset.forName("windows-1252");
+            }
+            if (upper.contains("CHARSET:8859") || upper.contains("ISO-8859-1")) {
+                return Charset.forName("ISO-8859-1");
+            }
+        }
+        if (length >= 3 && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF) {
+            return Charset.forName("UTF-8");
+        }
+        CharsetDecoder decoder = Charset.forName("UTF-8").newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer out = CharBuffer.allocate(length);
+        // endOfInput false: um caractere cortado no fim da amostra não conta como erro
+        boolean valid = !decoder.decode(ByteBuffer.wrap(head, 0, length), out, length < SNIFF_BYTES).isError();
+        return valid ? Charset.forName("UTF-8") : Charset.forName("windows-1252");
+    }
+
+    /** Reconhece data, descrição, valor ou débito/crédito pelos nomes do cabeçalho. */
+    static Mapping detectColumns(String[] header) {
+        Mapping mapping = new Mapping();
+        for (int i = 0; i < header.length; i++) {
+            String name = TransactionSearchIndex.normalize(header[i]).trim();
+            if (name.contains("saldo") || name.contains("balance")) {
+                continue;
+            }
+            if (mapping.date < 0 && (name.startsWith("data") || name.startsWith("date") || name.equals("dt"))) {
+                mapping.date = i;
+            } else if (mapping.debit < 0 && (name.startsWith("debito") || name.startsWith("saida"))) {
+                mapping.debit = i;
+            } else if (mapping.credit < 0 && (name.startsWith("credito") || name.startsWith("entrada"))) {
+                mapping.credit = i;
+            } else if (mapping.amount < 0 && (name.startsWith("valor") || name.startsWith("amount")
+                    || name.startsWith("value") || name.startsWith("quantia"))) {
+                mapping.amount = i;
+            } else if (mapping.description < 0 && (name.startsWith("descri") || name.startsWith("historico")
+                    || name.startsWith("lancamento") || name.startsWith("estabelecimento") || name.startsWith("memo")
+                    || name.startsWith("titulo") || name.startsWith("detalhe"))) {
+                mapping.description = i;
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * "1.234,56", "-12,50", "R$ 12,50", "(12,50)", "12,50 D", "1,234.56" e "12.5" em centavos
+     * com sinal; null se não é um valor.
+     */
+    static Long parseCents(String text) {
+        if (text == null) {
+            return null;
+        }
+        // Sem "R$" e espaços (inclusive o não separável)
+        char[] value = new char[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == 'R' && i + 1 < text.length() && text.charAt(i + 1) == '$') {
+                i++;
+            } else if (c != ' ' && c != '\u00A0' && c != '\t') {
+                value[length++] = c;
+            }
+        }
+        int from = 0;
+        int to = length;
+        boolean negative = false;
+        if (to - from >= 2 && value[from] == '(' && value[to - 1] == ')') {
+            negative = true;
+            from++;
+            to--;
+        }
+        if (to > from) {
+            char suffix = Character.toUpperCase(value[to - 1]);
+            if (suffix == 'D' || suffix == 'C' || suffix == '-') {
+                negative |= suffix != 'C';
+                to--;
+            }
+        }
+        if (to > from && (value[from] == '-' || value[from] == '+')) {
+            negative ^= value[from] == '-';
+            from++;
+        }
+        int comma = -1;
+        int dot = -1;
+        for (int i = from; i < to; i++) {
+            if (value[i] == ',') {
+                comma = i;
+            } else if (value[i] == '.') {
+                dot = i;
+            } else if (value[i] < '0' || value[i] > '9') {
+                return null;
+            }
+        }
+        // O último separador é o decimal; só com pontos, "1.234" é milhar no formato brasileiro
+        int decimal = Math.max(comma, dot);
+        if (comma < 0 && dot >= 0 && isThousands(value, from, to)) {
+            decimal = -1;
+        }
+        long units = 0;
+        int digits = 0;
+        for (int i = from; i < (decimal >= 0 ? decimal : to); i++) {
+            char c = value[i];
+            if (c >= '0' && c <= '9') {
+                if (++digits > 15) {
+                    return null;
+                }
+                units = units * 10 + (c - '0');
+            } else if (decimal >= 0 && c == value[decimal]) {
+                // Separador decimal repetido: "1,2,3"
+                return null;
+            }
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (decimal >= 0) {
+            for (int i = decimal + 1; i < to; i++) {
+                char c = value[i];
+                if (c < '0' || c > '9') {
+                    return null;
+                }
+                if (fractionDigits < 2) {
+                    fraction = fraction * 10 + (c - '0');
+                } else if (fractionDigits == 2) {
+                    roundUp = c >= '5';
+                }
+                fractionDigits++;
+            }
+        }
+        if (digits + fractionDigits == 0) {
+            return null;
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        long cents = units * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    /** Só dígitos e pontos, com 1 a 3 dígitos antes do primeiro ponto e 3 depois de cada um. */
+    private static boolean isThousands(char[] value, int from, int to) {
+        int group = 0;
+        boolean first = true;
+        for (int i = from; i < to; i++) {
+            if (value[i] == '.') {
+                if (first ? group == 0 || group > 3 : group != 3) {
+                    return false;
+                }
+                first = false;
+                group = 0;
+            } else {
+                group++;
+            }
+        }
+        return !first && group == 3;
+    }
+
+    /** dd/MM/yyyy, dd/MM/yy, dd-MM-yyyy, dd.MM.yyyy, yyyy-MM-dd e yyyyMMdd[hhmmss…] do OFX. */
+    static String parseDate(String text) {
+        if (text == null) {
+            return null;
+        }
+        String value = text.trim();
+        int year;
+        int month;
+        int day;
+        if (value.length() >= 8 && digits(value, 0, 8) >= 0) {
+            year = digits(value, 0, 4);
+            month = digits(value, 4, 6);
+            day = digits(value, 6, 8);
+        } else {
+            // Até três grupos de dígitos separados por / . ou -; o resto (hora) é ignorado
+            int[] parts = new int[3];
+            int[] lengths = new int[3];
+            int count = 0;
+            for (int i = 0; i < value.length() && count < 3; i++) {
+                char c = value.charAt(i);
+                if (c >= '0' && c <= '9' && lengths[count] < 4) {
+                    parts[count] = parts[count] * 10 + (c - '0');
+                    lengths[count]++;
+                } else if ((c == '/' || c == '.' || c == '-') && lengths[count] > 0 && count < 2) {
+                    count++;
+                } else {
+                    break;
+                }
+            }
+            if (count != 2 || lengths[2] == 0) {
+                return null;
+            }
+            if (lengths[0] == 4) {
+                year = parts[0];
+                month = parts[1];
+                day = parts[2];
+            } else if (lengths[2] == 4 || lengths[2] == 2) {
+                day = parts[0];
+                month = parts[1];
+                year = lengths[2] == 2 ? 2000 + parts[2] : parts[2];
+            } else {
+                return null;
+            }
+        }
+        if (month < 1 || month > 12 || day < 1 || day > 31 || year < 1900 || year > 2200) {
+            return null;
+        }
+        char[] date = {'0', '0', '0', '0', '-', '0', '0', '-', '0', '0'};
+        for (int i = 3; i >= 0; i--, year /= 10) {
+            date[i] = (char) ('0' + year % 10);
+        }
+        date[5] = (char) ('0' + month / 10);
+        date[6] = (char) ('0' + month % 10);
+        date[8] = (char) ('0' + day / 10);
+        date[9] = (char) ('0' + day % 10);
+        return new String(date);
+    }
+
+    /** Valor dos dígitos em [from, to), ou -1 se algum não é dígito. */
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
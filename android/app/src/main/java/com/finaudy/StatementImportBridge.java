@@ -0,0 +1,240 @@
+package com.finaudy;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Importação de extratos (CSV ou OFX) pela ponte: o seletor do sistema abre o arquivo e a página
+ * puxa os lançamentos novos em lotes ({@link StatementImport}), comparando com o espelho offline.
+ * Cada lote vai para o espelho e para a outbox ({@link OfflineBridge#writeAll}), então a importação
+ * funciona sem rede e a próxima já encontra estes lançamentos.
+ */
+final class StatementImportBridge {
+
+    static final int REQUEST_CODE = 5;
+    private static final int DEFAULT_BATCH = 500;
+
+    private final MainActivity activity;
+    private final OfflineBridge offline;
+    private final Executor ioExecutor;
+    // Importação esperando o arquivo (só na UI thread), e as abertas
+    private MessagePortBridge.Call pendingCall;
+    private final Map<String, StatementImport> imports = new ConcurrentHashMap<>();
+    // Conta de cada importação aberta, dona dos lançamentos gravados
+    private final Map<String, String> accounts = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+
+    StatementImportBridge(MainActivity activity, OfflineBridge offline, Executor ioExecutor) {
+        this.activity = activity;
+        this.offline = offline;
+        this.ioExecutor = ioExecutor;
+    }
+
+    /** Extrato a importar escolhido (ou seletor fechado). */
+    void onActivityResult(int resultCode, @Nullable Intent data) {
+        MessagePortBridge.Call call = pendingCall;
+        pendingCall = null;
+        if (call == null) {
+            return;
+        }
+        if (resultCode == Activity.RESULT_OK && data != null && data.getData() != null) {
+            start(call, data.getData());
+        } else {
+            call.reject("Importação cancelada");
+        }
+    }
+
+    /** Fecha os extratos de uma página que foi embora. */
+    void release() {
+        for (String id : imports.keySet()) {
+            close(id);
+        }
+    }
+
+    /** Chamado com o extrato escolhido: conta os lançamentos já existentes e abre o arquivo. */
+    private void start(MessagePortBridge.Call call, Uri uri) {
+        ioExecutor.execute(() -> {
+            String id = "import-" + ids.incrementAndGet();
+            try {
+                String account = offline.requireAccount(call.params);
+                Map<String, Integer> existing = new HashMap<>();
+                for (String json : offline.storage().query(OfflineBridge.TABLE_TRANSACTIONS, account)) {
+                    String hash = StatementImport.hash(Json.parseObject(json));
+                    if (hash != null) {
+                        Integer count = existing.get(hash);
+                        existing.put(hash, count == null ? 1 : count + 1);
+                    }
+                }
+                String fileName = activity.getFileName(uri);
+                InputStream in = activity.getContentResolver().openInputStream(uri);
+                if (in == null) {
+                    throw new IOException("Não foi possível abrir " + uri);
+                }
+                StatementImport statement;
+                try {
+                    statement = new StatementImport(in, fileSize(uri), fileName, existing,
+                            mapping(call.params.optJSONObject("mapping")));
+                } catch (IOException | RuntimeException e) {
+                    in.close();
+                    throw e;
+                }
+                accounts.put(id, account);
+                imports.put(id, statement);
+                JSONObject result = new JSONObject();
+                result.put("id", id);
+                result.put("fileName", fileName);
+                result.put("format", statement.format);
+                result.put("existing", existing.size());
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e("StatementImport", "Erro ao abrir extrato", e);
+                call.reject(e.getMessage());
+            }
+        });
+    }
+
+    /** Tamanho informado pelo provedor, para o progresso; 0 se desconhecido. */
+    private long fileSize(Uri uri) {
+        Cursor cursor = activity.getContentResolver().query(uri,
+                new String[]{OpenableColumns.SIZE}, null, null, null);
+        try {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return 0;
+    }
+
+    /** Lançamento do extrato como linha de transactions, com o id gerado aqui (como na página). */
+    private static Map<String, Object> transaction(Map<String, Object> row, String account, String createdAt) {
+        Map<String, Object> transaction = new HashMap<>();
+        transaction.put("id", UUID.randomUUID().toString());
+        transaction.put("user_id", account);
+        transaction.put("date", row.get("date"));
+        transaction.put("description", row.get("description"));
+        transaction.put("amount", row.get("amount"));
+        transaction.put("type", row.get("type"));
+        transaction.put("category_id", null);
+        transaction.put("created_at", createdAt);
+        return transaction;
+    }
+
+    private static String now() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date());
+    }
+
+    @Nullable
+    private static StatementImport.Mapping mapping(@Nullable JSONObject params) {
+        if (params == null) {
+            return null;
+        }
+        StatementImport.Mapping mapping = new StatementImport.Mapping();
+        mapping.date = params.optInt("date", -1);
+        mapping.description = params.optInt("description", -1);
+        mapping.amount = params.optInt("amount", -1);
+        mapping.debit = params.optInt("debit", -1);
+        mapping.credit = params.optInt("credit", -1);
+        return mapping;
+    }
+
+    private void close(String id) {
+        accounts.remove(id);
+        StatementImport statement = imports.remove(id);
+        if (statement == null) {
+            return;
+        }
+        synchronized (statement) {
+            try {
+                statement.close();
+            } catch (IOException e) {
+                Log.w("StatementImport", "Erro ao fechar extrato", e);
+            }
+        }
+    }
+
+    void register(MessagePortBridge bridge) {
+        // {accountId, mapping?: {date, description, amount | debit/credit}}: abre o seletor e resolve
+        // com {id, fileName, format} quando o extrato (CSV ou OFX) foi aberto
+        bridge.register("importStatement", call -> {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT)
+                    .addCategory(Intent.CATEGORY_OPENABLE)
+                    .setType("*/*")
+                    .putExtra(Intent.EXTRA_MIME_TYPES, new String[]{
+                            "text/csv", "text/comma-separated-values", "text/plain", "application/x-ofx",
+                            "application/vnd.intu.qfx", "application/octet-stream"});
+            activity.runOnUiThread(() -> {
+                if (pendingCall != null) {
+                    pendingCall.reject("Outra importação foi iniciada");
+                }
+                pendingCall = call;
+                activity.startActivityForResult(intent, REQUEST_CODE);
+            });
+        });
+        // {id, batchSize}: lê do arquivo o próximo lote de lançamentos novos e grava na outbox; resolve
+        // com o JSON {written, done, progress}, e o extrato é fechado no último lote
+        bridge.register("importNext", call -> {
+            String id = call.params.getString("id");
+            StatementImport statement = imports.get(id);
+            String account = accounts.get(id);
+            if (statement == null || account == null) {
+                throw new CancellationException("Importação " + id + " não existe ou foi cancelada");
+            }
+            Map<String, Object> result = new HashMap<>();
+            synchronized (statement) {
+                try {
+                    String createdAt = now();
+                    List<Map<String, Object>> rows = new ArrayList<>();
+                    for (Map<String, Object> row : statement.next(call.params.optInt("batchSize", DEFAULT_BATCH))) {
+                        rows.add(transaction(row, account, createdAt));
+                    }
+                    offline.writeAll(OfflineBridge.TABLE_TRANSACTIONS, account, rows);
+                    result.put("written", rows.size());
+                } catch (IOException | RuntimeException e) {
+                    close(id);
+                    throw e;
+                }
+                result.put("done", statement.isDone());
+                result.put("progress", statement.progress().toMap());
+            }
+            if (statement.isDone()) {
+                close(id);
+            }
+            activity.getEventBus().postLatest("onImportProgress", id, Json.stringify(result.get("progress")));
+            call.resolve(Json.stringify(result));
+        });
+        bridge.register("importCancel", call -> {
+            close(call.params.getString("id"));
+            call.resolve(true);
+        });
+    }
+}
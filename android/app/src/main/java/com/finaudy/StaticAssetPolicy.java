@@ -0,0 +1,82 @@
+package com.finaudy;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Regras de cache e tipo MIME para o bundle web servido de assets. Arquivos com hash no
+ * nome (assets/index-CnvRclm_.js, gerados pelo Vite) nunca mudam de conteúdo e podem ser
+ * guardados para sempre; o index.html precisa ser revalidado a cada abertura.
+ */
+final class StaticAssetPolicy {
+
+    static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    static final String CACHE_REVALIDATE = "no-cache";
+    static final String CACHE_SHORT = "public, max-age=3600";
+
+    // Vite: assets/<nome>-<8 caracteres base64url>.<ext>
+    private static final Pattern FINGERPRINTED = Pattern.compile("^assets/.+-[A-Za-z0-9_-]{8}\\.[A-Za-z0-9]+$");
+
+    private static final Map<String, String> MIME_TYPES = new HashMap<>();
+
+    static {
+        MIME_TYPES.put("html", "text/html");
+        MIME_TYPES.put("js", "text/javascript");
+        MIME_TYPES.put("mjs", "text/javascript");
+        MIME_TYPES.put("css", "text/css");
+        MIME_TYPES.put("json", "application/json");
+        MIME_TYPES.put("webmanifest", "application/manifest+json");
+        MIME_TYPES.put("svg", "image/svg+xml");
+        MIME_TYPES.put("png", "image/png");
+        MIME_TYPES.put("jpg", "image/jpeg");
+        MIME_TYPES.put("jpeg", "image/jpeg");
+        MIME_TYPES.put("webp", "image/webp");
+        MIME_TYPES.put("gif", "image/gif");
+        MIME_TYPES.put("ico", "image/x-icon");
+        MIME_TYPES.put("woff", "font/woff");
+        MIME_TYPES.put("woff2", "font/woff2");
+        MIME_TYPES.put("ttf", "font/ttf");
+        MIME_TYPES.put("wasm", "application/wasm");
+        MIME_TYPES.put("txt", "text/plain");
+        MIME_TYPES.put("map", "application/json");
+    }
+
+    private StaticAssetPolicy() {
+    }
+
+    static boolean isFingerprinted(String path) {
+        return FINGERPRINTED.matcher(stripLeadingSlash(path)).matches();
+    }
+
+    static String cacheControl(String path) {
+        String normalized = stripLeadingSlash(path);
+        if (isFingerprinted(normalized)) {
+            return CACHE_IMMUTABLE;
+        }
+        // index.html e o service worker apontam para os arquivos com hash da versão atual
+        if (normalized.isEmpty() || normalized.endsWith(".html") || normalized.equals("sw.js")) {
+            return CACHE_REVALIDATE;
+        }
+        return CACHE_SHORT;
+    }
+
+    static String mimeType(String path) {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || dot < path.lastIndexOf('/')) {
+            return "application/octet-stream";
+        }
+        String type = MIME_TYPES.get(path.substring(dot + 1).toLowerCase(Locale.US));
+        return type != null ? type : "application/octet-stream";
+    }
+
+    static boolean isText(String mimeType) {
+        return mimeType.startsWith("text/") || mimeType.equals("application/json")
+                || mimeType.equals("application/manifest+json") || mimeType.equals("image/svg+xml");
+    }
+
+    private static String stripLeadingSlash(String path) {
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+}
@@ -0,0 +1,445 @@
+package com.finaudy;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.media.MediaRecorder;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Captura PCM 16 kHz mono com AudioRecord, codifica em AAC-LC com MediaCodec e entrega
+ * pedaços ADTS aos {@link AudioChunkSink} durante a gravação, sem esperar o stop.
+ * Com {@link SilenceTrimmer.Options} o silêncio é removido antes do encoder, então nem
+ * chega a ser codificado ou enviado.
+ */
+public class StreamingAudioRecorder {
+
+    private static final String TAG = "StreamingAudioRecorder";
+
+    public static final String MIME_TYPE = "audio/aac";
+    /** Formato do arquivo depois de {@link #remuxToMp4}. */
+    public static final String MP4_MIME_TYPE = "audio/mp4";
+    public static final int SAMPLE_RATE = 16000;
+    private static final int CHANNELS = 1;
+    private static final int BIT_RATE = 32000;
+    private static final int READ_BUFFER_BYTES = 2048;
+    // ~4 frames AAC de 1024 amostras (~256 ms) por pedaço entregue aos sinks
+    private static final int FRAMES_PER_CHUNK = 4;
+    private static final long CODEC_TIMEOUT_US = 10_000;
+    // Quanto uma gravação nova espera a anterior soltar o microfone
+    private static final long MIC_HANDOFF_TIMEOUT_MS = 2000;
+
+    public static final class Result {
+        /** Tempo total com o microfone aberto. */
+        long rawDurationMs;
+        /** Duração do áudio codificado, depois de remover o silêncio. */
+        long durationMs;
+        long encodedBytes;
+        boolean speechDetected;
+        boolean autoStopped;
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            try {
+                json.put("rawDurationMs", rawDurationMs);
+                json.put("durationMs", durationMs);
+                json.put("trimmedMs", rawDurationMs - durationMs);
+                json.put("encodedBytes", encodedBytes);
+                json.put("speechDetected", speechDetected);
+                json.put("autoStopped", autoStopped);
+            } catch (JSONException e) {
+                Log.e(TAG, "Erro ao serializar métricas", e);
+            }
+            return json;
+        }
+    }
+
+    public interface Listener {
+        void onComplete(Result result);
+
+        void onError(Exception error);
+    }
+
+    private final List<AudioChunkSink> sinks;
+    @Nullable
+    private final SilenceTrimmer.Options trimOptions;
+    private final Listener listener;
+    private final AdtsFramer framer = new AdtsFramer(MediaCodecInfo.CodecProfileLevel.AACObjectLC, SAMPLE_RATE, CHANNELS);
+    private final ByteArrayOutputStream pendingChunk = new ByteArrayOutputStream(4096);
+
+    private volatile boolean stopRequested;
+    private volatile boolean cancelled;
+    private Thread thread;
+    private final CountDownLatch micReleased = new CountDownLatch(1);
+    private int pendingFrames;
+    private long encodedBytes;
+
+    /** @param trimOptions null grava tudo, sem remover silêncio */
+    public StreamingAudioRecorder(List<AudioChunkSink> sinks, @Nullable SilenceTrimmer.Options trimOptions, Listener listener) {
+        this.sinks = new ArrayList<>(sinks);
+        this.trimOptions = trimOptions;
+        this.listener = listener;
+    }
+
+    public void start() {
+        start(null);
+    }
+
+    /**
+     * Começa a gravar depois que previous (parada ou cancelada, ainda codificando ou enviando)
+     * soltar o microfone; dois AudioRecord abertos ao mesmo tempo fazem o segundo ler silêncio.
+     */
+    public void start(@Nullable StreamingAudioRecorder previous) {
+        thread = new Thread(() -> {
+            if (previous != null) {
+                try {
+                    if (!previous.micReleased.await(MIC_HANDOFF_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        Log.w(TAG, "Gravação anterior ainda segura o microfone");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            run();
+        }, "audio-capture");
+        thread.start();
+    }
+
+    /** Encerra a captura; o que já foi gravado é codificado e entregue aos sinks. */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        stopRequested = true;
+    }
+
+    public boolean isRunning() {
+        return thread != null && thread.isAlive();
+    }
+
+    private void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        AudioRecord audioRecord = null;
+        MediaCodec codec = null;
+        long rawSamples = 0;
+        long samples = 0;
+        boolean autoStopped = false;
+        try {
+            int minBuffer = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+            if (minBuffer <= 0) {
+                throw new IOException("Configuração de áudio não suportada: " + minBuffer);
+            }
+            audioRecord = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT, Math.max(minBuffer, READ_BUFFER_BYTES * 4));
+            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+                throw new IOException("AudioRecord não inicializado");
+            }
+
+            MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, SAMPLE_RATE, CHANNELS);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE);
+            format.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, READ_BUFFER_BYTES);
+            codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+
+            openSinks();
+            audioRecord.startRecording();
+
+            SilenceTrimmer trimmer = trimOptions != null ? new SilenceTrimmer(SAMPLE_RATE, trimOptions) : null;
+            PendingPcm pending = new PendingPcm();
+            byte[] pcm = new byte[READ_BUFFER_BYTES];
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean captureDone = false;
+            boolean inputDone = false;
+            boolean outputDone = false;
+            while (!outputDone) {
+                // Lê do microfone só quando o encoder já consumiu o que estava pendente
+                if (!captureDone && pending.isEmpty()) {
+                    if (stopRequested) {
+                        if (trimmer != null) {
+                            trimmer.flush(pending);
+                        }
+                        captureDone = true;
+                        // O resto é encoder e sinks (o upload pode demorar): o microfone já pode ser de outro
+                        releaseMic(audioRecord);
+                        audioRecord = null;
+                    } else {
+                        int read = audioRecord.read(pcm, 0, pcm.length);
+                        if (read < 0) {
+                            throw new IOException("Erro ao ler do microfone: " + read);
+                        }
+                        rawSamples += read / 2;
+                        if (trimmer != null) {
+                            trimmer.process(pcm, 0, read, pending);
+                            if (trimmer.shouldAutoStop()) {
+                                autoStopped = true;
+                                stopRequested = true;
+                            }
+                        } else {
+                            pending.write(pcm, 0, read);
+                        }
+                    }
+                }
+                if (!inputDone && (!pending.isEmpty() || captureDone)) {
+                    int inputIndex = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer input = codec.getInputBuffer(inputIndex);
+                        input.clear();
+                        long presentationUs = samples * 1_000_000L / SAMPLE_RATE;
+                        if (pending.isEmpty()) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, presentationUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            int queued = pending.drainTo(input);
+                            codec.queueInputBuffer(inputIndex, 0, queued, presentationUs, 0);
+                            samples += queued / 2;
+                        }
+                    }
+                }
+                outputDone = drainEncoder(codec, info, inputDone);
+                if (cancelled) {
+                    break;
+                }
+            }
+
+            if (cancelled) {
+                abortSinks();
+                return;
+            }
+            flushChunk();
+            finishSinks();
+            Result result = new Result();
+            result.rawDurationMs = rawSamples * 1000L / SAMPLE_RATE;
+            result.durationMs = samples * 1000L / SAMPLE_RATE;
+            result.encodedBytes = encodedBytes;
+            result.speechDetected = trimmer == null || trimmer.hasSpeech();
+            result.autoStopped = autoStopped;
+            listener.onComplete(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Erro na captura de áudio", e);
+            abortSinks();
+            if (!cancelled) {
+                listener.onError(e);
+            }
+        } finally {
+            if (audioRecord != null) {
+                releaseMic(audioRecord);
+            }
+            micReleased.countDown();
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (IllegalStateException ignored) {
+                    // codec não foi iniciado
+                }
+                codec.release();
+            }
+        }
+    }
+
+    private void releaseMic(AudioRecord audioRecord) {
+        try {
+            audioRecord.stop();
+        } catch (IllegalStateException ignored) {
+            // nunca chegou a gravar
+        }
+        audioRecord.release();
+        micReleased.countDown();
+    }
+
+    private boolean drainEncoder(MediaCodec codec, MediaCodec.BufferInfo info, boolean inputDone) throws IOException {
+        while (true) {
+            int outputIndex = codec.dequeueOutputBuffer(info, inputDone ? CODEC_TIMEOUT_US : 0);
+            if (outputIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                return false;
+            }
+            if (outputIndex < 0) {
+                // INFO_OUTPUT_FORMAT_CHANGED: o ADTS já carrega a configuração do stream
+                continue;
+            }
+            boolean codecConfig = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+            if (!codecConfig && info.size > 0) {
+                ByteBuffer output = codec.getOutputBuffer(outputIndex);
+                output.position(info.offset);
+                output.limit(info.offset + info.size);
+                byte[] frame = new byte[AdtsFramer.HEADER_SIZE + info.size];
+                framer.writeHeader(frame, 0, info.size);
+                output.get(frame, AdtsFramer.HEADER_SIZE, info.size);
+                appendFrame(frame);
+            }
+            codec.releaseOutputBuffer(outputIndex, false);
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                return true;
+            }
+        }
+    }
+
+    private void appendFrame(byte[] frame) throws IOException {
+        pendingChunk.write(frame, 0, frame.length);
+        encodedBytes += frame.length;
+        if (++pendingFrames >= FRAMES_PER_CHUNK) {
+            flushChunk();
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        if (pendingChunk.size() == 0) {
+            return;
+        }
+        byte[] chunk = pendingChunk.toByteArray();
+        pendingChunk.reset();
+        pendingFrames = 0;
+        Iterator<AudioChunkSink> it = sinks.iterator();
+        while (it.hasNext()) {
+            AudioChunkSink sink = it.next();
+            try {
+                sink.write(chunk, 0, chunk.length);
+            } catch (IOException e) {
+                // Um sink com falha (ex.: rede) não interrompe os demais
+                Log.w(TAG, "Sink de áudio falhou, removendo: " + sink, e);
+                sink.abort();
+                it.remove();
+            }
+        }
+        if (sinks.isEmpty()) {
+            throw new IOException("Nenhum destino de áudio disponível");
+        }
+    }
+
+    private void openSinks() throws IOException {
+        for (AudioChunkSink sink : sinks) {
+            sink.open(MIME_TYPE);
+        }
+    }
+
+    private void finishSinks() throws IOException {
+        IOException firstError = null;
+        for (AudioChunkSink sink : sinks) {
+            try {
+                sink.finish();
+            } catch (IOException e) {
+                Log.w(TAG, "Falha ao finalizar sink de áudio: " + sink, e);
+                if (firstError == null) {
+                    firstError = e;
+                }
+            }
+        }
+        if (firstError != null && sinks.size() == 1) {
+            throw firstError;
+        }
+    }
+
+    /**
+     * Reempacota o ADTS gravado num .m4a sem recodificar. O Whisper (OpenAI e Groq) aceita
+     * m4a mas não AAC cru em ADTS.
+     */
+    public static void remuxToMp4(File adts, File mp4) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaMuxer muxer = null;
+        try {
+            extractor.setDataSource(adts.getPath());
+            if (extractor.getTrackCount() == 0) {
+                throw new IOException("Áudio sem faixas: " + adts);
+            }
+            extractor.selectTrack(0);
+            MediaFormat format = extractor.getTrackFormat(0);
+            muxer = new MediaMuxer(mp4.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            int track = muxer.addTrack(format);
+            muxer.start();
+            ByteBuffer buffer = ByteBuffer.allocate(format.containsKey(MediaFormat.KEY_MAX_INPUT_SIZE)
+                    ? format.getInteger(MediaFormat.KEY_MAX_INPUT_SIZE) : 64 * 1024);
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            int size;
+            while ((size = extractor.readSampleData(buffer, 0)) >= 0) {
+                // Todo frame AAC é sync; SAMPLE_FLAG_SYNC e BUFFER_FLAG_KEY_FRAME têm o mesmo valor
+                info.set(0, size, extractor.getSampleTime(), extractor.getSampleFlags());
+                muxer.writeSampleData(track, buffer, info);
+                extractor.advance();
+            }
+            muxer.stop();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // MediaMuxer/MediaExtractor falham com exceções de runtime
+            throw new IOException("Falha ao gerar m4a", e);
+        } finally {
+            if (muxer != null) {
+                muxer.release();
+            }
+            extractor.release();
+        }
+    }
+
+    private void abortSinks() {
+        for (AudioChunkSink sink : sinks) {
+            sink.abort();
+        }
+    }
+
+    /** PCM já filtrado aguardando espaço nos buffers de entrada do encoder. */
+    private static final class PendingPcm implements SilenceTrimmer.Output {
+        private byte[] data = new byte[READ_BUFFER_BYTES * 4];
+        private int start;
+        private int end;
+
+        @Override
+        public void write(byte[] pcm, int offset, int length) {
+            if (end + length > data.length) {
+                int size = end - start;
+                if (size + length > data.length) {
+                    // O pré-roll pode liberar vários frames de uma vez
+                    byte[] grown = new byte[Math.max(data.length * 2, size + length)];
+                    System.arraycopy(data, start, grown, 0, size);
+                    data = grown;
+                } else {
+                    System.arraycopy(data, start, data, 0, size);
+                }
+                start = 0;
+                end = size;
+            }
+            System.arraycopy(pcm, offset, data, end, length);
+            end += length;
+        }
+
+        boolean isEmpty() {
+            return start == end;
+        }
+
+        int drainTo(ByteBuffer target) {
+            // Mantém amostras de 16 bits inteiras em cada buffer
+            int count = Math.min(end - start, target.remaining()) & ~1;
+            target.put(data, start, count);
+            start += count;
+            if (start == end) {
+                start = 0;
+                end = 0;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.finaudy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Somas e contagens de lançamentos por categoria, mês ou conta num intervalo de datas, para
+ * o dashboard, os orçamentos e os gráficos. Os lançamentos ficam em colunas de primitivos
+ * (centavos em long, categoria e conta como índices de dicionário, dia como epoch day), então
+ * uma consulta é uma passada sequencial sem objetos nem hashing por linha; os grupos são
+ * acumulados em arrays densos indexados pelo código do grupo.
+ *
+ * Alterações de um lançamento (upsert/remove) atualizam só a linha dele.
+ */
+final class TransactionAggregator {
+
+    static final int TYPE_EXPENSE = 0;
+    static final int TYPE_INCOME = 1;
+    static final int TYPE_SAVINGS = 2;
+    static final int TYPE_COUNT = 3;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    enum GroupBy {
+        NONE, CATEGORY, MONTH, ACCOUNT
+    }
+
+    /** Totais de um grupo, por tipo de lançamento (TYPE_EXPENSE, TYPE_INCOME, TYPE_SAVINGS). */
+    static final class Group {
+        // Id da categoria/conta, "yyyy-MM" ou null (sem categoria, ou GroupBy.NONE)
+        final String key;
+        final long[] cents = new long[TYPE_COUNT];
+        final int[] counts = new int[TYPE_COUNT];
+
+        Group(String key) {
+            this.key = key;
+        }
+
+        int count() {
+            return counts[TYPE_EXPENSE] + counts[TYPE_INCOME] + counts[TYPE_SAVINGS];
+        }
+    }
+
+    /** Strings (ids de categoria e conta) ↔ códigos inteiros densos. */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        Integer find(String value) {
+            return codes.get(value);
+        }
+
+        String value(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+
+    private final Map<String, Integer> rowById = new HashMap<>();
+    private final Dictionary categories = new Dictionary();
+    private final Dictionary accounts = new Dictionary();
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private long[] cents = new long[INITIAL_CAPACITY];
+    private int[] category = new int[INITIAL_CAPACITY];
+    private int[] account = new int[INITIAL_CAPACITY];
+    private int[] day = new int[INITIAL_CAPACITY];
+    private int[] month = new int[INITIAL_CAPACITY];
+    private byte[] type = new byte[INITIAL_CAPACITY];
+    private int size;
+    private int minMonth = Integer.MAX_VALUE;
+    private int maxMonth = Integer.MIN_VALUE;
+
+    TransactionAggregator() {
+        // Código 0 fica reservado para lançamentos sem categoria
+        categories.code(null);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void upsert(String id, String accountId, String categoryId, int transactionType, long amountCents, int epochDay) {
+        if (transactionType < 0 || transactionType >= TYPE_COUNT) {
+            throw new IllegalArgumentException("Tipo de lançamento inválido: " + transactionType);
+        }
+        Integer existing = rowById.get(id);
+        int row;
+        if (existing != null) {
+            row = existing;
+        } else {
+            if (size == ids.length) {
+                grow();
+            }
+            row = size++;
+            ids[row] = id;
+            rowById.put(id, row);
+        }
+        int monthIndex = monthIndex(epochDay);
+        cents[row] = amountCents;
+        category[row] = categories.code(categoryId);
+        account[row] = accounts.code(accountId);
+        day[row] = epochDay;
+        month[row] = monthIndex;
+        type[row] = (byte) transactionType;
+        minMonth = Math.min(minMonth, monthIndex);
+        maxMonth = Math.max(maxMonth, monthIndex);
+    }
+
+    /**
+     * Lê a linha como vem do Supabase/espelho offline (id, amount, type, date, category_id).
+     *
+     * @return false se a linha não tem os campos necessários e foi ignorada
+     */
+    boolean upsert(String accountId, Map<String, Object> row) {
+        String id = Json.string(row, "id");
+        int transactionType = type(Json.string(row, "type"));
+        String date = Json.string(row, "date");
+        Object amount = row.get("amount");
+        if (id == null || transactionType < 0 || date == null || !(amount instanceof Number)) {
+            return false;
+        }
+        int epochDay;
+        try {
+            epochDay = epochDay(date);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        upsert(id, accountId, Json.string(row, "category_id"), transactionType, cents((Number) amount), epochDay);
+        return true;
+    }
+
+    /** Remove trocando com a última linha, para as colunas continuarem densas. */
+    synchronized boolean remove(String id) {
+        Integer removed = rowById.remove(id);
+        if (removed == null) {
+            return false;
+        }
+        int last = --size;
+        if (removed != last) {
+            move(last, removed);
+        }
+        ids[last] = null;
+        return true;
+    }
+
+    synchronized int removeAccount(String accountId) {
+        Integer code = accounts.find(accountId);
+        if (code == null) {
+            return 0;
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (account[i] == code) {
+                rowById.remove(ids[i]);
+            } else {
+                if (kept != i) {
+                    move(i, kept);
+                }
+                kept++;
+            }
+        }
+        int removed = size - kept;
+        Arrays.fill(ids, kept, size, null);
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * @param fromDay   primeiro dia (epoch day) incluído; Integer.MIN_VALUE para sem limite
+     * @param toDay     último dia incluído; Integer.MAX_VALUE para sem limite
+     * @param accountIds contas consideradas; null para todas as carregadas
+     * @return grupos com ao menos um lançamento; por mês em ordem cronológica
+     */
+    synchronized List<Group> aggregate(int fromDay, int toDay, Collection<String> accountIds, GroupBy groupBy) {
+        boolean[] accountMask = null;
+        if (accountIds != null) {
+            accountMask = new boolean[accounts.size()];
+            for (String accountId : accountIds) {
+                Integer code = accounts.find(accountId);
+                if (code != null) {
+                    accountMask[code] = true;
+                }
+            }
+        }
+
+        int base = 0;
+        int groups;
+        switch (groupBy) {
+            case CATEGORY:
+                groups = categories.size();
+                break;
+            case ACCOUNT:
+                groups = accounts.size();
+                break;
+            case MONTH:
+                if (size == 0) {
+                    return new ArrayList<>();
+                }
+                base = Math.max(minMonth, fromDay == Integer.MIN_VALUE ? minMonth : monthIndex(fromDay));
+                int end = Math.min(maxMonth, toDay == Integer.MAX_VALUE ? maxMonth : monthIndex(toDay));
+                if (end < base) {
+                    return new ArrayList<>();
+                }
+                groups = end - base + 1;
+                break;
+            default:
+                groups = 1;
+        }
+
+        long[] sums = new long[groups * TYPE_COUNT];
+        int[] counts = new int[groups * TYPE_COUNT];
+        int[] keys = groupBy == GroupBy.CATEGORY ? category
+                : groupBy == GroupBy.ACCOUNT ? account
+                : groupBy == GroupBy.MONTH ? month : null;
+        for (int i = 0; i < size; i++) {
+            int d = day[i];
+            if (d < fromDay || d > toDay) {
+                continue;
+            }
+            if (accountMask != null && !accountMask[account[i]]) {
+                continue;
+            }
+            int slot = (keys != null ? keys[i] - base : 0) * TYPE_COUNT + type[i];
+            sums[slot] += cents[i];
+            counts[slot]++;
+        }
+
+        List<Group> result = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            int offset = g * TYPE_COUNT;
+            if (counts[offset] + counts[offset + 1] + counts[offset + 2] == 0) {
+                continue;
+            }
+            Group group = new Group(groupKey(groupBy, g + base));
+            System.arraycopy(sums, offset, group.cents, 0, TYPE_COUNT);
+            System.arraycopy(counts, offset, group.counts, 0, TYPE_COUNT);
+            result.add(group);
+        }
+        return result;
+    }
+
+    private String groupKey(GroupBy groupBy, int code) {
+        switch (groupBy) {
+            case CATEGORY:
+                return categories.value(code);
+            case ACCOUNT:
+                return accounts.value(code);
+            case MONTH:
+                return monthKey(code);
+            default:
+                return null;
+        }
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        cents[to] = cents[from];
+        category[to] = category[from];
+        account[to] = account[from];
+        day[to] = day[from];
+        month[to] = month[from];
+        type[to] = type[from];
+        rowById.put(ids[to], to);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        category = Arrays.copyOf(category, capacity);
+        account = Arrays.copyOf(account, capacity);
+        day = Arrays.copyOf(day, capacity);
+        month = Arrays.copyOf(month, capacity);
+        type = Arrays.copyOf(type, capacity);
+    }
+
+    static int type(String value) {
+        if ("expense".equals(value)) {
+            return TYPE_EXPENSE;
+        }
+        if ("income".equals(value)) {
+            return TYPE_INCOME;
+        }
+        if ("savings".equals(value)) {
+            return TYPE_SAVINGS;
+        }
+        return -1;
+    }
+
+    /** amount é numeric(…, 2) no banco: arredonda para não acumular erro de double. */
+    static long cents(Number amount) {
+        if (amount instanceof Long || amount instanceof Integer) {
+            return amount.longValue() * 100;
+        }
+        return Math.round(amount.doubleValue() * 100);
+    }
+
+    /**
+     * "yyyy-MM-dd" (com ou sem hora depois) em dias desde 1970-01-01. Calculado à mão:
+     * java.time só existe a partir da API 26.
+     */
+    static int epochDay(String date) {
+        if (date.length() < 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            throw new IllegalArgumentException("Data inválida: " + date);
+        }
+        int year = Integer.parseInt(date.substring(0, 4));
+        int monthOfYear = Integer.parseInt(date.substring(5, 7));
+        int dayOfMonth = Integer.parseInt(date.substring(8, 10));
+        // Algoritmo days_from_civil (Howard Hinnant), com o ano começando em março
+        int y = monthOfYear <= 2 ? year - 1 : year;
+        int era = floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (monthOfYear + (monthOfYear > 2 ? -3 : 9)) + 2) / 5 + dayOfMonth - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /** Meses desde o ano 0 (ano * 12 + mês - 1) do epoch day. */
+    static int monthIndex(int epochDay) {
+        int z = epochDay + 719468;
+        int era = floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int monthOfYear = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (monthOfYear <= 2 ? 1 : 0);
+        return year * 12 + monthOfYear - 1;
+    }
+
+    // Math.floorDiv só existe a partir da API 24
+    private static int floorDiv(int x, int y) {
+        int q = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+
+    static String monthKey(int monthIndex) {
+        int year = floorDiv(monthIndex, 12);
+        int monthOfYear = monthIndex - year * 12 + 1;
+        return String.format(Locale.US, "%04d-%02d", year, monthOfYear);
+    }
+}
@@ -0,0 +1,214 @@
+package com.finaudy;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Totais do dashboard e busca de lançamentos calculados sobre o espelho offline. Cada conta é
+ * carregada na primeira consulta e mantida em dia pelas escritas que passam pelo {@link OfflineBridge}.
+ */
+final class TransactionAnalyticsBridge implements OfflineBridge.ChangeListener {
+
+    private final OfflineBridge offline;
+    private final TransactionAggregator aggregator = new TransactionAggregator();
+    private final Set<String> aggregatedAccounts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // Índice de busca por conta, com os nomes de categoria usados nele
+    private final Map<String, TransactionSearchIndex> searchIndexes = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> searchCategoryNames = new ConcurrentHashMap<>();
+
+    TransactionAnalyticsBridge(OfflineBridge offline) {
+        this.offline = offline;
+    }
+
+    @Override
+    public void onLocalChange(String table, String accountId, @Nullable String rowJson, @Nullable String removedId) {
+        if (OfflineBridge.TABLE_TRANSACTIONS.equals(table)) {
+            aggregateTransaction(accountId, rowJson, removedId);
+            indexTransaction(accountId, rowJson, removedId);
+        } else if (OfflineBridge.TABLE_CATEGORIES.equals(table)) {
+            invalidateSearchIndex(accountId);
+        }
+    }
+
+    @Override
+    public void onServerChange(String accountId) {
+        // Recarrega os totais da conta na próxima consulta, já com o que veio do servidor
+        synchronized (aggregator) {
+            aggregatedAccounts.remove(accountId);
+            aggregator.removeAccount(accountId);
+        }
+        invalidateSearchIndex(accountId);
+    }
+
+    /** Fora da UI thread: totais e índices são refeitos do espelho na próxima consulta. */
+    void trimMemory() {
+        synchronized (aggregator) {
+            for (String accountId : aggregatedAccounts) {
+                aggregator.removeAccount(accountId);
+            }
+            aggregatedAccounts.clear();
+        }
+        synchronized (searchIndexes) {
+            searchIndexes.clear();
+            searchCategoryNames.clear();
+        }
+    }
+
+    private void loadAggregates(String accountId) {
+        if (aggregatedAccounts.contains(accountId)) {
+            return;
+        }
+        // O lock cobre a leitura do espelho: uma escrita concorrente entra depois da carga
+        synchronized (aggregator) {
+            if (aggregatedAccounts.contains(accountId)) {
+                return;
+            }
+            for (String json : offline.storage().query(OfflineBridge.TABLE_TRANSACTIONS, accountId)) {
+                aggregator.upsert(accountId, Json.parseObject(json));
+            }
+            aggregatedAccounts.add(accountId);
+        }
+    }
+
+    /** Mantém os totais em dia com uma escrita local (rowJson) ou remoção (removedId). */
+    private void aggregateTransaction(String accountId, @Nullable String rowJson, @Nullable String removedId) {
+        synchronized (aggregator) {
+            if (!aggregatedAccounts.contains(accountId)) {
+                return;
+            }
+            if (rowJson != null) {
+                aggregator.upsert(accountId, Json.parseObject(rowJson));
+            } else {
+                aggregator.remove(removedId);
+            }
+        }
+    }
+
+    private TransactionSearchIndex loadSearchIndex(String accountId) {
+        TransactionSearchIndex index = searchIndexes.get(accountId);
+        if (index != null) {
+            return index;
+        }
+        // Mesmo esquema dos totais: o lock cobre a leitura do espelho
+        synchronized (searchIndexes) {
+            index = searchIndexes.get(accountId);
+            if (index != null) {
+                return index;
+            }
+            Map<String, String> categoryNames = new HashMap<>();
+            for (String json : offline.storage().query(OfflineBridge.TABLE_CATEGORIES, accountId)) {
+                Map<String, Object> row = Json.parseObject(json);
+                categoryNames.put(Json.string(row, "id"), Json.string(row, "name"));
+            }
+            index = new TransactionSearchIndex();
+            for (String json : offline.storage().query(OfflineBridge.TABLE_TRANSACTIONS, accountId)) {
+                Map<String, Object> row = Json.parseObject(json);
+                index.put(row, categoryNames.get(Json.string(row, "category_id")));
+            }
+            searchCategoryNames.put(accountId, categoryNames);
+            searchIndexes.put(accountId, index);
+            return index;
+        }
+    }
+
+    /** Mantém o índice de busca em dia com uma escrita local (rowJson) ou remoção (removedId). */
+    private void indexTransaction(String accountId, @Nullable String rowJson, @Nullable String removedId) {
+        synchronized (searchIndexes) {
+            TransactionSearchIndex index = searchIndexes.get(accountId);
+            if (index == null) {
+                return;
+            }
+            if (rowJson != null) {
+                Map<String, Object> row = Json.parseObject(rowJson);
+                index.put(row, searchCategoryNames.get(accountId).get(Json.string(row, "category_id")));
+            } else {
+                index.remove(removedId);
+            }
+        }
+    }
+
+    /** Categoria renomeada ou dados novos do servidor: remonta o índice na próxima busca. */
+    private void invalidateSearchIndex(String accountId) {
+        synchronized (searchIndexes) {
+            searchIndexes.remove(accountId);
+            searchCategoryNames.remove(accountId);
+        }
+    }
+
+    void register(MessagePortBridge bridge) {
+        // {accountIds: [...], from: "yyyy-MM-dd", to: "yyyy-MM-dd", groupBy: "category" | "month" | "account" | "none"}
+        bridge.register("aggregateTransactions", call -> {
+            long start = SystemClock.elapsedRealtimeNanos();
+            List<String> accountIds = new ArrayList<>();
+            JSONArray ids = call.params.optJSONArray("accountIds");
+            if (ids != null) {
+                for (int i = 0; i < ids.length(); i++) {
+                    accountIds.add(ids.getString(i));
+                }
+            } else {
+                accountIds.add(offline.requireAccount(call.params));
+            }
+            for (String accountId : accountIds) {
+                loadAggregates(accountId);
+            }
+            String from = call.optString("from");
+            String to = call.optString("to");
+            TransactionAggregator.GroupBy groupBy = TransactionAggregator.GroupBy.valueOf(
+                    call.params.optString("groupBy", "none").toUpperCase(Locale.US));
+            List<TransactionAggregator.Group> groups = aggregator.aggregate(
+                    from != null ? TransactionAggregator.epochDay(from) : Integer.MIN_VALUE,
+                    to != null ? TransactionAggregator.epochDay(to) : Integer.MAX_VALUE,
+                    accountIds, groupBy);
+
+            JSONArray items = new JSONArray();
+            for (TransactionAggregator.Group group : groups) {
+                JSONObject item = new JSONObject();
+                item.put("key", group.key != null ? group.key : JSONObject.NULL);
+                item.put("cents", new JSONArray(Arrays.asList(group.cents[0], group.cents[1], group.cents[2])));
+                item.put("counts", new JSONArray(Arrays.asList(group.counts[0], group.counts[1], group.counts[2])));
+                items.put(item);
+            }
+            JSONObject result = new JSONObject();
+            result.put("groups", items);
+            // 0 enquanto o primeiro sync não trouxe os lançamentos: a página usa o Supabase
+            List<TransactionAggregator.Group> all = aggregator.aggregate(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    accountIds, TransactionAggregator.GroupBy.NONE);
+            result.put("accountRows", all.isEmpty() ? 0 : all.get(0).count());
+            result.put("elapsedMs", (SystemClock.elapsedRealtimeNanos() - start) / 1e6);
+            call.resolve(result);
+        });
+        // {accountId, query, from: "yyyy-MM-dd", to: "yyyy-MM-dd", offset, limit}
+        bridge.register("searchTransactions", call -> {
+            long start = SystemClock.elapsedRealtimeNanos();
+            TransactionSearchIndex index = loadSearchIndex(offline.requireAccount(call.params));
+            String from = call.optString("from");
+            String to = call.optString("to");
+            TransactionSearchIndex.Page page = index.search(call.params.optString("query", ""),
+                    from != null ? TransactionAggregator.epochDay(from) : Integer.MIN_VALUE,
+                    to != null ? TransactionAggregator.epochDay(to) : Integer.MAX_VALUE,
+                    call.params.optInt("offset", 0), call.params.optInt("limit", 50));
+            JSONObject result = new JSONObject();
+            result.put("ids", new JSONArray(page.ids));
+            result.put("total", page.total);
+            result.put("fuzzy", page.fuzzy);
+            // 0 enquanto o espelho está vazio: a página filtra o que tem em memória
+            result.put("indexed", index.size());
+            result.put("elapsedMs", (SystemClock.elapsedRealtimeNanos() - start) / 1e6);
+            call.resolve(result);
+        });
+    }
+}
@@ -0,0 +1,571 @@
+package com.finaudy;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Índice invertido de trigramas para a busca de lançamentos (descrição, categoria, forma de
+ * pagamento, notas e valor). O texto é normalizado sem acentos e em minúsculas, então
+ * "credito" acha "Crédito"; cada termo da busca precisa casar (AND):
+ * <ul>
+ *   <li>com 3+ caracteres, como substring de uma palavra (interseção das listas de trigramas
+ *   e conferência na palavra);</li>
+ *   <li>com 1–2 caracteres, como prefixo de uma palavra (trigramas com marcador de início);</li>
+ *   <li>sem nenhum resultado exato e com 4+ caracteres, aproximado: até 1 erro de digitação
+ *   (2 a partir de 7 caracteres) contra o começo de uma palavra.</li>
+ * </ul>
+ * Resultados vêm ordenados por relevância e depois pela data mais recente, em páginas.
+ * Remoções (e reindexações, que removem a versão anterior) só marcam o documento; as listas
+ * são recompactadas quando metade está morta.
+ */
+final class TransactionSearchIndex {
+
+    // Alfabeto após a normalização: marcador de início/fim, a-z, 0-9 e '.' (decimais)
+    private static final char MARKER = '^';
+    private static final int ALPHABET = 38;
+    private static final int SCORE_PREFIX = 3;
+    private static final int SCORE_SUBSTRING = 2;
+    private static final int SCORE_FUZZY = 1;
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    static final class Page {
+        final List<String> ids;
+        final int total;
+        // Algum termo só casou de forma aproximada
+        final boolean fuzzy;
+
+        Page(List<String> ids, int total, boolean fuzzy) {
+            this.ids = ids;
+            this.total = total;
+            this.fuzzy = fuzzy;
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private final Map<String, Integer> docById = new HashMap<>();
+    private IntList[] postings = new IntList[ALPHABET * ALPHABET * ALPHABET];
+    private String[] docIds = new String[256];
+    private String[][] docTokens = new String[256][];
+    private int[] docDay = new int[256];
+    private String[] docCreatedAt = new String[256];
+    private int docCount;
+    private int live;
+
+    synchronized int size() {
+        return live;
+    }
+
+    /** Documentos na tabela, inclusive os removidos ainda não compactados. */
+    synchronized int docCount() {
+        return docCount;
+    }
+
+    /**
+     * Indexa (ou reindexa) um lançamento.
+     *
+     * @param day       epoch day do lançamento, para ordenar e filtrar por período
+     * @param createdAt desempate entre lançamentos do mesmo dia (ISO 8601)
+     */
+    synchronized void put(String id, String text, int day, String createdAt) {
+        removeDoc(id);
+        String[] tokens = tokens(normalize(text));
+        if (docCount == docIds.length) {
+            int capacity = docCount * 2;
+            docIds = Arrays.copyOf(docIds, capacity);
+            docTokens = Arrays.copyOf(docTokens, capacity);
+            docDay = Arrays.copyOf(docDay, capacity);
+            docCreatedAt = Arrays.copyOf(docCreatedAt, capacity);
+        }
+        int doc = docCount++;
+        docIds[doc] = id;
+        docTokens[doc] = tokens;
+        docDay[doc] = day;
+        docCreatedAt[doc] = createdAt != null ? createdAt : "";
+        docById.put(id, doc);
+        live++;
+        index(doc, tokens);
+        // Editar o mesmo lançamento várias vezes também deixa documentos mortos
+        compactIfMostlyDead();
+    }
+
+    /**
+     * Lê a linha como vem do Supabase/espelho offline (id, description, amount, date,
+     * payment_method, notes, created_at); o nome da categoria vem de fora.
+     *
+     * @return false se a linha não tem id ou data válida e foi ignorada
+     */
+    boolean put(Map<String, Object> row, String categoryName) {
+        String id = Json.string(row, "id");
+        String date = Json.string(row, "date");
+        if (id == null || date == null) {
+            return false;
+        }
+        int day;
+        try {
+            day = TransactionAggregator.epochDay(date);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        StringBuilder text = new StringBuilder();
+        append(text, Json.string(row, "description"));
+        append(text, categoryName);
+        append(text, Json.string(row, "payment_method"));
+        append(text, Json.string(row, "notes"));
+        Object amount = row.get("amount");
+        if (amount instanceof Number) {
+            // "12.5" como a busca antiga (toString do JS) e "12.50"/"12,50" como aparece na tela
+            double value = ((Number) amount).doubleValue();
+            append(text, BigDecimal.valueOf(value).stripTrailingZeros().toPlainString());
+            append(text, String.format(Locale.US, "%.2f", value));
+        }
+        put(id, text.toString(), day, Json.string(row, "created_at"));
+        return true;
+    }
+
+    private static void append(StringBuilder text, String value) {
+        if (value != null) {
+            text.append(value).append(' ');
+        }
+    }
+
+    synchronized boolean remove(String id) {
+        boolean removed = removeDoc(id);
+        if (removed) {
+            compactIfMostlyDead();
+        }
+        return removed;
+    }
+
+    private void compactIfMostlyDead() {
+        if (docCount - live >= COMPACT_MIN_DEAD && docCount - live > live) {
+            compact();
+        }
+    }
+
+    /**
+     * @param fromDay primeiro dia incluído (Integer.MIN_VALUE para sem limite)
+     * @param toDay   último dia incluído (Integer.MAX_VALUE para sem limite)
+     */
+    synchronized Page search(String query, int fromDay, int toDay, int offset, int limit) {
+        String[] terms = tokens(normalize(query));
+        int[] scores = null;
+        boolean fuzzy = false;
+        for (String term : terms) {
+            int[] termScores = match(term, false);
+            if (isEmpty(termScores) && term.length() >= 4) {
+                termScores = match(term, true);
+                fuzzy = true;
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                // AND: documento precisa casar com todos os termos
+                for (int doc = 0; doc < docCount; doc++) {
+                    scores[doc] = scores[doc] == 0 || termScores[doc] == 0 ? 0 : scores[doc] + termScores[doc];
+                }
+            }
+        }
+
+        // Só as primeiras offset + limit posições precisam de ordem: heap com o pior no topo
+        int wanted = Math.max(0, offset) + Math.max(0, limit);
+        int[] heap = new int[Math.max(1, wanted)];
+        int heapSize = 0;
+        int total = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (docIds[doc] == null || docDay[doc] < fromDay || docDay[doc] > toDay
+                    || (scores != null && scores[doc] == 0)) {
+                continue;
+            }
+            total++;
+            if (heapSize < wanted) {
+                heap[heapSize] = doc;
+                siftUp(heap, heapSize++, scores);
+            } else if (wanted > 0 && rank(doc, heap[0], scores) < 0) {
+                heap[0] = doc;
+                siftDown(heap, heapSize, scores);
+            }
+        }
+        String[] ordered = new String[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ordered[i] = docIds[heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i, scores);
+        }
+        List<String> ids = new ArrayList<>();
+        for (int i = Math.max(0, offset); i < ordered.length; i++) {
+            ids.add(ordered[i]);
+        }
+        return new Page(ids, total, fuzzy);
+    }
+
+    /** Negativo se a vem antes de b: maior pontuação, dia mais recente, criado por último. */
+    private int rank(int a, int b, int[] scores) {
+        if (scores != null && scores[a] != scores[b]) {
+            return scores[b] - scores[a];
+        }
+        if (docDay[a] != docDay[b]) {
+            return docDay[b] > docDay[a] ? 1 : -1;
+        }
+        return docCreatedAt[b].compareTo(docCreatedAt[a]);
+    }
+
+    private void siftUp(int[] heap, int i, int[] scores) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (rank(heap[i], heap[parent], scores) <= 0) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size, int[] scores) {
+        int i = 0;
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && rank(heap[left], heap[worst], scores) > 0) {
+                worst = left;
+            }
+            if (right < size && rank(heap[right], heap[worst], scores) > 0) {
+                worst = right;
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(heap, i, worst);
+            i = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int value = heap[i];
+        heap[i] = heap[j];
+        heap[j] = value;
+    }
+
+    /** Pontuação do termo por documento (0 = não casou). */
+    private int[] match(String term, boolean fuzzy) {
+        int[] scores = new int[docCount];
+        if (fuzzy) {
+            matchFuzzy(term, scores);
+            return scores;
+        }
+        if (term.length() < 3) {
+            // O trigrama com marcador já garante uma palavra começando pelo termo
+            if (term.length() == 2) {
+                markPrefix(postings[gram(MARKER, term.charAt(0), term.charAt(1))], scores);
+            } else {
+                int first = (code(MARKER) * ALPHABET + code(term.charAt(0))) * ALPHABET;
+                for (int c = 0; c < ALPHABET; c++) {
+                    markPrefix(postings[first + c], scores);
+                }
+            }
+            return scores;
+        }
+        IntList candidates = intersect(trigrams(term));
+        for (int i = 0; i < candidates.size; i++) {
+            int doc = candidates.values[i];
+            if (docIds[doc] == null) {
+                continue;
+            }
+            int best = 0;
+            for (String token : docTokens[doc]) {
+                if (token.startsWith(term)) {
+                    best = SCORE_PREFIX;
+                    break;
+                }
+                if (token.contains(term)) {
+                    best = SCORE_SUBSTRING;
+                }
+            }
+            scores[doc] = best;
+        }
+        return scores;
+    }
+
+    private void matchFuzzy(String term, int[] scores) {
+        int maxEdits = term.length() >= 7 ? 2 : 1;
+        int[] grams = paddedTrigrams(term);
+        // Com k edições, ao menos (trigramas - 3k) continuam iguais
+        int threshold = Math.max(1, grams.length - 3 * maxEdits);
+        int[] hits = new int[docCount];
+        for (int gram : grams) {
+            IntList list = postings[gram];
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                hits[list.values[i]]++;
+            }
+        }
+        for (int doc = 0; doc < docCount; doc++) {
+            if (hits[doc] < threshold || docIds[doc] == null) {
+                continue;
+            }
+            for (String token : docTokens[doc]) {
+                if (prefixDistance(term, token, maxEdits) <= maxEdits) {
+                    scores[doc] = SCORE_FUZZY;
+                    break;
+                }
+            }
+        }
+    }
+
+    private IntList intersect(int[] grams) {
+        IntList[] lists = new IntList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings[grams[i]];
+            if (lists[i] == null) {
+                return new IntList();
+            }
+        }
+        // Começa pela lista mais curta; as listas estão em ordem crescente de documento
+        Arrays.sort(lists, new Comparator<IntList>() {
+            @Override
+            public int compare(IntList a, IntList b) {
+                return a.size - b.size;
+            }
+        });
+        IntList result = new IntList();
+        int[] cursors = new int[lists.length];
+        outer:
+        for (int i = 0; i < lists[0].size; i++) {
+            int doc = lists[0].values[i];
+            for (int l = 1; l < lists.length; l++) {
+                IntList list = lists[l];
+                int c = cursors[l];
+                while (c < list.size && list.values[c] < doc) {
+                    c++;
+                }
+                cursors[l] = c;
+                if (c == list.size) {
+                    break outer;
+                }
+                if (list.values[c] != doc) {
+                    continue outer;
+                }
+            }
+            result.add(doc);
+        }
+        return result;
+    }
+
+    private void markPrefix(IntList list, int[] scores) {
+        if (list == null) {
+            return;
+        }
+        for (int i = 0; i < list.size; i++) {
+            int doc = list.values[i];
+            if (docIds[doc] != null) {
+                scores[doc] = SCORE_PREFIX;
+            }
+        }
+    }
+
+    private void index(int doc, String[] tokens) {
+        int count = 0;
+        for (String token : tokens) {
+            count += token.length();
+        }
+        int[] grams = new int[count];
+        count = 0;
+        for (String token : tokens) {
+            int[] tokenGrams = paddedTrigrams(token);
+            System.arraycopy(tokenGrams, 0, grams, count, tokenGrams.length);
+            count += tokenGrams.length;
+        }
+        // Cada documento entra uma vez por trigrama, mesmo repetido no texto
+        Arrays.sort(grams, 0, count);
+        for (int g = 0; g < count; g++) {
+            int gram = grams[g];
+            if (g > 0 && gram == grams[g - 1]) {
+                continue;
+            }
+            IntList list = postings[gram];
+            if (list == null) {
+                list = new IntList();
+                postings[gram] = list;
+            }
+            list.add(doc);
+        }
+    }
+
+    private boolean removeDoc(String id) {
+        Integer doc = docById.remove(id);
+        if (doc == null) {
+            return false;
+        }
+        docIds[doc] = null;
+        docTokens[doc] = null;
+        live--;
+        return true;
+    }
+
+    /** Renumera os documentos vivos e refaz as listas sem os removidos. */
+    private void compact() {
+        postings = new IntList[postings.length];
+        docById.clear();
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (docIds[doc] == null) {
+                continue;
+            }
+            docIds[next] = docIds[doc];
+            docTokens[next] = docTokens[doc];
+            docDay[next] = docDay[doc];
+            docCreatedAt[next] = docCreatedAt[doc];
+            docById.put(docIds[next], next);
+            index(next, docTokens[next]);
+            next++;
+        }
+        Arrays.fill(docIds, next, docCount, null);
+        Arrays.fill(docTokens, next, docCount, null);
+        docCount = next;
+    }
+
+    private static boolean isEmpty(int[] scores) {
+        for (int score : scores) {
+            if (score > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Trigramas internos da palavra (para substring). */
+    private static int[] trigrams(String token) {
+        int[] grams = new int[token.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = gram(token.charAt(i), token.charAt(i + 1), token.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    /** Trigramas de "^palavra^": os internos mais os que marcam início e fim. */
+    private static int[] paddedTrigrams(String token) {
+        String padded = MARKER + token + MARKER;
+        return trigrams(padded);
+    }
+
+    private static int gram(char a, char b, char c) {
+        return (code(a) * ALPHABET + code(b)) * ALPHABET + code(c);
+    }
+
+    private static int code(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return 1 + c - 'a';
+        }
+        if (c >= '0' && c <= '9') {
+            return 27 + c - '0';
+        }
+        return c == '.' ? 37 : 0;
+    }
+
+    /**
+     * Menor distância de edição entre o termo e algum prefixo da palavra ("mercdo" ~ "mercado
+     * livre"), parando cedo quando já passou de max.
+     */
+    static int prefixDistance(String term, String token, int max) {
+        int n = token.length();
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= term.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= n; j++) {
+                int cost = term.charAt(i - 1) == token.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return rowMin;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int j = 0; j <= n; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    /**
+     * Minúsculas sem acentos; vírgula entre dígitos vira ponto ("12,50" = "12.50") e o resto
+     * que não é letra, dígito ou ponto decimal vira espaço.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        // Texto só ASCII (o caso comum) não precisa da decomposição
+        String decomposed = isAscii(lower) ? lower : Normalizer.normalize(lower, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            boolean digitsAround = i > 0 && i + 1 < decomposed.length()
+                    && Character.isDigit(decomposed.charAt(i - 1)) && Character.isDigit(decomposed.charAt(i + 1));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                out.append(c);
+            } else if ((c == '.' || c == ',') && digitsAround) {
+                out.append('.');
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // Acento separado da letra pelo NFD
+                continue;
+            } else {
+                out.append(' ');
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] tokens(String normalized) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean space = i == normalized.length() || normalized.charAt(i) == ' ';
+            if (space && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            } else if (!space && start < 0) {
+                start = i;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,79 @@
+package com.finaudy;
+
+/**
+ * Classifica frames PCM 16 bits (little-endian) como fala ou silêncio pela energia.
+ * O piso de ruído é o menor nível das últimas janelas, então acompanha o ambiente
+ * (carro, rua) sem depender de calibração. Os primeiros primeFrames só formam o piso e
+ * contam como silêncio; quem chama guarda esses frames (o pré-roll do {@link SilenceTrimmer})
+ * para não perder uma fala que comece logo. Daí até a janela encher, o piso é o menor
+ * nível visto até então.
+ */
+final class VoiceActivityDetector {
+
+    static final double SILENCE_DBFS = -120.0;
+
+    private final double thresholdDb;
+    private final double minSpeechDbfs;
+    private final double[] levels;
+    private final int primeFrames;
+    private int levelCount;
+    private int nextLevel;
+    private double lastLevelDbfs = SILENCE_DBFS;
+
+    VoiceActivityDetector(int noiseWindowFrames, int primeFrames, double thresholdDb, double minSpeechDbfs) {
+        if (noiseWindowFrames <= 0) {
+            throw new IllegalArgumentException("noiseWindowFrames deve ser positivo: " + noiseWindowFrames);
+        }
+        this.levels = new double[noiseWindowFrames];
+        this.primeFrames = Math.max(1, Math.min(primeFrames, noiseWindowFrames));
+        this.thresholdDb = thresholdDb;
+        this.minSpeechDbfs = minSpeechDbfs;
+    }
+
+    boolean isSpeech(byte[] pcm, int offset, int length) {
+        double level = levelDbfs(pcm, offset, length);
+        boolean speech = levelCount >= primeFrames && level >= minSpeechDbfs
+                && level >= noiseFloorDbfs() + thresholdDb;
+        levels[nextLevel] = level;
+        nextLevel = (nextLevel + 1) % levels.length;
+        if (levelCount < levels.length) {
+            levelCount++;
+        }
+        lastLevelDbfs = level;
+        return speech;
+    }
+
+    /** Piso de ruído estimado; {@link #SILENCE_DBFS} enquanto não há frames suficientes. */
+    double noiseFloorDbfs() {
+        if (levelCount < primeFrames) {
+            return SILENCE_DBFS;
+        }
+        // Com a janela incompleta os níveis estão em levels[0..levelCount)
+        double min = levels[0];
+        for (int i = 1; i < levelCount; i++) {
+            min = Math.min(min, levels[i]);
+        }
+        return min;
+    }
+
+    double lastLevelDbfs() {
+        return lastLevelDbfs;
+    }
+
+    static double levelDbfs(byte[] pcm, int offset, int length) {
+        int samples = length / 2;
+        if (samples == 0) {
+            return SILENCE_DBFS;
+        }
+        double sumSquares = 0;
+        for (int i = offset, end = offset + samples * 2; i < end; i += 2) {
+            double sample = (short) ((pcm[i] & 0xFF) | (pcm[i + 1] << 8)) / 32768.0;
+            sumSquares += sample * sample;
+        }
+        double meanSquare = sumSquares / samples;
+        if (meanSquare <= 0) {
+            return SILENCE_DBFS;
+        }
+        return Math.max(SILENCE_DBFS, 10 * Math.log10(meanSquare));
+    }
+}
@@ -1,7 +1,6 @@
 package com.finaudy;
 
 import android.content.Context;
-import android.content.Intent;
 import android.util.Log;
 import android.webkit.JavascriptInterface;
 import android.widget.Toast;
@@ -10,73 +9,169 @@ import android.Manifest;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.android.gms.auth.api.signin.GoogleSignIn;
-import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
-import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 
 public class WebAppInterface {
     Context mContext;
+    private final BridgeMetrics metrics = BridgeMetrics.shared();
 
     WebAppInterface(Context c) {
         mContext = c;
     }
 
+    /** Roda a entrada medindo tempo, bytes recebidos e thread (a JavaBridge, em geral) em "js.method". */
+    private void track(String method, long bytesIn, Runnable body) {
+        long start = metrics.start();
+        boolean ok = false;
+        try {
+            body.run();
+            ok = true;
+        } finally {
+            metrics.record(BridgeMetrics.PREFIX_JS + method, start, bytesIn, 0, ok);
+        }
+    }
+
+    private static long length(String... args) {
+        long total = 0;
+        for (String arg : args) {
+            total += arg != null ? arg.length() : 0;
+        }
+        return total;
+    }
+
     @JavascriptInterface
     public void showToast(String toast) {
-        Toast.makeText(mContext, toast, Toast.LENGTH_SHORT).show();
+        track("showToast", length(toast), () -> Toast.makeText(mContext, toast, Toast.LENGTH_SHORT).show());
     }
 
     @JavascriptInterface
     public void requestCameraPermission() {
-        if (mContext instanceof MainActivity) {
-            ((MainActivity) mContext).requestSpecificPermission(Manifest.permission.CAMERA);
-        }
+        track("requestCameraPermission", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).requestSpecificPermission(Manifest.permission.CAMERA);
+            }
+        });
     }
 
     @JavascriptInterface
     public void requestMicrophonePermission() {
-        if (mContext instanceof MainActivity) {
-            ((MainActivity) mContext).requestSpecificPermission(Manifest.permission.RECORD_AUDIO);
-        }
+        track("requestMicrophonePermission", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).requestSpecificPermission(Manifest.permission.RECORD_AUDIO);
+            }
+        });
     }
 
     @JavascriptInterface
     public void startAudioRecording() {
-        if (mContext instanceof MainActivity) {
-            ((MainActivity) mContext).startAudioRecording();
-        }
+        track("startAudioRecording", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).startAudioRecording();
+            }
+        });
+    }
+
+    @JavascriptInterface
+    public void startStreamingAudioRecording(String uploadUrl, String headersJson) {
+        track("startStreamingAudioRecording", length(uploadUrl, headersJson), () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).startStreamingAudioRecording(uploadUrl, headersJson);
+            }
+        });
+    }
+
+    @JavascriptInterface
+    public void setVoiceActivityOptions(String optionsJson) {
+        track("setVoiceActivityOptions", length(optionsJson), () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).setVoiceActivityOptions(optionsJson);
+            }
+        });
     }
 
     @JavascriptInterface
     public void stopAudioRecording() {
-        if (mContext instanceof MainActivity) {
-            ((MainActivity) mContext).stopAudioRecording();
-        }
+        track("stopAudioRecording", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).stopAudioRecording();
+            }
+        });
     }
 
     @JavascriptInterface
     public void openCamera() {
-        if (mContext instanceof MainActivity) {
-            ((MainActivity) mContext).openCamera();
-        }
+        openCamera(null);
+    }
+
+    /** @param optionsJson orçamento e formato da imagem: {"maxBytes": 800000, "format": "jpeg" | "webp"} */
+    @JavascriptInterface
+    public void openCamera(String optionsJson) {
+        track("openCamera", length(optionsJson), () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).openCamera(optionsJson);
+            }
+        });
     }
 
     @JavascriptInterface
     public void requestNotificationPermission() {
-        if (mContext instanceof MainActivity) {
-            ((MainActivity) mContext).requestNotificationPermission();
-        }
+        track("requestNotificationPermission", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).requestNotificationPermission();
+            }
+        });
     }
 
     @JavascriptInterface
     public void launchPurchaseFlow(String productId) {
-        if (mContext instanceof MainActivity) {
-            ((MainActivity) mContext).launchPurchaseFlow(productId);
-        }
+        track("launchPurchaseFlow", length(productId), () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).launchPurchaseFlow(productId);
+            }
+        });
+    }
+
+    @JavascriptInterface
+    public void configureHttpCache(String configJson) {
+        track("configureHttpCache", length(configJson), () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).configureHttpCache(configJson);
+            }
+        });
+    }
+
+    @JavascriptInterface
+    public void clearHttpCache() {
+        track("clearHttpCache", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).clearHttpCache();
+            }
+        });
+    }
+
+    @JavascriptInterface
+    public void prepareBilling() {
+        track("prepareBilling", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).prepareBilling();
+            }
+        });
+    }
+
+    @JavascriptInterface
+    public void notifyWebReady() {
+        track("notifyWebReady", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).onWebReady();
+            }
+        });
     }
 
     @JavascriptInterface
     public void getFCMToken() {
+        track("getFCMToken", 0, this::requestFCMToken);
+    }
+
+    private void requestFCMToken() {
         FirebaseMessaging.getInstance().getToken()
                 .addOnCompleteListener(new OnCompleteListener<String>() {
                     @Override
@@ -88,87 +183,85 @@ public class WebAppInterface {
 
                         // Get new FCM registration token
                         String token = task.getResult();
+                        // O registro no servidor é nativo; a página só guarda o token
+                        PushTokenWorker.onToken(mContext, token);
 
-                        // Log and toast
-                        String msg = "FCM Registration Token: " + token;
-                        Log.d("WebAppInterface", msg);
-                        Toast.makeText(mContext, msg, Toast.LENGTH_SHORT).show();
-                        
-                        // You can now send this token to your webview
-                        // For example, by calling a javascript function in your webview
-                        ((MainActivity)mContext).runOnUiThread(new Runnable() {
-                            @Override
-                            public void run() {
-                                ((MainActivity)mContext).getWebView().evaluateJavascript("javascript: onFCMTokenReceived('" + token + "');", null);
-                            }
-                        });
+                        ((MainActivity)mContext).getEventBus().postLatest("onFCMTokenReceived", token);
                     }
                 });
     }
 
     @JavascriptInterface
     public void openGallery() {
-        if (mContext instanceof MainActivity) {
-            ((MainActivity) mContext).openGallery();
-        }
+        openGallery(null);
+    }
+
+    /** @param optionsJson orçamento e formato da imagem: {"maxBytes": 800000, "format": "jpeg" | "webp"} */
+    @JavascriptInterface
+    public void openGallery(String optionsJson) {
+        track("openGallery", length(optionsJson), () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).openGallery(optionsJson);
+            }
+        });
     }
 
     @JavascriptInterface
     public void openFileChooser(String acceptType) {
-        if (mContext instanceof MainActivity) {
-            ((MainActivity) mContext).openFileChooser(acceptType);
-        }
+        track("openFileChooser", length(acceptType), () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).openFileChooser(acceptType);
+            }
+        });
+    }
+
+    @JavascriptInterface
+    public void releaseNativeBlob(String urlOrId) {
+        track("releaseNativeBlob", length(urlOrId), () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).releaseNativeBlob(urlOrId);
+            }
+        });
     }
 
     @JavascriptInterface
     public void signInWithGoogle() {
-        Log.d("WebAppInterface", "🚀 signInWithGoogle() chamado pelo JavaScript!");
-        
-        if (mContext instanceof MainActivity) {
-            MainActivity activity = (MainActivity) mContext;
-            
-            activity.runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        // Configurar Google Sign-In
-                        GoogleSignInOptions gso = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
-                                .requestIdToken(mContext.getString(R.string.web_client_id)) // WEB Client ID
-                                .requestEmail()
-                                .requestProfile()
-                                .build();
-                        
-                        GoogleSignInClient googleSignInClient = GoogleSignIn.getClient(activity, gso);
-                        
-                        Log.d("WebAppInterface", "📱 Google Sign-In Client configurado");
-                        
-                        // Limpar conta anterior para evitar cache/problemas
-                        googleSignInClient.signOut().addOnCompleteListener(task -> {
-                            Log.d("WebAppInterface", "🔄 Sign-out anterior concluído");
-                            
-                            // Iniciar o flow de sign-in
-                            Intent signInIntent = googleSignInClient.getSignInIntent();
-                            activity.startActivityForResult(signInIntent, MainActivity.RC_SIGN_IN);
-                            
-                            Log.d("WebAppInterface", "✅ Intent de sign-in iniciado");
-                        });
-                        
-                    } catch (Exception e) {
-                        Log.e("WebAppInterface", "💥 Erro no signInWithGoogle: " + e.getMessage(), e);
-                        
-                        // Enviar erro para JavaScript
-                        String script = String.format(
-                            "console.error('❌ Erro Android: %s'); if(window.onGoogleSignInError) { window.onGoogleSignInError('%s'); }",
-                            e.getMessage(),
-                            e.getMessage().replace("'", "\\'")
-                        );
-                        
-                        activity.runOnUiThread(() -> activity.getWebView().evaluateJavascript(script, null));
-                    }
-                }
-            });
-        } else {
-            Log.e("WebAppInterface", "❌ Context não é MainActivity!");
-        }
+        track("signInWithGoogle", 0, () -> {
+            Log.d("WebAppInterface", "🚀 signInWithGoogle() chamado pelo JavaScript!");
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).signInWithGoogle(false);
+            } else {
+                Log.e("WebAppInterface", "❌ Context não é MainActivity!");
+            }
+        });
+    }
+
+    /** Login mostrando o seletor de contas, para entrar com outra conta Google. */
+    @JavascriptInterface
+    public void chooseGoogleAccount() {
+        track("chooseGoogleAccount", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).signInWithGoogle(true);
+            }
+        });
+    }
+
+    /** Chamado no logout do app: o próximo login Google volta a mostrar o seletor de contas. */
+    @JavascriptInterface
+    public void signOutGoogle() {
+        track("signOutGoogle", 0, () -> {
+            if (mContext instanceof MainActivity) {
+                ((MainActivity) mContext).signOutGoogle();
+            }
+        });
+    }
+
+    /**
+     * Métricas da ponte em JSON: por entrada ("js.*", "port.*", "event.*", "flow.*",
+     * "evaluateJavascript") chamadas, erros, bytes, p50/p90/p99/max em ms e threads.
+     */
+    @JavascriptInterface
+    public String getBridgeMetrics() {
+        return Json.stringify(metrics.snapshot());
     }
 }
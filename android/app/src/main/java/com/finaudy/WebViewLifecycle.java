@@ -0,0 +1,213 @@
+package com.finaudy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decisões de ciclo de vida do WebView que não dependem do Android: o que restaurar quando o
+ * processo de renderização morre e quanto liberar em cada onTrimMemory. A página manda a rota
+ * e um snapshot do estado a cada mudança ({@link #saveState}); depois de uma queda a activity
+ * recria o WebView e a nova página busca os dois uma vez ({@link #takeRestore}).
+ *
+ * Quedas e avisos de memória ficam contados em disco para diagnóstico. Thread-safe.
+ */
+final class WebViewLifecycle {
+
+    interface Clock {
+        long millis();
+    }
+
+    /** O que liberar, do mais leve ao mais pesado; cada nível inclui os anteriores. */
+    enum Pressure {
+        // Nada na tela: caches em memória que só servem para desenhar rápido
+        UI_HIDDEN("ui_hidden"),
+        // O sistema começa a pedir memória: também índices e blobs que dá para refazer
+        LOW("low"),
+        // O processo está para ser morto: tudo que não é estado do usuário
+        CRITICAL("critical");
+
+        final String wireName;
+
+        Pressure(String wireName) {
+            this.wireName = wireName;
+        }
+    }
+
+    /** Rota e snapshot para a página recriada; ambos null quando a restauração foi descartada. */
+    static final class Restore {
+        final String route;
+        final String snapshot;
+        final long crashes;
+
+        Restore(String route, String snapshot, long crashes) {
+            this.route = route;
+            this.snapshot = snapshot;
+            this.crashes = crashes;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("route", route);
+            map.put("snapshot", snapshot);
+            map.put("crashes", crashes);
+            return map;
+        }
+    }
+
+    // Valores de ComponentCallbacks2, repetidos para os testes rodarem sem o Android
+    static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+    static final int TRIM_MEMORY_RUNNING_LOW = 10;
+    static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+    static final int TRIM_MEMORY_UI_HIDDEN = 20;
+    static final int TRIM_MEMORY_BACKGROUND = 40;
+    static final int TRIM_MEMORY_MODERATE = 60;
+    static final int TRIM_MEMORY_COMPLETE = 80;
+
+    // Uma segunda queda logo depois de restaurar sugere que o próprio estado derruba a página
+    static final long CRASH_LOOP_WINDOW_MS = 60_000;
+    // O snapshot passa pela ponte a cada navegação; mais que isso não é "estado da tela"
+    static final int MAX_SNAPSHOT_CHARS = 64 * 1024;
+
+    private final File file;
+    private final Clock clock;
+    private String route;
+    private String snapshot;
+    private Restore pendingRestore;
+    private long lastRestoreAt;
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+
+    WebViewLifecycle(File file, Clock clock) {
+        this.file = file;
+        this.clock = clock;
+        load();
+    }
+
+    /** Nível de onTrimMemory traduzido para o que liberar. */
+    static Pressure pressureFor(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            return Pressure.CRITICAL;
+        }
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW
+                || level == TRIM_MEMORY_RUNNING_MODERATE) {
+            return Pressure.LOW;
+        }
+        return Pressure.UI_HIDDEN;
+    }
+
+    /** Rota atual da página e, opcionalmente, o estado que ela quer de volta depois de uma queda. */
+    synchronized void saveState(String route, String snapshot) {
+        if (snapshot != null && snapshot.length() > MAX_SNAPSHOT_CHARS) {
+            throw new IllegalArgumentException("Snapshot com " + snapshot.length() + " caracteres (máximo "
+                    + MAX_SNAPSHOT_CHARS + ")");
+        }
+        this.route = route;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * O processo de renderização morreu (crashed=false: o sistema o matou por memória). Guarda
+     * o que a próxima página deve restaurar; numa queda repetida logo após uma restauração,
+     * a página volta do início.
+     */
+    synchronized Restore onRendererGone(boolean crashed) {
+        long now = clock.millis();
+        increment(crashed ? "rendererCrashes" : "rendererKills");
+        counters.put("lastRendererGoneAt", now);
+        boolean loop = lastRestoreAt > 0 && now - lastRestoreAt < CRASH_LOOP_WINDOW_MS;
+        if (loop) {
+            increment("restoresSkipped");
+            pendingRestore = new Restore(null, null, count("rendererCrashes") + count("rendererKills"));
+        } else {
+            pendingRestore = new Restore(route, snapshot, count("rendererCrashes") + count("rendererKills"));
+        }
+        lastRestoreAt = now;
+        route = null;
+        snapshot = null;
+        save();
+        return pendingRestore;
+    }
+
+    /** Uma vez por queda: a página recriada pergunta o que restaurar; null se não houve queda. */
+    synchronized Restore takeRestore() {
+        Restore restore = pendingRestore;
+        pendingRestore = null;
+        if (restore != null && restore.route != null) {
+            increment("restores");
+            save();
+        }
+        return restore;
+    }
+
+    synchronized void onTrimMemory(Pressure pressure) {
+        increment("trim." + pressure.wireName);
+        save();
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<String, Object>(counters);
+        stats.put("hasSnapshot", snapshot != null);
+        return stats;
+    }
+
+    private void increment(String counter) {
+        counters.put(counter, count(counter) + 1);
+    }
+
+    private long count(String counter) {
+        Long value = counters.get(counter);
+        return value != null ? value : 0;
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            Map<String, Object> state = Json.parseObject(new String(readBytes(new FileInputStream(file)),
+                    StandardCharsets.UTF_8));
+            for (Map.Entry<String, Object> entry : state.entrySet()) {
+                if (entry.getValue() instanceof Number) {
+                    counters.put(entry.getKey(), ((Number) entry.getValue()).longValue());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Contadores ilegíveis recomeçam do zero
+            counters.clear();
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                out.write(Json.stringify(counters).getBytes(StandardCharsets.UTF_8));
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Não foi possível substituir " + file);
+            }
+        } catch (IOException e) {
+            // Só diagnóstico: perder uma contagem não afeta a recuperação
+            tmp.delete();
+        }
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdtsFramerTest {
+
+    private static final int AAC_LC = 2;
+
+    @Test
+    public void writesSyncWordProfileAndSampleRate() {
+        AdtsFramer framer = new AdtsFramer(AAC_LC, 16000, 1);
+        byte[] header = new byte[AdtsFramer.HEADER_SIZE];
+        framer.writeHeader(header, 0, 100);
+
+        assertEquals(0xFF, header[0] & 0xFF);
+        assertEquals(0xF1, header[1] & 0xFF);
+        // perfil LC (1), índice 8 (16 kHz), canal 1
+        assertEquals(1, (header[2] & 0xC0) >> 6);
+        assertEquals(8, (header[2] & 0x3C) >> 2);
+        assertEquals(1, ((header[2] & 0x01) << 2) | ((header[3] & 0xC0) >> 6));
+    }
+
+    @Test
+    public void frameLengthIncludesHeader() {
+        AdtsFramer framer = new AdtsFramer(AAC_LC, 16000, 1);
+        byte[] header = new byte[AdtsFramer.HEADER_SIZE];
+        for (int payload : new int[]{0, 1, 255, 256, 2047, 6000}) {
+            framer.writeHeader(header, 0, payload);
+            assertEquals(payload + AdtsFramer.HEADER_SIZE, AdtsFramer.frameLength(header, 0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedSampleRate() {
+        AdtsFramer.sampleRateIndex(17000);
+    }
+}
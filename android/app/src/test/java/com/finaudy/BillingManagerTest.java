@@ -0,0 +1,265 @@
+package com.finaudy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BillingManagerTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    /** BillingClient de mentira: as respostas ficam pendentes até o teste chamar complete*. */
+    private final class FakeClient implements BillingManager.Client<String> {
+        boolean ready;
+        int connects;
+        BillingManager.ConnectionListener connection;
+        final List<List<String>> productQueries = new ArrayList<>();
+        BillingManager.ProductsListener<String> products;
+        BillingManager.PurchasesListener purchases;
+        final List<String> acknowledged = new ArrayList<>();
+        int acknowledgeCode = BillingManager.OK;
+        final List<String> launched = new ArrayList<>();
+        // Produtos que a Play Store conhece
+        final List<String> catalog = new ArrayList<>(Arrays.asList("premium_monthly", "vip_monthly"));
+
+        @Override
+        public void connect(BillingManager.ConnectionListener listener) {
+            connects++;
+            connection = listener;
+        }
+
+        void completeConnection(int code) {
+            ready = code == BillingManager.OK;
+            connection.onSetupFinished(code);
+        }
+
+        void dropConnection() {
+            ready = false;
+            connection.onDisconnected();
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public String productId(String product) {
+            return product;
+        }
+
+        @Override
+        public void queryProducts(List<String> productIds, BillingManager.ProductsListener<String> listener) {
+            productQueries.add(productIds);
+            List<String> found = new ArrayList<>();
+            for (String id : productIds) {
+                if (catalog.contains(id)) {
+                    found.add(id);
+                }
+            }
+            listener.onProducts(BillingManager.OK, found);
+        }
+
+        @Override
+        public void queryPurchases(BillingManager.PurchasesListener listener) {
+            purchases = listener;
+        }
+
+        @Override
+        public void acknowledge(String purchaseToken, BillingManager.ResultListener listener) {
+            acknowledged.add(purchaseToken);
+            listener.onResult(acknowledgeCode);
+        }
+
+        @Override
+        public int launch(String product) {
+            launched.add(product);
+            return BillingManager.OK;
+        }
+
+        @Override
+        public void disconnect() {
+            ready = false;
+        }
+    }
+
+    private final FakeClient client = new FakeClient();
+    private final Map<Runnable, Long> scheduled = new LinkedHashMap<>();
+    private final List<String> delivered = new ArrayList<>();
+    private final List<Integer> failures = new ArrayList<>();
+    private long now = 1_700_000_000_000L;
+    private BillingManager<String> billing;
+
+    @Before
+    public void setUp() {
+        billing = new BillingManager<>(client, () -> now, new BillingManager.Scheduler() {
+            @Override
+            public void postDelayed(Runnable task, long delayMs) {
+                scheduled.put(task, delayMs);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                scheduled.remove(task);
+            }
+        }, new BillingManager.Listener() {
+            @Override
+            public void onPurchase(BillingManager.PurchaseInfo purchase) {
+                delivered.add(purchase.token + ":" + purchase.productId());
+            }
+
+            @Override
+            public void onPurchaseFailed(int code, String message) {
+                failures.add(code);
+            }
+        }, 6 * HOUR);
+    }
+
+    private static BillingManager.PurchaseInfo purchase(String token, int state, boolean acknowledged) {
+        return new BillingManager.PurchaseInfo(token, Collections.singletonList("premium_monthly"), state, acknowledged);
+    }
+
+    /** Roda o reconnect agendado e devolve o atraso com que foi agendado. */
+    private long runScheduled() {
+        assertEquals(1, scheduled.size());
+        Map.Entry<Runnable, Long> entry = scheduled.entrySet().iterator().next();
+        scheduled.clear();
+        entry.getKey().run();
+        return entry.getValue();
+    }
+
+    @Test
+    public void prefetchedProductsOpenCheckoutWithoutQuerying() {
+        billing.prefetch(Arrays.asList("premium_monthly", "vip_monthly"));
+        assertEquals(1, client.connects);
+        client.completeConnection(BillingManager.OK);
+        assertEquals(1, client.productQueries.size());
+
+        now += HOUR;
+        billing.purchase("vip_monthly");
+        assertEquals(Collections.singletonList("vip_monthly"), client.launched);
+        assertEquals(1, client.productQueries.size());
+
+        // Cache vencido: consulta só o produto pedido e abre em seguida
+        now += 6 * HOUR;
+        billing.purchase("premium_monthly");
+        assertEquals(Collections.singletonList("premium_monthly"), client.productQueries.get(1));
+        assertEquals(Arrays.asList("vip_monthly", "premium_monthly"), client.launched);
+    }
+
+    @Test
+    public void purchaseBeforeConnectionRunsWhenItOpens() {
+        billing.purchase("premium_monthly");
+        assertTrue(client.launched.isEmpty());
+        client.completeConnection(BillingManager.OK);
+        assertEquals(Collections.singletonList("premium_monthly"), client.launched);
+
+        billing.purchase("family_yearly");
+        assertEquals(Collections.singletonList(BillingManager.ITEM_UNAVAILABLE), failures);
+    }
+
+    @Test
+    public void reconnectsWithExponentialBackoff() {
+        billing.connect();
+        client.dropConnection();
+        assertEquals(BillingManager.INITIAL_BACKOFF_MS, runScheduled());
+        assertEquals(2, client.connects);
+        client.completeConnection(BillingManager.SERVICE_UNAVAILABLE);
+        assertEquals(2 * BillingManager.INITIAL_BACKOFF_MS, runScheduled());
+        client.completeConnection(BillingManager.SERVICE_DISCONNECTED);
+        assertEquals(4 * BillingManager.INITIAL_BACKOFF_MS, runScheduled());
+        client.completeConnection(BillingManager.OK);
+        assertTrue(scheduled.isEmpty());
+
+        // Conectou: o backoff recomeça do início
+        client.dropConnection();
+        assertEquals(BillingManager.INITIAL_BACKOFF_MS, runScheduled());
+        assertEquals(4, billing.reconnects());
+
+        for (int i = 0; i < 20; i++) {
+            client.completeConnection(BillingManager.NETWORK_ERROR);
+            assertTrue(runScheduled() <= BillingManager.MAX_BACKOFF_MS);
+        }
+    }
+
+    @Test
+    public void purchaseFailsFastWhenPlayStoreIsMissing() {
+        billing.purchase("premium_monthly");
+        client.completeConnection(BillingManager.BILLING_UNAVAILABLE);
+        assertEquals(Collections.singletonList(BillingManager.BILLING_UNAVAILABLE), failures);
+        // Sem Play Store não há reconexão automática; o próximo toque tenta de novo
+        assertTrue(scheduled.isEmpty());
+        billing.purchase("premium_monthly");
+        assertEquals(2, client.connects);
+    }
+
+    @Test
+    public void reconcileDeliversUnacknowledgedPurchasesOnce() {
+        billing.connect();
+        client.completeConnection(BillingManager.OK);
+
+        billing.reconcile();
+        client.purchases.onPurchases(BillingManager.OK, Arrays.asList(
+                purchase("paid", BillingManager.STATE_PURCHASED, false),
+                purchase("done", BillingManager.STATE_PURCHASED, true),
+                purchase("boleto", BillingManager.STATE_PENDING, false)));
+        assertEquals(Collections.singletonList("paid:premium_monthly"), delivered);
+
+        // Outro onResume antes da página confirmar: não repete a verificação
+        billing.reconcile();
+        client.purchases.onPurchases(BillingManager.OK, Collections.singletonList(
+                purchase("paid", BillingManager.STATE_PURCHASED, false)));
+        assertEquals(1, delivered.size());
+    }
+
+    @Test
+    public void failedAcknowledgeIsDeliveredAgain() {
+        billing.connect();
+        client.completeConnection(BillingManager.OK);
+        billing.onPurchasesUpdated(BillingManager.OK, Collections.singletonList(
+                purchase("t1", BillingManager.STATE_PURCHASED, false)));
+        assertEquals(Collections.singletonList("t1:premium_monthly"), delivered);
+
+        List<Integer> results = new ArrayList<>();
+        client.acknowledgeCode = BillingManager.SERVICE_UNAVAILABLE;
+        billing.acknowledge("t1", results::add);
+        assertEquals(Collections.singletonList("t1"), client.acknowledged);
+
+        billing.reconcile();
+        client.purchases.onPurchases(BillingManager.OK, Collections.singletonList(
+                purchase("t1", BillingManager.STATE_PURCHASED, false)));
+        assertEquals(2, delivered.size());
+
+        client.acknowledgeCode = BillingManager.OK;
+        billing.acknowledge("t1", results::add);
+        assertEquals(Arrays.asList(BillingManager.SERVICE_UNAVAILABLE, BillingManager.OK), results);
+    }
+
+    @Test
+    public void cancelledCheckoutIsReported() {
+        billing.onPurchasesUpdated(BillingManager.USER_CANCELED, null);
+        billing.onPurchasesUpdated(BillingManager.OK, Collections.singletonList(
+                purchase("boleto", BillingManager.STATE_PENDING, false)));
+        assertEquals(Arrays.asList(BillingManager.USER_CANCELED, BillingManager.OK), failures);
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    public void closeStopsReconnecting() {
+        billing.connect();
+        client.dropConnection();
+        billing.close();
+        assertTrue(scheduled.isEmpty());
+        billing.purchase("premium_monthly");
+        assertEquals(1, client.connects);
+    }
+}
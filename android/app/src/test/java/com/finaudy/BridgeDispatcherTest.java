@@ -0,0 +1,199 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BridgeDispatcherTest {
+
+    private final List<String> rejections = Collections.synchronizedList(new ArrayList<String>());
+    private final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BridgeDispatcher dispatcher;
+
+    private final BridgeDispatcher.Listener listener = new BridgeDispatcher.Listener() {
+        @Override
+        public void onRejected(String operation, String reason) {
+            rejections.add(operation + ":" + reason);
+        }
+
+        @Override
+        public void onError(String operation, Exception error) {
+            errors.add(error);
+        }
+    };
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void rejectsWhenOperationLimitIsReached() throws Exception {
+        dispatcher = new BridgeDispatcher(2, 8, 4, listener).setLimit("image.encode", 1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        assertNotNull(dispatcher.submit("image.encode", ticket -> {
+            started.countDown();
+            release.await();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertNull(dispatcher.submit("image.encode", ticket -> { }));
+        // Outras operações não são afetadas pelo limite de image.encode
+        assertNotNull(dispatcher.submit("file.import", ticket -> { }));
+
+        assertEquals(Collections.singletonList("image.encode:busy"), rejections);
+        assertEquals(1, dispatcher.rejectedCount());
+    }
+
+    @Test
+    public void rejectsWhenQueueIsFull() throws Exception {
+        dispatcher = new BridgeDispatcher(1, 1, 10, listener);
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.submit("a", ticket -> {
+            started.countDown();
+            release.await();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertNotNull(dispatcher.submit("a", ticket -> { }));
+
+        assertNull(dispatcher.submit("a", ticket -> { }));
+        assertEquals(Collections.singletonList("a:overloaded"), rejections);
+        // A vaga reservada pela chamada recusada foi devolvida
+        assertEquals(2, dispatcher.inFlight("a"));
+    }
+
+    @Test
+    public void perCallRejectionReplacesListener() throws Exception {
+        dispatcher = new BridgeDispatcher(1, 4, 0, listener);
+        List<String> own = new ArrayList<>();
+        assertNull(dispatcher.submit("bridge.readBlob", ticket -> { }, (op, reason) -> own.add(reason)));
+        assertEquals(Collections.singletonList("busy"), own);
+        assertTrue(rejections.isEmpty());
+    }
+
+    @Test
+    public void cancelAllInterruptsRunningAndFlagsQueuedWork() throws Exception {
+        dispatcher = new BridgeDispatcher(1, 4, 4, listener);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean queuedSawCancel = new AtomicBoolean();
+
+        dispatcher.submit("audio.finalize", ticket -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.set(ticket.isCancelled());
+            }
+            done.countDown();
+        });
+        dispatcher.submit("audio.finalize", ticket -> {
+            queuedSawCancel.set(ticket.isCancelled());
+            done.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, dispatcher.cancelAll());
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+        assertTrue(queuedSawCancel.get());
+        waitUntilIdle();
+        assertEquals(2, dispatcher.cancelledCount());
+    }
+
+    @Test
+    public void cancelPageLeavesWorkThatOutlivesThePage() throws Exception {
+        dispatcher = new BridgeDispatcher(2, 4, 4, listener).setPageScoped("offline.sync", false);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean syncCancelled = new AtomicBoolean(true);
+        AtomicBoolean blobCancelled = new AtomicBoolean();
+
+        dispatcher.submit("offline.sync", ticket -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            syncCancelled.set(ticket.isCancelled());
+        });
+        dispatcher.submit("bridge.readBlob", ticket -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                blobCancelled.set(ticket.isCancelled());
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, dispatcher.cancelPage());
+        release.countDown();
+        waitUntilIdle();
+        assertTrue(blobCancelled.get());
+        assertFalse(syncCancelled.get());
+        assertEquals(1, dispatcher.cancelledCount());
+    }
+
+    @Test
+    public void workerInterruptDoesNotLeakIntoNextTask() throws Exception {
+        dispatcher = new BridgeDispatcher(1, 4, 4, listener);
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.submit("a", ticket -> {
+            started.countDown();
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.yield();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        dispatcher.cancelAll();
+        waitUntilIdle();
+
+        CountDownLatch checked = new CountDownLatch(1);
+        AtomicBoolean interruptedAtStart = new AtomicBoolean(true);
+        dispatcher.submit("a", ticket -> {
+            interruptedAtStart.set(Thread.currentThread().isInterrupted());
+            checked.countDown();
+        });
+        assertTrue(checked.await(5, TimeUnit.SECONDS));
+        assertEquals(false, interruptedAtStart.get());
+    }
+
+    @Test
+    public void reportsErrorsAndRejectsAfterShutdown() throws Exception {
+        dispatcher = new BridgeDispatcher(1, 4, 4, listener);
+        dispatcher.submit("a", ticket -> {
+            throw new IllegalStateException("falhou");
+        });
+        waitUntilIdle();
+        assertEquals(1, errors.size());
+        assertEquals("falhou", errors.get(0).getMessage());
+
+        dispatcher.shutdown();
+        assertNull(dispatcher.submit("a", ticket -> { }));
+        assertEquals(Collections.singletonList("a:shutdown"), rejections);
+    }
+
+    private void waitUntilIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.inFlight() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, dispatcher.inFlight());
+    }
+}
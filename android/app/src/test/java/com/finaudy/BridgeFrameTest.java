@@ -0,0 +1,54 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BridgeFrameTest {
+
+    @Test
+    public void roundTripsHeaderAndPayload() throws IOException {
+        byte[] payload = {0, 1, 2, (byte) 0xFF, 4, 5};
+        String header = "{\"id\":7,\"result\":{\"name\":\"recibo ção.jpg\"}}";
+
+        byte[] encoded = BridgeFrame.encode(header, payload, 1, 4);
+        BridgeFrame frame = BridgeFrame.decode(encoded);
+
+        assertEquals(header, frame.header);
+        assertEquals(4, frame.payloadLength);
+        assertArrayEquals(new byte[]{1, 2, (byte) 0xFF, 4}, readAll(frame.openPayload()));
+    }
+
+    @Test
+    public void headerLengthIsBigEndianUtf8ByteCount() {
+        byte[] encoded = BridgeFrame.encode("\"é\"", new byte[0], 0, 0);
+        assertArrayEquals(new byte[]{0, 0, 0, 4, '"', (byte) 0xC3, (byte) 0xA9, '"'}, encoded);
+        assertEquals(0, BridgeFrame.decode(encoded).payloadLength);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedPrefix() {
+        BridgeFrame.decode(new byte[]{0, 0, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsHeaderLongerThanMessage() {
+        BridgeFrame.decode(new byte[]{0, 0, 0, 9, '{', '}'});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeHeaderLength() {
+        BridgeFrame.decode(new byte[]{(byte) 0x80, 0, 0, 0});
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NativeBlobStore.copy(in, out);
+        return out.toByteArray();
+    }
+}
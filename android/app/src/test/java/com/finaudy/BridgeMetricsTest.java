@@ -0,0 +1,118 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BridgeMetricsTest {
+
+    private long now = 1_000_000_000L;
+    private final BridgeMetrics metrics = new BridgeMetrics(() -> now);
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> entry(String name) {
+        return (Map<String, Object>) ((Map<String, Object>) metrics.snapshot().get("entries")).get(name);
+    }
+
+    @Test
+    public void histogramStaysWithinOneSixteenth() {
+        for (long value : new long[]{0, 15, 16, 17, 100, 1_000, 123_456, 9_999_999}) {
+            long upper = BridgeMetrics.Histogram.upperBound(BridgeMetrics.Histogram.index(value));
+            assertTrue(value + " -> " + upper, upper >= value && upper - value <= value / 16);
+        }
+        // Acima do limite tudo cai na última faixa
+        assertEquals(BridgeMetrics.Histogram.index(Long.MAX_VALUE), BridgeMetrics.Histogram.index(1L << 40));
+        // Faixas contíguas: o limite de uma é vizinho do começo da próxima
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i + 1, BridgeMetrics.Histogram.index(BridgeMetrics.Histogram.upperBound(i) + 1));
+        }
+    }
+
+    @Test
+    public void percentilesComeFromTheHistogram() {
+        BridgeMetrics.Histogram histogram = new BridgeMetrics.Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(100, histogram.count());
+        assertTrue(Math.abs(histogram.percentile(50) - 50_000) <= 50_000 / 16);
+        assertTrue(Math.abs(histogram.percentile(99) - 99_000) <= 99_000 / 16);
+        assertEquals(100_000, histogram.percentile(100));
+    }
+
+    @Test
+    public void recordsCallsBytesAndThreads() {
+        long start = metrics.start();
+        now += 2_000_000;
+        metrics.record("js.openFileChooser", start, 7, 0, true);
+        start = metrics.start();
+        now += 4_000_000;
+        metrics.record("js.openFileChooser", start, 7, 0, false);
+
+        Map<String, Object> entry = entry("js.openFileChooser");
+        assertEquals(2L, entry.get("calls"));
+        assertEquals(1L, entry.get("errors"));
+        assertEquals(14L, entry.get("bytesIn"));
+        assertEquals(4.0, (Double) entry.get("maxMs"), 0.001);
+        assertEquals(2L, ((Map<?, ?>) entry.get("threads")).get(BridgeMetrics.threadLabel(Thread.currentThread().getName())));
+    }
+
+    @Test
+    public void flowsSpanTwoCalls() {
+        metrics.beginFlow("fileChooser");
+        now += 3_000_000_000L;
+        metrics.endFlow("fileChooser", true);
+        // Resultado sem pedido aberto (ex.: processo recriado) não conta
+        metrics.endFlow("fileChooser", true);
+        Map<String, Object> entry = entry("flow.fileChooser");
+        assertEquals(1L, entry.get("calls"));
+        assertEquals(3000.0, (Double) entry.get("p50Ms"), 3000.0 / 16);
+    }
+
+    @Test
+    public void disabledRecordsNothing() {
+        metrics.setEnabled(false);
+        assertEquals(0, metrics.start());
+        metrics.record("js.showToast", metrics.start(), 1, 0, true);
+        metrics.recordLatency("event.onFileSelected", 1000, 0, 10, true);
+        metrics.beginFlow("gallery");
+        metrics.setEnabled(true);
+        metrics.endFlow("gallery", true);
+        assertTrue(((Map<?, ?>) metrics.snapshot().get("entries")).isEmpty());
+    }
+
+    @Test
+    public void threadNamesIgnoreNumbers() {
+        assertEquals("pool-#-thread-#", BridgeMetrics.threadLabel("pool-3-thread-12"));
+        assertEquals("JavaBridge", BridgeMetrics.threadLabel("JavaBridge"));
+    }
+
+    @Test
+    public void eventQueueReportsTimeInQueueAndSize() {
+        NativeEventQueue queue = new NativeEventQueue(metrics);
+        queue.enqueue("onFileSelected", new Object[]{"https://x/native-blob/1", "a.pdf"}, 0);
+        String script = queue.drainScript(5_000_000);
+        Map<String, Object> entry = entry("event.onFileSelected");
+        assertEquals(1L, entry.get("calls"));
+        assertEquals(5.0, (Double) entry.get("maxMs"), 0.001);
+        assertTrue((Long) entry.get("bytesOut") > 0 && (Long) entry.get("bytesOut") < script.length());
+    }
+
+    @Test
+    public void dumpListsEveryEntry() {
+        metrics.record("port.offlineQuery", metrics.start(), 10, 20, true);
+        metrics.record("js.notifyWebReady", metrics.start(), 0, 0, true);
+        StringWriter out = new StringWriter();
+        metrics.dump("", new PrintWriter(out, true));
+        String text = out.toString();
+        assertTrue(text.contains("port.offlineQuery"));
+        assertTrue(text.contains("js.notifyWebReady"));
+        assertFalse(text.contains("event."));
+    }
+}
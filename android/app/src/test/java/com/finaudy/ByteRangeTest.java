@@ -0,0 +1,52 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class ByteRangeTest {
+
+    @Test
+    public void parsesClosedRange() {
+        ByteRange range = ByteRange.parse("bytes=0-99", 1000);
+        assertEquals(0, range.start);
+        assertEquals(99, range.end);
+        assertEquals(100, range.length());
+        assertEquals("bytes 0-99/1000", range.contentRange(1000));
+    }
+
+    @Test
+    public void openEndedRangeRunsToEndOfFile() {
+        ByteRange range = ByteRange.parse("bytes=500-", 1000);
+        assertEquals(500, range.start);
+        assertEquals(999, range.end);
+    }
+
+    @Test
+    public void suffixRangeReturnsLastBytes() {
+        ByteRange range = ByteRange.parse("bytes=-200", 1000);
+        assertEquals(800, range.start);
+        assertEquals(999, range.end);
+    }
+
+    @Test
+    public void endBeyondLengthIsClamped() {
+        ByteRange range = ByteRange.parse("bytes=900-5000", 1000);
+        assertEquals(999, range.end);
+    }
+
+    @Test
+    public void startBeyondLengthIsUnsatisfiable() {
+        assertFalse(ByteRange.parse("bytes=1000-", 1000).isSatisfiable());
+    }
+
+    @Test
+    public void missingOrMultipleRangesServeWholeFile() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("bytes=0-1,5-6", 1000));
+        assertNull(ByteRange.parse("items=0-1", 1000));
+        assertNull(ByteRange.parse("bytes=abc-", 1000));
+    }
+}
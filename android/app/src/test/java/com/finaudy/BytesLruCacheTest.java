@@ -0,0 +1,64 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BytesLruCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsedToStayWithinBudget() {
+        BytesLruCache cache = new BytesLruCache(300, 200);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.put("c", new byte[100]);
+        // "a" passa a ser o mais recente; "b" sai quando "d" entra
+        assertNotNull(cache.get("a"));
+        cache.put("d", new byte[100]);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(300, cache.size());
+        assertEquals(3, cache.count());
+    }
+
+    @Test
+    public void rejectsEntriesLargerThanLimit() {
+        BytesLruCache cache = new BytesLruCache(1000, 200);
+        assertFalse(cache.put("big", new byte[201]));
+        assertTrue(cache.put("ok", new byte[200]));
+        assertEquals(200, cache.size());
+    }
+
+    @Test
+    public void replacingKeyKeepsSizeConsistent() {
+        BytesLruCache cache = new BytesLruCache(240, 200);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.put("a", new byte[150]);
+
+        assertNull(cache.get("b"));
+        assertEquals(150, cache.get("a").length);
+        assertEquals(150, cache.size());
+        cache.remove("a");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        BytesLruCache cache = new BytesLruCache(100, 100);
+        cache.put("a", new byte[1]);
+        cache.get("a");
+        cache.get("a");
+        cache.get("x");
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        cache.clear();
+        assertEquals(0, cache.count());
+    }
+}
@@ -0,0 +1,255 @@
+package com.finaudy;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Servidor HTTP local fazendo o papel do PostgREST do Supabase. */
+public class CachingHttpFetcherTest {
+
+    private static final long MINUTE = 60_000L;
+    // {"sub":"user-1"} e {"sub":"user-2"} em base64url, com cabeçalho e assinatura falsos
+    private static final String TOKEN_USER_1 = "Bearer eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ1c2VyLTEifQ.sig1";
+    private static final String TOKEN_USER_1_RENEWED = "Bearer eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ1c2VyLTEifQ.sig2";
+    private static final String TOKEN_USER_2 = "Bearer eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ1c2VyLTIifQ.sig3";
+
+    private HttpServer server;
+    private File dir;
+    private long now = 1_700_000_000_000L;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicReference<String> body = new AtomicReference<>("[{\"id\":1}]");
+    private final AtomicReference<String> etag = new AtomicReference<>("\"v1\"");
+    private final AtomicReference<String> lastIfNoneMatch = new AtomicReference<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final List<Runnable> background = new ArrayList<>();
+    private CachingHttpFetcher fetcher;
+    private CachingHttpFetcher.Rule rule;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/rest/v1/", exchange -> {
+            requests.incrementAndGet();
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            lastIfNoneMatch.set(ifNoneMatch);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().set("ETag", etag.get());
+            if (etag.get().equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] response = body.get().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), response.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(response);
+            out.close();
+        });
+        server.start();
+        dir = Files.createTempDirectory("http-cache").toFile();
+        fetcher = new CachingHttpFetcher(new HttpResponseCache(dir, 1024 * 1024), background::add, () -> now, 64 * 1024);
+        rule = new CachingHttpFetcher.Rule("/rest/v1/categories", MINUTE, 10 * MINUTE);
+        fetcher.setRules(Collections.singletonList(rule));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private static Map<String, String> headers(String authorization) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", authorization);
+        headers.put("apikey", "anon");
+        headers.put("Accept", "application/json");
+        headers.put("Accept-Encoding", "gzip");
+        return headers;
+    }
+
+    private CachingHttpFetcher.Response get(String authorization) throws IOException {
+        URL url = url("/rest/v1/categories?select=*&user_id=eq.1");
+        return fetcher.lookup(fetcher.match("GET", url), url, headers(authorization));
+    }
+
+    /** Falta: o WebView segue sozinho e a cópia é buscada em segundo plano. */
+    private void missAndFill(String authorization) throws IOException {
+        assertNull(get(authorization));
+        runBackground();
+    }
+
+    private void runBackground() {
+        while (!background.isEmpty()) {
+            background.remove(0).run();
+        }
+    }
+
+    private static String read(CachingHttpFetcher.Response response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = response.body) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void servesFreshResponsesFromDisk() throws IOException {
+        missAndFill(TOKEN_USER_1);
+        assertEquals(1, requests.get());
+
+        now += MINUTE / 2;
+        CachingHttpFetcher.Response second = get(TOKEN_USER_1);
+        assertEquals(CachingHttpFetcher.Source.HIT, second.source);
+        assertEquals("[{\"id\":1}]", read(second));
+        assertEquals("application/json", second.mimeType());
+        assertEquals("*", CachingHttpFetcher.header(second.headers, "Access-Control-Allow-Origin"));
+        assertEquals("HIT", second.headers.get(CachingHttpFetcher.SOURCE_HEADER));
+        assertEquals(1, requests.get());
+        assertTrue(background.isEmpty());
+
+        CachingHttpFetcher.Stats stats = fetcher.stats();
+        assertEquals(1, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(1, stats.entries);
+    }
+
+    @Test
+    public void missNeverTouchesTheNetworkOnTheCallingThread() throws IOException {
+        assertNull(get(TOKEN_USER_1));
+        // Uma segunda falta antes do preenchimento não agenda outra busca
+        assertNull(get(TOKEN_USER_1));
+        assertEquals(0, requests.get());
+        assertEquals(1, background.size());
+    }
+
+    @Test
+    public void staleResponseIsServedWhileRevalidatingInBackground() throws IOException {
+        missAndFill(TOKEN_USER_1);
+        body.set("[{\"id\":1},{\"id\":2}]");
+        etag.set("\"v2\"");
+
+        now += 2 * MINUTE;
+        CachingHttpFetcher.Response stale = get(TOKEN_USER_1);
+        assertEquals(CachingHttpFetcher.Source.STALE, stale.source);
+        assertEquals("[{\"id\":1}]", read(stale));
+        // Uma segunda leitura velha não dispara outra revalidação
+        read(get(TOKEN_USER_1));
+        assertEquals(1, background.size());
+        assertEquals(1, requests.get());
+
+        runBackground();
+        assertEquals("\"v1\"", lastIfNoneMatch.get());
+        CachingHttpFetcher.Response fresh = get(TOKEN_USER_1);
+        assertEquals(CachingHttpFetcher.Source.HIT, fresh.source);
+        assertEquals("[{\"id\":1},{\"id\":2}]", read(fresh));
+        assertEquals(2, fetcher.stats().staleHits);
+    }
+
+    @Test
+    public void expiredEntryGoesToTheWebViewAndIsRevalidatedWithEtag() throws IOException {
+        missAndFill(TOKEN_USER_1);
+        now += 20 * MINUTE;
+
+        missAndFill(TOKEN_USER_1);
+        assertEquals("\"v1\"", lastIfNoneMatch.get());
+
+        // O 304 renovou a entrada
+        now += MINUTE / 2;
+        assertEquals(CachingHttpFetcher.Source.HIT, get(TOKEN_USER_1).source);
+        assertEquals(2, requests.get());
+        assertEquals(1, fetcher.stats().revalidated);
+    }
+
+    @Test
+    public void writesInvalidateTheTable() throws IOException {
+        missAndFill(TOKEN_USER_1);
+        assertEquals(0, fetcher.onWrite("PATCH", url("/rest/v1/transactions?id=eq.1")));
+        assertEquals(1, fetcher.onWrite("PATCH", url("/rest/v1/categories?id=eq.1")));
+        assertNull(get(TOKEN_USER_1));
+        runBackground();
+
+        assertEquals(1, fetcher.onWrite("POST", url("/rest/v1/rpc/recalculate_balance")));
+        assertEquals(0, fetcher.stats().entries);
+        assertEquals(0, fetcher.onWrite("OPTIONS", url("/rest/v1/categories")));
+    }
+
+    @Test
+    public void errorsAndUnlistedEndpointsAreNotCached() throws IOException {
+        assertNull(fetcher.match("GET", url("/rest/v1/transactions")));
+        assertNull(fetcher.match("POST", url("/rest/v1/categories")));
+
+        status.set(500);
+        missAndFill(TOKEN_USER_1);
+        assertEquals(1, requests.get());
+        assertEquals(0, fetcher.stats().entries);
+        assertNull(get(TOKEN_USER_1));
+    }
+
+    @Test
+    public void offlineFillIsCountedAsError() throws IOException {
+        missAndFill(TOKEN_USER_1);
+        server.stop(0);
+        now += 60 * MINUTE;
+
+        // Vencida: quem responde (ou falha) é o WebView; a revalidação só conta o erro
+        missAndFill(TOKEN_USER_1);
+        assertEquals(1, fetcher.stats().errors);
+        assertEquals(1, fetcher.stats().entries);
+    }
+
+    @Test
+    public void cacheKeyFollowsUserNotToken() throws IOException {
+        URL url = url("/rest/v1/categories?select=*");
+        String user1 = CachingHttpFetcher.cacheKey(url, headers(TOKEN_USER_1));
+        assertEquals(user1, CachingHttpFetcher.cacheKey(url, headers(TOKEN_USER_1_RENEWED)));
+        assertNotEquals(user1, CachingHttpFetcher.cacheKey(url, headers(TOKEN_USER_2)));
+
+        Map<String, String> single = headers(TOKEN_USER_1);
+        single.put("Accept", "application/vnd.pgrst.object+json");
+        assertNotEquals(user1, CachingHttpFetcher.cacheKey(url, single));
+
+        missAndFill(TOKEN_USER_1);
+        assertEquals(CachingHttpFetcher.Source.HIT, get(TOKEN_USER_1_RENEWED).source);
+        assertNull(get(TOKEN_USER_2));
+        assertEquals("sub:user-1", CachingHttpFetcher.identity(TOKEN_USER_1));
+    }
+}
@@ -0,0 +1,100 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CaptureFileCacheTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("captures").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void newCaptureFilesAreUnique() throws IOException {
+        CaptureFileCache cache = new CaptureFileCache(dir, 5, Long.MAX_VALUE, HOUR);
+        File first = cache.newCaptureFile(NOW);
+        File second = cache.newCaptureFile(NOW);
+        assertTrue(first.exists());
+        assertTrue(second.exists());
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void deletesExpiredCaptures() throws IOException {
+        CaptureFileCache cache = new CaptureFileCache(dir, 5, Long.MAX_VALUE, HOUR);
+        File old = capture(cache, NOW - 2 * HOUR, 10);
+        File fresh = capture(cache, NOW - 1000, 10);
+
+        assertEquals(1, cache.collectGarbage(NOW, null));
+        assertFalse(old.exists());
+        assertTrue(fresh.exists());
+    }
+
+    @Test
+    public void keepsOnlyNewestWithinCountAndSizeLimits() throws IOException {
+        CaptureFileCache cache = new CaptureFileCache(dir, 2, 250, HOUR);
+        File oldest = capture(cache, NOW - 3000, 100);
+        File middle = capture(cache, NOW - 2000, 100);
+        File newest = capture(cache, NOW - 1000, 100);
+
+        cache.collectGarbage(NOW, null);
+        assertFalse(oldest.exists());
+        assertTrue(middle.exists());
+        assertTrue(newest.exists());
+
+        CaptureFileCache smaller = new CaptureFileCache(dir, 5, 150, HOUR);
+        smaller.collectGarbage(NOW, null);
+        assertFalse(middle.exists());
+        assertTrue(newest.exists());
+    }
+
+    @Test
+    public void neverDeletesPendingCapture() throws IOException {
+        CaptureFileCache cache = new CaptureFileCache(dir, 1, Long.MAX_VALUE, HOUR);
+        File pending = capture(cache, NOW - 5 * HOUR, 10);
+        capture(cache, NOW, 10);
+
+        cache.collectGarbage(NOW, pending);
+        assertTrue(pending.exists());
+    }
+
+    private static File capture(CaptureFileCache cache, long modified, int size) throws IOException {
+        File file = cache.newCaptureFile(modified);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[size]);
+        } finally {
+            out.close();
+        }
+        file.setLastModified(modified);
+        return file;
+    }
+}
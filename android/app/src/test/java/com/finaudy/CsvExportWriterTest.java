@@ -0,0 +1,52 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CsvExportWriterTest {
+
+    private static final List<ExportWriter.Column> COLUMNS = Arrays.asList(
+            new ExportWriter.Column("Data", ExportWriter.Type.DATE, 12),
+            new ExportWriter.Column("Descrição", ExportWriter.Type.TEXT, 30),
+            new ExportWriter.Column("Valor", ExportWriter.Type.MONEY, 14),
+            new ExportWriter.Column("Parcelas", ExportWriter.Type.NUMBER, 8));
+
+    private static String write(Object[]... rows) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvExportWriter writer = new CsvExportWriter(out);
+        writer.begin(COLUMNS);
+        for (Object[] row : rows) {
+            writer.row(row);
+        }
+        writer.finish();
+        return new String(out.toByteArray(), Charset.forName("UTF-8"));
+    }
+
+    @Test
+    public void writesBomHeaderAndBrazilianFormats() throws Exception {
+        String csv = write(new Object[]{"2024-03-05", "Padaria São João", 12.5, 3L});
+        assertEquals("\uFEFFData;Descrição;Valor;Parcelas\r\n05/03/2024;Padaria São João;12,50;3\r\n", csv);
+    }
+
+    @Test
+    public void quotesSeparatorsQuotesAndLineBreaks() throws Exception {
+        String csv = write(
+                new Object[]{"2024-03-05", "Café; pão", 1, 1.25},
+                new Object[]{"2024-03-05", "Loja \"X\"\nfilial", 1, null});
+        String[] lines = csv.substring(1).split("\r\n");
+        assertEquals("05/03/2024;\"Café; pão\";1,00;1,25", lines[1]);
+        assertEquals("05/03/2024;\"Loja \"\"X\"\"\nfilial\";1,00;", lines[2]);
+    }
+
+    @Test
+    public void neutralizesFormulaLikeText() throws Exception {
+        String csv = write(new Object[]{null, "=HYPERLINK(\"x\")", -3.0, null});
+        assertEquals(";\"'=HYPERLINK(\"\"x\"\")\";-3,00;", csv.substring(1).split("\r\n")[1]);
+    }
+}
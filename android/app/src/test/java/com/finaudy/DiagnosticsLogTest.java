@@ -0,0 +1,155 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DiagnosticsLogTest {
+
+    private static final long MAX_BYTES = 4096;
+
+    private File dir;
+    private long now = 1_700_000_000_000L;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("diagnostics").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private DiagnosticsLog log(String version) {
+        return new DiagnosticsLog(dir, MAX_BYTES, version, () -> now);
+    }
+
+    private static Map<String, Object> stall(long durationMs) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("durationMs", durationMs);
+        fields.put("reachedAnr", false);
+        return fields;
+    }
+
+    private long diskBytes() {
+        long total = 0;
+        for (File file : dir.listFiles()) {
+            total += file.length();
+        }
+        return total;
+    }
+
+    @Test
+    public void staysWithinTheByteBudget() {
+        DiagnosticsLog log = log("8.3");
+        for (int i = 0; i < 500; i++) {
+            log.append(DiagnosticsLog.TYPE_STALL, stall(300 + i));
+            assertTrue(diskBytes() <= MAX_BYTES);
+        }
+        List<Map<String, Object>> records = log.records();
+        // Os mais antigos saíram, os mais novos ficaram em ordem
+        assertTrue(records.size() < 500);
+        assertEquals(500L, records.get(records.size() - 1).get("seq"));
+        assertEquals(799L, records.get(records.size() - 1).get("durationMs"));
+    }
+
+    @Test
+    public void exportsInBatchesAndForgetsWhatWasAcknowledged() {
+        DiagnosticsLog log = log("8.3");
+        for (int i = 0; i < 5; i++) {
+            log.append(DiagnosticsLog.TYPE_STALL, stall(400));
+        }
+        List<Map<String, Object>> batch = log.export(2);
+        assertEquals(2, batch.size());
+        assertEquals(1L, batch.get(0).get("seq"));
+        assertEquals(2, log.acknowledge((Long) batch.get(1).get("seq")));
+        assertEquals(3L, log.export(10).get(0).get("seq"));
+        assertEquals(3, log.export(10).size());
+        assertEquals(0, log.acknowledge(2));
+    }
+
+    @Test
+    public void seqContinuesAfterReopenAndSkipsTornLines() throws IOException {
+        log("8.3").append(DiagnosticsLog.TYPE_ANR, new LinkedHashMap<>());
+        // Processo morto no meio de uma escrita
+        try (OutputStream out = new FileOutputStream(new File(dir, "diagnostics-0.jsonl"), true)) {
+            out.write("{\"seq\":2,\"ty".getBytes(StandardCharsets.UTF_8));
+        }
+        DiagnosticsLog reopened = log("8.3");
+        assertEquals(1, reopened.records().size());
+        reopened.append(DiagnosticsLog.TYPE_ANR, new LinkedHashMap<>());
+        List<Map<String, Object>> records = reopened.records();
+        assertEquals(2L, records.get(records.size() - 1).get("seq"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void summarisesPerAppVersion() {
+        DiagnosticsLog old = log("8.2");
+        old.append(DiagnosticsLog.TYPE_STALL, stall(1200));
+        DiagnosticsLog log = log("8.3");
+        log.append(DiagnosticsLog.TYPE_STALL, stall(300));
+        log.append(DiagnosticsLog.TYPE_STALL, stall(500));
+        Map<String, Object> frames = new LinkedHashMap<>();
+        frames.put("frames", 100L);
+        frames.put("janky", 5L);
+        frames.put("frozen", 1L);
+        log.append(DiagnosticsLog.TYPE_FRAMES, frames);
+        Map<String, Object> violation = new LinkedHashMap<>();
+        violation.put("violation", "DiskReadViolation");
+        violation.put("count", 1);
+        log.append(DiagnosticsLog.TYPE_STRICT_MODE, violation);
+        violation.put("count", 7);
+        log.append(DiagnosticsLog.TYPE_STRICT_MODE, violation);
+
+        Map<String, Object> summary = log.summary();
+        Map<String, Object> previous = (Map<String, Object>) summary.get("8.2");
+        assertEquals(1200L, ((Map<String, Object>) previous.get("stall")).get("maxMs"));
+
+        Map<String, Object> current = (Map<String, Object>) summary.get("8.3");
+        Map<String, Object> stalls = (Map<String, Object>) current.get("stall");
+        assertEquals(2L, stalls.get("count"));
+        assertEquals(800L, stalls.get("totalMs"));
+        assertEquals(500L, stalls.get("maxMs"));
+        assertEquals(0.05, (Double) ((Map<String, Object>) current.get("frames")).get("jankRate"), 1e-9);
+        Map<String, Object> strictMode = (Map<String, Object>) current.get("strictMode");
+        assertEquals(8L, ((Map<String, Object>) strictMode.get("violations")).get("DiskReadViolation"));
+    }
+
+    @Test
+    public void frameTrackerCountsJankAgainstTheDisplayBudget() {
+        FrameJankTracker tracker = new FrameJankTracker(60f);
+        for (int i = 0; i < 97; i++) {
+            tracker.onFrame(8_000_000L);
+        }
+        tracker.onFrame(20_000_000L);
+        tracker.onFrame(40_000_000L);
+        tracker.onFrame(FrameJankTracker.FROZEN_NANOS);
+        Map<String, Object> stats = tracker.drain();
+        assertEquals(100L, stats.get("frames"));
+        assertEquals(3L, stats.get("janky"));
+        assertEquals(1L, stats.get("frozen"));
+        assertEquals(700.0, (Double) stats.get("worstMs"), 700.0 / 16);
+        assertEquals(null, tracker.drain());
+    }
+}
@@ -0,0 +1,90 @@
+package com.finaudy;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Vazão da exportação em CSV e XLSX com 100 mil e 1 milhão de lançamentos, em lotes de 500
+ * linhas como a página manda pela ponte (o parse do JSON do lote entra na conta). Não roda no
+ * build normal: ./gradlew testDebugUnitTest -Dfinaudy.bench=true --tests '*Benchmark'
+ */
+public class ExportJobBenchmark {
+
+    private static final int[] SIZES = {100_000, 1_000_000};
+    private static final int BATCH = 500;
+    private static final String COLUMNS = "[{\"name\":\"Data\",\"type\":\"date\"},{\"name\":\"Descrição\"},"
+            + "{\"name\":\"Categoria\"},{\"name\":\"Tipo\"},{\"name\":\"Valor\",\"type\":\"money\"},"
+            + "{\"name\":\"Pagamento\"},{\"name\":\"Observações\"}]";
+
+    /** Descarta os bytes: mede só a geração, não o armazenamento. */
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    @BeforeClass
+    public static void enabled() {
+        Assume.assumeTrue("Benchmarks desligados (use -Dfinaudy.bench=true)", Boolean.getBoolean("finaudy.bench"));
+    }
+
+    @Test
+    public void exportThroughput() throws Exception {
+        System.out.println(String.format(Locale.US, "%-10s %-8s %10s %12s %10s %10s",
+                "linhas", "formato", "ms", "linhas/s", "MB", "MB/s"));
+        // Um lote em JSON, reaproveitado: a memória do teste não cresce com o tamanho
+        String batch = batchJson(new Random(42));
+        for (int size : SIZES) {
+            for (String format : new String[]{ExportJob.FORMAT_CSV, ExportJob.FORMAT_XLSX}) {
+                run(size, format, batch);
+                run(size, format, batch);
+            }
+        }
+    }
+
+    private static void run(int size, String format, String batch) throws Exception {
+        ExportJob job = new ExportJob("bench", format, new NullOutputStream(), ExportJob.columns(Json.parseArray(COLUMNS)),
+                size, 250, j -> { });
+        long start = System.nanoTime();
+        for (int written = 0; written < size; written += BATCH) {
+            job.append(Json.parseArray(batch));
+        }
+        job.finish();
+        double ms = (System.nanoTime() - start) / 1e6;
+        assertEquals(size, job.rows());
+        double mb = job.bytes() / 1048576.0;
+        System.out.println(String.format(Locale.US, "%-10d %-8s %10.0f %12.0f %10.1f %10.1f",
+                size, format, ms, size / (ms / 1000), mb, mb / (ms / 1000)));
+    }
+
+    private static String batchJson(Random random) {
+        String[] descriptions = {"Mercado Livre", "Padaria São João", "Uber \"viagem\"", "Aluguel; apartamento"};
+        String[] categories = {"Alimentação", "Transporte", "Moradia", "Saúde"};
+        List<Object> rows = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            List<Object> row = new ArrayList<>();
+            row.add(String.format(Locale.US, "2024-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            row.add(descriptions[random.nextInt(descriptions.length)] + " " + i);
+            row.add(categories[random.nextInt(categories.length)]);
+            row.add(random.nextBoolean() ? "Despesa" : "Receita");
+            row.add(random.nextInt(500_000) / 100.0);
+            row.add("Pix");
+            row.add(i % 10 == 0 ? "reembolsável" : null);
+            rows.add(row);
+        }
+        return Json.stringify(rows);
+    }
+}
@@ -0,0 +1,112 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExportJobTest {
+
+    private final List<Long> progress = new ArrayList<>();
+    private final ExportJob.Listener listener = job -> progress.add(job.rows());
+    private boolean closed;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream() {
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    };
+
+    private static List<ExportWriter.Column> columns() {
+        return ExportJob.columns(Json.parseArray(
+                "[{\"name\":\"Data\",\"type\":\"date\"},{\"name\":\"Descrição\"},{\"name\":\"Valor\",\"type\":\"money\",\"width\":14}]"));
+    }
+
+    @Test
+    public void parsesColumnSpecs() {
+        List<ExportWriter.Column> columns = columns();
+        assertEquals(ExportWriter.Type.DATE, columns.get(0).type);
+        assertEquals(ExportWriter.Type.TEXT, columns.get(1).type);
+        assertEquals(15, columns.get(1).width);
+        assertEquals(14, columns.get(2).width);
+    }
+
+    @Test
+    public void appendsBatchesAndReportsProgress() throws Exception {
+        ExportJob job = new ExportJob("e1", ExportJob.FORMAT_CSV, out, columns(), 3, 0, listener);
+        job.append(Json.parseArray("[[\"2024-01-02\",\"Mercado\",10],[\"2024-01-03\",\"Uber\",\"7,5\"]]"));
+        job.append(Json.parseArray("[[\"2024-01-04\",null,\"abc\"]]"));
+        job.finish();
+
+        assertTrue(closed);
+        assertEquals(3, job.rows());
+        assertEquals(out.size(), job.bytes());
+        assertEquals(Arrays.asList(2L, 3L, 3L), progress);
+        String[] lines = new String(out.toByteArray(), Charset.forName("UTF-8")).split("\r\n");
+        assertEquals("02/01/2024;Mercado;10,00", lines[1]);
+        assertEquals("03/01/2024;Uber;7,50", lines[2]);
+        // Valor que não é número fica vazio em vez de derrubar a exportação
+        assertEquals("04/01/2024;;", lines[3]);
+    }
+
+    @Test
+    public void progressIsThrottledButFinishAlwaysReports() throws Exception {
+        ExportJob job = new ExportJob("e1", ExportJob.FORMAT_XLSX, out, columns(), 0, 60_000, listener);
+        for (int i = 0; i < 5; i++) {
+            job.append(Json.parseArray("[[\"2024-01-02\",\"Mercado\",10]]"));
+        }
+        job.finish();
+        assertEquals(Arrays.asList(1L, 5L), progress);
+    }
+
+    @Test
+    public void cancelClosesTheStreamAndRejectsFurtherBatches() throws Exception {
+        ExportJob job = new ExportJob("e1", ExportJob.FORMAT_CSV, out, columns(), 0, 0, listener);
+        job.append(Json.parseArray("[[\"2024-01-02\",\"Mercado\",10]]"));
+        job.cancel();
+        assertTrue(closed);
+        assertTrue(job.isCancelled());
+        try {
+            job.append(Json.parseArray("[[\"2024-01-02\",\"Mercado\",10]]"));
+            fail("append depois do cancelamento deveria falhar");
+        } catch (CancellationException expected) {
+            // esperado
+        }
+        try {
+            job.finish();
+            fail("finish depois do cancelamento deveria falhar");
+        } catch (CancellationException expected) {
+            // esperado
+        }
+        assertEquals(1, job.rows());
+    }
+
+    @Test
+    public void parsesSummarySheetsWithTypedCells() {
+        List<XlsxExportWriter.Sheet> sheets = ExportJob.sheets(Json.parseArray("[{\"name\":\"Resumo\","
+                + "\"columns\":[{\"name\":\"Item\"},{\"name\":\"Valor\",\"type\":\"money\"}],"
+                + "\"rows\":[[\"Receitas\",\"1500,5\"],[\"Despesas\"]]}]"));
+        assertEquals(1, sheets.size());
+        assertEquals("Resumo", sheets.get(0).name);
+        assertEquals(ExportWriter.Type.MONEY, sheets.get(0).columns.get(1).type);
+        assertEquals(1500.5, (Double) sheets.get(0).rows.get(0)[1], 0);
+        // Linha curta completa com células vazias
+        assertEquals(2, sheets.get(0).rows.get(1).length);
+        assertEquals(null, sheets.get(0).rows.get(1)[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFormat() throws Exception {
+        new ExportJob("e1", "pdf", out, columns(), 0, 0, listener);
+    }
+}
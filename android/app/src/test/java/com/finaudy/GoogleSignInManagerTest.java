@@ -0,0 +1,160 @@
+package com.finaudy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GoogleSignInManagerTest {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private long now = 1_700_000_000_000L;
+    private String cachedToken;
+    // Resposta do silentSignIn: token ou null; o callback fica guardado para respostas atrasadas
+    private String silentToken;
+    private int silentError;
+    private GoogleSignInManager.Callback pendingSilent;
+    private boolean silentAnswersLater;
+    private final List<String> calls = new ArrayList<>();
+    private final List<String> results = new ArrayList<>();
+    private GoogleSignInManager manager;
+
+    @Before
+    public void setUp() {
+        manager = new GoogleSignInManager(new GoogleSignInManager.Client() {
+            @Override
+            public String cachedIdToken() {
+                calls.add("cached");
+                return cachedToken;
+            }
+
+            @Override
+            public void silentSignIn(GoogleSignInManager.Callback callback) {
+                calls.add("silent");
+                if (silentAnswersLater) {
+                    pendingSilent = callback;
+                } else {
+                    now += 300;
+                    callback.onResult(silentToken, silentError);
+                }
+            }
+
+            @Override
+            public void launchInteractive(boolean chooseAccount) {
+                calls.add(chooseAccount ? "picker" : "interactive");
+            }
+
+            @Override
+            public void signOut() {
+                calls.add("signOut");
+                cachedToken = null;
+            }
+        }, () -> now, new GoogleSignInManager.Listener() {
+            @Override
+            public void onSignedIn(String idToken, String path, long elapsedMs) {
+                results.add(path + ":" + idToken + ":" + elapsedMs);
+            }
+
+            @Override
+            public void onFailed(int errorCode, String path, long elapsedMs) {
+                results.add(path + ":erro " + errorCode + ":" + elapsedMs);
+            }
+        });
+    }
+
+    private static String jwt(long expiresAtMs) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"sub\":\"123\",\"email\":\"ana@exemplo.com\",\"exp\":"
+                + expiresAtMs / 1000 + "}").getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".assinatura";
+    }
+
+    @Test
+    public void readsExpiryFromTheToken() {
+        long exp = 1_700_003_600_000L;
+        assertEquals(exp, GoogleSignInManager.expiresAtMs(jwt(exp)));
+        assertEquals(0, GoogleSignInManager.expiresAtMs("sem-pontos"));
+        assertEquals(0, GoogleSignInManager.expiresAtMs("a.@@@.c"));
+    }
+
+    @Test
+    public void unexpiredCachedTokenSkipsTheNetwork() {
+        cachedToken = jwt(now + 30 * MINUTE);
+        manager.signIn(false);
+        assertEquals(Collections.singletonList("cached"), calls);
+        assertEquals(Collections.singletonList("cached:" + cachedToken + ":0"), results);
+    }
+
+    @Test
+    public void tokenAboutToExpireIsRenewedSilently() {
+        cachedToken = jwt(now + 2 * MINUTE);
+        silentToken = jwt(now + 60 * MINUTE);
+        manager.signIn(false);
+        assertEquals(Arrays.asList("cached", "silent"), calls);
+        assertEquals(Collections.singletonList("silent:" + silentToken + ":300"), results);
+    }
+
+    @Test
+    public void fallsBackToInteractiveWhenSilentFails() {
+        silentError = 4;
+        manager.signIn(false);
+        assertEquals(Arrays.asList("cached", "silent", "interactive"), calls);
+        assertTrue(results.isEmpty());
+
+        now += 5000;
+        manager.onInteractiveResult("tok", 0);
+        assertEquals(Collections.singletonList("interactive:tok:5300"), results);
+    }
+
+    @Test
+    public void interactiveErrorIsReported() {
+        manager.signIn(false);
+        manager.onInteractiveResult(null, GoogleSignInManager.SIGN_IN_CANCELLED);
+        assertEquals(Collections.singletonList("interactive:erro 12501:300"), results);
+        // Um resultado sem login em andamento é ignorado
+        manager.onInteractiveResult("tok", 0);
+        assertEquals(1, results.size());
+    }
+
+    @Test
+    public void chooseAccountGoesStraightToThePicker() {
+        cachedToken = jwt(now + 30 * MINUTE);
+        manager.signIn(true);
+        assertEquals(Collections.singletonList("picker"), calls);
+    }
+
+    @Test
+    public void signInAfterSignOutDoesNotReuseTheAccount() {
+        cachedToken = jwt(now + 30 * MINUTE);
+        manager.signIn(false);
+        manager.signOut();
+        // Sem conta conectada o login silencioso falha e o seletor aparece
+        silentError = 4;
+        manager.signIn(false);
+        assertEquals(Arrays.asList("cached", "signOut", "cached", "silent", "interactive"), calls);
+        assertEquals(1, results.size());
+    }
+
+    @Test
+    public void secondTapWhileSigningInIsIgnored() {
+        silentAnswersLater = true;
+        manager.signIn(false);
+        manager.signIn(false);
+        assertEquals(Arrays.asList("cached", "silent"), calls);
+
+        pendingSilent.onResult("tok", 0);
+        assertEquals(Collections.singletonList("silent:tok:0"), results);
+        manager.signIn(false);
+        assertEquals(4, calls.size());
+    }
+}
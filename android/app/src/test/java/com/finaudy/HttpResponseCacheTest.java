@@ -0,0 +1,94 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class HttpResponseCacheTest {
+
+    private static final Map<String, String> HEADERS = Collections.singletonMap("Content-Type", "application/json");
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("http-cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static void put(HttpResponseCache cache, String key, String path, int size) throws IOException {
+        cache.put(key, "https://x.supabase.co" + path, path, 200, "OK", HEADERS, new byte[size], 1000);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondSizeCap() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(dir, 300);
+        put(cache, "a", "/rest/v1/categories", 100);
+        put(cache, "b", "/rest/v1/categories", 100);
+        put(cache, "c", "/rest/v1/profiles", 100);
+        assertNotNull(cache.get("a"));
+        put(cache, "d", "/rest/v1/profiles", 100);
+
+        assertNull(cache.get("b"));
+        assertEquals(300, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(false, new File(dir, "b.body").exists());
+    }
+
+    @Test
+    public void indexIsRebuiltFromDisk() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(dir, 1000);
+        put(cache, "a", "/rest/v1/categories", 10);
+        Map<String, String> headers = new java.util.LinkedHashMap<>(HEADERS);
+        headers.put("ETag", "\"v1\"");
+        cache.put("b", "https://x.supabase.co/rest/v1/profiles?id=eq.1", "/rest/v1/profiles", 206, "Partial Content",
+                headers, new byte[20], 2000);
+        // Sobra de uma escrita interrompida
+        Files.write(new File(dir, "c.body.tmp").toPath(), new byte[5]);
+
+        HttpResponseCache reopened = new HttpResponseCache(dir, 1000);
+        assertEquals(2, reopened.count());
+        assertEquals(30, reopened.size());
+        HttpResponseCache.Entry entry = reopened.get("b");
+        assertEquals(206, entry.status);
+        assertEquals("Partial Content", entry.reason);
+        assertEquals("\"v1\"", entry.header("etag"));
+        assertEquals(2000, entry.storedAt);
+        assertEquals(false, new File(dir, "c.body.tmp").exists());
+    }
+
+    @Test
+    public void refreshAndInvalidateByPath() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(dir, 1000);
+        put(cache, "a", "/rest/v1/categories", 10);
+        put(cache, "b", "/rest/v1/categories", 10);
+        put(cache, "c", "/rest/v1/profiles", 10);
+
+        cache.refresh(cache.get("c"), 5000);
+        assertEquals(5000, new HttpResponseCache(dir, 1000).get("c").storedAt);
+
+        assertEquals(2, cache.invalidatePath("/rest/v1/categories"));
+        assertEquals(1, cache.count());
+        assertEquals(10, cache.size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.finaudy;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Usa um servidor HTTP local no lugar da função process-audio. */
+public class HttpStreamingAudioSinkTest {
+
+    private HttpServer server;
+    private final AtomicReference<byte[]> received = new AtomicReference<>();
+    private final AtomicReference<String> transferEncoding = new AtomicReference<>();
+    private final AtomicReference<String> authorization = new AtomicReference<>();
+    private final CountDownLatch firstChunk = new CountDownLatch(1);
+    private final AtomicInteger status = new AtomicInteger(200);
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/process-audio", exchange -> {
+            transferEncoding.set(exchange.getRequestHeaders().getFirst("Transfer-encoding"));
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            InputStream in = exchange.getRequestBody();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+                firstChunk.countDown();
+            }
+            received.set(body.toByteArray());
+            byte[] response = "{\"text\":\"ok\"}".getBytes("UTF-8");
+            exchange.sendResponseHeaders(status.get(), response.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(response);
+            out.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void streamsChunksBeforeFinishAndReportsResponse() throws Exception {
+        final AtomicReference<String> responseBody = new AtomicReference<>();
+        HttpStreamingAudioSink sink = new HttpStreamingAudioSink(url(),
+                Collections.singletonMap("Authorization", "Bearer token"),
+                (statusCode, body) -> responseBody.set(statusCode + " " + body));
+
+        sink.open("audio/aac");
+        byte[] first = {1, 2, 3, 4};
+        sink.write(first, 0, first.length);
+        // O servidor recebe o primeiro pedaço enquanto a "gravação" continua
+        assertTrue(firstChunk.await(5, TimeUnit.SECONDS));
+
+        byte[] second = {9, 5, 6, 7, 9};
+        sink.write(second, 1, 3);
+        sink.finish();
+
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7}, received.get());
+        assertEquals("chunked", transferEncoding.get());
+        assertEquals("Bearer token", authorization.get());
+        assertEquals("200 {\"text\":\"ok\"}", responseBody.get());
+        assertEquals(7, sink.getBytesSent());
+    }
+
+    @Test
+    public void serverErrorFailsFinish() throws Exception {
+        status.set(500);
+        HttpStreamingAudioSink sink = new HttpStreamingAudioSink(url(), null, null);
+        sink.open("audio/aac");
+        sink.write(new byte[]{1}, 0, 1);
+        try {
+            sink.finish();
+            fail("finish deveria falhar com HTTP 500");
+        } catch (IOException expected) {
+            // esperado
+        }
+    }
+
+    private URL url() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/process-audio");
+    }
+}
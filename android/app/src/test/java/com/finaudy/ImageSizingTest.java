@@ -0,0 +1,45 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ImageSizingTest {
+
+    @Test
+    public void sampleSizeKeepsLongEdgeAboveTarget() {
+        // 50 MP (8160x6120) para um alvo de 2048px
+        assertEquals(2, ImageSizing.sampleSizeFor(8160, 6120, 2048));
+        assertEquals(4, ImageSizing.sampleSizeFor(8192, 6144, 2048));
+        assertEquals(1, ImageSizing.sampleSizeFor(1600, 1200, 2048));
+    }
+
+    @Test
+    public void sampleSizeHandlesPortraitAndInvalidInput() {
+        assertEquals(2, ImageSizing.sampleSizeFor(3000, 4000, 2000));
+        assertEquals(1, ImageSizing.sampleSizeFor(0, 4000, 2000));
+        assertEquals(1, ImageSizing.sampleSizeFor(3000, 4000, 0));
+    }
+
+    @Test
+    public void scaledSizeLimitsLongEdgeAndKeepsAspectRatio() {
+        assertArrayEquals(new int[]{2048, 1536}, ImageSizing.scaledSize(4080, 3060, 2048));
+        assertArrayEquals(new int[]{1536, 2048}, ImageSizing.scaledSize(3060, 4080, 2048));
+        assertArrayEquals(new int[]{800, 600}, ImageSizing.scaledSize(800, 600, 2048));
+    }
+
+    @Test
+    public void exifOrientationMapsToRotationAndMirror() {
+        assertEquals(90, ImageSizing.rotationDegrees(ImageSizing.ORIENTATION_ROTATE_90));
+        assertEquals(180, ImageSizing.rotationDegrees(ImageSizing.ORIENTATION_ROTATE_180));
+        assertEquals(270, ImageSizing.rotationDegrees(ImageSizing.ORIENTATION_ROTATE_270));
+        assertEquals(90, ImageSizing.rotationDegrees(ImageSizing.ORIENTATION_TRANSPOSE));
+        assertTrue(ImageSizing.isMirrored(ImageSizing.ORIENTATION_TRANSPOSE));
+        assertFalse(ImageSizing.isMirrored(ImageSizing.ORIENTATION_ROTATE_90));
+        assertFalse(ImageSizing.needsTransform(1));
+        assertTrue(ImageSizing.needsTransform(ImageSizing.ORIENTATION_FLIP_HORIZONTAL));
+    }
+}
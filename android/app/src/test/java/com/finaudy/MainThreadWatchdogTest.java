@@ -0,0 +1,125 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MainThreadWatchdogTest {
+
+    private static final long STALL_MS = 300;
+    private static final long ANR_MS = 5000;
+
+    /** Looper de mentira: os ticks só rodam quando o teste manda. */
+    private final List<Runnable> looper = new ArrayList<>();
+    private final StackTraceElement[] blockedAt = {
+            new StackTraceElement("com.finaudy.MainActivity", "onActivityResult", "MainActivity.java", 42)
+    };
+    private final List<String> events = new ArrayList<>();
+    private final List<StackTraceElement[]> stacks = new ArrayList<>();
+    private long now = 10_000;
+
+    private final MainThreadWatchdog watchdog = new MainThreadWatchdog(new MainThreadWatchdog.MainThread() {
+        @Override
+        public void post(Runnable tick) {
+            looper.add(tick);
+        }
+
+        @Override
+        public StackTraceElement[] stackTrace() {
+            return blockedAt;
+        }
+    }, () -> now, STALL_MS, ANR_MS, new MainThreadWatchdog.Listener() {
+        @Override
+        public void onAnr(long blockedMs, StackTraceElement[] stack) {
+            events.add("anr " + blockedMs);
+            stacks.add(stack);
+        }
+
+        @Override
+        public void onStall(long durationMs, StackTraceElement[] stack, boolean reachedAnr) {
+            events.add("stall " + durationMs + (reachedAnr ? " anr" : ""));
+            stacks.add(stack);
+        }
+    });
+
+    private void runLooper() {
+        List<Runnable> ticks = new ArrayList<>(looper);
+        looper.clear();
+        for (Runnable tick : ticks) {
+            tick.run();
+        }
+    }
+
+    /** Avança o relógio checando a cada 100 ms, como o HandlerThread de diagnóstico. */
+    private void advance(long ms) {
+        for (long i = 0; i < ms; i += 100) {
+            now += 100;
+            watchdog.check();
+        }
+    }
+
+    @Test
+    public void responsiveMainThreadReportsNothing() {
+        for (int i = 0; i < 50; i++) {
+            watchdog.check();
+            now += 100;
+            runLooper();
+        }
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void stallCapturesStackWhileBlocked() {
+        watchdog.check();
+        advance(800);
+        // Uma só postagem enquanto o tick não roda
+        assertEquals(1, looper.size());
+        runLooper();
+        assertEquals(1, events.size());
+        assertEquals("stall 800", events.get(0));
+        assertArrayEquals(blockedAt, stacks.get(0));
+    }
+
+    @Test
+    public void anrIsReportedOnceBeforeTheMainThreadRecovers() {
+        watchdog.check();
+        advance(7000);
+        assertEquals(1, events.size());
+        assertEquals("anr 5000", events.get(0));
+        runLooper();
+        assertEquals("stall 7000 anr", events.get(1));
+        // Volta a vigiar normalmente
+        watchdog.check();
+        runLooper();
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void stallBetweenChecksHasNoStack() {
+        watchdog.check();
+        now += 350;
+        runLooper();
+        assertEquals("stall 350", events.get(0));
+        assertNull(stacks.get(0));
+    }
+
+    @Test
+    public void stopDiscardsThePendingTick() {
+        watchdog.check();
+        advance(1000);
+        watchdog.stop();
+        runLooper();
+        assertTrue(events.isEmpty());
+        // Depois do stop um novo ciclo começa do zero
+        watchdog.check();
+        now += 100;
+        runLooper();
+        assertTrue(events.isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NativeBlobStoreTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("blobs").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static NativeBlobStore.Entry put(NativeBlobStore store, int length) throws IOException {
+        return store.put(new ByteArrayInputStream(new byte[length]), "audio/wav", null);
+    }
+
+    @Test
+    public void overBudgetEvictsTheLeastRecentlyUsedBlobs() throws IOException {
+        NativeBlobStore store = new NativeBlobStore(dir, 300);
+        NativeBlobStore.Entry first = put(store, 100);
+        NativeBlobStore.Entry second = put(store, 100);
+        NativeBlobStore.Entry third = put(store, 100);
+        // Ler o primeiro o torna o mais recente: o segundo passa a ser o mais antigo
+        assertSame(first, store.get(first.id));
+
+        NativeBlobStore.Entry fourth = put(store, 150);
+        assertNull(store.get(second.id));
+        assertNull(store.get(third.id));
+        assertFalse(second.file.exists());
+        assertFalse(third.file.exists());
+        assertNotNull(store.get(first.id));
+        assertNotNull(store.get(fourth.id));
+        assertEquals(250, store.size());
+        assertEquals(2, store.count());
+    }
+
+    @Test
+    public void blobLargerThanTheBudgetIsKept() throws IOException {
+        NativeBlobStore store = new NativeBlobStore(dir, 100);
+        NativeBlobStore.Entry small = put(store, 50);
+        NativeBlobStore.Entry large = put(store, 500);
+        // O blob recém-criado tem dono na página; os outros saem para abrir espaço
+        assertNull(store.get(small.id));
+        assertNotNull(store.get(large.id));
+        assertTrue(large.file.exists());
+        assertEquals(500, store.size());
+    }
+
+    @Test
+    public void releaseDeletesTheFileAndAcceptsTheUrl() throws IOException {
+        NativeBlobStore store = new NativeBlobStore(dir, 1000);
+        NativeBlobStore.Entry kept = put(store, 10);
+        NativeBlobStore.Entry released = put(store, 20);
+
+        assertTrue(store.release(released.getUrl() + "?download=1"));
+        assertFalse(released.file.exists());
+        assertNull(store.get(released.id));
+        assertEquals(10, store.size());
+        // Liberar de novo não desconta o tamanho duas vezes
+        assertFalse(store.release(released.id));
+        assertEquals(10, store.size());
+        assertArrayEquals(new byte[10], NativeBlobStore.readAll(store.get(kept.id)));
+    }
+
+    @Test
+    public void trimDropsOldestBlobsUntilTheTarget() throws IOException {
+        NativeBlobStore store = new NativeBlobStore(dir, 1000);
+        NativeBlobStore.Entry first = put(store, 100);
+        NativeBlobStore.Entry second = put(store, 100);
+        NativeBlobStore.Entry third = put(store, 100);
+
+        store.trimToSize(150);
+        assertFalse(first.file.exists());
+        assertFalse(second.file.exists());
+        assertNotNull(store.get(third.id));
+        assertEquals(100, store.size());
+
+        store.clear();
+        assertFalse(third.file.exists());
+        assertEquals(0, store.size());
+        assertEquals(0, store.count());
+    }
+
+    @Test
+    public void blobsFromAPreviousProcessAreDeleted() throws IOException {
+        NativeBlobStore.Entry orphan = put(new NativeBlobStore(dir, 1000), 10);
+        NativeBlobStore store = new NativeBlobStore(dir, 1000);
+        assertFalse(orphan.file.exists());
+        assertNull(store.get(orphan.id));
+    }
+}
@@ -0,0 +1,100 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NativeEventQueueTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void batchesPendingEventsIntoOneScript() {
+        NativeEventQueue queue = new NativeEventQueue();
+        assertTrue(queue.enqueue("onPermissionResult", new Object[]{"camera", true}, 0));
+        assertFalse(queue.enqueue("onFileSelected", new Object[]{"url", "a.pdf", "application/pdf"}, 0));
+
+        String script = queue.drainScript(0);
+
+        assertTrue(script.startsWith("(window.__nativeEvents||function(b){"));
+        assertTrue(script.endsWith(")([{\"name\":\"onPermissionResult\",\"args\":[\"camera\",true]},"
+                + "{\"name\":\"onFileSelected\",\"args\":[\"url\",\"a.pdf\",\"application/pdf\"]}]);"));
+        assertNull(queue.drainScript(0));
+        // Depois de esvaziar, o próximo evento volta a pedir agendamento
+        assertTrue(queue.enqueue("onFCMTokenReceived", new Object[]{"t"}, 0));
+    }
+
+    @Test
+    public void clearDropsPendingEventsWithoutDispatching() {
+        NativeEventQueue queue = new NativeEventQueue();
+        queue.enqueue("onOfflineSyncComplete", new Object[]{"{}"}, 0);
+        queue.enqueue("onExportProgress", new Object[]{"export-1", 10, 100}, 0);
+        assertEquals(2, queue.clear());
+        assertNull(queue.drainScript(0));
+        assertEquals(0, queue.stats().events);
+    }
+
+    @Test
+    public void escapesStringsThatUsedToBreakTheScript() {
+        StringBuilder out = new StringBuilder();
+        NativeEventQueue.appendQuoted(out, "it's \"quoted\"\\ \n\r\t\u0001 \u2028\u2029 </script>");
+        assertEquals("\"it's \\\"quoted\\\"\\\\ \\n\\r\\t\\u0001 \\u2028\\u2029 </script>\"", out.toString());
+    }
+
+    @Test
+    public void serializesSupportedArgumentTypes() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        map.put("b", Arrays.asList("x", null, false));
+        StringBuilder out = new StringBuilder();
+        NativeEventQueue.appendJson(out, Arrays.asList(null, 2.5, Double.NaN, 42L,
+                new NativeEventQueue.RawJson("{\"raw\":true}"), map));
+        assertEquals("[null,2.5,null,42,{\"raw\":true},{\"a\":1,\"b\":[\"x\",null,false]}]", out.toString());
+    }
+
+    @Test
+    public void enqueueLatestReplacesPendingEventInPlace() {
+        NativeEventQueue queue = new NativeEventQueue();
+        queue.enqueue("onPermissionResult", new Object[]{"camera", true}, 0);
+        queue.enqueueLatest("onFCMTokenReceived", new Object[]{"old"}, 0);
+        queue.enqueue("onFileSelected", new Object[]{"url"}, 0);
+        assertFalse(queue.enqueueLatest("onFCMTokenReceived", new Object[]{"new"}, 0));
+
+        String script = queue.drainScript(0);
+
+        assertFalse(script.contains("\"old\""));
+        assertTrue(script.contains("{\"name\":\"onPermissionResult\",\"args\":[\"camera\",true]},"
+                + "{\"name\":\"onFCMTokenReceived\",\"args\":[\"new\"]},"
+                + "{\"name\":\"onFileSelected\""));
+        assertEquals(1, queue.stats().coalesced);
+        assertEquals(3, queue.stats().events);
+    }
+
+    @Test
+    public void tracksDepthAndLatency() {
+        NativeEventQueue queue = new NativeEventQueue();
+        queue.enqueue("a", null, 0);
+        queue.enqueue("b", null, 10 * MS);
+        queue.enqueue("c", null, 12 * MS);
+        assertEquals(3, queue.depth());
+
+        queue.drainScript(16 * MS);
+        queue.enqueue("d", null, 20 * MS);
+        queue.drainScript(24 * MS);
+
+        NativeEventQueue.Stats stats = queue.stats();
+        assertEquals(0, stats.depth);
+        assertEquals(3, stats.maxDepth);
+        assertEquals(2, stats.batches);
+        assertEquals(4, stats.events);
+        assertEquals(16.0, stats.maxLatencyMs, 0.001);
+        assertEquals((16 + 6 + 4 + 4) / 4.0, stats.avgLatencyMs, 0.001);
+    }
+}
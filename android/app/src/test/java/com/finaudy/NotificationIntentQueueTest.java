@@ -0,0 +1,130 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NotificationIntentQueueTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("notification-clicks", ".json").toFile();
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void clicksBeforeReadyLeaveInOneBatch() {
+        NotificationIntentQueue<String> queue = new NotificationIntentQueue<>(file);
+        assertTrue(queue.accept("a"));
+        assertEquals(Collections.emptyList(), queue.offer("a", "click-a"));
+        assertTrue(queue.accept("b"));
+        assertEquals(Collections.emptyList(), queue.offer("b", "click-b"));
+        assertEquals(2, queue.pendingCount());
+
+        assertEquals(Arrays.asList("click-a", "click-b"), queue.ready());
+        assertEquals(0, queue.pendingCount());
+        // Com a página pronta o próximo sai na hora
+        assertTrue(queue.accept("c"));
+        assertEquals(Collections.singletonList("click-c"), queue.offer("c", "click-c"));
+    }
+
+    @Test
+    public void sameIntentIsDeliveredOnce() {
+        NotificationIntentQueue<String> queue = new NotificationIntentQueue<>(file);
+        queue.ready();
+        assertTrue(queue.accept("a"));
+        // onNewIntent e onCreate com o mesmo Intent antes do prefetch terminar
+        assertFalse(queue.accept("a"));
+        queue.offer("a", "click-a");
+        assertFalse(queue.accept("a"));
+    }
+
+    @Test
+    public void clicksWithoutIdAreNotDeduplicated() {
+        NotificationIntentQueue<String> queue = new NotificationIntentQueue<>(file);
+        // Duas notificações de orçamento com os mesmos dados: as duas chegam à página
+        assertTrue(queue.accept(null));
+        queue.offer(null, "click-1");
+        assertTrue(queue.accept(null));
+        queue.offer(null, "click-2");
+        assertEquals(Arrays.asList("click-1", "click-2"), queue.ready());
+        assertTrue(queue.accept(null));
+        assertEquals(Collections.singletonList("click-3"), queue.offer(null, "click-3"));
+    }
+
+    @Test
+    public void consumedIdsSurviveProcessDeath() {
+        NotificationIntentQueue<String> queue = new NotificationIntentQueue<>(file);
+        queue.accept("entregue");
+        queue.offer("entregue", "click");
+        queue.ready();
+        // Aceito depois de um reload que nunca ficou pronto: o processo novo entrega de novo
+        queue.reset();
+        queue.accept("na-fila");
+        queue.offer("na-fila", "click");
+
+        NotificationIntentQueue<String> restarted = new NotificationIntentQueue<>(file);
+        assertTrue(restarted.isConsumed("entregue"));
+        assertFalse(restarted.accept("entregue"));
+        assertTrue(restarted.accept("na-fila"));
+    }
+
+    @Test
+    public void reloadHoldsClicksUntilTheNextReady() {
+        NotificationIntentQueue<String> queue = new NotificationIntentQueue<>(file);
+        queue.ready();
+        queue.reset();
+        queue.accept("a");
+        assertEquals(Collections.emptyList(), queue.offer("a", "click-a"));
+        assertEquals(Collections.singletonList("click-a"), queue.ready());
+    }
+
+    @Test
+    public void keepsOnlyTheMostRecentConsumedIds() {
+        NotificationIntentQueue<String> queue = new NotificationIntentQueue<>(file);
+        queue.ready();
+        for (int i = 0; i <= NotificationIntentQueue.MAX_CONSUMED; i++) {
+            queue.accept("id" + i);
+            queue.offer("id" + i, "click");
+        }
+        NotificationIntentQueue<String> restarted = new NotificationIntentQueue<>(file);
+        assertFalse(restarted.isConsumed("id0"));
+        assertTrue(restarted.isConsumed("id1"));
+        assertTrue(restarted.isConsumed("id" + NotificationIntentQueue.MAX_CONSUMED));
+    }
+
+    @Test
+    public void idComesFromTheExtras() {
+        Map<String, String> extras = new HashMap<>();
+        assertNull(NotificationIntentQueue.idFor(extras));
+        extras.put("type", "budget_exceeded");
+        extras.put("budget_id", "42");
+        // Os dados não identificam o clique: a mesma notificação pode chegar duas vezes
+        assertNull(NotificationIntentQueue.idFor(extras));
+
+        extras.put(NotificationIntentQueue.EXTRA_FCM_MESSAGE_ID, "0:123");
+        assertEquals("0:123", NotificationIntentQueue.idFor(extras));
+        extras.put(NotificationIntentQueue.EXTRA_ID, "uuid");
+        assertEquals("uuid", NotificationIntentQueue.idFor(extras));
+    }
+}
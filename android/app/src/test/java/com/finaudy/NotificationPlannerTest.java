@@ -0,0 +1,138 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NotificationPlannerTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    private File file;
+    private long now = 1_700_000_000_000L;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("notifications", ".json").toFile();
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private NotificationPlanner planner() {
+        Map<String, NotificationPlanner.Limit> limits = new HashMap<>();
+        limits.put("reminder", new NotificationPlanner.Limit(2, HOUR));
+        return new NotificationPlanner(file, () -> now, 2 * MINUTE, 24 * HOUR, 10 * MINUTE, limits,
+                new NotificationPlanner.Limit(5, HOUR));
+    }
+
+    private static NotificationPlanner.Message message(String type, String key, String title) {
+        return new NotificationPlanner.Message(type, key, title, "corpo " + title);
+    }
+
+    @Test
+    public void dropsRepeatedKeysUntilTheyExpire() {
+        NotificationPlanner planner = planner();
+        assertNotNull(planner.plan(message("reminder", "r1", "Conta de luz")));
+        now += HOUR;
+        assertNull(planner.plan(message("reminder", "r1", "Conta de luz")));
+        now += 24 * HOUR;
+        assertNotNull(planner.plan(message("reminder", "r1", "Conta de luz")));
+    }
+
+    @Test
+    public void messagesWithoutKeyAreDedupedByContentForAShortWhile() {
+        NotificationPlanner planner = planner();
+        assertNotNull(planner.plan(message("general", null, "Oi")));
+        assertNull(planner.plan(message("general", null, "Oi")));
+        assertNotNull(planner.plan(message("general", null, "Outra")));
+        now += 11 * MINUTE;
+        assertNotNull(planner.plan(message("general", null, "Oi")));
+    }
+
+    @Test
+    public void burstIsCoalescedIntoOneSummary() {
+        NotificationPlanner planner = planner();
+        NotificationPlanner.Plan first = planner.plan(message("budget_exceeded", "b1", "Mercado"));
+        assertFalse(first.isSummary());
+        assertEquals("finaudy.budget_exceeded", first.group);
+
+        now += 30 * 1000;
+        NotificationPlanner.Plan second = planner.plan(message("budget_exceeded", "b2", "Lazer"));
+        assertTrue(second.isSummary());
+        assertEquals(NotificationPlanner.summaryId("budget_exceeded"), second.id);
+        // A individual que já estava na tela é trocada pelo resumo
+        assertEquals(Collections.singletonList(first.id), second.cancel);
+        assertEquals(Arrays.asList("Lazer: corpo Lazer", "Mercado: corpo Mercado"), second.lines);
+
+        for (int i = 3; i <= 8; i++) {
+            now += 30 * 1000;
+            NotificationPlanner.Plan plan = planner.plan(message("budget_exceeded", "b" + i, "Cat " + i));
+            assertTrue(plan.cancel.isEmpty());
+            assertEquals(i, plan.count);
+            assertEquals(Math.min(i, NotificationPlanner.SUMMARY_LINES), plan.lines.size());
+        }
+
+        // Outro tipo não entra no resumo do primeiro
+        assertFalse(planner.plan(message("reminder", "r1", "Aluguel")).isSummary());
+
+        // Depois da janela começa um grupo novo
+        now += 3 * MINUTE;
+        assertFalse(planner.plan(message("budget_exceeded", "b9", "Casa")).isSummary());
+    }
+
+    @Test
+    public void alertsAreRateLimitedPerType() {
+        NotificationPlanner planner = planner();
+        assertTrue(planner.plan(message("reminder", "r1", "1")).alert);
+        now += 10 * MINUTE;
+        assertTrue(planner.plan(message("reminder", "r2", "2")).alert);
+        now += 10 * MINUTE;
+        NotificationPlanner.Plan silent = planner.plan(message("reminder", "r3", "3"));
+        // Passou do limite: ainda aparece, mas sem som
+        assertNotNull(silent);
+        assertFalse(silent.alert);
+        assertTrue(planner.plan(message("subscription", "s1", "Netflix")).alert);
+
+        now += 41 * MINUTE;
+        assertTrue(planner.plan(message("reminder", "r4", "4")).alert);
+    }
+
+    @Test
+    public void stateSurvivesANewProcess() {
+        NotificationPlanner.Plan first = planner().plan(message("reminder", "r1", "Conta"));
+        now += MINUTE;
+        NotificationPlanner planner = planner();
+        assertNull(planner.plan(message("reminder", "r1", "Conta")));
+        NotificationPlanner.Plan second = planner.plan(message("reminder", "r2", "Aluguel"));
+        assertTrue(second.isSummary());
+        assertEquals(Collections.singletonList(first.id), second.cancel);
+    }
+
+    @Test
+    public void corruptStateStartsEmpty() throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("{\"seen\":".getBytes("UTF-8"));
+        out.close();
+        assertNotNull(planner().plan(message("reminder", "r1", "Conta")));
+    }
+}
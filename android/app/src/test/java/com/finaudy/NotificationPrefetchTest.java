@@ -0,0 +1,185 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NotificationPrefetchTest {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private File dir;
+    private long now = 1_700_000_000_000L;
+    private final List<String> queries = new ArrayList<>();
+    private IOException failure;
+
+    private final OfflineSyncEngine.Remote remote = new OfflineSyncEngine.Remote() {
+        @Override
+        public List<Map<String, Object>> select(String table, String query) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            queries.add(table + "?" + query);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", query.substring(query.indexOf("eq.") + 3));
+            row.put("table", table);
+            return Collections.singletonList(row);
+        }
+
+        @Override
+        public List<Map<String, Object>> upsert(String table, List<Map<String, Object>> rows) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(String table, Collection<String> ids) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("prefetch").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private NotificationPrefetch prefetch() {
+        return new NotificationPrefetch(dir, () -> now, 30 * MINUTE);
+    }
+
+    private static Map<String, String> data(String... pairs) {
+        Map<String, String> data = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            data.put(pairs[i], pairs[i + 1]);
+        }
+        return data;
+    }
+
+    @Test
+    public void mapsPushTypesToRecords() {
+        assertEquals(1, NotificationPrefetch.requestsFor(data("type", "reminder", "reminder_id", "r1")).size());
+        List<NotificationPrefetch.Request> budget = NotificationPrefetch.requestsFor(
+                data("type", "budget_exceeded", "budget_id", "b1", "category_id", "c1"));
+        assertEquals("category_budgets", budget.get(0).table);
+        assertEquals("select=*&id=eq.b1", budget.get(0).query);
+        assertEquals("categories", budget.get(1).table);
+        assertTrue(NotificationPrefetch.requestsFor(data("type", "sharing_invite")).isEmpty());
+        assertTrue(NotificationPrefetch.requestsFor(data("type", "reminder")).isEmpty());
+    }
+
+    @Test
+    public void keyPrefersServerDedupKey() {
+        assertEquals("k1", NotificationPrefetch.key(data("dedup_key", "k1", "type", "reminder", "reminder_id", "r1")));
+        assertEquals("budget_exceeded:budget_id=b1,category_id=c1", NotificationPrefetch.key(
+                data("type", "budget_exceeded", "category_id", "c1", "budget_id", "b1", "category_name", "x",
+                "google.message_id", "0:123")));
+        assertNull(NotificationPrefetch.key(data("type", "general")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void storedRecordsAreHandedOverOnce() throws IOException {
+        NotificationPrefetch prefetch = prefetch();
+        Map<String, String> data = data("type", "subscription", "subscription_id", "s1");
+        prefetch.fetch("k1", NotificationPrefetch.requestsFor(data), remote);
+        assertEquals(Collections.singletonList("subscriptions?select=*&id=eq.s1"), queries);
+
+        now += 5 * MINUTE;
+        // Outra instância (o toque abre um processo novo) lê o que o job gravou
+        Map<String, Object> records = prefetch().take("k1");
+        List<Object> rows = (List<Object>) records.get("subscriptions");
+        assertEquals("s1", ((Map<String, Object>) rows.get(0)).get("id"));
+        assertNull(prefetch.take("k1"));
+
+        Map<String, Object> stats = prefetch.stats();
+        assertEquals(1L, stats.get(NotificationPrefetch.STAT_STORED));
+        assertEquals(1L, stats.get(NotificationPrefetch.STAT_HITS));
+        assertEquals(1L, stats.get(NotificationPrefetch.STAT_MISSES));
+        assertEquals(0.5, stats.get("hitRate"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void recordsSentInThePushAreStoredWithoutFetching() throws IOException {
+        NotificationPrefetch prefetch = prefetch();
+        Map<String, String> data = data("type", "reminder", "reminder_id", "r1",
+                NotificationPrefetch.EXTRA_RECORDS, "{\"bill_reminders\":[{\"id\":\"r1\",\"amount\":50}]}");
+        assertTrue(prefetch.storeFromPush("k1", data));
+        assertTrue(queries.isEmpty());
+
+        List<Object> rows = (List<Object>) prefetch.take("k1").get("bill_reminders");
+        assertEquals("r1", ((Map<String, Object>) rows.get(0)).get("id"));
+        assertEquals(1L, prefetch.stats().get(NotificationPrefetch.STAT_STORED));
+
+        // Sem os registros (não couberam no push) ou ilegíveis, o job busca
+        assertFalse(prefetch.storeFromPush("k2", data("type", "reminder", "reminder_id", "r2")));
+        assertFalse(prefetch.storeFromPush("k3", data(NotificationPrefetch.EXTRA_RECORDS, "{cortado")));
+    }
+
+    @Test
+    public void oldRecordsAreNotUsed() throws IOException {
+        NotificationPrefetch prefetch = prefetch();
+        prefetch.fetch("k1", NotificationPrefetch.requestsFor(data("type", "reminder", "reminder_id", "r1")), remote);
+        now += 31 * MINUTE;
+        assertNull(prefetch.take("k1"));
+        assertEquals(1L, prefetch.stats().get(NotificationPrefetch.STAT_STALE));
+        assertEquals(0.0, prefetch.stats().get("hitRate"));
+    }
+
+    @Test
+    public void failedFetchStoresNothing() {
+        NotificationPrefetch prefetch = prefetch();
+        failure = new PostgrestClient.HttpStatusException(401, "JWT expired");
+        try {
+            prefetch.fetch("k1", NotificationPrefetch.requestsFor(data("type", "reminder", "reminder_id", "r1")), remote);
+            fail();
+        } catch (IOException expected) {
+            // Esperado
+        }
+        assertNull(prefetch.take("k1"));
+        assertEquals(1L, prefetch.stats().get(NotificationPrefetch.STAT_FAILED));
+    }
+
+    @Test
+    public void logoutForgetsSessionAndRecords() throws IOException {
+        NotificationPrefetch prefetch = prefetch();
+        assertNull(prefetch.session());
+        prefetch.saveSession("https://x.supabase.co", "anon", "jwt", "u1");
+        prefetch.fetch("k1", NotificationPrefetch.requestsFor(data("type", "reminder", "reminder_id", "r1")), remote);
+        assertEquals("jwt", prefetch().session().get("accessToken"));
+        assertEquals("u1", prefetch().session().get("userId"));
+
+        prefetch.clearSession();
+        assertNull(prefetch.session());
+        assertNull(prefetch.take("k1"));
+        // Os contadores sobrevivem ao logout
+        assertEquals(1L, prefetch.stats().get(NotificationPrefetch.STAT_STORED));
+    }
+}
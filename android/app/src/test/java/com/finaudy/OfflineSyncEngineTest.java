@@ -0,0 +1,570 @@
+package com.finaudy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Sincronização contra um servidor HTTP local que imita o PostgREST do Supabase. */
+public class OfflineSyncEngineTest {
+
+    private static final String ACCOUNT = "user-1";
+    private static final Pattern IN_LIST = Pattern.compile("in\\.\\((.*)\\)");
+    private static final Pattern KEYSET = Pattern.compile(
+            "\\(updated_at\\.gt\\.\"([^\"]*)\",and\\(updated_at\\.eq\\.\"[^\"]*\",id\\.gt\\.\"([^\"]*)\"\\)\\)");
+
+    private HttpServer server;
+    // tabela -> id -> linha, como o "banco" do servidor
+    private final Map<String, Map<String, Map<String, Object>>> db = new HashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger postStatus = new AtomicInteger(0);
+    private int version;
+    private long now = 1_700_000_000_000L;
+    private final MemoryStorage storage = new MemoryStorage();
+    private final List<String> conflicts = new ArrayList<>();
+    private OfflineSyncEngine engine;
+
+    @Before
+    public void setUp() throws IOException {
+        db.put("transactions", new LinkedHashMap<String, Map<String, Object>>());
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/rest/v1/", this::handle);
+        server.start();
+
+        PostgrestClient client = new PostgrestClient();
+        client.setSession("http://127.0.0.1:" + server.getAddress().getPort(), "anon", "token");
+        engine = new OfflineSyncEngine(storage, client, () -> now,
+                Collections.singletonList(new OfflineSyncEngine.Table("transactions", "user_id=eq.{account}", true)),
+                (table, id, localJson, serverJson, reason) -> conflicts.add(id + ":" + reason));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void localWriteIsReadBackWithoutNetworkAndPushedOnSync() {
+        engine.write("transactions", ACCOUNT, row("t1", "amount", 10L));
+        List<String> local = engine.query("transactions", ACCOUNT);
+        assertEquals(1, local.size());
+        assertEquals(0, requests.get());
+        assertEquals(1, storage.pendingCount());
+
+        OfflineSyncEngine.Result result = engine.sync(ACCOUNT);
+
+        assertNull(result.error);
+        assertEquals(1, result.pushed);
+        assertEquals(0, result.pending);
+        assertEquals(10L, db.get("transactions").get("t1").get("amount"));
+        // A cópia local passa a ter o updated_at atribuído pelo servidor
+        assertNotNull(storage.get("transactions", ACCOUNT, "t1").updatedAt);
+    }
+
+    @Test
+    public void partialEditMergesWithLocalRow() {
+        serverRow("t1", "amount", 10L);
+        engine.sync(ACCOUNT);
+
+        engine.write("transactions", ACCOUNT, row("t1", "description", "Mercado"));
+        engine.sync(ACCOUNT);
+
+        Map<String, Object> stored = db.get("transactions").get("t1");
+        assertEquals(10L, stored.get("amount"));
+        assertEquals("Mercado", stored.get("description"));
+    }
+
+    @Test
+    public void editOfRowChangedOnServerIsAConflictAndServerWins() {
+        serverRow("t1", "amount", 10L);
+        engine.sync(ACCOUNT);
+        engine.write("transactions", ACCOUNT, row("t1", "amount", 99L));
+        // Outro aparelho editou a mesma linha depois que ela foi baixada
+        serverRow("t1", "amount", 20L);
+
+        OfflineSyncEngine.Result result = engine.sync(ACCOUNT);
+
+        assertEquals(1, result.conflicts);
+        assertEquals(0, result.pushed);
+        assertEquals(Collections.singletonList("t1:modified on server"), conflicts);
+        assertEquals(20L, db.get("transactions").get("t1").get("amount"));
+        assertEquals(20L, Json.parseObject(storage.get("transactions", ACCOUNT, "t1").json).get("amount"));
+        assertEquals(1, storage.conflictCount());
+    }
+
+    @Test
+    public void editOfRowDeletedOnServerIsDroppedAndRowRemoved() {
+        serverRow("t1", "amount", 10L);
+        engine.sync(ACCOUNT);
+        engine.write("transactions", ACCOUNT, row("t1", "amount", 99L));
+        db.get("transactions").remove("t1");
+
+        OfflineSyncEngine.Result result = engine.sync(ACCOUNT);
+
+        assertEquals(Collections.singletonList("t1:deleted on server"), conflicts);
+        assertEquals(1, result.removed);
+        assertTrue(engine.query("transactions", ACCOUNT).isEmpty());
+        assertNull(db.get("transactions").get("t1"));
+    }
+
+    @Test
+    public void serverErrorBacksOffAndPendingRowSurvivesPull() {
+        serverRow("t1", "amount", 10L);
+        engine.sync(ACCOUNT);
+        engine.write("transactions", ACCOUNT, row("t1", "amount", 99L));
+        postStatus.set(503);
+
+        OfflineSyncEngine.Result first = engine.sync(ACCOUNT);
+
+        assertNotNull(first.error);
+        assertEquals(now + OfflineSyncEngine.BASE_BACKOFF_MS, first.retryAt);
+        assertEquals(1, first.pending);
+        // O pull rodou, mas não desfez a edição que ainda não subiu
+        assertEquals(99L, Json.parseObject(storage.get("transactions", ACCOUNT, "t1").json).get("amount"));
+
+        // Antes do prazo nem tenta enviar
+        postStatus.set(0);
+        OfflineSyncEngine.Result waiting = engine.sync(ACCOUNT);
+        assertEquals(0, waiting.pushed);
+        assertEquals(first.retryAt, waiting.retryAt);
+
+        now += OfflineSyncEngine.BASE_BACKOFF_MS;
+        OfflineSyncEngine.Result retried = engine.sync(ACCOUNT);
+        assertNull(retried.error);
+        assertEquals(1, retried.pushed);
+        assertEquals(99L, db.get("transactions").get("t1").get("amount"));
+    }
+
+    @Test
+    public void backoffGrowsExponentiallyUpToTheCap() {
+        engine.write("transactions", ACCOUNT, row("t1", "amount", 1L));
+        postStatus.set(500);
+        long previous = 0;
+        for (int i = 0; i < 12; i++) {
+            OfflineSyncEngine.Result result = engine.sync(ACCOUNT);
+            long delay = result.retryAt - now;
+            assertTrue(delay >= previous);
+            assertTrue(delay <= OfflineSyncEngine.MAX_BACKOFF_MS);
+            previous = delay;
+            now = result.retryAt;
+        }
+        assertEquals(OfflineSyncEngine.MAX_BACKOFF_MS, previous);
+    }
+
+    @Test
+    public void rejectedWriteIsDroppedAndLocalRowRestored() {
+        serverRow("t1", "amount", 10L);
+        engine.sync(ACCOUNT);
+        engine.write("transactions", ACCOUNT, row("t1", "amount", -1L));
+        postStatus.set(400);
+
+        OfflineSyncEngine.Result result = engine.sync(ACCOUNT);
+
+        assertEquals(1, result.conflicts);
+        assertEquals(0, result.pending);
+        assertTrue(conflicts.get(0).startsWith("t1:rejected"));
+        assertEquals(10L, Json.parseObject(storage.get("transactions", ACCOUNT, "t1").json).get("amount"));
+    }
+
+    @Test
+    public void rowsWithDifferentColumnsArePushedInSeparateRequests() {
+        engine.write("transactions", ACCOUNT, row("t1", "amount", 1L));
+        engine.write("transactions", ACCOUNT, row("t2", "amount", 2L));
+        engine.write("transactions", ACCOUNT, row("t3", "description", "Mercado"));
+
+        int before = requests.get();
+        OfflineSyncEngine.Result result = engine.sync(ACCOUNT);
+
+        assertNull(result.error);
+        assertEquals(0, result.conflicts);
+        assertEquals(3, result.pushed);
+        assertEquals(2L, db.get("transactions").get("t2").get("amount"));
+        assertEquals("Mercado", db.get("transactions").get("t3").get("description"));
+        // 2 POSTs (t1+t2, t3) + pull incremental + ids para reconciliar
+        assertEquals(4, requests.get() - before);
+    }
+
+    @Test
+    public void deletesArePushedInOneRequest() {
+        serverRow("t1", "amount", 1L);
+        serverRow("t2", "amount", 2L);
+        serverRow("t3", "amount", 3L);
+        engine.sync(ACCOUNT);
+        engine.delete("transactions", ACCOUNT, "t1");
+        engine.delete("transactions", ACCOUNT, "t2");
+        assertEquals(1, engine.query("transactions", ACCOUNT).size());
+
+        int before = requests.get();
+        OfflineSyncEngine.Result result = engine.sync(ACCOUNT);
+
+        assertEquals(2, result.pushed);
+        assertEquals(Collections.singleton("t3"), db.get("transactions").keySet());
+        // 1 DELETE + pull incremental (1 página vazia) + ids para reconciliar
+        assertEquals(3, requests.get() - before);
+    }
+
+    @Test
+    public void pullPagesByUpdatedAtAndIdWithoutSkippingTies() {
+        // Mais de uma página, todas as linhas com o mesmo updated_at
+        Map<String, Map<String, Object>> rows = db.get("transactions");
+        for (int i = 0; i < OfflineSyncEngine.PAGE_SIZE * 2 + 7; i++) {
+            String id = String.format("t%05d", i);
+            Map<String, Object> row = row(id, "amount", (long) i);
+            row.put("user_id", ACCOUNT);
+            row.put("updated_at", "2024-01-01T00:00:00+00:00");
+            rows.put(id, row);
+        }
+
+        OfflineSyncEngine.Result result = engine.sync(ACCOUNT);
+
+        assertEquals(OfflineSyncEngine.PAGE_SIZE * 2 + 7, result.pulled);
+        assertEquals(OfflineSyncEngine.PAGE_SIZE * 2 + 7, engine.query("transactions", ACCOUNT).size());
+
+        // Sem mudanças, o próximo sync não baixa nada de novo
+        assertEquals(0, engine.sync(ACCOUNT).pulled);
+    }
+
+    @Test
+    public void otherAccountsRowsAreNotPulled() {
+        serverRow("t1", "amount", 1L);
+        Map<String, Object> foreign = row("x1", "amount", 5L);
+        foreign.put("user_id", "user-2");
+        foreign.put("updated_at", "2024-01-01T00:00:00+00:00");
+        db.get("transactions").put("x1", foreign);
+
+        engine.sync(ACCOUNT);
+
+        assertEquals(1, engine.query("transactions", ACCOUNT).size());
+    }
+
+    @Test
+    public void timestampsCompareAsInstants() {
+        assertTrue(OfflineSyncEngine.sameInstant("2024-01-01T10:00:00+00:00", "2024-01-01T10:00:00.000Z"));
+        assertTrue(OfflineSyncEngine.sameInstant("2024-01-01 10:00:00.120+00", "2024-01-01T10:00:00.12+00:00"));
+        assertTrue(!OfflineSyncEngine.sameInstant("2024-01-01T10:00:00.1+00:00", "2024-01-01T10:00:00.2+00:00"));
+    }
+
+    private static Map<String, Object> row(String id, String key, Object value) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put(key, value);
+        return row;
+    }
+
+    private void serverRow(String id, String key, Object value) {
+        Map<String, Object> current = db.get("transactions").get(id);
+        Map<String, Object> row = current != null ? current : row(id, key, value);
+        row.put(key, value);
+        row.put("user_id", ACCOUNT);
+        row.put("updated_at", nextVersion());
+        db.get("transactions").put(id, row);
+    }
+
+    private String nextVersion() {
+        version++;
+        return String.format("2024-01-01T00:00:00.%06d+00:00", version);
+    }
+
+    // --- PostgREST de mentira ------------------------------------------------------------
+
+    private synchronized void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String table = exchange.getRequestURI().getPath().substring("/rest/v1/".length());
+        Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+        Map<String, Map<String, Object>> rows = db.get(table);
+        String method = exchange.getRequestMethod();
+        String response;
+        if ("POST".equals(method)) {
+            if (postStatus.get() != 0) {
+                respond(exchange, postStatus.get(), "{\"message\":\"falha simulada\"}");
+                return;
+            }
+            List<Object> body = Json.parseArray(read(exchange.getRequestBody()));
+            // Como o PostgREST: todas as linhas de um insert em lote precisam das mesmas colunas
+            Set<String> columns = null;
+            for (Object item : body) {
+                @SuppressWarnings("unchecked")
+                Set<String> keys = ((Map<String, Object>) item).keySet();
+                if (columns != null && !columns.equals(keys)) {
+                    respond(exchange, 400, "{\"code\":\"PGRST102\",\"message\":\"All object keys must match\"}");
+                    return;
+                }
+                columns = keys;
+            }
+            List<Object> written = new ArrayList<>();
+            for (Object item : body) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> row = (Map<String, Object>) item;
+                String id = Json.string(row, "id");
+                Map<String, Object> merged = rows.containsKey(id) ? rows.get(id) : new LinkedHashMap<String, Object>();
+                merged.putAll(row);
+                merged.put("user_id", ACCOUNT);
+                merged.put("updated_at", nextVersion());
+                rows.put(id, merged);
+                written.add(merged);
+            }
+            response = Json.stringify(written);
+        } else if ("DELETE".equals(method)) {
+            rows.keySet().removeAll(ids(params.get("id")));
+            response = "";
+        } else {
+            response = Json.stringify(select(rows, params));
+        }
+        respond(exchange, 200, response);
+    }
+
+    private List<Object> select(Map<String, Map<String, Object>> rows, Map<String, String> params) {
+        List<Map<String, Object>> matched = new ArrayList<>();
+        Set<String> ids = params.containsKey("id") ? ids(params.get("id")) : null;
+        String account = params.containsKey("user_id") ? params.get("user_id").substring("eq.".length()) : null;
+        String afterUpdatedAt = null;
+        String afterId = null;
+        if (params.containsKey("or")) {
+            Matcher keyset = KEYSET.matcher(params.get("or"));
+            assertTrue(params.get("or"), keyset.matches());
+            afterUpdatedAt = keyset.group(1);
+            afterId = keyset.group(2);
+        }
+        for (Map<String, Object> row : rows.values()) {
+            String id = Json.string(row, "id");
+            String updatedAt = Json.string(row, "updated_at");
+            if (ids != null && !ids.contains(id)) continue;
+            if (account != null && !account.equals(row.get("user_id"))) continue;
+            if (afterUpdatedAt != null) {
+                int order = updatedAt.compareTo(afterUpdatedAt);
+                if (order < 0 || (order == 0 && id.compareTo(afterId) <= 0)) continue;
+            }
+            matched.add(row);
+        }
+        if (params.containsKey("order")) {
+            Collections.sort(matched, (a, b) -> {
+                int order = Json.string(a, "updated_at").compareTo(Json.string(b, "updated_at"));
+                return order != 0 ? order : Json.string(a, "id").compareTo(Json.string(b, "id"));
+            });
+        }
+        if (params.containsKey("limit")) {
+            int limit = Integer.parseInt(params.get("limit"));
+            if (matched.size() > limit) {
+                matched = matched.subList(0, limit);
+            }
+        }
+        List<Object> result = new ArrayList<>();
+        List<String> columns = Arrays.asList(params.get("select").split(","));
+        for (Map<String, Object> row : matched) {
+            if (columns.contains("*")) {
+                result.add(new LinkedHashMap<>(row));
+            } else {
+                Map<String, Object> projected = new LinkedHashMap<>();
+                for (String column : columns) {
+                    projected.put(column, row.get(column));
+                }
+                result.add(projected);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> ids(String filter) {
+        Matcher matcher = IN_LIST.matcher(filter);
+        assertTrue(filter, matcher.matches());
+        Set<String> ids = new HashSet<>();
+        for (String id : matcher.group(1).split(",")) {
+            ids.add(id.replace("\"", ""));
+        }
+        return ids;
+    }
+
+    private static Map<String, String> params(String rawQuery) throws IOException {
+        Map<String, String> params = new TreeMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+        exchange.close();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /** Mesmo contrato do SqliteOfflineStorage, em memória. */
+    private static final class MemoryStorage implements OfflineStorage {
+        private final Map<String, Row> records = new LinkedHashMap<>();
+        private final TreeMap<Long, OutboxEntry> outbox = new TreeMap<>();
+        private final Map<String, String> cursors = new HashMap<>();
+        private int conflicts;
+        private long seq;
+
+        private static String key(String table, String accountId, String id) {
+            return table + "/" + accountId + "/" + id;
+        }
+
+        @Override
+        public List<String> query(String table, String accountId) {
+            List<String> rows = new ArrayList<>();
+            for (Row row : records.values()) {
+                if (row.table.equals(table) && row.accountId.equals(accountId)) {
+                    rows.add(row.json);
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        public Row get(String table, String accountId, String id) {
+            return records.get(key(table, accountId, id));
+        }
+
+        @Override
+        public void writeLocal(Row row, String op, String baseUpdatedAt, long now) {
+            if (OP_DELETE.equals(op)) {
+                records.remove(key(row.table, row.accountId, row.id));
+            } else {
+                records.put(key(row.table, row.accountId, row.id), row);
+            }
+            seq++;
+            outbox.put(seq, new OutboxEntry(seq, row.table, row.accountId, row.id, op, row.json, baseUpdatedAt, 0, 0));
+        }
+
+        @Override
+        public List<OutboxEntry> peekOutbox(int limit) {
+            List<OutboxEntry> entries = new ArrayList<>();
+            for (OutboxEntry entry : outbox.values()) {
+                if (entries.size() == limit) break;
+                entries.add(entry);
+            }
+            return entries;
+        }
+
+        @Override
+        public void completeOutbox(Collection<Long> seqs, String table, String accountId, List<Row> serverRows) {
+            outbox.keySet().removeAll(seqs);
+            applyServerRows(table, accountId, serverRows);
+        }
+
+        @Override
+        public void deferOutbox(Collection<Long> seqs, String error, long nextAttemptAt) {
+            for (Map.Entry<Long, OutboxEntry> item : outbox.entrySet()) {
+                OutboxEntry e = item.getValue();
+                int attempts = seqs.contains(e.seq) ? e.attempts + 1 : e.attempts;
+                item.setValue(new OutboxEntry(e.seq, e.table, e.accountId, e.recordId, e.op, e.json,
+                        e.baseUpdatedAt, attempts, Math.max(e.nextAttemptAt, nextAttemptAt)));
+            }
+        }
+
+        @Override
+        public void recordConflict(OutboxEntry entry, String serverJson, String reason, long now) {
+            conflicts++;
+        }
+
+        @Override
+        public void applyServerRows(String table, String accountId, List<Row> rows) {
+            for (Row row : rows) {
+                if (!hasPending(table, accountId, row.id)) {
+                    records.put(key(table, accountId, row.id), row);
+                }
+            }
+        }
+
+        @Override
+        public int retainOnly(String table, String accountId, Set<String> ids) {
+            int removed = 0;
+            for (Iterator<Row> it = records.values().iterator(); it.hasNext(); ) {
+                Row row = it.next();
+                if (row.table.equals(table) && row.accountId.equals(accountId)
+                        && !ids.contains(row.id) && !hasPending(table, accountId, row.id)) {
+                    it.remove();
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        private boolean hasPending(String table, String accountId, String id) {
+            for (OutboxEntry entry : outbox.values()) {
+                if (entry.table.equals(table) && entry.accountId.equals(accountId) && entry.recordId.equals(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String cursor(String table, String accountId) {
+            return cursors.get(table + "/" + accountId);
+        }
+
+        @Override
+        public void setCursor(String table, String accountId, String cursor) {
+            cursors.put(table + "/" + accountId, cursor);
+        }
+
+        @Override
+        public int pendingCount() {
+            return outbox.size();
+        }
+
+        @Override
+        public int conflictCount() {
+            return conflicts;
+        }
+
+        @Override
+        public void clear() {
+            records.clear();
+            outbox.clear();
+            cursors.clear();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.finaudy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PushTokenRegistrarTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private File file;
+    // Corpo de cada chamada à função, como o servidor recebeu
+    private final List<Map<String, Object>> calls = Collections.synchronizedList(new ArrayList<Map<String, Object>>());
+    private final List<String> authorizations = Collections.synchronizedList(new ArrayList<String>());
+    private final AtomicInteger status = new AtomicInteger(200);
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(PushTokenRegistrar.FUNCTION_PATH, this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        file = Files.createTempFile("push-token", ".json").toFile();
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        file.delete();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        calls.add(Json.parseObject(new String(body.toByteArray(), StandardCharsets.UTF_8)));
+        authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+        byte[] response = (status.get() < 400 ? "{\"success\":true}" : "{\"error\":\"falhou\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status.get(), response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private boolean register(PushTokenRegistrar registrar, String userId) throws IOException {
+        return registrar.register(baseUrl, "anon", "jwt-" + userId, userId);
+    }
+
+    @Test
+    public void registersOnlyWhenTokenOrUserChanges() throws IOException {
+        PushTokenRegistrar registrar = new PushTokenRegistrar(file);
+        assertFalse(register(registrar, "u1"));
+
+        assertTrue(registrar.updateToken("t1"));
+        assertTrue(register(registrar, "u1"));
+        assertEquals("t1", calls.get(0).get("token"));
+        assertEquals("android", calls.get(0).get("platform"));
+        assertEquals("Bearer jwt-u1", authorizations.get(0));
+
+        // Mesmo token a cada abertura do app: nada a fazer
+        assertFalse(registrar.updateToken("t1"));
+        assertFalse(register(registrar, "u1"));
+
+        assertTrue(register(registrar, "u2"));
+        assertTrue(registrar.updateToken("t2"));
+        assertTrue(register(registrar, "u2"));
+        assertEquals(3, calls.size());
+        assertEquals("t2", calls.get(2).get("token"));
+    }
+
+    @Test
+    public void stateSurvivesANewProcess() throws IOException {
+        PushTokenRegistrar first = new PushTokenRegistrar(file);
+        first.updateToken("t1");
+        register(first, "u1");
+
+        PushTokenRegistrar second = new PushTokenRegistrar(file);
+        assertEquals("t1", second.token());
+        assertFalse(second.needsRegistration("u1"));
+        assertFalse(register(second, "u1"));
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void failureKeepsTokenPendingForTheRetry() throws IOException {
+        PushTokenRegistrar registrar = new PushTokenRegistrar(file);
+        registrar.updateToken("t1");
+        status.set(503);
+        try {
+            register(registrar, "u1");
+            fail();
+        } catch (PostgrestClient.HttpStatusException e) {
+            assertEquals(503, e.status);
+            assertTrue(e.isRetryable());
+        }
+        assertTrue(registrar.needsRegistration("u1"));
+
+        status.set(200);
+        assertTrue(register(registrar, "u1"));
+        assertFalse(registrar.needsRegistration("u1"));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void unreachableServerIsAnIOException() throws IOException {
+        PushTokenRegistrar registrar = new PushTokenRegistrar(file);
+        registrar.updateToken("t1");
+        server.stop(0);
+        try {
+            register(registrar, "u1");
+            fail();
+        } catch (IOException expected) {
+            // Esperado
+        }
+        assertTrue(new PushTokenRegistrar(file).needsRegistration("u1"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QualityBudgetSearchTest {
+
+    // Tamanho cresce linearmente com a qualidade: 10 KB por ponto
+    private static final QualityBudgetSearch.Encoder LINEAR = quality -> new byte[quality * 10 * 1024];
+
+    @Test
+    public void returnsMaxQualityWhenItFits() throws Exception {
+        QualityBudgetSearch.Result result = QualityBudgetSearch.search(LINEAR, 2 * 1024 * 1024, 50, 90, 5);
+        assertEquals(90, result.quality);
+        assertEquals(1, result.attempts);
+        assertTrue(result.withinBudget);
+    }
+
+    @Test
+    public void findsHighestQualityWithinBudget() throws Exception {
+        QualityBudgetSearch.Result result = QualityBudgetSearch.search(LINEAR, 700 * 1024, 50, 90, 8);
+        assertEquals(70, result.quality);
+        assertTrue(result.withinBudget);
+        assertTrue(result.bytes.length <= 700 * 1024);
+    }
+
+    @Test
+    public void attemptLimitStillReturnsAResultWithinBudget() throws Exception {
+        QualityBudgetSearch.Result result = QualityBudgetSearch.search(LINEAR, 700 * 1024, 50, 90, 3);
+        assertTrue(result.attempts <= 3);
+        assertTrue(result.withinBudget);
+        assertTrue(result.quality <= 70);
+    }
+
+    @Test
+    public void fallsBackToMinimumQualityWhenNothingFits() throws Exception {
+        QualityBudgetSearch.Result result = QualityBudgetSearch.search(LINEAR, 100 * 1024, 50, 90, 4);
+        assertEquals(50, result.quality);
+        assertFalse(result.withinBudget);
+        assertEquals(500 * 1024, result.bytes.length);
+    }
+}
@@ -0,0 +1,162 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * As fixtures são sintéticas (16 kHz, como o gravador): ruído branco de fundo e uma "vogal" com sílabas de 4 Hz.
+ * speech_with_pauses.wav: 0,8 s silêncio, 0,6 s fala, 1,5 s pausa, 0,5 s fala, 1,0 s silêncio (-60 dBFS).
+ * noisy_room.wav: 2,0 s de ruído a -38 dBFS, 0,8 s de fala, 1,5 s de ruído.
+ */
+public class SilenceTrimmerTest {
+
+    @Test
+    public void trimsLeadingTrailingSilenceAndShortensPauses() throws IOException {
+        WavFixture wav = WavFixture.load("speech_with_pauses.wav");
+        SilenceTrimmer trimmer = new SilenceTrimmer(wav.sampleRate, new SilenceTrimmer.Options());
+
+        byte[] out = run(trimmer, wav.pcm, 512);
+
+        assertTrue(trimmer.hasSpeech());
+        assertEquals(wav.durationMs(), trimmer.getInputDurationMs());
+        assertEquals(out.length / 2, trimmer.getOutputSamples());
+        long kept = trimmer.getOutputDurationMs();
+        // 1,1 s de fala + no máximo pré-roll e hangover em volta de cada trecho
+        assertTrue("mantido: " + kept, kept >= 1100);
+        assertTrue("mantido: " + kept, kept <= 1100 + 2 * (250 + 300) + 100);
+    }
+
+    @Test
+    public void keepsSpeechSamplesUntouched() throws IOException {
+        WavFixture wav = WavFixture.load("speech_with_pauses.wav");
+        byte[] out = run(new SilenceTrimmer(wav.sampleRate, new SilenceTrimmer.Options()), wav.pcm, 512);
+
+        // O primeiro trecho de fala (0,8 s a 1,4 s) aparece intacto na saída
+        int start = wav.sampleRate * 800 / 1000 * 2;
+        int end = wav.sampleRate * 1400 / 1000 * 2;
+        byte[] speech = java.util.Arrays.copyOfRange(wav.pcm, start, end);
+        assertTrue(indexOf(out, speech) >= 0);
+    }
+
+    @Test
+    public void silenceProducesNothing() throws IOException {
+        WavFixture wav = WavFixture.load("silence.wav");
+        SilenceTrimmer trimmer = new SilenceTrimmer(wav.sampleRate, new SilenceTrimmer.Options());
+
+        byte[] out = run(trimmer, wav.pcm, 700);
+
+        assertFalse(trimmer.hasSpeech());
+        assertEquals(0, out.length);
+        assertEquals(wav.durationMs(), trimmer.getInputDurationMs());
+    }
+
+    @Test
+    public void adaptsToNoisyRoom() throws IOException {
+        WavFixture wav = WavFixture.load("noisy_room.wav");
+        SilenceTrimmer trimmer = new SilenceTrimmer(wav.sampleRate, new SilenceTrimmer.Options());
+
+        run(trimmer, wav.pcm, 512);
+
+        assertTrue(trimmer.hasSpeech());
+        // O ruído está acima do limiar absoluto, mas o piso se forma nos primeiros frames:
+        // só a fala sai, com no máximo pré-roll e hangover de ruído em volta
+        long kept = trimmer.getOutputDurationMs();
+        assertTrue("mantido: " + kept, kept >= 800);
+        assertTrue("mantido: " + kept, kept <= 800 + 250 + 300 + 100);
+    }
+
+    @Test
+    public void speechStartingWhileTheFloorFormsIsKept() throws IOException {
+        WavFixture wav = WavFixture.load("speech_with_pauses.wav");
+        // Só 200 ms de silêncio antes da fala, menos que o pré-roll em que o piso se forma
+        int from = wav.sampleRate * 600 / 1000 * 2;
+        int start = wav.sampleRate * 800 / 1000 * 2;
+        int end = wav.sampleRate * 1400 / 1000 * 2;
+        byte[] speech = java.util.Arrays.copyOfRange(wav.pcm, start, end);
+        SilenceTrimmer trimmer = new SilenceTrimmer(wav.sampleRate, new SilenceTrimmer.Options());
+
+        byte[] out = run(trimmer, java.util.Arrays.copyOfRange(wav.pcm, from, wav.pcm.length), 512);
+
+        assertTrue(trimmer.hasSpeech());
+        assertEquals(start - from, indexOf(out, speech));
+    }
+
+    @Test
+    public void chunkSizeDoesNotChangeOutput() throws IOException {
+        WavFixture wav = WavFixture.load("speech_with_pauses.wav");
+        byte[] small = run(new SilenceTrimmer(wav.sampleRate, new SilenceTrimmer.Options()), wav.pcm, 46);
+        byte[] large = run(new SilenceTrimmer(wav.sampleRate, new SilenceTrimmer.Options()), wav.pcm, wav.pcm.length);
+        assertArrayEquals(large, small);
+    }
+
+    @Test
+    public void autoStopsAfterSustainedSilenceFollowingSpeech() throws IOException {
+        WavFixture wav = WavFixture.load("speech_with_pauses.wav");
+        SilenceTrimmer trimmer = new SilenceTrimmer(wav.sampleRate,
+                new SilenceTrimmer.Options().setAutoStopSilenceMs(1200));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int chunk = wav.sampleRate / 50 * 2;
+        int stoppedAt = -1;
+        for (int offset = 0; offset < wav.pcm.length; offset += chunk) {
+            trimmer.process(wav.pcm, offset, Math.min(chunk, wav.pcm.length - offset), out::write);
+            if (trimmer.shouldAutoStop()) {
+                stoppedAt = offset;
+                break;
+            }
+        }
+
+        // O silêncio inicial não conta; a pausa de 1,5 s depois da primeira fala sim
+        long stoppedMs = stoppedAt / 2 * 1000L / wav.sampleRate;
+        assertTrue("parou em " + stoppedMs, stoppedMs >= 1400 + 1200 - 100);
+        assertTrue("parou em " + stoppedMs, stoppedMs < 2900);
+    }
+
+    @Test
+    public void autoStopDisabledByDefault() throws IOException {
+        WavFixture wav = WavFixture.load("speech_with_pauses.wav");
+        SilenceTrimmer trimmer = new SilenceTrimmer(wav.sampleRate, new SilenceTrimmer.Options());
+        run(trimmer, wav.pcm, 512);
+        assertFalse(trimmer.shouldAutoStop());
+    }
+
+    @Test
+    public void levelOfFullScaleSquareWaveIsZeroDbfs() {
+        byte[] pcm = new byte[320];
+        for (int i = 0; i < pcm.length; i += 2) {
+            short sample = (i / 2) % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE + 1;
+            pcm[i] = (byte) sample;
+            pcm[i + 1] = (byte) (sample >> 8);
+        }
+        assertEquals(0.0, VoiceActivityDetector.levelDbfs(pcm, 0, pcm.length), 0.01);
+        assertEquals(VoiceActivityDetector.SILENCE_DBFS, VoiceActivityDetector.levelDbfs(new byte[320], 0, 320), 0.0);
+    }
+
+    private static byte[] run(SilenceTrimmer trimmer, byte[] pcm, int chunk) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int offset = 0; offset < pcm.length; offset += chunk) {
+            trimmer.process(pcm, offset, Math.min(chunk, pcm.length - offset), out::write);
+        }
+        trimmer.flush(out::write);
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= haystack.length; i += 2) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
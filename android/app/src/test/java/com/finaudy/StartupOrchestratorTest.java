@@ -0,0 +1,95 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StartupOrchestratorTest {
+
+    private long nowNanos;
+    private final StartupTrace trace = new StartupTrace(() -> nowNanos, 0);
+    private final List<String> ran = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+    private final StartupOrchestrator startup = new StartupOrchestrator(trace, (task, error) -> failures.add(task));
+
+    private Runnable task(String name, long durationMs) {
+        return () -> {
+            ran.add(name);
+            nowNanos += durationMs * 1_000_000L;
+        };
+    }
+
+    @Test
+    public void phasesRunSeparatelyAndOnDemandWaitsForFirstUse() {
+        startup.add("webView", StartupOrchestrator.Phase.CRITICAL, task("webView", 40))
+                .add("channel", StartupOrchestrator.Phase.IDLE, task("channel", 2))
+                .add("billing", StartupOrchestrator.Phase.ON_DEMAND, task("billing", 30));
+
+        assertEquals(1, startup.runPhase(StartupOrchestrator.Phase.CRITICAL));
+        assertEquals(Arrays.asList("webView"), ran);
+        assertEquals(1, startup.runPhase(StartupOrchestrator.Phase.IDLE));
+        assertFalse(startup.isDone("billing"));
+
+        assertTrue(startup.ensure("billing"));
+        assertTrue(startup.ensure("billing"));
+        assertEquals(Arrays.asList("webView", "channel", "billing"), ran);
+        assertEquals(40.0, trace.spans().get("task:webView"), 0.001);
+        assertEquals(30.0, trace.spans().get("task:billing"), 0.001);
+    }
+
+    @Test
+    public void ensureRunsPendingDependenciesFirst() {
+        startup.add("channel", StartupOrchestrator.Phase.IDLE, task("channel", 1))
+                .add("permission", StartupOrchestrator.Phase.IDLE, task("permission", 1), "channel");
+
+        assertTrue(startup.ensure("permission"));
+        assertEquals(Arrays.asList("channel", "permission"), ran);
+        assertEquals(0, startup.runPhase(StartupOrchestrator.Phase.IDLE));
+    }
+
+    @Test
+    public void failedTaskStaysPendingAndBlocksDependents() {
+        final int[] attempts = {0};
+        startup.add("analytics", StartupOrchestrator.Phase.IDLE, () -> {
+            if (attempts[0]++ == 0) {
+                throw new IllegalStateException("sem Play Services");
+            }
+        }).add("report", StartupOrchestrator.Phase.IDLE, task("report", 1), "analytics");
+
+        assertEquals(0, startup.runPhase(StartupOrchestrator.Phase.IDLE));
+        assertTrue(ran.isEmpty());
+        assertEquals(Arrays.asList("analytics"), failures);
+        assertTrue(trace.spans().containsKey("task:analytics:failed"));
+
+        assertTrue(startup.ensure("report"));
+        assertEquals(Arrays.asList("report"), ran);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void criticalTaskCannotDependOnDeferredTask() {
+        startup.add("billing", StartupOrchestrator.Phase.ON_DEMAND, task("billing", 1))
+                .add("webView", StartupOrchestrator.Phase.CRITICAL, task("webView", 1), "billing");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dependenciesMustBeAddedFirst() {
+        startup.add("permission", StartupOrchestrator.Phase.IDLE, task("permission", 1), "channel");
+    }
+
+    @Test
+    public void marksAreRecordedOnceFromOrigin() {
+        StartupTrace coldStart = new StartupTrace(() -> nowNanos, 5_000_000L);
+        nowNanos = 125_000_000L;
+        assertTrue(coldStart.mark("firstFrame"));
+        nowNanos = 900_000_000L;
+        assertFalse(coldStart.mark("firstFrame"));
+        assertEquals(120.0, coldStart.get("firstFrame"), 0.001);
+        assertEquals("{\"marks\":{\"firstFrame\":120.0},\"spans\":{}}", coldStart.toJson());
+    }
+}
@@ -0,0 +1,74 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class StartupTraceLogTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("startup-trace", ".tsv").toFile();
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static Map<String, Double> marks(double firstFrame, double webReady) {
+        Map<String, Double> marks = new LinkedHashMap<>();
+        marks.put("firstFrame", firstFrame);
+        marks.put("webReady", webReady);
+        return marks;
+    }
+
+    @Test
+    public void keepsOnlyTheLatestLaunches() throws IOException {
+        StartupTraceLog log = new StartupTraceLog(file, 3);
+        for (int i = 1; i <= 5; i++) {
+            log.append(i, marks(100 * i, 1000 * i));
+        }
+        assertEquals(Arrays.asList(300.0, 400.0, 500.0), log.values("firstFrame"));
+        assertEquals(Arrays.asList(3000.0, 4000.0, 5000.0), log.values("webReady"));
+    }
+
+    @Test
+    public void summarizesWithNearestRankPercentiles() throws IOException {
+        StartupTraceLog log = new StartupTraceLog(file, 20);
+        double[] firstFrames = {410, 380, 900, 395, 420, 405, 390, 400, 385, 415};
+        for (int i = 0; i < firstFrames.length; i++) {
+            log.append(i, marks(firstFrames[i], 1500));
+        }
+        StartupTraceLog.Summary summary = log.summarize("firstFrame");
+        assertEquals(10, summary.count);
+        assertEquals(400.0, summary.p50, 0.001);
+        assertEquals(420.0, summary.p90, 0.001);
+        assertEquals(900.0, summary.max, 0.001);
+        assertEquals(0, log.summarize("idleDone").count);
+    }
+
+    @Test
+    public void skipsTruncatedLines() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("1\tfirstFrame\t350.00\n2\tfirstFr".getBytes(StandardCharsets.UTF_8));
+        }
+        StartupTraceLog log = new StartupTraceLog(file, 10);
+        log.append(3, marks(360, 1200));
+        assertEquals(Arrays.asList(350.0, 360.0), log.values("firstFrame"));
+    }
+}
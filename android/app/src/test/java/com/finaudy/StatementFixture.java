@@ -0,0 +1,144 @@
+package com.finaudy;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Extratos grandes gerados sob demanda: o InputStream monta cada lançamento quando é lido,
+ * então o teste exercita arquivos de dezenas de MB sem guardá-los na memória.
+ */
+final class StatementFixture {
+
+    interface Lines {
+        /** @return o trecho do arquivo de índice i, ou null no fim */
+        String get(int i);
+    }
+
+    private static final String[] PLACES = {
+            "Supermercado São João", "Posto Ipiranga", "Padaria \"Pão Quente\"", "Uber *Trip", "Farmácia; Drogasil",
+            "Salário ACME", "Netflix.com", "Restaurante Café & Cia",
+    };
+
+    private static final String[] DATES = new String[10_000];
+
+    private StatementFixture() {
+    }
+
+    static InputStream stream(final Charset charset, final Lines lines) {
+        return new InputStream() {
+            private byte[] chunk = new byte[0];
+            private int position;
+            private int index;
+
+            @Override
+            public int read() {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                while (position == chunk.length) {
+                    String next = lines.get(index++);
+                    if (next == null) {
+                        return -1;
+                    }
+                    chunk = next.getBytes(charset);
+                    position = 0;
+                }
+                int count = Math.min(len, chunk.length - position);
+                System.arraycopy(chunk, position, b, off, count);
+                position += count;
+                return count;
+            }
+        };
+    }
+
+    static String description(int i) {
+        return PLACES[i % PLACES.length] + " " + (i % 97);
+    }
+
+    /** Centavos com sinal do lançamento i; um em cada oito é receita. */
+    static long cents(int i) {
+        long cents = 100 + (i * 7919L) % 500_000;
+        return i % 8 == 5 ? cents : -cents;
+    }
+
+    /** Data do lançamento i, andando um dia a cada 50 lançamentos a partir de 2015-01-01. */
+    static String date(int i) {
+        int day = i / 50;
+        if (day >= DATES.length) {
+            return computeDate(day);
+        }
+        if (DATES[day] == null) {
+            DATES[day] = computeDate(day);
+        }
+        return DATES[day];
+    }
+
+    private static String computeDate(int day) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        calendar.clear();
+        calendar.set(2015, Calendar.JANUARY, 1);
+        calendar.add(Calendar.DAY_OF_MONTH, day);
+        return String.format(Locale.US, "%04d-%02d-%02d", calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /** CSV no formato de exportação do banco: "Data;Histórico;Valor;Saldo", valores em pt-BR. */
+    static Lines csv(final int rows) {
+        return i -> {
+            if (i == 0) {
+                return "Data;Histórico;Valor (R$);Saldo\r\n";
+            }
+            if (i > rows) {
+                return null;
+            }
+            int n = i - 1;
+            String date = date(n);
+            String description = description(n);
+            String quoted = description.indexOf(';') >= 0 || description.indexOf('"') >= 0
+                    ? '"' + description.replace("\"", "\"\"") + '"' : description;
+            return date.substring(8, 10) + "/" + date.substring(5, 7) + "/" + date.substring(0, 4) + ";"
+                    + quoted + ";" + brl(cents(n)) + ";" + brl(n * 13L) + "\r\n";
+        };
+    }
+
+    /** OFX 1.x em SGML, sem tags de fechamento nas folhas. */
+    static Lines ofx(final int rows) {
+        return i -> {
+            if (i == 0) {
+                return "OFXHEADER:100\r\nDATA:OFXSGML\r\nVERSION:102\r\nENCODING:USASCII\r\nCHARSET:1252\r\n\r\n"
+                        + "<OFX>\r\n<BANKMSGSRSV1>\r\n<STMTTRNRS>\r\n<STMTRS>\r\n<CURDEF>BRL\r\n<BANKTRANLIST>\r\n"
+                        + "<DTSTART>20150101\r\n";
+            }
+            if (i == rows + 1) {
+                return "</BANKTRANLIST>\r\n<LEDGERBAL>\r\n<BALAMT>10.00\r\n</LEDGERBAL>\r\n</STMTRS>\r\n"
+                        + "</STMTTRNRS>\r\n</BANKMSGSRSV1>\r\n</OFX>\r\n";
+            }
+            if (i > rows + 1) {
+                return null;
+            }
+            int n = i - 1;
+            long cents = cents(n);
+            return "<STMTTRN>\r\n<TRNTYPE>" + (cents < 0 ? "DEBIT" : "CREDIT") + "\r\n<DTPOSTED>"
+                    + date(n).replace("-", "") + "120000[-3:BRT]\r\n<TRNAMT>" + (cents < 0 ? "-" : "")
+                    + brl(Math.abs(cents)).replace(".", "").replace(',', '.')
+                    + "\r\n<FITID>" + n + "\r\n<MEMO>" + description(n).replace("&", "&amp;") + "\r\n";
+        };
+    }
+
+    /** "-1.234,56" */
+    static String brl(long cents) {
+        long abs = Math.abs(cents);
+        StringBuilder value = new StringBuilder(Long.toString(abs / 100));
+        for (int i = value.length() - 3; i > 0; i -= 3) {
+            value.insert(i, '.');
+        }
+        value.append(',').append(abs % 100 < 10 ? "0" : "").append(abs % 100);
+        return (cents < 0 ? "-" : "") + value;
+    }
+}
@@ -0,0 +1,213 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StatementImportTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    private static StatementImport open(String content, Charset charset, String fileName,
+                                        Map<String, Integer> existing) throws IOException {
+        byte[] bytes = content.getBytes(charset);
+        return new StatementImport(new ByteArrayInputStream(bytes), bytes.length, fileName, existing, null);
+    }
+
+    private static List<Map<String, Object>> all(StatementImport statement) throws IOException {
+        List<Map<String, Object>> rows = statement.next(Integer.MAX_VALUE);
+        assertTrue(statement.isDone());
+        return rows;
+    }
+
+    @Test
+    public void csvReaderHandlesQuotesAndEmbeddedLineBreaks() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(
+                "a;\"b;c\";\"d \"\"e\"\"\"\r\n\r\n1;\"linha\nquebrada\";\r\nfim"), ';');
+        assertArrayEquals(new String[]{"a", "b;c", "d \"e\""}, reader.next());
+        assertArrayEquals(new String[]{"1", "linha\nquebrada", ""}, reader.next());
+        assertArrayEquals(new String[]{"fim"}, reader.next());
+        assertNull(reader.next());
+        assertEquals(',', CsvRecordReader.detectDelimiter("date,\"desc;ription\",amount"));
+        assertEquals('\t', CsvRecordReader.detectDelimiter("Data\tValor"));
+    }
+
+    @Test
+    public void ofxReaderAcceptsSgmlAndXml() throws IOException {
+        OfxStatementReader sgml = new OfxStatementReader(new StringReader(
+                "<OFX><BANKTRANLIST><STMTTRN><TRNAMT>-1.50<NAME>A &amp; B<STMTTRN><TRNAMT>2\n"
+                        + "</BANKTRANLIST><LEDGERBAL><BALAMT>9</LEDGERBAL></OFX>"));
+        Map<String, String> first = sgml.next();
+        assertEquals("-1.50", first.get("TRNAMT"));
+        assertEquals("A & B", first.get("NAME"));
+        Map<String, String> second = sgml.next();
+        assertEquals("2", second.get("TRNAMT"));
+        // O saldo depois da lista não entra no último lançamento
+        assertNull(second.get("BALAMT"));
+        assertNull(sgml.next());
+
+        OfxStatementReader xml = new OfxStatementReader(new StringReader(
+                "<?xml version=\"1.0\"?><OFX><STMTTRN><TRNAMT>3.00</TRNAMT><PAYEE><NAME>Loja</NAME></PAYEE>"
+                        + "<MEMO>x</MEMO></STMTTRN></OFX>"));
+        Map<String, String> only = xml.next();
+        assertEquals("3.00", only.get("TRNAMT"));
+        assertEquals("Loja", only.get("NAME"));
+        assertEquals("x", only.get("MEMO"));
+        assertNull(xml.next());
+    }
+
+    @Test
+    public void parsesBrazilianAndUsAmounts() {
+        assertEquals(Long.valueOf(-123456), StatementImport.parseCents("-1.234,56"));
+        assertEquals(Long.valueOf(123456), StatementImport.parseCents("1,234.56"));
+        assertEquals(Long.valueOf(1250), StatementImport.parseCents("R$ 12,50"));
+        assertEquals(Long.valueOf(-1250), StatementImport.parseCents("(12,50)"));
+        assertEquals(Long.valueOf(-1250), StatementImport.parseCents("12,50 D"));
+        assertEquals(Long.valueOf(1250), StatementImport.parseCents("12,50C"));
+        assertEquals(Long.valueOf(123400), StatementImport.parseCents("1.234"));
+        assertEquals(Long.valueOf(1250), StatementImport.parseCents("12.5"));
+        assertNull(StatementImport.parseCents(""));
+        assertNull(StatementImport.parseCents("abc"));
+    }
+
+    @Test
+    public void parsesCommonDateFormats() {
+        assertEquals("2024-03-05", StatementImport.parseDate("05/03/2024"));
+        assertEquals("2024-03-05", StatementImport.parseDate("05/03/24"));
+        assertEquals("2024-03-05", StatementImport.parseDate("2024-03-05"));
+        assertEquals("2024-03-05", StatementImport.parseDate("05.03.2024"));
+        assertEquals("2024-03-05", StatementImport.parseDate("20240305120000[-3:BRT]"));
+        assertNull(StatementImport.parseDate("32/01/2024"));
+        assertNull(StatementImport.parseDate("Saldo anterior"));
+    }
+
+    @Test
+    public void mapsDebitCreditColumnsAndSkipsInvalidLines() throws IOException {
+        StatementImport statement = open("Data,Descrição,Débito,Crédito,Saldo\n"
+                + "01/02/2024,Mercado,\"1.234,50\",,100\n"
+                + "02/02/2024,Salário,,5000,5100\n"
+                + "Saldo anterior,,,,\n", UTF_8, "extrato.csv", new HashMap<String, Integer>());
+        List<Map<String, Object>> rows = all(statement);
+        assertEquals(2, rows.size());
+        assertEquals("2024-02-01", rows.get(0).get("date"));
+        assertEquals(1234.5, rows.get(0).get("amount"));
+        assertEquals("expense", rows.get(0).get("type"));
+        assertEquals("income", rows.get(1).get("type"));
+        assertEquals(1, statement.progress().skipped);
+    }
+
+    @Test
+    public void decodesWindows1252WithoutBom() throws IOException {
+        StatementImport statement = open("Data;Histórico;Valor\n01/02/2024;Padaria São Jorge;-10,00\n",
+                WINDOWS_1252, "extrato.csv", new HashMap<String, Integer>());
+        assertEquals("Padaria São Jorge", all(statement).get(0).get("description"));
+
+        statement = open("\uFEFFData;Histórico;Valor\n01/02/2024;Padaria São Jorge;-10,00\n",
+                UTF_8, "extrato.csv", new HashMap<String, Integer>());
+        assertEquals("Padaria São Jorge", all(statement).get(0).get("description"));
+    }
+
+    @Test
+    public void unknownColumnsAreReported() throws IOException {
+        StatementImport statement = open("foo;bar\n1;2\n", UTF_8, "x.csv", new HashMap<String, Integer>());
+        try {
+            statement.next(10);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("foo, bar"));
+        }
+    }
+
+    @Test
+    public void dedupesAgainstExistingTransactionsAsMultiset() throws IOException {
+        Map<String, Object> existing = new HashMap<>();
+        existing.put("date", "2024-02-01T00:00:00");
+        existing.put("description", "MERCADO  São  João");
+        existing.put("amount", 10.0);
+        existing.put("type", "expense");
+        Map<String, Integer> hashes = new HashMap<>();
+        hashes.put(StatementImport.hash(existing), 1);
+
+        StatementImport statement = open("Data;Descrição;Valor\n"
+                + "01/02/2024;Mercado Sao Joao;-10,00\n"
+                + "01/02/2024;Mercado Sao Joao;-10,00\n"
+                + "01/02/2024;Mercado Sao Joao;10,00\n", UTF_8, "x.csv", hashes);
+        List<Map<String, Object>> rows = all(statement);
+        // A segunda compra igual no mesmo dia é nova; o estorno (valor positivo) também
+        assertEquals(2, rows.size());
+        assertEquals(1, statement.progress().duplicates);
+        assertEquals("income", rows.get(1).get("type"));
+    }
+
+    @Test
+    public void streamsLargeCsvInBatches() throws IOException {
+        int rows = 100_000;
+        InputStream in = StatementFixture.stream(UTF_8, StatementFixture.csv(rows));
+        Map<String, Integer> existing = new HashMap<>();
+        // Os primeiros mil já foram importados antes
+        for (int i = 0; i < 1000; i++) {
+            String hash = StatementImport.hash(StatementFixture.date(i), StatementFixture.cents(i),
+                    StatementFixture.description(i));
+            Integer count = existing.get(hash);
+            existing.put(hash, count == null ? 1 : count + 1);
+        }
+        StatementImport statement = new StatementImport(in, 0, "extrato.csv", existing, null);
+        int imported = 0;
+        int index = 1000;
+        List<Map<String, Object>> batch;
+        while (!(batch = statement.next(500)).isEmpty()) {
+            assertTrue(batch.size() <= 500);
+            for (Map<String, Object> row : batch) {
+                assertEquals(StatementFixture.date(index), row.get("date"));
+                assertEquals(StatementFixture.description(index), row.get("description"));
+                assertEquals(Math.abs(StatementFixture.cents(index)) / 100.0, row.get("amount"));
+                index++;
+            }
+            imported += batch.size();
+        }
+        StatementImport.Progress progress = statement.progress();
+        assertEquals(rows, progress.parsed);
+        assertEquals(rows - 1000, imported);
+        assertEquals(rows - 1000, progress.imported);
+        assertEquals(1000, progress.duplicates);
+        assertEquals(0, progress.skipped);
+        assertTrue(progress.bytesRead > 5_000_000);
+    }
+
+    @Test
+    public void streamsLargeOfx() throws IOException {
+        int rows = 50_000;
+        InputStream in = StatementFixture.stream(WINDOWS_1252, StatementFixture.ofx(rows));
+        StatementImport statement = new StatementImport(in, 0, "extrato.ofx", new HashMap<String, Integer>(), null);
+        assertEquals(StatementImport.FORMAT_OFX, statement.format);
+        int index = 0;
+        List<Map<String, Object>> batch;
+        while (!(batch = statement.next(1000)).isEmpty()) {
+            for (Map<String, Object> row : batch) {
+                assertEquals(StatementFixture.date(index), row.get("date"));
+                assertEquals(StatementFixture.description(index), row.get("description"));
+                assertEquals(StatementFixture.cents(index) < 0 ? "expense" : "income", row.get("type"));
+                assertEquals(String.valueOf(index), row.get("fit_id"));
+                index++;
+            }
+        }
+        assertEquals(rows, index);
+        assertEquals(Arrays.asList(rows, rows, 0), Arrays.asList(statement.progress().parsed,
+                statement.progress().imported, statement.progress().duplicates));
+    }
+}
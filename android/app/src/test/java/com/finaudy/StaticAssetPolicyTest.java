@@ -0,0 +1,40 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StaticAssetPolicyTest {
+
+    @Test
+    public void viteHashedFilesAreImmutable() {
+        assertTrue(StaticAssetPolicy.isFingerprinted("assets/index-CnvRclm_.js"));
+        assertTrue(StaticAssetPolicy.isFingerprinted("/assets/vendor-react-B2x_9a-Q.css"));
+        assertEquals(StaticAssetPolicy.CACHE_IMMUTABLE, StaticAssetPolicy.cacheControl("assets/index-CnvRclm_.js"));
+    }
+
+    @Test
+    public void unhashedFilesAreNotImmutable() {
+        assertFalse(StaticAssetPolicy.isFingerprinted("assets/logo.png"));
+        assertFalse(StaticAssetPolicy.isFingerprinted("index-CnvRclm_.js"));
+        assertEquals(StaticAssetPolicy.CACHE_SHORT, StaticAssetPolicy.cacheControl("icons/logo.png"));
+    }
+
+    @Test
+    public void entryPointsAreRevalidated() {
+        assertEquals(StaticAssetPolicy.CACHE_REVALIDATE, StaticAssetPolicy.cacheControl("index.html"));
+        assertEquals(StaticAssetPolicy.CACHE_REVALIDATE, StaticAssetPolicy.cacheControl(""));
+        assertEquals(StaticAssetPolicy.CACHE_REVALIDATE, StaticAssetPolicy.cacheControl("/sw.js"));
+    }
+
+    @Test
+    public void mimeTypesByExtension() {
+        assertEquals("text/javascript", StaticAssetPolicy.mimeType("assets/index-CnvRclm_.js"));
+        assertEquals("image/svg+xml", StaticAssetPolicy.mimeType("vite.SVG"));
+        assertEquals("application/octet-stream", StaticAssetPolicy.mimeType("assets.d/LICENSE"));
+        assertTrue(StaticAssetPolicy.isText("text/css"));
+        assertFalse(StaticAssetPolicy.isText("image/png"));
+    }
+}
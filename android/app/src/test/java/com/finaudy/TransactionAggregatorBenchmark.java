@@ -0,0 +1,165 @@
+package com.finaudy;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tempo de consulta do TransactionAggregator com 10 mil, 100 mil e 1 milhão de lançamentos,
+ * comparado ao jeito atual da página (lista de objetos + mapa por categoria). Não roda no
+ * build normal: ./gradlew testDebugUnitTest -Dfinaudy.bench=true --tests '*Benchmark'
+ */
+public class TransactionAggregatorBenchmark {
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int CATEGORIES = 40;
+    private static final int ACCOUNTS = 3;
+    private static final int WARMUP = 5;
+    private static final int RUNS = 15;
+
+    /** Lançamento como objeto, como a página tem hoje. */
+    private static final class Row {
+        final String id;
+        final String account;
+        final String category;
+        final String type;
+        final double amount;
+        final String date;
+
+        Row(String id, String account, String category, String type, double amount, String date) {
+            this.id = id;
+            this.account = account;
+            this.category = category;
+            this.type = type;
+            this.amount = amount;
+            this.date = date;
+        }
+    }
+
+    private interface Task {
+        long run();
+    }
+
+    @BeforeClass
+    public static void enabled() {
+        Assume.assumeTrue("Benchmarks desligados (use -Dfinaudy.bench=true)", Boolean.getBoolean("finaudy.bench"));
+    }
+
+    @Test
+    public void aggregateByCategoryAndMonth() {
+        System.out.println(String.format(Locale.US, "%-10s %-22s %12s %12s", "linhas", "consulta", "mediana ms", "p90 ms"));
+        for (int size : SIZES) {
+            List<Row> rows = generate(size);
+            final TransactionAggregator aggregator = new TransactionAggregator();
+            long loadStart = System.nanoTime();
+            for (Row row : rows) {
+                aggregator.upsert(row.id, row.account, row.category, TransactionAggregator.type(row.type),
+                        TransactionAggregator.cents(row.amount), TransactionAggregator.epochDay(row.date));
+            }
+            report(size, "carga", new long[]{System.nanoTime() - loadStart});
+
+            final int from = TransactionAggregator.epochDay("2024-01-01");
+            final int to = TransactionAggregator.epochDay("2024-12-31");
+            final List<String> accounts = Arrays.asList("account-0", "account-1");
+
+            long expected = baselineByCategory(rows, accounts);
+            assertEquals(expected, columnarTotal(aggregator.aggregate(from, to, accounts, TransactionAggregator.GroupBy.CATEGORY)));
+
+            report(size, "colunar categoria", measure(() -> columnarTotal(
+                    aggregator.aggregate(from, to, accounts, TransactionAggregator.GroupBy.CATEGORY))));
+            report(size, "colunar mês", measure(() -> columnarTotal(
+                    aggregator.aggregate(TransactionAggregator.epochDay("2015-01-01"), to, accounts,
+                            TransactionAggregator.GroupBy.MONTH))));
+            report(size, "objetos categoria", measure(() -> baselineByCategory(rows, accounts)));
+            report(size, "upsert incremental", measure(() -> {
+                aggregator.upsert("t-1", "account-0", "category-1", TransactionAggregator.TYPE_EXPENSE, 1234,
+                        TransactionAggregator.epochDay("2024-06-01"));
+                return 0;
+            }));
+        }
+    }
+
+    private static List<Row> generate(int size) {
+        Random random = new Random(42);
+        List<Row> rows = new ArrayList<>(size);
+        String[] types = {"expense", "expense", "expense", "income", "savings"};
+        for (int i = 0; i < size; i++) {
+            // Dez anos de histórico
+            int year = 2015 + random.nextInt(10);
+            String date = String.format(Locale.US, "%04d-%02d-%02d", year, 1 + random.nextInt(12), 1 + random.nextInt(28));
+            rows.add(new Row("t" + i, "account-" + random.nextInt(ACCOUNTS), "category-" + random.nextInt(CATEGORIES),
+                    types[random.nextInt(types.length)], random.nextInt(500_000) / 100.0, date));
+        }
+        return rows;
+    }
+
+    /** O que a página faz hoje: filtra por data e conta e soma num mapa por categoria. */
+    private static long baselineByCategory(List<Row> rows, List<String> accounts) {
+        Map<String, long[]> byCategory = new HashMap<>();
+        for (Row row : rows) {
+            if (row.date.compareTo("2024-01-01") < 0 || row.date.compareTo("2024-12-31") > 0
+                    || !accounts.contains(row.account)) {
+                continue;
+            }
+            long[] sums = byCategory.get(row.category);
+            if (sums == null) {
+                sums = new long[TransactionAggregator.TYPE_COUNT];
+                byCategory.put(row.category, sums);
+            }
+            sums[TransactionAggregator.type(row.type)] += TransactionAggregator.cents(row.amount);
+        }
+        long total = 0;
+        for (long[] sums : byCategory.values()) {
+            for (long sum : sums) {
+                total += sum;
+            }
+        }
+        return total;
+    }
+
+    private static long columnarTotal(List<TransactionAggregator.Group> groups) {
+        long total = 0;
+        for (TransactionAggregator.Group group : groups) {
+            for (long sum : group.cents) {
+                total += sum;
+            }
+        }
+        return total;
+    }
+
+    private static long[] measure(Task task) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += task.run();
+        }
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            sink += task.run();
+            times[i] = System.nanoTime() - start;
+        }
+        // Mantém o resultado vivo para o JIT não descartar a consulta
+        if (sink == Long.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return times;
+    }
+
+    private static void report(int size, String name, long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2] / 1e6;
+        double p90 = sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.9) - 1)] / 1e6;
+        System.out.println(String.format(Locale.US, "%-10d %-22s %12.3f %12.3f", size, name, median, p90));
+    }
+}
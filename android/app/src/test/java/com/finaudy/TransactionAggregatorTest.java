@@ -0,0 +1,174 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionAggregatorTest {
+
+    private static final int ALL_FROM = Integer.MIN_VALUE;
+    private static final int ALL_TO = Integer.MAX_VALUE;
+
+    private final TransactionAggregator aggregator = new TransactionAggregator();
+
+    @Test
+    public void epochDayMatchesCalendar() {
+        assertEquals(0, TransactionAggregator.epochDay("1970-01-01"));
+        assertEquals(-1, TransactionAggregator.epochDay("1969-12-31"));
+        assertEquals(19_782, TransactionAggregator.epochDay("2024-02-29"));
+        assertEquals(19_783, TransactionAggregator.epochDay("2024-03-01T12:00:00"));
+        // Ida e volta em todos os dias de vários anos, incluindo bissextos e 2000
+        for (int day = TransactionAggregator.epochDay("1999-01-01"); day < TransactionAggregator.epochDay("2031-01-01"); day++) {
+            int month = TransactionAggregator.monthIndex(day);
+            String key = TransactionAggregator.monthKey(month);
+            assertEquals(month, TransactionAggregator.monthIndex(TransactionAggregator.epochDay(key + "-01")));
+        }
+        assertEquals("2024-02", TransactionAggregator.monthKey(TransactionAggregator.monthIndex(19_782)));
+        assertEquals("1969-12", TransactionAggregator.monthKey(TransactionAggregator.monthIndex(-1)));
+    }
+
+    @Test
+    public void centsAreRoundedFromDecimalAmounts() {
+        assertEquals(1010, TransactionAggregator.cents(10.1));
+        assertEquals(30, TransactionAggregator.cents(0.1 + 0.2));
+        assertEquals(500, TransactionAggregator.cents(5L));
+    }
+
+    @Test
+    public void sumsByCategoryWithinDateRange() {
+        add("t1", "acc", "food", "expense", 10.50, "2024-03-01");
+        add("t2", "acc", "food", "expense", 4.25, "2024-03-31");
+        add("t3", "acc", "rent", "expense", 1000, "2024-03-05");
+        add("t4", "acc", null, "income", 3000, "2024-03-10");
+        add("t5", "acc", "food", "expense", 99, "2024-04-01");
+
+        List<TransactionAggregator.Group> groups = aggregator.aggregate(day("2024-03-01"), day("2024-03-31"),
+                null, TransactionAggregator.GroupBy.CATEGORY);
+
+        Map<String, TransactionAggregator.Group> byKey = byKey(groups);
+        assertEquals(3, groups.size());
+        assertEquals(1475, byKey.get("food").cents[TransactionAggregator.TYPE_EXPENSE]);
+        assertEquals(2, byKey.get("food").counts[TransactionAggregator.TYPE_EXPENSE]);
+        assertEquals(100_000, byKey.get("rent").cents[TransactionAggregator.TYPE_EXPENSE]);
+        assertEquals(300_000, byKey.get(null).cents[TransactionAggregator.TYPE_INCOME]);
+    }
+
+    @Test
+    public void groupsByMonthInChronologicalOrder() {
+        add("t1", "acc", "food", "expense", 1, "2024-01-15");
+        add("t2", "acc", "food", "income", 2, "2023-12-31");
+        add("t3", "acc", "food", "savings", 3, "2024-03-01");
+
+        List<TransactionAggregator.Group> groups = aggregator.aggregate(ALL_FROM, ALL_TO, null,
+                TransactionAggregator.GroupBy.MONTH);
+
+        assertEquals(3, groups.size());
+        assertEquals("2023-12", groups.get(0).key);
+        assertEquals("2024-01", groups.get(1).key);
+        assertEquals("2024-03", groups.get(2).key);
+        assertEquals(300, groups.get(2).cents[TransactionAggregator.TYPE_SAVINGS]);
+
+        List<TransactionAggregator.Group> february = aggregator.aggregate(day("2024-02-01"), day("2024-02-29"),
+                null, TransactionAggregator.GroupBy.MONTH);
+        assertTrue(february.isEmpty());
+    }
+
+    @Test
+    public void filtersAndGroupsByAccount() {
+        add("t1", "mine", "food", "expense", 10, "2024-03-01");
+        add("t2", "shared", "food", "expense", 20, "2024-03-01");
+        add("t3", "other", "food", "expense", 40, "2024-03-01");
+
+        List<TransactionAggregator.Group> groups = aggregator.aggregate(ALL_FROM, ALL_TO,
+                Arrays.asList("mine", "shared", "unknown"), TransactionAggregator.GroupBy.ACCOUNT);
+
+        Map<String, TransactionAggregator.Group> byKey = byKey(groups);
+        assertEquals(2, groups.size());
+        assertEquals(1000, byKey.get("mine").cents[TransactionAggregator.TYPE_EXPENSE]);
+        assertEquals(2000, byKey.get("shared").cents[TransactionAggregator.TYPE_EXPENSE]);
+
+        TransactionAggregator.Group total = aggregator.aggregate(ALL_FROM, ALL_TO, null,
+                TransactionAggregator.GroupBy.NONE).get(0);
+        assertNull(total.key);
+        assertEquals(7000, total.cents[TransactionAggregator.TYPE_EXPENSE]);
+        assertEquals(3, total.count());
+    }
+
+    @Test
+    public void updatesAndRemovalsAreIncremental() {
+        add("t1", "acc", "food", "expense", 10, "2024-03-01");
+        add("t2", "acc", "rent", "expense", 20, "2024-03-01");
+        add("t3", "acc", "food", "expense", 30, "2024-03-01");
+
+        // Editar o lançamento troca a linha dele, sem duplicar
+        add("t1", "acc", "rent", "expense", 15, "2024-03-02");
+        assertEquals(3, aggregator.size());
+        Map<String, TransactionAggregator.Group> byKey = byKey(aggregator.aggregate(ALL_FROM, ALL_TO, null,
+                TransactionAggregator.GroupBy.CATEGORY));
+        assertEquals(3000, byKey.get("food").cents[TransactionAggregator.TYPE_EXPENSE]);
+        assertEquals(3500, byKey.get("rent").cents[TransactionAggregator.TYPE_EXPENSE]);
+
+        // Remover do meio move a última linha para o lugar; ela continua editável
+        assertTrue(aggregator.remove("t2"));
+        assertFalse(aggregator.remove("t2"));
+        add("t3", "acc", "food", "expense", 1, "2024-03-01");
+        byKey = byKey(aggregator.aggregate(ALL_FROM, ALL_TO, null, TransactionAggregator.GroupBy.CATEGORY));
+        assertEquals(100, byKey.get("food").cents[TransactionAggregator.TYPE_EXPENSE]);
+        assertEquals(1500, byKey.get("rent").cents[TransactionAggregator.TYPE_EXPENSE]);
+        assertEquals(2, aggregator.size());
+    }
+
+    @Test
+    public void removeAccountCompactsRowsOfOtherAccounts() {
+        for (int i = 0; i < 3000; i++) {
+            add("t" + i, i % 3 == 0 ? "a" : "b", "food", "expense", 1, "2024-03-01");
+        }
+        assertEquals(1000, aggregator.removeAccount("a"));
+        assertEquals(2000, aggregator.size());
+        assertEquals(Collections.singleton("b"), byKey(aggregator.aggregate(ALL_FROM, ALL_TO, null,
+                TransactionAggregator.GroupBy.ACCOUNT)).keySet());
+        // Os ids das linhas movidas continuam apontando para o lugar certo
+        assertTrue(aggregator.remove("t2999"));
+        assertFalse(aggregator.remove("t0"));
+        assertEquals(1999, aggregator.size());
+    }
+
+    @Test
+    public void jsonRowsWithoutRequiredFieldsAreIgnored() {
+        Map<String, Object> row = Json.parseObject(
+                "{\"id\":\"t1\",\"amount\":12.34,\"type\":\"expense\",\"date\":\"2024-03-01\",\"category_id\":null}");
+        assertTrue(aggregator.upsert("acc", row));
+        assertFalse(aggregator.upsert("acc", Json.parseObject("{\"id\":\"t2\",\"type\":\"expense\"}")));
+        assertFalse(aggregator.upsert("acc", Json.parseObject(
+                "{\"id\":\"t3\",\"amount\":1,\"type\":\"transfer\",\"date\":\"2024-03-01\"}")));
+        assertEquals(1, aggregator.size());
+        assertEquals(1234, aggregator.aggregate(ALL_FROM, ALL_TO, null, TransactionAggregator.GroupBy.NONE)
+                .get(0).cents[TransactionAggregator.TYPE_EXPENSE]);
+    }
+
+    private void add(String id, String account, String category, String type, double amount, String date) {
+        aggregator.upsert(id, account, category, TransactionAggregator.type(type),
+                TransactionAggregator.cents(amount), TransactionAggregator.epochDay(date));
+    }
+
+    private static int day(String date) {
+        return TransactionAggregator.epochDay(date);
+    }
+
+    private static Map<String, TransactionAggregator.Group> byKey(List<TransactionAggregator.Group> groups) {
+        Map<String, TransactionAggregator.Group> map = new LinkedHashMap<>();
+        for (TransactionAggregator.Group group : groups) {
+            map.put(group.key, group);
+        }
+        return map;
+    }
+}
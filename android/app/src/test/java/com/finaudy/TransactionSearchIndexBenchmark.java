@@ -0,0 +1,144 @@
+package com.finaudy;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Latência de busca do TransactionSearchIndex com 10 mil, 100 mil e 1 milhão de lançamentos,
+ * comparada ao filtro atual da página (toLowerCase + includes em cada campo a cada tecla).
+ * Não roda no build normal: ./gradlew testDebugUnitTest -Dfinaudy.bench=true --tests '*Benchmark'
+ */
+public class TransactionSearchIndexBenchmark {
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int WARMUP = 5;
+    private static final int RUNS = 15;
+    private static final int PAGE = 50;
+
+    private static final String[] MERCHANTS = {
+            "Mercado Livre", "Supermercado Extra", "Padaria São João", "Farmácia Popular", "Posto Ipiranga",
+            "Uber Viagem", "iFood Pedido", "Netflix Assinatura", "Aluguel Apartamento", "Condomínio",
+            "Conta de Luz", "Conta de Água", "Academia", "Cinema", "Restaurante Japonês", "Salário",
+            "Transferência Recebida", "Pet Shop", "Livraria Cultura", "Estacionamento"};
+    private static final String[] CATEGORIES = {
+            "Alimentação", "Transporte", "Moradia", "Saúde", "Lazer", "Educação", "Renda", "Investimentos"};
+    private static final String[] PAYMENTS = {"Pix", "Cartão de Crédito", "Cartão de Débito", "Dinheiro", "Boleto"};
+
+    /** Lançamento como objeto, como a página tem hoje. */
+    private static final class Row {
+        final String id;
+        final String description;
+        final String category;
+        final String payment;
+        final double amount;
+        final int day;
+
+        Row(String id, String description, String category, String payment, double amount, int day) {
+            this.id = id;
+            this.description = description;
+            this.category = category;
+            this.payment = payment;
+            this.amount = amount;
+            this.day = day;
+        }
+    }
+
+    private interface Task {
+        long run();
+    }
+
+    @BeforeClass
+    public static void enabled() {
+        Assume.assumeTrue("Benchmarks desligados (use -Dfinaudy.bench=true)", Boolean.getBoolean("finaudy.bench"));
+    }
+
+    @Test
+    public void searchAsYouType() {
+        System.out.println(String.format(Locale.US, "%-10s %-26s %12s %12s", "linhas", "consulta", "mediana ms", "p90 ms"));
+        for (int size : SIZES) {
+            List<Row> rows = generate(size);
+            final TransactionSearchIndex index = new TransactionSearchIndex();
+            long loadStart = System.nanoTime();
+            for (Row row : rows) {
+                index.put(row.id, row.description + ' ' + row.category + ' ' + row.payment + ' ' + row.amount,
+                        row.day, "");
+            }
+            report(size, "carga", new long[]{System.nanoTime() - loadStart});
+
+            assertEquals(baseline(rows, "farmácia"), index.search("farmacia", Integer.MIN_VALUE, Integer.MAX_VALUE, 0, PAGE).total);
+
+            for (final String query : new String[]{"m", "mer", "mercado", "pix uber", "mercdo"}) {
+                report(size, "índice \"" + query + "\"", measure(() ->
+                        index.search(query, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, PAGE).total));
+            }
+            for (final String query : new String[]{"m", "mercado"}) {
+                report(size, "filtro \"" + query + "\"", measure(() -> baseline(rows, query)));
+            }
+            report(size, "put incremental", measure(() -> {
+                index.put("t-1", "Mercado Livre Alimentação Pix 12.5", 19_000, "");
+                return 0;
+            }));
+        }
+    }
+
+    private static List<Row> generate(int size) {
+        Random random = new Random(42);
+        List<Row> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row("t" + i, MERCHANTS[random.nextInt(MERCHANTS.length)] + " " + random.nextInt(1000),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], PAYMENTS[random.nextInt(PAYMENTS.length)],
+                    random.nextInt(500_000) / 100.0, 16_000 + random.nextInt(3650)));
+        }
+        return rows;
+    }
+
+    /** O que a página faz hoje: substring em minúsculas de cada campo (sem ignorar acentos). */
+    private static int baseline(List<Row> rows, String query) {
+        String term = query.toLowerCase(Locale.ROOT);
+        int count = 0;
+        for (Row row : rows) {
+            if (row.description.toLowerCase(Locale.ROOT).contains(term)
+                    || row.category.toLowerCase(Locale.ROOT).contains(term)
+                    || String.valueOf(row.amount).contains(term)
+                    || row.payment.toLowerCase(Locale.ROOT).contains(term)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long[] measure(Task task) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += task.run();
+        }
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            sink += task.run();
+            times[i] = System.nanoTime() - start;
+        }
+        // Mantém o resultado vivo para o JIT não descartar a consulta
+        if (sink == Long.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return times;
+    }
+
+    private static void report(int size, String name, long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2] / 1e6;
+        double p90 = sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.9) - 1)] / 1e6;
+        System.out.println(String.format(Locale.US, "%-10d %-26s %12.3f %12.3f", size, name, median, p90));
+    }
+}
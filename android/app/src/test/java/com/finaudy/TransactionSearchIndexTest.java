@@ -0,0 +1,158 @@
+package com.finaudy;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionSearchIndexTest {
+
+    private static final int ALL_FROM = Integer.MIN_VALUE;
+    private static final int ALL_TO = Integer.MAX_VALUE;
+
+    private final TransactionSearchIndex index = new TransactionSearchIndex();
+
+    private List<String> search(String query) {
+        return index.search(query, ALL_FROM, ALL_TO, 0, 100).ids;
+    }
+
+    @Test
+    public void normalizeFoldsAccentsCaseAndDecimalComma() {
+        assertEquals("cartao de credito", TransactionSearchIndex.normalize("Cartão de Crédito"));
+        assertEquals("acai  pao", TransactionSearchIndex.normalize("AÇAÍ, Pão"));
+        assertEquals("r  12.50", TransactionSearchIndex.normalize("R$ 12,50"));
+        assertEquals("fim ", TransactionSearchIndex.normalize("fim."));
+    }
+
+    @Test
+    public void matchesSubstringsAndPrefixesWithoutAccents() {
+        index.put("a", "Padaria São João Alimentação", 10, "");
+        index.put("b", "Farmácia Popular Saúde", 11, "");
+        index.put("c", "Salário Renda", 12, "");
+
+        assertEquals(Collections.singletonList("a"), search("sao joao"));
+        assertEquals(Collections.singletonList("b"), search("SAUDE"));
+        // Substring no meio da palavra
+        assertEquals(Collections.singletonList("a"), search("mentac"));
+        // Termos curtos casam só com o começo das palavras
+        assertEquals(Arrays.asList("c", "b", "a"), search("sa"));
+        assertEquals(Collections.singletonList("b"), search("fa"));
+        assertEquals(Collections.singletonList("c"), search("r"));
+        // Todos os termos precisam casar
+        assertTrue(search("padaria saude").isEmpty());
+    }
+
+    @Test
+    public void fuzzyMatchesTyposOnlyWhenNothingMatchesExactly() {
+        index.put("a", "Mercado Livre", 10, "");
+        index.put("b", "Supermercado Extra", 11, "");
+        index.put("c", "Combustível Posto", 12, "");
+
+        TransactionSearchIndex.Page page = index.search("mercdo", ALL_FROM, ALL_TO, 0, 10);
+        assertTrue(page.fuzzy);
+        assertEquals(Collections.singletonList("a"), page.ids);
+        assertEquals(Collections.singletonList("c"), search("combustivle"));
+
+        page = index.search("mercado", ALL_FROM, ALL_TO, 0, 10);
+        assertFalse(page.fuzzy);
+        // Prefixo vem antes de substring, mesmo sendo mais antigo
+        assertEquals(Arrays.asList("a", "b"), page.ids);
+        assertTrue(search("xyzwq").isEmpty());
+    }
+
+    @Test
+    public void resultsArePagedByRecencyAndFilteredByDay() {
+        for (int i = 0; i < 25; i++) {
+            index.put("t" + i, "Uber viagem", i, "");
+        }
+        index.put("same-day-later", "Uber viagem", 24, "2024-01-02T10:00:00");
+
+        TransactionSearchIndex.Page first = index.search("uber", ALL_FROM, ALL_TO, 0, 10);
+        assertEquals(26, first.total);
+        assertEquals(Arrays.asList("same-day-later", "t24", "t23"), first.ids.subList(0, 3));
+        TransactionSearchIndex.Page last = index.search("uber", ALL_FROM, ALL_TO, 20, 10);
+        assertEquals(Arrays.asList("t4", "t3", "t2", "t1", "t0"), last.ids.subList(1, 6));
+
+        TransactionSearchIndex.Page range = index.search("viagem", 5, 7, 0, 10);
+        assertEquals(Arrays.asList("t7", "t6", "t5"), range.ids);
+        // Busca vazia lista tudo do período
+        assertEquals(3, index.search("  ", 5, 7, 0, 10).total);
+    }
+
+    @Test
+    public void putReplacesAndRemoveDropsDocuments() {
+        index.put("a", "Aluguel", 10, "");
+        index.put("a", "Condomínio", 10, "");
+        assertTrue(search("aluguel").isEmpty());
+        assertEquals(Collections.singletonList("a"), search("condominio"));
+
+        assertTrue(index.remove("a"));
+        assertFalse(index.remove("a"));
+        assertTrue(search("condominio").isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void repeatedPutsOfTheSameIdAreCompacted() {
+        for (int i = 0; i < 10000; i++) {
+            index.put("t1", "Mercado " + i, i, "");
+        }
+        assertEquals(1, index.size());
+        assertTrue("documentos: " + index.docCount(), index.docCount() <= 2 * 1024);
+        assertEquals(Collections.singletonList("t1"), search("mercado"));
+        assertEquals(1, index.search("9999", ALL_FROM, ALL_TO, 0, 10).total);
+    }
+
+    @Test
+    public void compactionKeepsLiveDocumentsSearchable() {
+        for (int i = 0; i < 3000; i++) {
+            index.put("t" + i, (i % 2 == 0 ? "Restaurante " : "Cinema ") + i, i, "");
+        }
+        for (int i = 0; i < 2500; i++) {
+            index.remove("t" + i);
+        }
+        assertEquals(500, index.size());
+        TransactionSearchIndex.Page page = index.search("restaurante", ALL_FROM, ALL_TO, 0, 1000);
+        assertEquals(250, page.total);
+        assertEquals("t2998", page.ids.get(0));
+        index.put("t1", "Restaurante novo", 5000, "");
+        assertEquals("t1", search("restaurante").get(0));
+    }
+
+    @Test
+    public void rowsIndexCategoryNameAndAmountText() {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", "a");
+        row.put("description", "Almoço");
+        row.put("amount", 1500.0);
+        row.put("date", "2024-03-01");
+        row.put("payment_method", "Pix");
+        row.put("notes", "reembolsável");
+        assertTrue(index.put(row, "Alimentação"));
+
+        assertEquals(Collections.singletonList("a"), search("alimentacao"));
+        assertEquals(Collections.singletonList("a"), search("pix"));
+        assertEquals(Collections.singletonList("a"), search("reembolsavel"));
+        assertEquals(Collections.singletonList("a"), search("1500"));
+        assertEquals(Collections.singletonList("a"), search("1500,00"));
+
+        row.remove("date");
+        row.put("id", "b");
+        assertFalse(index.put(row, null));
+    }
+
+    @Test
+    public void prefixDistanceCountsEditsAgainstWordStart() {
+        assertEquals(0, TransactionSearchIndex.prefixDistance("merc", "mercado", 2));
+        assertEquals(1, TransactionSearchIndex.prefixDistance("mercdo", "mercado", 2));
+        assertEquals(1, TransactionSearchIndex.prefixDistance("nercado", "mercado", 2));
+        assertTrue(TransactionSearchIndex.prefixDistance("farmacia", "mercado", 2) > 2);
+    }
+}
@@ -0,0 +1,67 @@
+package com.finaudy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/** Lê as fixtures WAV (PCM 16 bits mono) de src/test/resources/audio. */
+final class WavFixture {
+
+    final int sampleRate;
+    final byte[] pcm;
+
+    private WavFixture(int sampleRate, byte[] pcm) {
+        this.sampleRate = sampleRate;
+        this.pcm = pcm;
+    }
+
+    long durationMs() {
+        return pcm.length / 2 * 1000L / sampleRate;
+    }
+
+    static WavFixture load(String name) throws IOException {
+        InputStream in = WavFixture.class.getResourceAsStream("/audio/" + name);
+        if (in == null) {
+            throw new IOException("Fixture não encontrada: " + name);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+
+        ByteBuffer wav = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        if (wav.getInt(0) != 0x46464952 || wav.getInt(8) != 0x45564157) {
+            throw new IOException("Não é um arquivo RIFF/WAVE: " + name);
+        }
+        int sampleRate = 0;
+        int position = 12;
+        while (position + 8 <= wav.limit()) {
+            int chunkId = wav.getInt(position);
+            int chunkSize = wav.getInt(position + 4);
+            int body = position + 8;
+            if (chunkId == 0x20746d66) {
+                // "fmt ": PCM, mono, 16 bits
+                if (wav.getShort(body) != 1 || wav.getShort(body + 2) != 1 || wav.getShort(body + 14) != 16) {
+                    throw new IOException("Formato não suportado em " + name);
+                }
+                sampleRate = wav.getInt(body + 4);
+            } else if (chunkId == 0x61746164) {
+                // "data"
+                byte[] pcm = new byte[chunkSize];
+                wav.position(body);
+                wav.get(pcm);
+                return new WavFixture(sampleRate, pcm);
+            }
+            position = body + chunkSize + (chunkSize & 1);
+        }
+        throw new IOException("Chunk data ausente em " + name);
+    }
+}
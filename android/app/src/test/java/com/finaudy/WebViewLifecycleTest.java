@@ -0,0 +1,114 @@
+package com.finaudy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class WebViewLifecycleTest {
+
+    private File file;
+    private long now = 1_700_000_000_000L;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("webview-lifecycle", ".json").toFile();
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private WebViewLifecycle lifecycle() {
+        return new WebViewLifecycle(file, () -> now);
+    }
+
+    @Test
+    public void restoresRouteAndSnapshotOnceAfterACrash() {
+        WebViewLifecycle lifecycle = lifecycle();
+        assertNull(lifecycle.takeRestore());
+        lifecycle.saveState("/?tab=reports", "{\"month\":\"2024-05\"}");
+
+        WebViewLifecycle.Restore restore = lifecycle.onRendererGone(true);
+        assertEquals("/?tab=reports", restore.route);
+        restore = lifecycle.takeRestore();
+        assertEquals("{\"month\":\"2024-05\"}", restore.snapshot);
+        assertEquals(1, restore.crashes);
+        // Um reload comum depois disso não restaura de novo
+        assertNull(lifecycle.takeRestore());
+    }
+
+    @Test
+    public void crashLoopStartsFromTheHomeScreen() {
+        WebViewLifecycle lifecycle = lifecycle();
+        lifecycle.saveState("/", "{\"imagem\":\"grande\"}");
+        lifecycle.onRendererGone(true);
+        lifecycle.takeRestore();
+        lifecycle.saveState("/", "{\"imagem\":\"grande\"}");
+
+        now += 10_000;
+        WebViewLifecycle.Restore restore = lifecycle.onRendererGone(true);
+        assertNull(restore.route);
+        assertNull(restore.snapshot);
+
+        // Longe da última queda a restauração volta a valer
+        now += WebViewLifecycle.CRASH_LOOP_WINDOW_MS;
+        lifecycle.saveState("/auth", null);
+        assertEquals("/auth", lifecycle.onRendererGone(false).route);
+        assertEquals(1L, lifecycle.stats().get("restoresSkipped"));
+    }
+
+    @Test
+    public void countersSurviveTheProcess() {
+        WebViewLifecycle lifecycle = lifecycle();
+        lifecycle.onRendererGone(true);
+        lifecycle.onRendererGone(false);
+        lifecycle.onTrimMemory(WebViewLifecycle.Pressure.LOW);
+        lifecycle.onTrimMemory(WebViewLifecycle.Pressure.LOW);
+
+        WebViewLifecycle restarted = lifecycle();
+        assertEquals(1L, restarted.stats().get("rendererCrashes"));
+        assertEquals(1L, restarted.stats().get("rendererKills"));
+        assertEquals(2L, restarted.stats().get("trim.low"));
+        assertEquals(now, restarted.stats().get("lastRendererGoneAt"));
+        // A rota e o snapshot são só do processo: não reaparecem depois de um restart
+        assertNull(restarted.takeRestore());
+    }
+
+    @Test
+    public void mapsTrimLevelsToPressure() {
+        assertEquals(WebViewLifecycle.Pressure.UI_HIDDEN,
+                WebViewLifecycle.pressureFor(WebViewLifecycle.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(WebViewLifecycle.Pressure.LOW,
+                WebViewLifecycle.pressureFor(WebViewLifecycle.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(WebViewLifecycle.Pressure.LOW,
+                WebViewLifecycle.pressureFor(WebViewLifecycle.TRIM_MEMORY_BACKGROUND));
+        assertEquals(WebViewLifecycle.Pressure.CRITICAL,
+                WebViewLifecycle.pressureFor(WebViewLifecycle.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertEquals(WebViewLifecycle.Pressure.CRITICAL,
+                WebViewLifecycle.pressureFor(WebViewLifecycle.TRIM_MEMORY_COMPLETE));
+    }
+
+    @Test
+    public void rejectsOversizedSnapshots() {
+        StringBuilder big = new StringBuilder();
+        while (big.length() <= WebViewLifecycle.MAX_SNAPSHOT_CHARS) {
+            big.append("0123456789");
+        }
+        try {
+            lifecycle().saveState("/", big.toString());
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // A página fica sabendo pela rejeição da chamada
+        }
+    }
+}
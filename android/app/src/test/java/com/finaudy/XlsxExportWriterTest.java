@@ -0,0 +1,146 @@
+package com.finaudy;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class XlsxExportWriterTest {
+
+    private static final List<ExportWriter.Column> COLUMNS = Arrays.asList(
+            new ExportWriter.Column("Data", ExportWriter.Type.DATE, 12),
+            new ExportWriter.Column("Descrição", ExportWriter.Type.TEXT, 30),
+            new ExportWriter.Column("Valor", ExportWriter.Type.MONEY, 14));
+
+    private static Map<String, byte[]> unzip(byte[] xlsx) throws Exception {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(xlsx))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = zip.read(buffer)) != -1) {
+                    content.write(buffer, 0, read);
+                }
+                entries.put(entry.getName(), content.toByteArray());
+            }
+        }
+        return entries;
+    }
+
+    private static Document xml(byte[] content) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(content));
+    }
+
+    @Test
+    public void writesValidPackageWithTypedCells() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XlsxExportWriter writer = new XlsxExportWriter(out, "Transações");
+        writer.begin(COLUMNS);
+        writer.row(new Object[]{"2024-03-05", "Café & <pão> \"x\"\u0001", 12.5});
+        writer.row(new Object[]{"05/03/2024", null, -3});
+        writer.finish();
+
+        Map<String, byte[]> entries = unzip(out.toByteArray());
+        for (String part : Arrays.asList("[Content_Types].xml", "_rels/.rels", "xl/workbook.xml",
+                "xl/_rels/workbook.xml.rels", "xl/styles.xml", "xl/worksheets/sheet1.xml")) {
+            assertTrue(part, entries.containsKey(part));
+            // Todas as partes precisam ser XML bem formado
+            xml(entries.get(part));
+        }
+        assertEquals("Transações", ((Element) xml(entries.get("xl/workbook.xml"))
+                .getElementsByTagName("sheet").item(0)).getAttribute("name"));
+
+        NodeList rows = xml(entries.get("xl/worksheets/sheet1.xml")).getElementsByTagName("row");
+        assertEquals(3, rows.getLength());
+        NodeList header = ((Element) rows.item(0)).getElementsByTagName("c");
+        assertEquals("Descrição", header.item(1).getTextContent());
+        assertEquals("1", ((Element) header.item(0)).getAttribute("s"));
+
+        NodeList first = ((Element) rows.item(1)).getElementsByTagName("c");
+        // 2024-03-05 é o dia 45356 do Excel
+        assertEquals("45356", first.item(0).getTextContent());
+        assertEquals("A2", ((Element) first.item(0)).getAttribute("r"));
+        assertEquals("Café & <pão> \"x\"", first.item(1).getTextContent());
+        assertEquals("12.5", first.item(2).getTextContent());
+
+        NodeList second = ((Element) rows.item(2)).getElementsByTagName("c");
+        // Data fora do formato vai como texto; célula vazia é omitida, então o valor fica em C3
+        assertEquals(2, second.getLength());
+        assertEquals("inlineStr", ((Element) second.item(0)).getAttribute("t"));
+        assertEquals("C3", ((Element) second.item(1)).getAttribute("r"));
+        assertEquals("-3", second.item(1).getTextContent());
+    }
+
+    @Test
+    public void summarySheetsComeBeforeTheStreamedSheet() throws Exception {
+        List<ExportWriter.Column> summaryColumns = Arrays.asList(
+                new ExportWriter.Column("Item", ExportWriter.Type.TEXT, 30),
+                new ExportWriter.Column("Valor", ExportWriter.Type.MONEY, 16));
+        List<Object[]> summaryRows = Arrays.asList(
+                new Object[]{"Receitas", 1500.5},
+                new Object[]{"Despesas", 320});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XlsxExportWriter writer = new XlsxExportWriter(out, "Transações",
+                Collections.singletonList(new XlsxExportWriter.Sheet("Resumo", summaryColumns, summaryRows)));
+        writer.begin(COLUMNS);
+        writer.row(new Object[]{"2024-03-05", "Mercado", 12.5});
+        writer.finish();
+
+        Map<String, byte[]> entries = unzip(out.toByteArray());
+        NodeList sheets = xml(entries.get("xl/workbook.xml")).getElementsByTagName("sheet");
+        assertEquals(2, sheets.getLength());
+        assertEquals("Resumo", ((Element) sheets.item(0)).getAttribute("name"));
+        assertEquals("Transações", ((Element) sheets.item(1)).getAttribute("name"));
+
+        // Cada aba aponta para a sua parte, e as duas estão no [Content_Types].xml
+        Map<String, String> targets = new HashMap<>();
+        NodeList rels = xml(entries.get("xl/_rels/workbook.xml.rels")).getElementsByTagName("Relationship");
+        for (int i = 0; i < rels.getLength(); i++) {
+            Element rel = (Element) rels.item(i);
+            targets.put(rel.getAttribute("Id"), rel.getAttribute("Target"));
+        }
+        assertEquals("worksheets/sheet1.xml", targets.get(((Element) sheets.item(0)).getAttribute("r:id")));
+        assertEquals("worksheets/sheet2.xml", targets.get(((Element) sheets.item(1)).getAttribute("r:id")));
+        assertEquals("styles.xml", targets.get("rId3"));
+        String contentTypes = new String(entries.get("[Content_Types].xml"), "UTF-8");
+        assertTrue(contentTypes.contains("/xl/worksheets/sheet1.xml"));
+        assertTrue(contentTypes.contains("/xl/worksheets/sheet2.xml"));
+
+        NodeList summary = xml(entries.get("xl/worksheets/sheet1.xml")).getElementsByTagName("row");
+        assertEquals(3, summary.getLength());
+        NodeList income = ((Element) summary.item(1)).getElementsByTagName("c");
+        assertEquals("Receitas", income.item(0).getTextContent());
+        assertEquals("1500.5", income.item(1).getTextContent());
+        assertEquals("3", ((Element) income.item(1)).getAttribute("s"));
+
+        NodeList transactions = xml(entries.get("xl/worksheets/sheet2.xml")).getElementsByTagName("row");
+        assertEquals(2, transactions.getLength());
+        assertEquals("Mercado", ((Element) transactions.item(1)).getElementsByTagName("c").item(1).getTextContent());
+    }
+
+    @Test
+    public void columnRefsFollowSpreadsheetLetters() {
+        assertEquals("A", XlsxExportWriter.columnRef(0));
+        assertEquals("Z", XlsxExportWriter.columnRef(25));
+        assertEquals("AA", XlsxExportWriter.columnRef(26));
+        assertEquals("AZ", XlsxExportWriter.columnRef(51));
+        assertEquals("BA", XlsxExportWriter.columnRef(52));
+    }
+}
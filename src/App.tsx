@@ -14,6 +14,7 @@ import { useCurrentAccountPremium } from "@/hooks/useCurrentAccountPremium";
 import { useFCM } from "@/hooks/useFCM";
 import { useGoogleAuth } from "@/hooks/useGoogleAuth";
 import { useNotificationClickListener } from "@/hooks/useNotificationClickListener";
+import { installMemoryPressureHandler, useWebViewLifecycle } from "@/lib/webViewLifecycle";
 import Index from "./pages/Index";
 import Auth from "./pages/Auth";
 import NotFound from "./pages/NotFound";
@@ -21,6 +22,7 @@ import SplashScreen from "@/components/SplashScreen";
 import { useEffect, useState } from "react";
 
 const queryClient = new QueryClient();
+installMemoryPressureHandler(queryClient);
 
 // Para um aplicativo embarcado, MemoryRouter é a solução mais estável.
 const Router = MemoryRouter;
@@ -79,6 +81,8 @@ const SmartPublicRoute = ({ children }: { children: React.ReactNode }) => {
 // Componente interno que lida com a lógica de rotas e splash screen
 const AppRoutes = () => {
   const [showSplash, setShowSplash] = useState(true);
+  // Guarda a rota para o nativo e volta para ela se o renderer cair
+  useWebViewLifecycle();
 
   useEffect(() => {
     const handleBackButton = (event: PopStateEvent) => {
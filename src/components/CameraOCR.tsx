@@ -23,6 +23,10 @@ interface ExtractedData {
   fullText: string;
 }
 
+// Imagem que o app entrega da galeria: WebP, o mesmo formato que compressImage gera, e um
+// orçamento de bytes que mantém pequena a leitura do blob pela página
+const NATIVE_IMAGE_OPTIONS = JSON.stringify({ maxBytes: 512 * 1024, format: 'webp' });
+
 interface CameraOCRProps {
   onTransactionAdd: (transaction: {
     amount: number;
@@ -201,7 +205,7 @@ export const CameraOCR = ({ onTransactionAdd }: CameraOCRProps) => {
   const handleOpenGallery = () => {
     if (isAndroid && window.Android?.openGallery) {
       // Use native Android gallery
-      window.Android.openGallery();
+      window.Android.openGallery(NATIVE_IMAGE_OPTIONS);
     } else {
       // Use web file input
       fileInputRef.current?.click();
@@ -211,8 +215,9 @@ export const CameraOCR = ({ onTransactionAdd }: CameraOCRProps) => {
   useEffect(() => {
     if (isAndroid) {
       // Set up callback for Android gallery selection
-      window.onGalleryImageSelected = (imageDataUrl: string) => {
-        processImage(imageDataUrl);
+      window.onGalleryImageSelected = async (imageUrl: string) => {
+        await processImage(imageUrl);
+        window.Android?.releaseNativeBlob?.(imageUrl);
       };
 
       return () => {
@@ -405,7 +405,8 @@ export const CategoryBudget = () => {
     });
   };
 
-  const budgetAnalysis = analyzeBudgets();
+  // Percorre todos os lançamentos: só refaz quando eles ou os orçamentos mudam, não a cada render
+  const budgetAnalysis = useMemo(analyzeBudgets, [budgets, transactions]);
   const totalBudget = budgets.reduce((sum, budget) => sum + budget.budget_amount, 0);
   const totalSpent = budgetAnalysis.reduce((sum, analysis) => sum + analysis.spent_amount, 0);
   const totalRemaining = totalBudget - totalSpent;
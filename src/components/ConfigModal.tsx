@@ -215,11 +215,12 @@ export const ConfigModal = ({ isOpen, onClose }: ConfigModalProps) => {
 
     if (isAndroid && window.Android?.openFileChooser) {
       // Set up callback for file selection
-      window.onFileSelected = async (fileDataUrl: string, fileName: string, fileType: string) => {
+      window.onFileSelected = async (fileUrl: string, fileName: string, fileType: string) => {
         try {
-          // Convert data URL to File object for the existing setCustomSound function
-          const response = await fetch(fileDataUrl);
+          // Convert the native blob URL to a File object for the existing setCustomSound function
+          const response = await fetch(fileUrl);
           const blob = await response.blob();
+          window.Android?.releaseNativeBlob?.(fileUrl);
           const file = new File([blob], fileName, { type: fileType });
           
           await setCustomSound(soundType, file);
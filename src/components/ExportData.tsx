@@ -1,4 +1,4 @@
-import { useState } from 'react';
+import { useRef, useState } from 'react';
 import { Button } from "@/components/ui/button";
 import { Card, CardContent, CardHeader, CardTitle } from "@/components/ui/card";
 import { Download, FileSpreadsheet, FileText } from "lucide-react";
@@ -12,6 +12,15 @@ import { toZonedTime } from 'date-fns-tz';
 import { useCurrentAccountPremium } from '@/hooks/useCurrentAccountPremium';
 import { useFeatureUsageLimits } from '@/hooks/useFeatureUsageLimits';
 import { PremiumOverlay } from './PremiumOverlay';
+import {
+  exportNative,
+  isNativeExportAvailable,
+  NativeExportCell,
+  NativeExportColumn,
+  NativeExportFormat,
+  NativeExportSheet,
+} from '@/lib/nativeExport';
+import { StatementImportButton } from './StatementImportButton';
 
 interface Transaction {
   id: string;
@@ -26,6 +35,43 @@ interface Transaction {
   notes?: string;
 }
 
+// Acima disso o Excel sai pelo app em streaming (resumo + transações, sem a formatação colorida)
+// em vez da planilha completa montada em memória pelo xlsx
+const NATIVE_EXCEL_MIN_ROWS = 2000;
+
+const NATIVE_EXPORT_COLUMNS: NativeExportColumn[] = [
+  { name: 'Data', type: 'date', width: 12 },
+  { name: 'Descrição', width: 35 },
+  { name: 'Categoria', width: 20 },
+  { name: 'Tipo', width: 14 },
+  { name: 'Valor', type: 'money', width: 16 },
+  { name: 'Pagamento', width: 20 },
+  { name: 'Observações', width: 30 },
+];
+
+const NATIVE_SUMMARY_COLUMNS: NativeExportColumn[] = [
+  { name: 'Item', width: 30 },
+  { name: 'Valor', type: 'money', width: 18 },
+  { name: 'Quantidade', type: 'number', width: 12 },
+  { name: 'Detalhe', width: 40 },
+];
+
+const TYPE_LABELS: Record<string, string> = {
+  income: 'Receita',
+  expense: 'Despesa',
+  savings: 'Investimento',
+};
+
+const toNativeExportRow = (transaction: Transaction): NativeExportCell[] => [
+  transaction.date,
+  transaction.description || '-',
+  transaction.categories?.name || 'Outros',
+  TYPE_LABELS[transaction.type] || transaction.type,
+  transaction.amount,
+  transaction.payment_method || '-',
+  transaction.notes || '-',
+];
+
 interface DateRange {
   from?: Date;
   to?: Date;
@@ -51,6 +97,9 @@ export const ExportData = ({
   const { isPremium } = useCurrentAccountPremium();
   const { canUse, incrementUsage, getRemainingUsage } = useFeatureUsageLimits();
   const [isExporting, setIsExporting] = useState(false);
+  // Progresso (0–100) da exportação nativa em andamento; null nas exportações em JS
+  const [nativeProgress, setNativeProgress] = useState<number | null>(null);
+  const nativeAbort = useRef<AbortController | null>(null);
   const { toast } = useToast();
 
   const formatCurrency = (value: number) => {
@@ -93,8 +142,87 @@ export const ExportData = ({
   };
 
 
+  // Mesmo conteúdo da aba "Resumo Completo" do Excel em JS, como tabela simples
+  const buildNativeSummarySheet = (): NativeExportSheet => {
+    const totals = calculateTotals();
+    const count = (type: string) => transactions.filter(t => t.type === type).length;
+    const percent = (n: number) =>
+      transactions.length > 0 ? `${((n / transactions.length) * 100).toFixed(1)}%` : '0%';
+    const incomeCount = count('income');
+    const expenseCount = count('expense');
+    const savingsCount = count('savings');
+    return {
+      name: 'Resumo',
+      columns: NATIVE_SUMMARY_COLUMNS,
+      rows: [
+        ['Período', null, null, getFilterDescription()],
+        ['Gerado em', null, null, format(new Date(), 'dd/MM/yyyy HH:mm', { locale: ptBR })],
+        ['Saldo Atual', totals.currentBalance, null, null],
+        ['Saldo Investido', totals.investmentBalance, null, null],
+        ['Saldo Devedor', totals.debtBalance, null, null],
+        ['Receitas do Período', totals.income, incomeCount, percent(incomeCount)],
+        ['Despesas do Período', totals.expenses, expenseCount, percent(expenseCount)],
+        ['Investimentos do Período', totals.savings, savingsCount, percent(savingsCount)],
+        ['Saldo Líquido do Período', totals.balance, null, totals.balance >= 0 ? 'POSITIVO' : 'NEGATIVO'],
+        ['Total de Transações', null, transactions.length, '100%'],
+      ],
+    };
+  };
+
+  const exportToNativeFile = async (exportFormat: NativeExportFormat) => {
+    if (!isPremium && !canUse('export')) {
+      toast({
+        title: "Limite atingido",
+        description: "Você atingiu o limite de 3 exportações gratuitas. Faça upgrade para continuar!",
+        variant: "destructive",
+      });
+      return;
+    }
+
+    const abort = new AbortController();
+    nativeAbort.current = abort;
+    setIsExporting(true);
+    setNativeProgress(0);
+    try {
+      const result = await exportNative({
+        format: exportFormat,
+        fileName: `relatorio-finaudy-${format(new Date(), 'dd-MM-yyyy')}.${exportFormat}`,
+        columns: NATIVE_EXPORT_COLUMNS,
+        items: transactions,
+        toRow: toNativeExportRow,
+        sheets: exportFormat === 'xlsx' ? [buildNativeSummarySheet()] : undefined,
+        onProgress: (written, total) => setNativeProgress(total > 0 ? Math.round((written / total) * 100) : null),
+        signal: abort.signal,
+      });
+      // Seletor fechado ou cancelado: não conta como uso
+      if (!result) return;
+
+      if (!isPremium) {
+        await incrementUsage('export');
+      }
+      toast({
+        title: "Exportação concluída!",
+        description: `${result.rows} transações salvas no arquivo escolhido.`,
+      });
+    } catch (error) {
+      console.error('Erro na exportação nativa:', error);
+      toast({
+        title: "Erro ao exportar",
+        description: "Não foi possível gravar o arquivo.",
+        variant: "destructive",
+      });
+    } finally {
+      nativeAbort.current = null;
+      setNativeProgress(null);
+      setIsExporting(false);
+    }
+  };
 
   const exportToExcel = async () => {
+    if (isNativeExportAvailable() && transactions.length >= NATIVE_EXCEL_MIN_ROWS) {
+      await exportToNativeFile('xlsx');
+      return;
+    }
     if (!isPremium && !canUse('export')) {
       toast({
         title: "Limite atingido",
@@ -815,7 +943,14 @@ export const ExportData = ({
               <div className="absolute inset-0 bg-white/80 dark:bg-gray-900/80 backdrop-blur-sm rounded-lg flex items-center justify-center">
                 <div className="flex items-center gap-2">
                   <div className="w-4 h-4 border-2 border-green-500 border-t-transparent rounded-full animate-spin"></div>
-                  <span className="text-xs sm:text-sm font-medium text-green-600">Processando...</span>
+                  <span className="text-xs sm:text-sm font-medium text-green-600">
+                    {nativeProgress !== null ? `Gravando ${nativeProgress}%` : 'Processando...'}
+                  </span>
+                  {nativeProgress !== null && (
+                    <Button variant="ghost" size="sm" className="h-6 px-2 text-xs" onClick={() => nativeAbort.current?.abort()}>
+                      Cancelar
+                    </Button>
+                  )}
                 </div>
               </div>
             )}
@@ -859,6 +994,22 @@ export const ExportData = ({
           </div>
         </div>
 
+        {/* CSV pelo app: gravado em streaming no arquivo escolhido */}
+        {isNativeExportAvailable() && (
+          <Button
+            variant="ghost"
+            size="sm"
+            disabled={isExporting || transactions.length === 0}
+            className="w-full mt-3 text-xs"
+            onClick={() => exportToNativeFile('csv')}
+          >
+            <FileSpreadsheet className="h-4 w-4 mr-2" />
+            Exportar CSV (transações)
+          </Button>
+        )}
+
+        <StatementImportButton />
+
         {/* Features highlight */}
         <div className="mt-4 sm:mt-6 grid grid-cols-1 sm:grid-cols-2 gap-3 sm:gap-4 text-xs">
           <div className="bg-gradient-to-r from-green-50 to-emerald-50 dark:from-green-950/10 dark:to-emerald-950/10 rounded-lg p-3 border border-green-200/30">
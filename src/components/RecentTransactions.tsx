@@ -4,6 +4,7 @@ import { AlertDialog, AlertDialogAction, AlertDialogCancel, AlertDialogContent,
 import { Plus, Search } from "lucide-react";
 import { useTransactions } from "@/hooks/useTransactions";
 import { useCurrentAccountPremium } from "@/hooks/useCurrentAccountPremium";
+import { useTransactionSearch } from "@/hooks/useTransactionSearch";
 import { TransactionItem, TransactionSearch, TransactionDialog } from "@/components/transactions";
 
 // Cores vibrantes para categorias (exatamente iguais ao gráfico)
@@ -42,6 +43,9 @@ export const RecentTransactions = ({ filteredTransactions }: RecentTransactionsP
   // Usar transações filtradas se fornecidas, senão usar todas as transações
   const transactionsToUse = filteredTransactions || transactions;
   
+  // No app Android a busca vem do índice nativo (sem acento, prefixo e erro de digitação)
+  const nativeMatches = useTransactionSearch(searchTerm, transactionsToUse);
+
   // Criar exatamente o mesmo chartData do gráfico para manter consistência nas cores
   const chartData = useMemo(() => {
     const categoryMap = new Map();
@@ -68,6 +72,7 @@ export const RecentTransactions = ({ filteredTransactions }: RecentTransactionsP
   const recentTransactions = transactionsToUse
     .filter(transaction => {
       if (!searchTerm.trim()) return true;
+      if (nativeMatches) return nativeMatches.has(transaction.id);
       
       const searchLower = searchTerm.toLowerCase().trim();
       const description = (transaction.description || '').toLowerCase();
@@ -0,0 +1,64 @@
+import { useRef, useState } from 'react';
+import { useQueryClient } from '@tanstack/react-query';
+import { Upload } from 'lucide-react';
+import { Button } from '@/components/ui/button';
+import { useToast } from '@/components/ui/use-toast';
+import { useAccountContext } from '@/hooks/useAccountContext';
+import { importStatement, isStatementImportAvailable } from '@/lib/statementImport';
+
+// Importa um extrato CSV ou OFX pelo app; lançamentos já existentes na conta são ignorados
+export const StatementImportButton = () => {
+  const { currentAccount } = useAccountContext();
+  const queryClient = useQueryClient();
+  const { toast } = useToast();
+  const [progress, setProgress] = useState<number | null>(null);
+  const abort = useRef<AbortController | null>(null);
+
+  if (!isStatementImportAvailable() || !currentAccount) return null;
+
+  const run = async () => {
+    abort.current = new AbortController();
+    setProgress(0);
+    try {
+      const result = await importStatement({
+        accountId: currentAccount.id,
+        signal: abort.current.signal,
+        onProgress: ({ bytesRead, totalBytes }) => {
+          if (totalBytes > 0) setProgress(Math.min(99, Math.round(bytesRead * 100 / totalBytes)));
+        },
+      });
+      if (!result) return;
+      queryClient.invalidateQueries({ queryKey: ['transactions', currentAccount.id] });
+      toast({
+        title: "Extrato importado",
+        description: `${result.imported} lançamentos novos de ${result.fileName}`
+          + (result.duplicates > 0 ? `, ${result.duplicates} já existentes ignorados` : '')
+          + (result.skipped > 0 ? `, ${result.skipped} linhas sem data ou valor` : '') + '.',
+      });
+    } catch (error) {
+      console.error('Erro ao importar extrato:', error);
+      toast({
+        title: "Erro ao importar",
+        description: error instanceof Error ? error.message : "Não foi possível ler o extrato.",
+        variant: "destructive",
+      });
+    } finally {
+      abort.current = null;
+      setProgress(null);
+    }
+  };
+
+  return (
+    <div className="flex items-center gap-2 mt-3">
+      <Button variant="ghost" size="sm" className="flex-1 text-xs" disabled={progress !== null} onClick={run}>
+        <Upload className="h-4 w-4 mr-2" />
+        {progress !== null ? `Importando ${progress}%` : 'Importar extrato (CSV ou OFX)'}
+      </Button>
+      {progress !== null && (
+        <Button variant="ghost" size="sm" className="h-6 px-2 text-xs" onClick={() => abort.current?.abort()}>
+          Cancelar
+        </Button>
+      )}
+    </div>
+  );
+};
@@ -1,4 +1,4 @@
-import { useState } from 'react';
+import { useEffect, useState } from 'react';
 import { Crown, Zap, Check, X, Star, Sparkles, Smartphone } from 'lucide-react';
 import { Dialog, DialogContent, DialogHeader, DialogTitle } from '@/components/ui/dialog';
 import { Button } from '@/components/ui/button';
@@ -21,6 +21,13 @@ export const SubscriptionModal = ({ isOpen, onClose }: SubscriptionModalProps) =
   const { startPurchase, isProcessing } = useGooglePlayPurchase();
   const [isLoadingStripe, setIsLoadingStripe] = useState<'premium' | 'vip' | null>(null);
 
+  // O app só conecta ao Google Play quando precisa; abrir o modal já adianta a conexão
+  useEffect(() => {
+    if (isOpen && isAndroidApp) {
+      window.Android?.prepareBilling?.();
+    }
+  }, [isOpen]);
+
   const handleSubscribe = async (plan: 'premium' | 'vip') => {
     if (isAndroidApp) {
       // Fluxo para Android via Google Play
@@ -7,6 +7,8 @@ import { useAuth } from "@/hooks/useAuth";
 import { useAccountContext } from "@/hooks/useAccountContext";
 import { supabase } from "@/integrations/supabase/client";
 import { soundEffects } from "@/utils/soundEffects";
+import { readNativeBlob } from "@/lib/nativeBridge";
+import { onNativeEvent } from "@/lib/nativeEvents";
 import { addMonths, format } from "date-fns";
 import { toZonedTime } from "date-fns-tz";
 import { useCurrentAccountPremium } from "@/hooks/useCurrentAccountPremium";
@@ -14,17 +16,6 @@ import { useFeatureUsageLimits } from "@/hooks/useFeatureUsageLimits";
 import { usePermissions } from "@/hooks/usePermissions";
 import { PremiumOverlay } from "./PremiumOverlay";
 
-// Helper function to convert Base64 to Blob
-const base64ToBlob = (base64: string, contentType: string = 'audio/webm'): Blob => {
-  const byteCharacters = atob(base64);
-  const byteNumbers = new Array(byteCharacters.length);
-  for (let i = 0; i < byteCharacters.length; i++) {
-    byteNumbers[i] = byteCharacters.charCodeAt(i);
-  }
-  const byteArray = new Uint8Array(byteNumbers);
-  return new Blob([byteArray], { type: contentType });
-};
-
 interface VoiceRecognitionProps {
   onTransactionAdd: (transaction: {
     amount: number;
@@ -43,6 +34,8 @@ export const VoiceRecognition = ({ onTransactionAdd }: VoiceRecognitionProps) =>
   const mediaRecorderRef = useRef<MediaRecorder | null>(null);
   const audioChunksRef = useRef<Blob[]>([]);
   const timeoutRef = useRef<NodeJS.Timeout | null>(null);
+  // Texto devolvido pelo upload em streaming da gravação atual (só Android)
+  const streamedTranscriptionRef = useRef<string | null>(null);
   const { toast } = useToast();
   const { categories } = useTransactions();
   const { user } = useAuth();
@@ -373,99 +366,106 @@ export const VoiceRecognition = ({ onTransactionAdd }: VoiceRecognitionProps) =>
     }
   };
 
-  const processAudio = useCallback(async (audioBlob: Blob) => {
+  // body: {audio, mimeType} ou, quando o app já transcreveu durante a gravação, {transcription}
+  const analyzeVoice = useCallback(async (body: Record<string, string>) => {
     try {
-      const reader = new FileReader();
-      reader.readAsDataURL(audioBlob);
-      
-      reader.onloadend = async () => {
-        try {
-          const base64Audio = (reader.result as string).split(',')[1];
-          
-          const { data, error } = await supabase.functions.invoke('smart-voice-processor', {
-            body: {
-              audio: base64Audio,
-              categories: categories.map(cat => ({ 
-                id: cat.id, 
-                name: cat.name, 
-                type: cat.type 
-              }))
-            }
-          });
+      const { data, error } = await supabase.functions.invoke('smart-voice-processor', {
+        body: {
+          ...body,
+          categories: categories.map(cat => ({ 
+            id: cat.id, 
+            name: cat.name, 
+            type: cat.type 
+          }))
+        }
+      });
 
-        setIsProcessing(false);
+      setIsProcessing(false);
 
-        if (error) {
-          throw error;
-        }
+      if (error) {
+        throw error;
+      }
+
+      if (!data || !data.action_type) {
+        toast({
+          title: "Nenhuma ação identificada",
+          description: "Não foi possível extrair informações do áudio",
+          variant: "destructive",
+        });
+        return;
+      }
 
-        if (!data || !data.action_type) {
+      const { action_type } = data;
+        
+      if (!isPremium) {
+        await incrementUsage('voice');
+      }
+
+      if (action_type === 'transaction') {
+        const { transaction } = data;
+          
+        if (!transaction.amount || !transaction.description || !transaction.category_id || !transaction.type) {
           toast({
-            title: "Nenhuma ação identificada",
-            description: "Não foi possível extrair informações do áudio",
+            title: "Dados incompletos",
+            description: "Não foi possível extrair todas as informações necessárias",
             variant: "destructive",
           });
           return;
         }
 
-        const { action_type } = data;
-        
-        if (!isPremium) {
-          await incrementUsage('voice');
-        }
-
-        if (action_type === 'transaction') {
-          const { transaction } = data;
-          
-          if (!transaction.amount || !transaction.description || !transaction.category_id || !transaction.type) {
-            toast({
-              title: "Dados incompletos",
-              description: "Não foi possível extrair todas as informações necessárias",
-              variant: "destructive",
-            });
-            return;
-          }
-
-          if ((transaction.installments && transaction.installments.count > 1) || 
-              transaction.payment_method === 'Cartão de Crédito') {
-            await handleInstallmentPurchase(transaction, transaction.installments || { count: 1, value: transaction.amount });
-          } else {
-            onTransactionAdd({
-              amount: transaction.amount,
-              description: transaction.description,
-              category_id: transaction.category_id,
-              type: transaction.type
-            });
+        if ((transaction.installments && transaction.installments.count > 1) || 
+            transaction.payment_method === 'Cartão de Crédito') {
+          await handleInstallmentPurchase(transaction, transaction.installments || { count: 1, value: transaction.amount });
+        } else {
+          onTransactionAdd({
+            amount: transaction.amount,
+            description: transaction.description,
+            category_id: transaction.category_id,
+            type: transaction.type
+          });
 
-            let description = `${transaction.type === 'income' ? 'Receita' : 'Despesa'}: R$ ${transaction.amount.toLocaleString('pt-BR', { minimumFractionDigits: 2 })} - ${transaction.description}`;
+          let description = `${transaction.type === 'income' ? 'Receita' : 'Despesa'}: R$ ${transaction.amount.toLocaleString('pt-BR', { minimumFractionDigits: 2 })} - ${transaction.description}`;
             
-            if (transaction.family_source) {
-              description += ` (da ${transaction.family_source})`;
-            }
-
-            toast({
-              title: "Transação adicionada!",
-              description,
-            });
+          if (transaction.family_source) {
+            description += ` (da ${transaction.family_source})`;
           }
-        } else if (action_type === 'investment') {
-          await handleInvestmentAction(data.investment);
-        } else if (action_type === 'reminder') {
-          await handleReminderAction(data.reminder);
-        } else if (action_type === 'subscription') {
-          await handleSubscriptionAction(data.subscription);
-        } else if (action_type === 'budget') {
-          await handleBudgetAction(data.budget);
-        }
-        } catch (processingError) {
-          console.error('Error processing audio:', processingError);
-          setIsProcessing(false);
+
           toast({
-            title: "Erro no processamento",
-            description: "Erro interno ao processar o áudio",
-            variant: "destructive",
+            title: "Transação adicionada!",
+            description,
           });
         }
+      } else if (action_type === 'investment') {
+        await handleInvestmentAction(data.investment);
+      } else if (action_type === 'reminder') {
+        await handleReminderAction(data.reminder);
+      } else if (action_type === 'subscription') {
+        await handleSubscriptionAction(data.subscription);
+      } else if (action_type === 'budget') {
+        await handleBudgetAction(data.budget);
+      }
+    } catch (processingError) {
+      console.error('Error processing audio:', processingError);
+      setIsProcessing(false);
+      toast({
+        title: "Erro no processamento",
+        description: "Erro interno ao processar o áudio",
+        variant: "destructive",
+      });
+    }
+  }, [categories, currentAccount, isPremium, onTransactionAdd, toast, user, incrementUsage]);
+
+  const processAudio = useCallback(async (audioBlob: Blob) => {
+    try {
+      const reader = new FileReader();
+      reader.readAsDataURL(audioBlob);
+      
+      reader.onloadend = () => {
+        analyzeVoice({
+          audio: (reader.result as string).split(',')[1],
+          // audio/mp4 (m4a) no app Android, audio/webm no navegador
+          mimeType: audioBlob.type || 'audio/webm',
+        });
       };
     } catch (error) {
       console.error('Error reading audio file:', error);
@@ -476,34 +476,93 @@ export const VoiceRecognition = ({ onTransactionAdd }: VoiceRecognitionProps) =>
         variant: "destructive",
       });
     }
-  }, [categories, currentAccount, isPremium, onTransactionAdd, toast, user, incrementUsage]);
+  }, [analyzeVoice, toast]);
 
   // This useEffect handles the callback from the native Android code
   useEffect(() => {
     if (isAndroid) {
-      window.onAudioRecordingComplete = (base64Audio: string) => {
-        console.log("🎤 Áudio recebido do Android (Base64).");
-        if (base64Audio) {
-          const audioBlob = base64ToBlob(base64Audio);
+      window.onAudioRecordingComplete = async (audioUrl: string, metrics?: Record<string, number | boolean>) => {
+        console.log("🎤 Áudio recebido do Android.", metrics);
+        if (metrics?.autoStopped) {
+          // O app parou sozinho depois de um silêncio longo
+          if (timeoutRef.current) {
+            clearTimeout(timeoutRef.current);
+            timeoutRef.current = null;
+          }
+          setIsRecording(false);
+          setIsProcessing(true);
+        }
+        const transcription = streamedTranscriptionRef.current;
+        streamedTranscriptionRef.current = null;
+        if (audioUrl && transcription !== null) {
+          // O áudio já foi transcrito enquanto era gravado: o arquivo não precisa atravessar a ponte
+          window.Android?.releaseNativeBlob?.(audioUrl);
+          analyzeVoice({ transcription });
+        } else if (audioUrl) {
+          let audioBlob: Blob;
+          try {
+            audioBlob = await readNativeBlob(audioUrl);
+          } catch (error) {
+            console.error("Erro ao ler o áudio do Android:", error);
+            setIsRecording(false);
+            setIsProcessing(false);
+            toast({
+              title: "Erro na Gravação",
+              description: error instanceof Error ? error.message : "Não foi possível ler o áudio gravado.",
+              variant: "destructive",
+            });
+            return;
+          } finally {
+            window.Android?.releaseNativeBlob?.(audioUrl);
+          }
           processAudio(audioBlob);
         } else {
-          console.error("Recebido áudio em Base64 vazio ou nulo do Android.");
+          console.error("Recebida URL de áudio vazia ou nula do Android.");
+          setIsRecording(false);
           setIsProcessing(false);
           toast({
             title: "Erro na Gravação",
-            description: "Não foi possível capturar o áudio. Tente novamente.",
+            description: metrics?.speechDetected === false
+              ? "Nenhuma fala detectada. Tente novamente."
+              : "Não foi possível capturar o áudio. Tente novamente.",
             variant: "destructive",
           });
         }
       };
+      // Resposta do upload em streaming; chega antes de onAudioRecordingComplete. Sem transcrição
+      // (erro ou rede), o áudio gravado segue pelo caminho normal
+      window.onAudioStreamResponse = (status: number, body: string) => {
+        if (status >= 400) {
+          console.warn(`Transcrição em streaming falhou (${status}): ${body}`);
+          return;
+        }
+        try {
+          const { transcription } = JSON.parse(body);
+          if (typeof transcription === 'string' && transcription.trim()) {
+            streamedTranscriptionRef.current = transcription;
+          }
+        } catch (error) {
+          console.warn('Resposta da transcrição em streaming ilegível:', error);
+        }
+      };
     }
 
+    // O app recusa a finalização se já houver outra em andamento; sem isso a tela ficaria processando
+    const unsubscribe = onNativeEvent('onNativeOperationRejected', (operation: string, reason: string) => {
+      if (operation === 'audio.finalize') {
+        console.warn(`Finalização do áudio recusada pelo app: ${reason}`);
+        setIsProcessing(false);
+      }
+    });
+
     return () => {
+      unsubscribe();
       if (isAndroid) {
         window.onAudioRecordingComplete = undefined;
+        window.onAudioStreamResponse = undefined;
       }
     };
-  }, [isAndroid, toast, processAudio]);
+  }, [isAndroid, toast, processAudio, analyzeVoice]);
 
   const startRecording = async () => {
     try {
@@ -511,7 +570,19 @@ export const VoiceRecognition = ({ onTransactionAdd }: VoiceRecognitionProps) =>
 
       if (isAndroid) {
         console.log("📱 Iniciando gravação de áudio nativa...");
-        window.Android?.startAudioRecording();
+        window.Android?.setVoiceActivityOptions?.(JSON.stringify({ trimSilence: true, autoStopSilenceMs: 3000 }));
+        streamedTranscriptionRef.current = null;
+        const { data: { session } } = await supabase.auth.getSession();
+        if (session && window.Android?.startStreamingAudioRecording) {
+          // O app envia o áudio enquanto grava e a transcrição fica pronta logo depois do stop
+          const { supabaseUrl, supabaseKey } = supabase as unknown as { supabaseUrl: string; supabaseKey: string };
+          window.Android.startStreamingAudioRecording(
+            `${supabaseUrl}/functions/v1/smart-voice-processor`,
+            JSON.stringify({ Authorization: `Bearer ${session.access_token}`, apikey: supabaseKey }),
+          );
+        } else {
+          window.Android?.startAudioRecording();
+        }
         setIsRecording(true);
       } else {
         // Web implementation
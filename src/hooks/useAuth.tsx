@@ -201,6 +201,7 @@ export const AuthProvider = ({ children }: { children: React.ReactNode }) => {
   const signOut = async () => {
     try {
       await supabase.auth.signOut();
+      window.Android?.signOutGoogle?.();
       toast({
         title: "Logout realizado",
         description: "Até logo!",
@@ -1,51 +1,28 @@
 import { useEffect, useState, useCallback } from 'react';
 import { supabase } from '@/integrations/supabase/client';
+import { whenNativeBridgeReady } from '@/lib/nativeBridge';
 import { useAuth } from './useAuth';
 
-// Armazena o token fora do ciclo de vida do componente para persistir entre renderizações
-let pendingToken: string | null = null;
+// Par token/usuário já salvo pelo fallback da página, para não repetir a chamada a cada abertura
+const SAVED_TOKEN_KEY = 'fcm_token_saved_by_page';
 
+// O registro do token no servidor é feito pelo app (PushTokenRegistrar.java): só quando o token
+// ou o usuário mudam, com novas tentativas e mesmo com o app fechado. O app usa a sessão que recebe
+// pela ponte; se a ponte não ficar pronta, a página salva o token ela mesma (save-push-token).
 export const useFCM = () => {
   const { user } = useAuth();
   const [isTokenRequested, setIsTokenRequested] = useState(false);
-
-  const saveTokenToSupabase = useCallback(async (token: string, userId: string) => {
-    console.log('💾 Salvando token FCM no Supabase:', { userId, token });
-    
-    const { error } = await supabase
-      .from('fcm_tokens')
-      .upsert({ 
-        user_id: userId, 
-        token: token,
-        platform: 'android'
-      }, { onConflict: 'token' });
-
-    if (error) {
-      console.error("❌ Erro ao salvar token FCM no Supabase:", error);
-    } else {
-      console.log("✅ Token FCM salvo com sucesso no Supabase!");
-      pendingToken = null; // Limpa o token pendente após o sucesso
-    }
-  }, []);
+  const [token, setToken] = useState<string | null>(null);
 
   useEffect(() => {
     // Define o callback global uma única vez
     window.onFCMTokenReceived = (token: string) => {
       console.log("🔑 Token FCM recebido do Android:", token);
-      
-      // SEMPRE armazenar o token atual no localStorage
       localStorage.setItem('current_fcm_token', token);
-      console.log('💾 Token FCM armazenado no localStorage para uso imediato');
-      
-      if (user) {
-        saveTokenToSupabase(token, user.id);
-      } else {
-        console.log("👤 Usuário ainda não autenticado. Armazenando token para mais tarde.");
-        pendingToken = token;
-      }
+      setToken(token);
     };
 
-    // Solicita o token apenas uma vez
+    // Solicita o token apenas uma vez; o pedido também entrega o token ao registro nativo
     if (window.Android && typeof window.Android.getFCMToken === 'function' && !isTokenRequested) {
       console.log("📱 Solicitando token FCM via interface nativa Android...");
       window.Android.getFCMToken();
@@ -56,15 +33,32 @@ export const useFCM = () => {
     return () => {
       window.onFCMTokenReceived = undefined;
     };
-  }, [isTokenRequested, saveTokenToSupabase, user]);
+  }, [isTokenRequested]);
 
   useEffect(() => {
-    // Verifica se há um token pendente quando o usuário se autentica
-    if (user && pendingToken) {
-      console.log("👤 Usuário autenticado. Salvando token pendente...");
-      saveTokenToSupabase(pendingToken, user.id);
+    if (!token || !user) {
+      return;
     }
-  }, [user, saveTokenToSupabase]);
+    let cancelled = false;
+    whenNativeBridgeReady().catch(async () => {
+      const saved = `${user.id}:${token}`;
+      if (cancelled || localStorage.getItem(SAVED_TOKEN_KEY) === saved) {
+        return;
+      }
+      console.log('💾 Ponte nativa indisponível, salvando token FCM pela página');
+      const { error } = await supabase.functions.invoke('save-push-token', {
+        body: { token, platform: 'android' },
+      });
+      if (error) {
+        console.error("❌ Erro ao salvar token FCM:", error);
+      } else {
+        localStorage.setItem(SAVED_TOKEN_KEY, saved);
+      }
+    });
+    return () => {
+      cancelled = true;
+    };
+  }, [token, user]);
 
   // Função para obter o token atual (para uso em outros componentes)
   const getCurrentToken = useCallback(() => {
@@ -31,9 +31,12 @@ export const useGoogleAuth = (config?: GoogleAuthConfig) => {
 
   // Configuração das callbacks para comunicação com Android
   const setupAndroidCallbacks = () => {
-    window.onGoogleSignInSuccess = async (idToken: string, accessToken?: string) => {
+    window.onGoogleSignInSuccess = async (idToken, accessToken, info) => {
       try {
         setIsLoading(true);
+        if (info) {
+          console.log(`🔐 Token Google via ${info.path} em ${info.elapsedMs} ms`);
+        }
 
         if (!idToken && !accessToken) {
           throw new Error('Nenhum token válido fornecido pelo Android');
@@ -77,8 +80,11 @@ export const useGoogleAuth = (config?: GoogleAuthConfig) => {
       }
     };
 
-    window.onGoogleSignInError = (errorMessage: string) => {
+    window.onGoogleSignInError = (errorMessage, info) => {
       setIsLoading(false);
+      if (info) {
+        console.warn(`🔐 Login Google falhou via ${info.path} após ${info.elapsedMs} ms`);
+      }
 
       let userFriendlyMessage = errorMessage;
       if (errorMessage.includes('403') || errorMessage.includes('blocked')) {
@@ -94,13 +100,18 @@ export const useGoogleAuth = (config?: GoogleAuthConfig) => {
   };
 
   // Login nativo para Android WebView
-  const signInWithGoogleNative = async (): Promise<GoogleAuthResult> => {
+  // chooseAccount: mostra o seletor mesmo com uma conta já conectada ("usar outra conta")
+  const signInWithGoogleNative = async (chooseAccount = false): Promise<GoogleAuthResult> => {
     try {
       setIsLoading(true);
 
-      if (isAndroidWebView() && (window.Android as any)?.signInWithGoogle) {
+      if (isAndroidWebView() && window.Android?.signInWithGoogle) {
         setupAndroidCallbacks();
-        (window.Android as any).signInWithGoogle();
+        if (chooseAccount && window.Android.chooseGoogleAccount) {
+          window.Android.chooseGoogleAccount();
+        } else {
+          window.Android.signInWithGoogle();
+        }
         return { success: true };
       } else {
         const errorMessage = 'A função de login nativo não está disponível.';
@@ -2,6 +2,7 @@ import { useState, useEffect } from 'react';
 import { supabase } from '@/integrations/supabase/client';
 import { useToast } from '@/components/ui/use-toast';
 import { useQueryClient } from '@tanstack/react-query';
+import { callNative } from '@/lib/nativeBridge';
 
 // Define a estrutura da resposta da verificação
 interface VerificationResult {
@@ -48,6 +49,10 @@ export const useGooglePlayPurchase = () => {
         const result = data as VerificationResult;
 
         if (result.success) {
+          // Assinatura liberada: confirma no Google Play (sem isso a compra é estornada em 3 dias).
+          // Se falhar, o app entrega a compra de novo mais tarde e a verificação se repete.
+          callNative('acknowledgePurchase', { purchaseToken })
+            .catch(ackError => console.warn('Falha ao confirmar compra no Google Play:', ackError));
           toast({
             title: '✅ Assinatura Ativada!',
             description: `Seu plano ${result.tier === 'vip' ? 'VIP' : 'Premium'} está ativo. Aproveite!`,
@@ -1,6 +1,7 @@
 import { useEffect } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { handleNotificationNavigation } from '@/utils/notificationNavigation';
+import { callNative } from '@/lib/nativeBridge';
 
 // Define a estrutura esperada dos dados da notificação vindos do código nativo
 interface NativeNotificationData {
@@ -8,6 +9,8 @@ interface NativeNotificationData {
     [key: string]: any;
     type?: string;
   };
+  // Registros buscados pelo app quando o push chegou, por tabela (ex.: { subscriptions: [...] })
+  prefetched?: Record<string, unknown[]>;
 }
 
 export const useNotificationClickListener = () => {
@@ -34,12 +37,18 @@ export const useNotificationClickListener = () => {
 
       // Garante que a navegação ocorra após a renderização inicial
       setTimeout(() => {
-        handleNotificationNavigation(adaptedNotification, navigate);
+        handleNotificationNavigation(adaptedNotification, navigate, notification.prefetched);
       }, 300);
     };
 
     console.log("✅ Listener de clique de notificação (ponte nativa) pronto.");
 
+    // O nativo segura os cliques até aqui (inclusive o que abriu o app) e manda todos de uma vez
+    if (window.Android) {
+      callNative('notificationsReady').catch(error =>
+        console.warn('Falha ao avisar o nativo que o listener de notificações está pronto:', error));
+    }
+
     // Limpeza: remove a função global quando o componente é desmontado
     return () => {
       delete window.onNotificationClicked;
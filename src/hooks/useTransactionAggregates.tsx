@@ -0,0 +1,54 @@
+import { useQuery } from '@tanstack/react-query';
+import { format } from 'date-fns';
+import { toZonedTime } from 'date-fns-tz';
+import { useAccountContext } from './useAccountContext';
+import { DateFilterType, DateRange } from './useDateFilter';
+import { isOfflineStoreAvailable } from '@/lib/offlineStore';
+import { AggregateGroup, aggregateTransactions } from '@/lib/nativeAggregates';
+
+export interface TransactionAggregates {
+  total: AggregateGroup | null;
+  byCategory: AggregateGroup[];
+  byMonth: AggregateGroup[];
+}
+
+const toDay = (date: Date) => format(toZonedTime(date, 'America/Sao_Paulo'), 'yyyy-MM-dd');
+
+/**
+ * Totais do período calculados no app Android. Retorna null fora do app ou enquanto o espelho
+ * offline ainda não tem lançamentos; nesse caso a tela soma em JS como antes.
+ */
+export const useTransactionAggregates = (filterType: DateFilterType, dateRange: DateRange) => {
+  const { currentAccount } = useAccountContext();
+
+  let from: string | undefined;
+  let to: string | undefined;
+  if (filterType === 'today') {
+    from = to = toDay(new Date());
+  } else if (filterType !== 'all' && dateRange.from && dateRange.to) {
+    from = toDay(dateRange.from);
+    to = toDay(dateRange.to);
+  }
+
+  const { data = null } = useQuery({
+    // Sob ['transactions', conta]: as invalidações de lançamentos já recalculam os totais
+    queryKey: ['transactions', currentAccount?.id, 'aggregates', from, to],
+    queryFn: async (): Promise<TransactionAggregates | null> => {
+      const accountIds = [currentAccount!.id];
+      const [total, byCategory, byMonth] = await Promise.all([
+        aggregateTransactions({ accountIds, from, to, groupBy: 'none' }),
+        aggregateTransactions({ accountIds, from, to, groupBy: 'category' }),
+        aggregateTransactions({ accountIds, from, to, groupBy: 'month' }),
+      ]);
+      if (total.accountRows === 0) return null;
+      return {
+        total: total.groups[0] ?? null,
+        byCategory: byCategory.groups,
+        byMonth: byMonth.groups,
+      };
+    },
+    enabled: !!currentAccount && isOfflineStoreAvailable(),
+  });
+
+  return data;
+};
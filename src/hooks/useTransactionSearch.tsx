@@ -0,0 +1,42 @@
+import { keepPreviousData, useQuery } from '@tanstack/react-query';
+import { useAccountContext } from './useAccountContext';
+import { isOfflineStoreAvailable } from '@/lib/offlineStore';
+import { searchTransactions } from '@/lib/nativeSearch';
+
+/**
+ * Ids dos lançamentos que casam com a busca, entre os informados, pelo índice nativo. Retorna
+ * null fora do app, com a busca vazia ou enquanto o espelho offline ainda não tem lançamentos;
+ * nesse caso a tela filtra em JS como antes.
+ */
+export const useTransactionSearch = (searchTerm: string, transactions: { date: string }[]) => {
+  const { currentAccount } = useAccountContext();
+  const query = searchTerm.trim();
+
+  // Limita ao período da lista: o total cabe numa página do tamanho dela
+  let from: string | undefined;
+  let to: string | undefined;
+  for (const transaction of transactions) {
+    if (!from || transaction.date < from) from = transaction.date;
+    if (!to || transaction.date > to) to = transaction.date;
+  }
+
+  const { data = null } = useQuery({
+    // Sob ['transactions', conta]: as invalidações de lançamentos refazem a busca
+    queryKey: ['transactions', currentAccount?.id, 'search', query, from, to],
+    queryFn: async (): Promise<Set<string> | null> => {
+      const result = await searchTransactions({
+        accountId: currentAccount!.id,
+        query,
+        from,
+        to,
+        limit: transactions.length,
+      });
+      return result.indexed === 0 ? null : new Set(result.ids);
+    },
+    enabled: !!currentAccount && !!query && transactions.length > 0 && isOfflineStoreAvailable(),
+    // Mantém o resultado anterior enquanto a próxima tecla é buscada
+    placeholderData: keepPreviousData,
+  });
+
+  return query ? data : null;
+};
@@ -8,6 +8,14 @@ import { format } from 'date-fns';
 import { toZonedTime } from 'date-fns-tz';
 import { useEffect } from 'react';
 import { NotificationService } from '@/services/NotificationService';
+import {
+  deleteLocal,
+  isOfflineStoreAvailable,
+  onOfflineSyncComplete,
+  queryLocal,
+  setOfflineAccount,
+  writeLocal,
+} from '@/lib/offlineStore';
 
 export interface Transaction {
   id: string;
@@ -48,10 +56,31 @@ export const useTransactions = () => {
   const queryClient = useQueryClient();
   const { triggerMultiLayerUpdate } = useBalanceUpdater();
 
+  // No app Android as leituras saem do espelho offline e o sync nativo avisa quando algo mudou
+  useEffect(() => {
+    setOfflineAccount(currentAccount?.id ?? null);
+  }, [currentAccount?.id]);
+
+  useEffect(() => {
+    if (!currentAccount) return;
+    return onOfflineSyncComplete((result) => {
+      if (result.pulled > 0 || result.removed > 0 || result.conflicts > 0) {
+        queryClient.invalidateQueries({ queryKey: ['transactions', currentAccount.id] });
+        queryClient.invalidateQueries({ queryKey: ['categories', currentAccount.id] });
+      }
+    });
+  }, [currentAccount?.id, queryClient]);
+
   const { data: transactions = [], isLoading: transactionsLoading } = useQuery({
     queryKey: ['transactions', currentAccount?.id],
     queryFn: async () => {
       if (!user || !currentAccount) return [];
+
+      if (isOfflineStoreAvailable()) {
+        const local = await loadLocalTransactions(currentAccount.id);
+        // Espelho ainda vazio (primeiro sync não terminou): busca direto no Supabase
+        if (local.length > 0) return local;
+      }
       
       const { data, error } = await supabase
         .from('transactions')
@@ -137,6 +166,11 @@ export const useTransactions = () => {
     queryKey: ['categories', currentAccount?.id],
     queryFn: async () => {
       if (!user || !currentAccount) return [];
+
+      if (isOfflineStoreAvailable()) {
+        const local = await queryLocal<Category>('categories', currentAccount.id);
+        if (local.length > 0) return local.sort((a, b) => a.name.localeCompare(b.name));
+      }
       
       console.log('Starting category fetch for account:', currentAccount.id);
       
@@ -184,26 +218,40 @@ export const useTransactions = () => {
 
       if (!user || !currentAccount) throw new Error('User not authenticated or account not selected');
 
-      console.log('📝 INSERTING TRANSACTION INTO DATABASE...');
-      const { data, error } = await supabase
-        .from('transactions')
-        .insert({
-          user_id: currentAccount.id,
-          amount: transaction.amount,
-          description: transaction.description,
-          category_id: transaction.category_id,
-          type: transaction.type,
-          payment_method: transaction.payment_method,
-          notes: transaction.notes,
-          receipt_url: transaction.receipt_url,
-          date: transaction.date || format(toZonedTime(new Date(), 'America/Sao_Paulo'), 'yyyy-MM-dd'),
-        })
-        .select()
-        .single();
-
-      if (error) {
-        console.error('❌ ERROR INSERTING TRANSACTION:', error);
-        throw error;
+      const row = {
+        user_id: currentAccount.id,
+        amount: transaction.amount,
+        description: transaction.description,
+        category_id: transaction.category_id,
+        type: transaction.type,
+        payment_method: transaction.payment_method,
+        notes: transaction.notes,
+        receipt_url: transaction.receipt_url,
+        date: transaction.date || format(toZonedTime(new Date(), 'America/Sao_Paulo'), 'yyyy-MM-dd'),
+      };
+
+      let data: Transaction;
+      if (isOfflineStoreAvailable()) {
+        // Vai para a outbox do app e sobe no próximo sync, com ou sem rede agora
+        console.log('📝 WRITING TRANSACTION TO OFFLINE STORE...');
+        data = await writeLocal<Transaction>('transactions', currentAccount.id, {
+          ...row,
+          id: crypto.randomUUID(),
+          created_at: new Date().toISOString(),
+        });
+      } else {
+        console.log('📝 INSERTING TRANSACTION INTO DATABASE...');
+        const { data: inserted, error } = await supabase
+          .from('transactions')
+          .insert(row)
+          .select()
+          .single();
+
+        if (error) {
+          console.error('❌ ERROR INSERTING TRANSACTION:', error);
+          throw error;
+        }
+        data = inserted as Transaction;
       }
 
       console.log('✅ TRANSACTION INSERTED SUCCESSFULLY:', data);
@@ -294,15 +342,21 @@ export const useTransactions = () => {
     }) => {
       if (!user || !currentAccount) throw new Error('User not authenticated or account not selected');
 
-      const { data, error } = await supabase
-        .from('transactions')
-        .update(transaction)
-        .eq('id', id)
-        .eq('user_id', currentAccount.id)
-        .select()
-        .single();
-
-      if (error) throw error;
+      let data: Transaction;
+      if (isOfflineStoreAvailable()) {
+        data = await writeLocal<Transaction>('transactions', currentAccount.id, { id, ...transaction });
+      } else {
+        const { data: updated, error } = await supabase
+          .from('transactions')
+          .update(transaction)
+          .eq('id', id)
+          .eq('user_id', currentAccount.id)
+          .select()
+          .single();
+
+        if (error) throw error;
+        data = updated as Transaction;
+      }
 
       // Add notification to the current account
       await supabase
@@ -367,21 +421,27 @@ export const useTransactions = () => {
     mutationFn: async (id: string) => {
       if (!user || !currentAccount) throw new Error('User not authenticated or account not selected');
 
-      // Get transaction details before deleting
-      const { data: transaction } = await supabase
-        .from('transactions')
-        .select('description')
-        .eq('id', id)
-        .eq('user_id', currentAccount.id)
-        .single();
-
-      const { error } = await supabase
-        .from('transactions')
-        .delete()
-        .eq('id', id)
-        .eq('user_id', currentAccount.id);
-
-      if (error) throw error;
+      let transaction: { description: string | null } | null | undefined;
+      if (isOfflineStoreAvailable()) {
+        transaction = (await queryLocal<Transaction>('transactions', currentAccount.id)).find(t => t.id === id);
+        await deleteLocal('transactions', currentAccount.id, id);
+      } else {
+        // Get transaction details before deleting
+        ({ data: transaction } = await supabase
+          .from('transactions')
+          .select('description')
+          .eq('id', id)
+          .eq('user_id', currentAccount.id)
+          .single());
+
+        const { error } = await supabase
+          .from('transactions')
+          .delete()
+          .eq('id', id)
+          .eq('user_id', currentAccount.id);
+
+        if (error) throw error;
+      }
 
       // Add notification to the current account - mark as deleted to prevent navigation
       if (transaction) {
@@ -437,4 +497,24 @@ export const useTransactions = () => {
     isAddingTransaction: addTransactionMutation.isPending,
     refetchCategories,
   };
-};
\ No newline at end of file
+};
+
+// Mesmo formato do select com join do Supabase, montado a partir do espelho local
+const loadLocalTransactions = async (accountId: string): Promise<Transaction[]> => {
+  const [rows, categories] = await Promise.all([
+    queryLocal<Transaction>('transactions', accountId),
+    queryLocal<Category>('categories', accountId),
+  ]);
+  const byId = new Map(categories.map(category => [category.id, category]));
+  return rows
+    .map(row => {
+      const category = row.category_id ? byId.get(row.category_id) : undefined;
+      return {
+        ...row,
+        categories: category
+          ? { id: category.id, name: category.name, icon: category.icon, color: category.color }
+          : undefined,
+      };
+    })
+    .sort((a, b) => (b.created_at ?? '').localeCompare(a.created_at ?? ''));
+};
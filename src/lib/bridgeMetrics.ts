@@ -0,0 +1,29 @@
+// Métricas do que atravessa a ponte, coletadas pelo app (BridgeMetrics.java). As mesmas
+// aparecem em `adb shell dumpsys activity com.finaudy/.MainActivity`.
+
+export interface BridgeMetricEntry {
+  calls: number;
+  errors: number;
+  bytesIn: number;
+  bytesOut: number;
+  p50Ms: number;
+  p90Ms: number;
+  p99Ms: number;
+  maxMs: number;
+  // Chamadas por thread nativa (números trocados por #, ex.: "pool-#-thread-#")
+  threads: Record<string, number>;
+}
+
+export interface BridgeMetrics {
+  enabled: boolean;
+  sinceMs: number;
+  // "js.*" (window.Android), "port.*" (MessagePort), "event.*" (nativo→JS),
+  // "flow.*" (ex.: seletor de arquivo até onFileSelected) e "evaluateJavascript"
+  entries: Record<string, BridgeMetricEntry>;
+}
+
+/** null fora do app Android ou em versões do app sem as métricas. */
+export const getBridgeMetrics = (): BridgeMetrics | null => {
+  const json = window.Android?.getBridgeMetrics?.();
+  return json ? (JSON.parse(json) as BridgeMetrics) : null;
+};
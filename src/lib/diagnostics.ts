@@ -0,0 +1,36 @@
+// Travamentos da main thread, jank e violações do StrictMode registrados pelo app
+// (DiagnosticsLog.java) num buffer limitado em disco. A página exporta em lotes, envia e
+// confirma com acknowledgeDiagnostics para liberar espaço.
+import { callNative } from './nativeBridge';
+
+export interface DiagnosticsRecord {
+  seq: number;
+  type: 'stall' | 'anr' | 'frames' | 'strictMode';
+  // ms desde a epoch
+  at: number;
+  version: string;
+  // stall: durationMs, reachedAnr, stack; anr: blockedMs, stack;
+  // frames: frames, janky, frozen, p50Ms, p90Ms, p99Ms, worstMs, budgetMs;
+  // strictMode: violation, frame, count, policy/stack na primeira ocorrência
+  [field: string]: unknown;
+}
+
+export interface DiagnosticsVersionSummary {
+  stall?: { count: number; totalMs: number; maxMs: number };
+  anr?: { count: number };
+  frames?: { count: number; frames: number; janky: number; frozen: number; jankRate: number };
+  strictMode?: { count: number; violations: Record<string, number> };
+}
+
+/** Os registros mais antigos ainda não confirmados, no máximo limit. */
+export const exportDiagnostics = async (limit?: number): Promise<DiagnosticsRecord[]> =>
+  (await callNative<{ records: DiagnosticsRecord[] }>('diagnosticsExport', limit ? { limit } : {})).result
+    .records;
+
+/** Apaga os registros até seq (inclusive); devolve quantos saíram. */
+export const acknowledgeDiagnostics = async (seq: number): Promise<number> =>
+  (await callNative<number>('diagnosticsAcknowledge', { seq })).result;
+
+/** Resumo por versão do app, ex.: { '8.3': { stall: {...}, frames: {...} } }. */
+export const getDiagnosticsSummary = async (): Promise<Record<string, DiagnosticsVersionSummary>> =>
+  (await callNative<Record<string, DiagnosticsVersionSummary>>('diagnosticsSummary')).result;
@@ -0,0 +1,39 @@
+// Somas por categoria, mês ou conta calculadas pelo app (TransactionAggregator.java) sobre o
+// espelho offline, em vez de percorrer a lista inteira de lançamentos a cada render.
+import { callNative } from './nativeBridge';
+
+export type AggregateGroupBy = 'none' | 'category' | 'month' | 'account';
+
+// Índices de cents/counts, na ordem de TransactionAggregator.TYPE_*
+export const AGGREGATE_TYPES = ['expense', 'income', 'savings'] as const;
+
+export interface AggregateGroup {
+  // Id da categoria/conta, 'yyyy-MM' ou null (sem categoria ou groupBy 'none')
+  key: string | null;
+  cents: [number, number, number];
+  counts: [number, number, number];
+}
+
+export interface AggregateResult {
+  groups: AggregateGroup[];
+  // Lançamentos das contas no espelho, sem filtro de data; 0 antes do primeiro sync
+  accountRows: number;
+  elapsedMs: number;
+}
+
+export interface AggregateParams {
+  accountIds: string[];
+  // 'yyyy-MM-dd', inclusivo; sem from/to considera todo o histórico
+  from?: string;
+  to?: string;
+  groupBy: AggregateGroupBy;
+}
+
+export const aggregateTransactions = async (params: AggregateParams): Promise<AggregateResult> =>
+  (await callNative<AggregateResult>('aggregateTransactions', { ...params })).result;
+
+export const amountOf = (group: AggregateGroup, type: typeof AGGREGATE_TYPES[number]) =>
+  group.cents[AGGREGATE_TYPES.indexOf(type)] / 100;
+
+export const countOf = (group: AggregateGroup, type: typeof AGGREGATE_TYPES[number]) =>
+  group.counts[AGGREGATE_TYPES.indexOf(type)];
@@ -0,0 +1,185 @@
+// Canal request/response com o app Android sobre um MessagePort (MessagePortBridge.java).
+// O app entrega a porta a cada carregamento da página; chamadas feitas antes disso esperam
+// até READY_TIMEOUT_MS (sem porta, por exemplo com o app preso ou fora do WebView, elas falham).
+// Mensagens binárias: 4 bytes big-endian com o tamanho do cabeçalho JSON, o cabeçalho em
+// UTF-8 e o payload cru (ArrayBuffer), sem base64.
+
+const HELLO_TYPE = 'finaudy-bridge';
+const DEFAULT_TIMEOUT_MS = 30000;
+const READY_TIMEOUT_MS = 10000;
+
+export interface NativeReply<T = unknown> {
+  result: T;
+  payload?: ArrayBuffer;
+}
+
+interface PendingCall {
+  resolve: (reply: NativeReply<any>) => void;
+  reject: (error: Error) => void;
+  timer: ReturnType<typeof setTimeout>;
+}
+
+let port: MessagePort | null = null;
+let binarySupported = false;
+let nextId = 1;
+const pending = new Map<number, PendingCall>();
+const readyWaiters = new Set<() => void>();
+
+const encoder = new TextEncoder();
+const decoder = new TextDecoder();
+
+const encodeFrame = (header: object, payload: ArrayBuffer): ArrayBuffer => {
+  const headerBytes = encoder.encode(JSON.stringify(header));
+  const frame = new Uint8Array(4 + headerBytes.length + payload.byteLength);
+  new DataView(frame.buffer).setUint32(0, headerBytes.length);
+  frame.set(headerBytes, 4);
+  frame.set(new Uint8Array(payload), 4 + headerBytes.length);
+  return frame.buffer;
+};
+
+const decodeFrame = (frame: ArrayBuffer) => {
+  const headerLength = new DataView(frame).getUint32(0);
+  const header = JSON.parse(decoder.decode(new Uint8Array(frame, 4, headerLength)));
+  return { header, payload: frame.slice(4 + headerLength) };
+};
+
+const handleReply = (event: MessageEvent) => {
+  let header: { id: number; result?: unknown; error?: string };
+  let payload: ArrayBuffer | undefined;
+  try {
+    if (event.data instanceof ArrayBuffer) {
+      ({ header, payload } = decodeFrame(event.data));
+    } else {
+      header = JSON.parse(event.data);
+    }
+  } catch (error) {
+    console.error('Resposta inválida da ponte nativa:', error);
+    return;
+  }
+
+  const call = pending.get(header.id);
+  if (!call) {
+    return;
+  }
+  pending.delete(header.id);
+  clearTimeout(call.timer);
+  if (header.error !== undefined) {
+    call.reject(new Error(header.error));
+  } else {
+    call.resolve({ result: header.result, payload });
+  }
+};
+
+const failPending = (reason: string) => {
+  pending.forEach(call => {
+    clearTimeout(call.timer);
+    call.reject(new Error(reason));
+  });
+  pending.clear();
+};
+
+export const installNativeBridge = () => {
+  window.addEventListener('message', (event: MessageEvent) => {
+    if (!event.ports?.length || typeof event.data !== 'string') {
+      return;
+    }
+    let hello: { type?: string; binary?: boolean };
+    try {
+      hello = JSON.parse(event.data);
+    } catch {
+      return;
+    }
+    if (hello.type !== HELLO_TYPE) {
+      return;
+    }
+
+    if (port) {
+      port.close();
+      failPending('Canal nativo reiniciado');
+    }
+    port = event.ports[0];
+    binarySupported = hello.binary === true;
+    port.onmessage = handleReply;
+    readyWaiters.forEach(ready => ready());
+    readyWaiters.clear();
+  });
+};
+
+export const isNativeBridgeAvailable = () => port !== null;
+
+export const isNativeBinarySupported = () => port !== null && binarySupported;
+
+export const whenNativeBridgeReady = (timeoutMs = READY_TIMEOUT_MS): Promise<void> =>
+  port ? Promise.resolve() : new Promise((resolve, reject) => {
+    const ready = () => {
+      clearTimeout(timer);
+      resolve();
+    };
+    const timer = setTimeout(() => {
+      readyWaiters.delete(ready);
+      reject(new Error('Ponte nativa indisponível'));
+    }, timeoutMs);
+    readyWaiters.add(ready);
+  });
+
+export const callNative = async <T = unknown>(
+  method: string,
+  params: Record<string, unknown> = {},
+  payload?: ArrayBuffer,
+  timeoutMs = DEFAULT_TIMEOUT_MS,
+): Promise<NativeReply<T>> => {
+  await whenNativeBridgeReady();
+  if (payload && !binarySupported) {
+    throw new Error('ArrayBuffer não suportado por este WebView');
+  }
+
+  const id = nextId++;
+  return new Promise<NativeReply<T>>((resolve, reject) => {
+    const timer = setTimeout(() => {
+      pending.delete(id);
+      reject(new Error(`Tempo esgotado em ${method}`));
+    }, timeoutMs);
+    pending.set(id, { resolve, reject, timer });
+
+    const request = { id, method, params };
+    port!.postMessage(payload ? encodeFrame(request, payload) : JSON.stringify(request));
+  });
+};
+
+/**
+ * Lê um blob servido em /native-blob/{id}. Usa a ponte binária quando disponível e cai
+ * para fetch(url) caso contrário (WebView antigo ou blob grande demais para a ponte).
+ */
+export const readNativeBlob = async (url: string): Promise<Blob> => {
+  if (isNativeBinarySupported()) {
+    try {
+      const { result, payload } = await callNative<{ mimeType: string }>('readBlob', { url });
+      if (payload) {
+        return new Blob([payload], { type: result.mimeType });
+      }
+    } catch (error) {
+      console.warn('readBlob pela ponte falhou, usando fetch:', error);
+    }
+  }
+  const response = await fetch(url);
+  return response.blob();
+};
+
+export interface StartupMarkSummary {
+  count: number;
+  p50: number;
+  p90: number;
+  max: number;
+}
+
+// Marcos em ms desde o início do processo (firstFrame, webReady, idleDone...) e duração
+// de cada tarefa de inicialização; history resume as últimas aberturas a frio
+export interface StartupTrace {
+  coldStart: boolean;
+  marks: Record<string, number>;
+  spans: Record<string, number>;
+  history: Record<string, StartupMarkSummary>;
+}
+
+export const getStartupTrace = async (): Promise<StartupTrace> =>
+  (await callNative<StartupTrace>('getStartupTrace')).result;
@@ -0,0 +1,52 @@
+// Ponto de entrada único dos eventos enviados pelo app Android.
+// O lado nativo agrupa os eventos de um frame e chama window.__nativeEvents(batch) uma vez;
+// cada evento é repassado ao callback global de mesmo nome (window.onPermissionResult etc.)
+// e a quem se inscreveu com onNativeEvent.
+
+export interface NativeEvent {
+  name: string;
+  args: unknown[];
+}
+
+type NativeEventHandler = (...args: any[]) => void;
+
+const listeners = new Map<string, Set<NativeEventHandler>>();
+
+const dispatch = (event: NativeEvent) => {
+  const callback = (window as unknown as Record<string, unknown>)[event.name];
+  const handlers = listeners.get(event.name);
+
+  if (typeof callback !== 'function' && !handlers?.size) {
+    console.warn(`Callback nativo ausente: ${event.name}`);
+    return;
+  }
+
+  try {
+    if (typeof callback === 'function') {
+      callback.apply(window, event.args);
+    }
+    handlers?.forEach(handler => handler(...event.args));
+  } catch (error) {
+    console.error(`Erro ao tratar evento nativo ${event.name}:`, error);
+  }
+};
+
+export const installNativeEventDispatcher = () => {
+  window.__nativeEvents = (batch: NativeEvent[]) => {
+    for (const event of batch) {
+      dispatch(event);
+    }
+  };
+};
+
+export const onNativeEvent = (name: string, handler: NativeEventHandler) => {
+  let handlers = listeners.get(name);
+  if (!handlers) {
+    handlers = new Set();
+    listeners.set(name, handlers);
+  }
+  handlers.add(handler);
+  return () => {
+    handlers?.delete(handler);
+  };
+};
@@ -0,0 +1,83 @@
+// Exportação gravada pelo app (ExportJob.java) direto no arquivo escolhido no seletor do
+// sistema: a página manda as linhas em lotes e o arquivo nunca é montado em memória no JS.
+import { callNative, isNativeBridgeAvailable } from './nativeBridge';
+import { onNativeEvent } from './nativeEvents';
+
+export type NativeExportFormat = 'csv' | 'xlsx';
+
+export interface NativeExportColumn {
+  name: string;
+  // 'money' sai com duas casas (e formato R$ na planilha); 'date' recebe 'yyyy-MM-dd'
+  type?: 'text' | 'number' | 'money' | 'date';
+  width?: number;
+}
+
+export type NativeExportCell = string | number | null;
+
+// Aba pequena montada inteira na página (ex.: resumo), gravada na planilha antes das linhas
+export interface NativeExportSheet {
+  name: string;
+  columns: NativeExportColumn[];
+  rows: NativeExportCell[][];
+}
+
+export interface NativeExportOptions<T> {
+  format: NativeExportFormat;
+  fileName: string;
+  columns: NativeExportColumn[];
+  // Cada lote é convertido por toRow só na hora de ir para o app: as linhas nunca existem todas juntas
+  items: readonly T[];
+  toRow: (item: T) => NativeExportCell[];
+  // Só na planilha; o CSV tem uma tabela só
+  sheets?: NativeExportSheet[];
+  onProgress?: (written: number, total: number) => void;
+  signal?: AbortSignal;
+}
+
+export interface NativeExportResult {
+  rows: number;
+  bytes: number;
+}
+
+const BATCH_SIZE = 500;
+// O usuário pode demorar para escolher a pasta e o nome do arquivo
+const PICKER_TIMEOUT_MS = 10 * 60 * 1000;
+
+export const isNativeExportAvailable = () => !!window.Android && isNativeBridgeAvailable();
+
+/**
+ * Resolve com o tamanho do arquivo gravado, ou null se o usuário fechou o seletor ou a
+ * exportação foi cancelada pelo signal (o arquivo incompleto é apagado).
+ */
+export const exportNative = async <T>(options: NativeExportOptions<T>): Promise<NativeExportResult | null> => {
+  const { format, fileName, columns, items, toRow, sheets, onProgress, signal } = options;
+  let id: string;
+  try {
+    id = (await callNative<{ id: string }>('exportStart', {
+      format, fileName, columns, total: items.length, sheets: format === 'xlsx' ? sheets : undefined,
+    }, undefined, PICKER_TIMEOUT_MS)).result.id;
+  } catch (error) {
+    if (error instanceof Error && error.message === 'Exportação cancelada') return null;
+    throw error;
+  }
+
+  const unsubscribe = onNativeEvent('onExportProgress', (exportId: string, written: number, total: number) => {
+    if (exportId === id) onProgress?.(written, total);
+  });
+  try {
+    // Um lote por vez: o app grava antes de responder, então só um lote fica em memória
+    for (let start = 0; start < items.length; start += BATCH_SIZE) {
+      if (signal?.aborted) {
+        await callNative('exportCancel', { id });
+        return null;
+      }
+      await callNative('exportRows', { id, rows: items.slice(start, start + BATCH_SIZE).map(toRow) });
+    }
+    return (await callNative<NativeExportResult>('exportFinish', { id })).result;
+  } catch (error) {
+    await callNative('exportCancel', { id }).catch(() => undefined);
+    throw error;
+  } finally {
+    unsubscribe();
+  }
+};
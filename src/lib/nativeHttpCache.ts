@@ -0,0 +1,57 @@
+// Cache nativo (CachingHttpFetcher.java) para GETs do Supabase que se repetem a cada
+// montagem de tela e troca de conta. Só os endpoints abaixo são guardados; escritas na
+// mesma tabela invalidam o cache dela e o logout apaga tudo.
+import { supabase } from '@/integrations/supabase/client';
+import { callNative } from './nativeBridge';
+
+export interface NativeHttpCacheEndpoint {
+  path: string;
+  // Dentro deste tempo a resposta sai do disco sem ir à rede
+  maxAgeMs: number;
+  // Depois de maxAgeMs, responde do disco e revalida em segundo plano por mais este tempo
+  staleWhileRevalidateMs: number;
+}
+
+const MINUTE = 60 * 1000;
+const DAY = 24 * 60 * MINUTE;
+
+// Lançamentos mudam por outros membros da conta compartilhada: sempre revalidados
+export const NATIVE_HTTP_CACHE_ENDPOINTS: NativeHttpCacheEndpoint[] = [
+  { path: '/rest/v1/categories', maxAgeMs: 5 * MINUTE, staleWhileRevalidateMs: DAY },
+  { path: '/rest/v1/category_budgets', maxAgeMs: MINUTE, staleWhileRevalidateMs: DAY },
+  { path: '/rest/v1/subscriptions', maxAgeMs: MINUTE, staleWhileRevalidateMs: DAY },
+  { path: '/rest/v1/profiles', maxAgeMs: MINUTE, staleWhileRevalidateMs: DAY },
+  { path: '/rest/v1/transactions', maxAgeMs: 0, staleWhileRevalidateMs: 30 * 1000 },
+];
+
+export interface NativeHttpCacheStats {
+  enabled: boolean;
+  hits: number;
+  staleHits: number;
+  revalidated: number;
+  misses: number;
+  errors: number;
+  invalidations: number;
+  evictions: number;
+  bytes: number;
+  entries: number;
+}
+
+export const installNativeHttpCache = (endpoints = NATIVE_HTTP_CACHE_ENDPOINTS) => {
+  if (!window.Android?.configureHttpCache) {
+    return;
+  }
+  window.Android.configureHttpCache(JSON.stringify({ endpoints }));
+  supabase.auth.onAuthStateChange((event) => {
+    if (event === 'SIGNED_OUT') {
+      window.Android?.clearHttpCache?.();
+    }
+  });
+};
+
+export const disableNativeHttpCache = () => {
+  window.Android?.configureHttpCache?.(JSON.stringify({ enabled: false }));
+};
+
+export const getNativeHttpCacheStats = async (): Promise<NativeHttpCacheStats> =>
+  (await callNative<NativeHttpCacheStats>('getHttpCacheStats')).result;
@@ -0,0 +1,28 @@
+// Busca de lançamentos no índice de trigramas do app (TransactionSearchIndex.java) sobre o
+// espelho offline: ignora acentos, aceita prefixos e erros de digitação e devolve os ids por
+// página, em vez de filtrar a lista inteira em JS a cada tecla.
+import { callNative } from './nativeBridge';
+
+export interface SearchParams {
+  accountId: string;
+  query: string;
+  // 'yyyy-MM-dd', inclusivo; sem from/to busca em todo o histórico
+  from?: string;
+  to?: string;
+  offset?: number;
+  limit?: number;
+}
+
+export interface SearchResult {
+  // Mais relevantes primeiro; empate pela data mais recente
+  ids: string[];
+  total: number;
+  // Algum termo só casou de forma aproximada (erro de digitação)
+  fuzzy: boolean;
+  // Lançamentos indexados da conta; 0 antes do primeiro sync
+  indexed: number;
+  elapsedMs: number;
+}
+
+export const searchTransactions = async (params: SearchParams): Promise<SearchResult> =>
+  (await callNative<SearchResult>('searchTransactions', { ...params })).result;
@@ -0,0 +1,17 @@
+// Prefetch nativo (NotificationPrefetch.java): quando um push chega, o app busca em segundo
+// plano os registros que ele cita; no toque, a tela recebe em location.state.prefetched.
+import { callNative } from './nativeBridge';
+
+export interface NotificationPrefetchStats {
+  scheduled?: number;
+  stored?: number;
+  failed?: number;
+  hits?: number;
+  misses?: number;
+  stale?: number;
+  // Acertos sobre toques em notificações que tinham prefetch
+  hitRate: number;
+}
+
+export const getNotificationPrefetchStats = async (): Promise<NotificationPrefetchStats> =>
+  (await callNative<NotificationPrefetchStats>('prefetchStats')).result;
@@ -0,0 +1,107 @@
+// Espelho offline nativo (OfflineSyncEngine.java) de transactions, categories e
+// category_budgets da conta atual. Leituras saem do SQLite do app em milissegundos; escritas
+// entram numa outbox durável e sobem em lote quando houver rede. Fora do app Android (ou antes
+// da ponte conectar) isOfflineStoreAvailable() é false e as telas usam o Supabase direto.
+import { supabase } from '@/integrations/supabase/client';
+import { callNative, isNativeBridgeAvailable } from './nativeBridge';
+import { onNativeEvent } from './nativeEvents';
+
+export type OfflineTable = 'transactions' | 'categories' | 'category_budgets';
+
+export interface OfflineSyncResult {
+  pushed: number;
+  conflicts: number;
+  pulled: number;
+  removed: number;
+  pending: number;
+  // Próxima tentativa (epoch ms) quando a outbox ficou em backoff; 0 se não
+  retryAt: number;
+  error: string | null;
+}
+
+export interface OfflineStatus {
+  accountId: string | null;
+  pending: number;
+  conflicts: number;
+}
+
+let accountId: string | null = null;
+
+export const isOfflineStoreAvailable = () => !!window.Android && isNativeBridgeAvailable();
+
+// client.ts é gerado e não exporta URL nem chave; o cliente guarda as duas
+const supabaseConfig = () =>
+  supabase as unknown as { supabaseUrl: string; supabaseKey: string };
+
+const sendSession = async () => {
+  if (!window.Android) {
+    return;
+  }
+  const { data } = await supabase.auth.getSession();
+  const session = data.session;
+  if (!session || !accountId) {
+    await callNative('offlineSession', {});
+    return;
+  }
+  const { supabaseUrl, supabaseKey } = supabaseConfig();
+  await callNative('offlineSession', {
+    url: supabaseUrl,
+    apikey: supabaseKey,
+    accessToken: session.access_token,
+    accountId,
+    // O nativo registra o token FCM por usuário (PushTokenRegistrar.java)
+    userId: session.user.id,
+  });
+};
+
+/** Conta cujas tabelas o app deve espelhar (a conta selecionada, não necessariamente o usuário). */
+export const setOfflineAccount = (id: string | null) => {
+  if (id === accountId) {
+    return;
+  }
+  accountId = id;
+  sendSession().catch(error => console.warn('Falha ao iniciar o espelho offline:', error));
+};
+
+export const installOfflineStore = () => {
+  if (!window.Android) {
+    return;
+  }
+  // Token renovado ou logout: o sync nativo usa sempre o token mais recente
+  supabase.auth.onAuthStateChange((event) => {
+    if (event === 'SIGNED_OUT') {
+      accountId = null;
+    }
+    sendSession().catch(error => console.warn('Falha ao atualizar a sessão offline:', error));
+  });
+};
+
+export const queryLocal = async <T>(table: OfflineTable, account: string): Promise<T[]> => {
+  const { result } = await callNative<string>('offlineQuery', { table, accountId: account });
+  return JSON.parse(result) as T[];
+};
+
+/** Grava localmente (mesclando com a linha existente) e enfileira o envio; devolve a linha completa. */
+export const writeLocal = async <T>(table: OfflineTable, account: string, row: { id: string } & Partial<T>): Promise<T> => {
+  const { result } = await callNative<string>('offlineWrite', { table, accountId: account, row });
+  return JSON.parse(result) as T;
+};
+
+export const deleteLocal = async (table: OfflineTable, account: string, id: string) => {
+  await callNative('offlineDelete', { table, accountId: account, id });
+};
+
+export const requestOfflineSync = async () => {
+  await callNative('offlineSync');
+};
+
+export const getOfflineStatus = async (): Promise<OfflineStatus> =>
+  (await callNative<OfflineStatus>('offlineStatus')).result;
+
+export const onOfflineSyncComplete = (handler: (result: OfflineSyncResult) => void) =>
+  onNativeEvent('onOfflineSyncComplete', (json: string) => handler(JSON.parse(json)));
+
+// A versão do servidor venceu: a edição local foi descartada (reason explica o motivo)
+export const onOfflineConflict = (
+  handler: (table: OfflineTable, id: string, localJson: string | null, serverJson: string | null, reason: string) => void,
+) => onNativeEvent('onOfflineConflict', handler);
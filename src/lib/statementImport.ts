@@ -0,0 +1,79 @@
+// Importação de extrato bancário (StatementImport.java): o app lê o CSV ou OFX escolhido em
+// streaming e, em lotes, grava só os lançamentos que ainda não existem na conta no espelho
+// offline e na outbox. A página só conduz os lotes: nenhuma linha passa por ela, e a importação
+// funciona sem rede (sobe no próximo sync).
+import { callNative } from './nativeBridge';
+import { onNativeEvent } from './nativeEvents';
+import { isOfflineStoreAvailable } from './offlineStore';
+
+export interface StatementImportProgress {
+  bytesRead: number;
+  // 0 quando o provedor do arquivo não informa o tamanho
+  totalBytes: number;
+  parsed: number;
+  imported: number;
+  duplicates: number;
+  skipped: number;
+}
+
+// Índices das colunas do CSV, para quando o cabeçalho não é reconhecido
+export interface StatementColumnMapping {
+  date: number;
+  description: number;
+  amount?: number;
+  debit?: number;
+  credit?: number;
+}
+
+export interface StatementImportOptions {
+  accountId: string;
+  mapping?: StatementColumnMapping;
+  onProgress?: (progress: StatementImportProgress) => void;
+  signal?: AbortSignal;
+}
+
+export interface StatementImportResult extends StatementImportProgress {
+  fileName: string;
+  format: 'csv' | 'ofx';
+}
+
+const BATCH_SIZE = 500;
+const PICKER_TIMEOUT_MS = 10 * 60 * 1000;
+
+export const isStatementImportAvailable = isOfflineStoreAvailable;
+
+/**
+ * Resolve com os totais da importação, ou null se o usuário fechou o seletor ou o signal
+ * cancelou (os lotes já gravados ficam).
+ */
+export const importStatement = async (options: StatementImportOptions): Promise<StatementImportResult | null> => {
+  const { accountId, mapping, onProgress, signal } = options;
+  let opened: { id: string; fileName: string; format: 'csv' | 'ofx' };
+  try {
+    opened = (await callNative<typeof opened>('importStatement', { accountId, mapping }, undefined,
+      PICKER_TIMEOUT_MS)).result;
+  } catch (error) {
+    if (error instanceof Error && error.message === 'Importação cancelada') return null;
+    throw error;
+  }
+
+  const unsubscribe = onNativeEvent('onImportProgress', (importId: string, json: string) => {
+    if (importId === opened.id) onProgress?.(JSON.parse(json));
+  });
+  try {
+    let progress: StatementImportProgress;
+    while (true) {
+      if (signal?.aborted) {
+        await callNative('importCancel', { id: opened.id });
+        return null;
+      }
+      const { result } = await callNative<string>('importNext', { id: opened.id, batchSize: BATCH_SIZE });
+      const batch = JSON.parse(result) as { written: number; done: boolean; progress: StatementImportProgress };
+      progress = batch.progress;
+      if (batch.done) break;
+    }
+    return { ...progress, fileName: opened.fileName, format: opened.format };
+  } finally {
+    unsubscribe();
+  }
+};
@@ -0,0 +1,100 @@
+// Recuperação de queda do renderer e pressão de memória (WebViewLifecycle.java).
+// A cada navegação a página manda a rota e um snapshot pequeno ao nativo; se o renderer cair,
+// o app recria o WebView e a página nova busca os dois uma vez com takeWebViewRestore.
+import { useEffect } from 'react';
+import { useLocation, useNavigate } from 'react-router-dom';
+import type { QueryClient } from '@tanstack/react-query';
+import { callNative } from './nativeBridge';
+import { onNativeEvent } from './nativeEvents';
+
+export type MemoryPressure = 'ui_hidden' | 'low' | 'critical';
+
+interface WebViewRestore {
+  route: string | null;
+  snapshot: string | null;
+  crashes: number;
+}
+
+// Debounce do envio: digitar num formulário não vira uma chamada por tecla
+const SAVE_DELAY_MS = 500;
+
+const snapshot: Record<string, unknown> = {};
+let restoredSnapshot: Record<string, unknown> = {};
+let saveTimer: ReturnType<typeof setTimeout> | undefined;
+let currentRoute = '/';
+
+const scheduleSave = () => {
+  if (!window.Android) {
+    return;
+  }
+  clearTimeout(saveTimer);
+  saveTimer = setTimeout(() => {
+    const keys = Object.keys(snapshot);
+    callNative('saveWebViewState', {
+      route: currentRoute,
+      ...(keys.length > 0 ? { snapshot: JSON.stringify(snapshot) } : {}),
+    }).catch(error => console.warn('Falha ao guardar o estado para recuperação do WebView:', error));
+  }, SAVE_DELAY_MS);
+};
+
+/** Guarda um pedaço do estado da tela para voltar depois de uma queda; undefined remove. */
+export const setWebViewSnapshot = (key: string, value: unknown) => {
+  if (value === undefined) {
+    delete snapshot[key];
+  } else {
+    snapshot[key] = value;
+  }
+  scheduleSave();
+};
+
+/** Estado guardado antes da queda do renderer, se esta página nasceu de uma recuperação. */
+export const getRestoredSnapshot = <T = unknown>(key: string): T | undefined =>
+  restoredSnapshot[key] as T | undefined;
+
+/** Dentro do Router: envia a rota atual e, numa página recriada, volta para a rota de antes da queda. */
+export const useWebViewLifecycle = () => {
+  const location = useLocation();
+  const navigate = useNavigate();
+
+  useEffect(() => {
+    if (!window.Android) {
+      return;
+    }
+    callNative<WebViewRestore | null>('takeWebViewRestore')
+      .then(({ result }) => {
+        if (!result) {
+          return;
+        }
+        console.warn(`WebView recriado após queda do renderer (${result.crashes} no total)`);
+        if (result.snapshot) {
+          try {
+            restoredSnapshot = JSON.parse(result.snapshot);
+          } catch {
+            restoredSnapshot = {};
+          }
+        }
+        if (result.route) {
+          navigate(result.route, { replace: true });
+        }
+      })
+      .catch(error => console.warn('Falha ao consultar a recuperação do WebView:', error));
+  }, [navigate]);
+
+  useEffect(() => {
+    currentRoute = location.pathname + location.search;
+    scheduleSave();
+  }, [location.pathname, location.search]);
+};
+
+/**
+ * Solta os caches da página quando o Android avisa de pouca memória: consultas sem tela
+ * que as use saem do React Query; no nível crítico também os dados que sobraram da recuperação.
+ */
+export const installMemoryPressureHandler = (queryClient: QueryClient) =>
+  onNativeEvent('onMemoryPressure', (level: MemoryPressure) => {
+    queryClient.removeQueries({ type: 'inactive' });
+    if (level === 'critical') {
+      restoredSnapshot = {};
+    }
+    console.log(`Pressão de memória (${level}): caches da página liberados`);
+  });
@@ -1,6 +1,17 @@
 import { createRoot } from 'react-dom/client'
 import App from './App.tsx'
 import './index.css'
+import { installNativeEventDispatcher } from './lib/nativeEvents'
+import { installNativeBridge } from './lib/nativeBridge'
+import { installNativeHttpCache } from './lib/nativeHttpCache'
+import { installOfflineStore } from './lib/offlineStore'
+
+// Antes do primeiro render: eventos do Android podem chegar logo no carregamento
+installNativeEventDispatcher();
+installNativeBridge();
+// Antes da primeira query do Supabase, para que ela já passe pelo cache do app
+installNativeHttpCache();
+installOfflineStore();
 
 const rootElement = document.getElementById("root");
 if (!rootElement) {
@@ -8,3 +19,8 @@ if (!rootElement) {
 }
 
 createRoot(rootElement).render(<App />);
+
+// Depois do primeiro paint do React: o app adia notificações, analytics etc. até aqui
+requestAnimationFrame(() => {
+  setTimeout(() => window.Android?.notifyWebReady?.(), 0);
+});
@@ -20,7 +20,7 @@ const Auth = () => {
   const { signIn, signUp } = useAuth();
   const navigate = useNavigate();
   const { toast } = useToast();
-  const { signInWithGoogle: googleSignIn, isLoading: googleLoading, isAndroidWebView } = useGoogleAuth({
+  const { signInWithGoogle: googleSignIn, signInWithGoogleNative, isLoading: googleLoading, isAndroidWebView } = useGoogleAuth({
     redirectTo: `${window.location.origin}/`
   });
 
@@ -62,11 +62,12 @@ const Auth = () => {
     setIsLoading(false);
   };
 
-  const handleGoogleSignIn = async () => {
+  // chooseAccount (só Android): mostra o seletor em vez de entrar na última conta usada
+  const handleGoogleSignIn = async (chooseAccount = false) => {
     setIsLoading(true);
 
     try {
-      const result = await googleSignIn();
+      const result = chooseAccount ? await signInWithGoogleNative(true) : await googleSignIn();
 
       if (!result.success && result.error) {
         toast({
@@ -202,7 +203,7 @@ const Auth = () => {
                   type="button" 
                   variant="outline" 
                   className="w-full" 
-                  onClick={handleGoogleSignIn}
+                  onClick={() => handleGoogleSignIn()}
                   disabled={isLoading || googleLoading}
                 >
                   <svg className="mr-2 h-4 w-4" viewBox="0 0 24 24">
@@ -225,6 +226,20 @@ const Auth = () => {
                   </svg>
                   Google
                 </Button>
+
+                {isAndroidWebView() && (
+                  <div className="text-center">
+                    <Button
+                      type="button"
+                      variant="link"
+                      className="text-sm text-muted-foreground"
+                      onClick={() => handleGoogleSignIn(true)}
+                      disabled={isLoading || googleLoading}
+                    >
+                      Usar outra conta Google
+                    </Button>
+                  </div>
+                )}
                 
                 <div className="text-center mt-4">
                   <Button 
@@ -305,7 +320,7 @@ const Auth = () => {
                   type="button" 
                   variant="outline" 
                   className="w-full" 
-                  onClick={handleGoogleSignIn}
+                  onClick={() => handleGoogleSignIn()}
                   disabled={isLoading || googleLoading}
                 >
                   <svg className="mr-2 h-4 w-4" viewBox="0 0 24 24">
@@ -7,6 +7,8 @@ import { useInstallments } from "@/hooks/useInstallments";
 import { useOverdueSubscriptions } from "@/hooks/useOverdueSubscriptions";
 import { useBalanceUpdater } from "@/hooks/useBalanceUpdater";
 import { useMobilePushNotifications } from "@/hooks/useMobilePushNotifications";
+import { useTransactionAggregates } from "@/hooks/useTransactionAggregates";
+import { amountOf, countOf } from "@/lib/nativeAggregates";
 import { Header } from "@/components/Header";
 import { FinancialCard } from "@/components/FinancialCard";
 import { QuickActions } from "@/components/QuickActions";
@@ -89,7 +91,23 @@ const Index = () => {
     return filterTransactions(transactions);
   }, [transactions, filterTransactions]);
 
+  // No app Android os totais vêm prontos do TransactionAggregator; null = somar aqui em JS
+  const nativeAggregates = useTransactionAggregates(filterType, dateRange);
+
   const financialData = useMemo(() => {
+    if (nativeAggregates) {
+      const total = nativeAggregates.total;
+      return {
+        totalExpenses: total ? amountOf(total, 'expense') : 0,
+        totalIncome: total ? amountOf(total, 'income') : 0,
+        totalInvestments: total ? amountOf(total, 'savings') : 0,
+        calculatedBalance: currentBalance,
+        transactionCount: total
+          ? countOf(total, 'expense') + countOf(total, 'income') + countOf(total, 'savings')
+          : 0
+      };
+    }
+
     // Gastos do período filtrado
     const totalExpenses = filteredTransactions
       .filter(t => t.type === 'expense')
@@ -113,11 +131,31 @@ const Index = () => {
       calculatedBalance: currentBalance,
       transactionCount: filteredTransactions.length
     };
-  }, [filteredTransactions, currentBalance]);
+  }, [filteredTransactions, currentBalance, nativeAggregates]);
 
   // Função para gerar dados de categoria por tipo
   const generateCategoryData = (transactionType: 'expense' | 'income' | 'savings') => {
     const categoryMap = new Map();
+
+    if (nativeAggregates) {
+      const categoriesById = new Map(categories.map(category => [category.id, category]));
+      nativeAggregates.byCategory.forEach(group => {
+        if (countOf(group, transactionType) === 0) return;
+        const category = group.key ? categoriesById.get(group.key) : undefined;
+        const categoryName = category?.name || 'Outros';
+        const value = amountOf(group, transactionType);
+        if (categoryMap.has(categoryName)) {
+          categoryMap.get(categoryName).value += value;
+        } else {
+          categoryMap.set(categoryName, {
+            name: categoryName,
+            value,
+            color: category?.color || 'hsl(var(--primary))'
+          });
+        }
+      });
+      return Array.from(categoryMap.values());
+    }
     
     filteredTransactions
       .filter(t => t.type === transactionType)
@@ -140,16 +178,32 @@ const Index = () => {
   };
 
   // Memoizar dados de categoria para evitar recálculos desnecessários
-  const chartData = useMemo(() => generateCategoryData('expense'), [filteredTransactions]);
-  const expenseCategoryData = useMemo(() => generateCategoryData('expense'), [filteredTransactions]);
-  const incomeCategoryData = useMemo(() => generateCategoryData('income'), [filteredTransactions]);
-  const investmentCategoryData = useMemo(() => generateCategoryData('savings'), [filteredTransactions]);
+  const chartData = useMemo(() => generateCategoryData('expense'), [filteredTransactions, nativeAggregates, categories]);
+  const expenseCategoryData = useMemo(() => generateCategoryData('expense'), [filteredTransactions, nativeAggregates, categories]);
+  const incomeCategoryData = useMemo(() => generateCategoryData('income'), [filteredTransactions, nativeAggregates, categories]);
+  const investmentCategoryData = useMemo(() => generateCategoryData('savings'), [filteredTransactions, nativeAggregates, categories]);
 
   const monthlyChartData = useMemo(() => {
     const monthlyMap = new Map();
+
+    if (nativeAggregates) {
+      nativeAggregates.byMonth.forEach(group => {
+        const [year, month] = group.key!.split('-').map(Number);
+        const income = amountOf(group, 'income');
+        monthlyMap.set(group.key, {
+          month: format(new Date(year, month - 1, 1), 'MMM yyyy', { locale: ptBR }),
+          monthKey: group.key,
+          expenses: amountOf(group, 'expense'),
+          income,
+          periodRevenue: income,
+          investedBalance: amountOf(group, 'savings'),
+          debtBalance: 0
+        });
+      });
+    }
     
     // Processar transações filtradas
-    filteredTransactions.forEach(transaction => {
+    (nativeAggregates ? [] : filteredTransactions).forEach(transaction => {
       const date = toZonedTime(new Date(transaction.date + 'T12:00:00'), 'America/Sao_Paulo');
       const monthKey = `${date.getFullYear()}-${String(date.getMonth() + 1).padStart(2, '0')}`;
       const monthName = format(date, 'MMM yyyy', { locale: ptBR });
@@ -216,7 +270,7 @@ const Index = () => {
 
     // Ordenar cronologicamente pelos monthKey (YYYY-MM)
     return Array.from(monthlyMap.values()).sort((a, b) => a.monthKey.localeCompare(b.monthKey));
-  }, [filteredTransactions, totalDebtBalance, dateRange, filterType]);
+  }, [filteredTransactions, totalDebtBalance, dateRange, filterType, nativeAggregates]);
 
 
   // Memoizar handlers para evitar re-renderizações de componentes filhos
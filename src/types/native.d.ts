@@ -8,20 +8,49 @@ interface WebAppInterface {
   requestMicrophonePermission: () => void;
   startAudioRecording: () => void;
   stopAudioRecording: () => void;
+  // Como startAudioRecording, mas o áudio também é enviado (POST em streaming) enquanto grava;
+  // a resposta chega em onAudioStreamResponse
+  startStreamingAudioRecording?: (uploadUrl: string, headersJson: string) => void;
+  // Remoção de silêncio das próximas gravações: {"trimSilence": true, "autoStopSilenceMs": 3000}
+  setVoiceActivityOptions?: (optionsJson: string) => void;
   requestNotificationPermission: () => void;
   // Google Play Purchase methods
   launchPurchaseFlow: (productId: string) => void;
+  // Conecta ao Play Billing antes da compra; sem isso a conexão só abre no primeiro launchPurchaseFlow
+  prepareBilling?: () => void;
+  // Primeira tela montada: marca webReady no trace de inicialização e libera as tarefas adiadas
+  notifyWebReady?: () => void;
   // Google Auth methods
+  // Tenta o token em cache e o login silencioso antes de mostrar o seletor de contas
   signInWithGoogle: () => void;
+  // Sempre mostra o seletor, para entrar com outra conta Google
+  chooseGoogleAccount?: () => void;
+  // Desconecta a conta Google no logout, senão o próximo login entra direto na mesma conta
+  signOutGoogle?: () => void;
   // File system methods
-  openGallery: () => void;
+  // optionsJson: {maxBytes, format: 'jpeg' | 'webp'} da imagem entregue em onGalleryImageSelected
+  openGallery: (optionsJson?: string) => void;
   openFileChooser: (acceptType: string) => void;
+  // Liga o cache nativo de GETs do Supabase para os endpoints listados (ver src/lib/nativeHttpCache.ts)
+  configureHttpCache?: (configJson: string) => void;
+  clearHttpCache?: () => void;
+  // Libera um blob servido em /native-blob/{id} depois de consumido
+  releaseNativeBlob?: (urlOrId: string) => void;
+  // Métricas da ponte em JSON (ver src/lib/bridgeMetrics.ts)
+  getBridgeMetrics?: () => string;
+}
+
+interface GoogleSignInInfo {
+  path: 'cached' | 'silent' | 'interactive';
+  elapsedMs: number;
 }
 
 // Estende a interface global `Window` para incluir nossos métodos e callbacks customizados
 declare global {
   interface Window {
     Android?: WebAppInterface;
+    // Recebe em lote os eventos do app Android (ver src/lib/nativeEvents.ts)
+    __nativeEvents?: (batch: import('../lib/nativeEvents').NativeEvent[]) => void;
     AndroidBridge?: {
       signInWithGoogle: () => void;
     };
@@ -29,14 +58,32 @@ declare global {
     onFCMTokenReceived?: (token: string) => void;
     onPermissionResult?: (permissionName: 'camera' | 'microphone' | 'notifications', granted: boolean) => void;
     // Media callbacks
-    onAudioRecordingComplete?: (base64Audio: string) => void;
-    onImageCaptureComplete?: (imageDataUrl: string) => void;
+    // Os callbacks de mídia recebem uma URL /native-blob/{id} servida pelo app
+    // metrics: rawDurationMs, durationMs (após remover silêncio), trimmedMs, speechDetected, autoStopped
+    onAudioRecordingComplete?: (audioUrl: string, metrics?: Record<string, number | boolean>) => void;
+    // Resposta do upload de startStreamingAudioRecording, antes de onAudioRecordingComplete
+    onAudioStreamResponse?: (status: number, body: string) => void;
+    onImageCaptureComplete?: (imageUrl: string, metrics?: Record<string, number | boolean>) => void;
     // Google Auth callbacks
-    onGoogleSignInSuccess?: (idToken: string, accessToken?: string) => void;
-    onGoogleSignInError?: (error: string) => void;
+    // info: caminho usado ('cached' | 'silent' | 'interactive') e tempo até o token
+    onGoogleSignInSuccess?: (idToken: string, accessToken?: string | null, info?: GoogleSignInInfo) => void;
+    onGoogleSignInError?: (error: string, info?: GoogleSignInInfo) => void;
     // File selection callbacks
-    onGalleryImageSelected?: (imageDataUrl: string) => void;
-    onFileSelected?: (fileDataUrl: string, fileName: string, fileType: string) => void;
+    // metrics: tempos de decodificação/codificação e tamanho final medidos pelo app
+    onGalleryImageSelected?: (imageUrl: string, metrics?: Record<string, number | boolean>) => void;
+    onFileSelected?: (fileUrl: string, fileName: string, fileType: string) => void;
+    // Operação nativa recusada pelo app: reason é 'busy', 'overloaded' ou 'shutdown'
+    onNativeOperationRejected?: (operation: string, reason: string) => void;
+    // Espelho offline (ver src/lib/offlineStore.ts): resultado de cada sync, em JSON
+    onOfflineSyncComplete?: (resultJson: string) => void;
+    // Escrita local descartada porque a versão do servidor venceu
+    onOfflineConflict?: (table: string, id: string, localJson: string | null, serverJson: string | null, reason: string) => void;
+    // Pouca memória no aparelho: 'ui_hidden' | 'low' | 'critical' (ver src/lib/webViewLifecycle.ts)
+    onMemoryPressure?: (level: string) => void;
+    // Exportação nativa (ver src/lib/nativeExport.ts): linhas já gravadas no arquivo
+    onExportProgress?: (id: string, written: number, total: number) => void;
+    // Importação de extrato (ver src/lib/statementImport.ts): progresso em JSON
+    onImportProgress?: (id: string, progressJson: string) => void;
   }
 }
 
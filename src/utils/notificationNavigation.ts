@@ -64,10 +64,14 @@ export const handleNotificationClick = (notificationData: NotificationData) => {
  */
 export const handleNotificationNavigation = (
   notification: PushNotificationSchema,
-  navigate: NavigateFunction
+  navigateTo: NavigateFunction,
+  prefetched?: Record<string, unknown[]>
 ) => {
   const type = notification.data?.type as string;
   const data = notification.data || {};
+  // A tela de destino lê os registros já buscados em location.state.prefetched
+  const navigate = (path: string) =>
+    prefetched ? navigateTo(path, { state: { prefetched } }) : navigateTo(path);
 
   if (!type) {
     navigate('/notifications');
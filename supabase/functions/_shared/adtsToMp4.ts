@@ -0,0 +1,134 @@
+// Reempacota AAC em ADTS (o que o app Android envia em streaming enquanto grava) num m4a,
+// sem recodificar: o Whisper (OpenAI e Groq) aceita m4a mas não ADTS cru.
+// Saída: ftyp + moov (uma faixa de áudio, um chunk) + mdat com os frames sem cabeçalho.
+
+const SAMPLE_RATES = [96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350];
+const SAMPLES_PER_FRAME = 1024;
+
+interface AdtsStream {
+  objectType: number;
+  frequencyIndex: number;
+  channels: number;
+  frames: Uint8Array[];
+}
+
+function parseAdts(data: Uint8Array): AdtsStream {
+  const frames: Uint8Array[] = [];
+  let objectType = 0;
+  let frequencyIndex = 0;
+  let channels = 0;
+  let offset = 0;
+  while (offset + 7 <= data.length) {
+    if (data[offset] !== 0xff || (data[offset + 1] & 0xf0) !== 0xf0) {
+      throw new Error(`ADTS inválido no byte ${offset}`);
+    }
+    const protectionAbsent = data[offset + 1] & 0x01;
+    const headerLength = protectionAbsent ? 7 : 9;
+    const frameLength = ((data[offset + 3] & 0x03) << 11) | (data[offset + 4] << 3) | (data[offset + 5] >> 5);
+    if ((data[offset + 6] & 0x03) !== 0) {
+      throw new Error('ADTS com mais de um bloco por frame não é suportado');
+    }
+    if (frameLength < headerLength || offset + frameLength > data.length) {
+      // Último frame cortado (upload interrompido): fica de fora
+      break;
+    }
+    if (frames.length === 0) {
+      objectType = ((data[offset + 2] >> 6) & 0x03) + 1;
+      frequencyIndex = (data[offset + 2] >> 2) & 0x0f;
+      channels = ((data[offset + 2] & 0x01) << 2) | (data[offset + 3] >> 6);
+    }
+    frames.push(data.subarray(offset + headerLength, offset + frameLength));
+    offset += frameLength;
+  }
+  if (frames.length === 0) {
+    throw new Error('Nenhum frame de áudio recebido');
+  }
+  if (frequencyIndex >= SAMPLE_RATES.length) {
+    throw new Error(`Taxa de amostragem ADTS desconhecida: ${frequencyIndex}`);
+  }
+  return { objectType, frequencyIndex, channels, frames };
+}
+
+const u8 = (...values: number[]) => Uint8Array.from(values);
+const u16 = (value: number) => u8((value >> 8) & 0xff, value & 0xff);
+const u32 = (value: number) => u8((value >>> 24) & 0xff, (value >> 16) & 0xff, (value >> 8) & 0xff, value & 0xff);
+const ascii = (text: string) => new TextEncoder().encode(text);
+const zeros = (length: number) => new Uint8Array(length);
+
+function concat(parts: Uint8Array[]): Uint8Array {
+  const out = new Uint8Array(parts.reduce((total, part) => total + part.length, 0));
+  let offset = 0;
+  for (const part of parts) {
+    out.set(part, offset);
+    offset += part.length;
+  }
+  return out;
+}
+
+const box = (type: string, ...parts: Uint8Array[]) => {
+  const body = concat(parts);
+  return concat([u32(8 + body.length), ascii(type), body]);
+};
+const fullBox = (type: string, version: number, flags: number, ...parts: Uint8Array[]) =>
+  box(type, u32((version << 24) | flags), ...parts);
+
+// Matriz identidade de mvhd/tkhd
+const MATRIX = concat([u32(0x00010000), u32(0), u32(0), u32(0), u32(0x00010000), u32(0), u32(0), u32(0), u32(0x40000000)]);
+
+function esds(stream: AdtsStream): Uint8Array {
+  // AudioSpecificConfig: objectType (5 bits), frequencyIndex (4), channels (4), 3 bits zerados
+  const config = (stream.objectType << 11) | (stream.frequencyIndex << 7) | (stream.channels << 3);
+  const decoderSpecific = concat([u8(0x05, 2), u16(config)]);
+  const decoderConfig = concat([
+    u8(0x04, 13 + decoderSpecific.length),
+    u8(0x40, 0x15), // MPEG-4 áudio, stream de áudio
+    u8(0, 0, 0), u32(0), u32(0),
+    decoderSpecific,
+  ]);
+  const slConfig = u8(0x06, 1, 0x02);
+  const esDescriptor = concat([u8(0x03, 3 + decoderConfig.length + slConfig.length), u16(1), u8(0), decoderConfig, slConfig]);
+  return fullBox('esds', 0, 0, esDescriptor);
+}
+
+function moov(stream: AdtsStream, mdatOffset: number): Uint8Array {
+  const sampleRate = SAMPLE_RATES[stream.frequencyIndex];
+  const count = stream.frames.length;
+  const duration = count * SAMPLES_PER_FRAME;
+  const sizes = concat(stream.frames.map(frame => u32(frame.length)));
+
+  const mp4a = box('mp4a',
+    zeros(6), u16(1), // reservado, data_reference_index
+    zeros(8), u16(stream.channels), u16(16), zeros(4), u32(sampleRate << 16),
+    esds(stream));
+  const stbl = box('stbl',
+    fullBox('stsd', 0, 0, u32(1), mp4a),
+    fullBox('stts', 0, 0, u32(1), u32(count), u32(SAMPLES_PER_FRAME)),
+    fullBox('stsc', 0, 0, u32(1), u32(1), u32(count), u32(1)),
+    fullBox('stsz', 0, 0, u32(0), u32(count), sizes),
+    fullBox('stco', 0, 0, u32(1), u32(mdatOffset)));
+  const minf = box('minf',
+    fullBox('smhd', 0, 0, u16(0), u16(0)),
+    box('dinf', fullBox('dref', 0, 0, u32(1), fullBox('url ', 0, 1))),
+    stbl);
+  const mdia = box('mdia',
+    fullBox('mdhd', 0, 0, u32(0), u32(0), u32(sampleRate), u32(duration), u16(0x55c4), u16(0)), // 'und'
+    fullBox('hdlr', 0, 0, u32(0), ascii('soun'), zeros(12), ascii('SoundHandler\0')),
+    minf);
+  const trak = box('trak',
+    fullBox('tkhd', 0, 0x000007, u32(0), u32(0), u32(1), u32(0), u32(duration), zeros(8),
+      u16(0), u16(0), u16(0x0100), u16(0), MATRIX, u32(0), u32(0)),
+    mdia);
+  return box('moov',
+    fullBox('mvhd', 0, 0, u32(0), u32(0), u32(sampleRate), u32(duration), u32(0x00010000), u16(0x0100),
+      zeros(10), MATRIX, zeros(24), u32(2)),
+    trak);
+}
+
+export function adtsToMp4(adts: Uint8Array): Uint8Array {
+  const stream = parseAdts(adts);
+  const ftyp = box('ftyp', ascii('M4A '), u32(0), ascii('M4A '), ascii('mp42'), ascii('isom'));
+  // O tamanho do moov não depende do offset gravado no stco: monta uma vez para medir
+  const moovLength = moov(stream, 0).length;
+  const header = concat([ftyp, moov(stream, ftyp.length + moovLength + 8)]);
+  return concat([header, box('mdat', ...stream.frames)]);
+}
@@ -77,4 +77,22 @@ export function validateEnvVar(varName: string): string {
     throw { message: `${varName} environment variable not configured`, status: 500 };
   }
   return value;
-}
\ No newline at end of file
+}
+// Nome de arquivo para as APIs de transcrição (Whisper deduz o formato pela extensão).
+// O app Android envia audio/mp4 (m4a); navegadores, audio/webm.
+const AUDIO_EXTENSIONS: Record<string, string> = {
+  'audio/mp4': 'm4a',
+  'audio/m4a': 'm4a',
+  'audio/x-m4a': 'm4a',
+  'audio/aac': 'aac',
+  'audio/mpeg': 'mp3',
+  'audio/ogg': 'ogg',
+  'audio/wav': 'wav',
+  'audio/webm': 'webm',
+};
+
+export function audioUpload(mimeType?: string): { type: string; fileName: string } {
+  const type = (mimeType || 'audio/webm').split(';')[0].trim().toLowerCase();
+  const extension = AUDIO_EXTENSIONS[type];
+  return extension ? { type, fileName: `audio.${extension}` } : { type: 'audio/webm', fileName: 'audio.webm' };
+}
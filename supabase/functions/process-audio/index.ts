@@ -1,6 +1,7 @@
 import "https://deno.land/x/xhr@0.1.0/mod.ts"
 import { serve } from "https://deno.land/std@0.168.0/http/server.ts"
 import { createClient } from "https://esm.sh/@supabase/supabase-js@2.45.0"
+import { audioUpload } from "../_shared/utils.ts"
 
 const corsHeaders = {
   'Access-Control-Allow-Origin': '*',
@@ -66,7 +67,7 @@ serve(async (req) => {
     
     logStep("User authenticated", { userId: user.id });
 
-    const { audio } = await req.json()
+    const { audio, mimeType } = await req.json()
     
     if (!audio) {
       throw new Error('No audio data provided')
@@ -77,8 +78,9 @@ serve(async (req) => {
     
     // Prepare form data for OpenAI
     const formData = new FormData()
-    const blob = new Blob([binaryAudio], { type: 'audio/webm' })
-    formData.append('file', blob, 'audio.webm')
+    const upload = audioUpload(mimeType)
+    const blob = new Blob([binaryAudio], { type: upload.type })
+    formData.append('file', blob, upload.fileName)
     formData.append('model', 'whisper-1')
 
     // Send to OpenAI for transcription
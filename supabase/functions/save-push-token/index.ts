@@ -18,13 +18,20 @@ serve(async (req) => {
       { auth: { persistSession: false } }
     );
 
-    const authHeader = req.headers.get("Authorization")!;
-    const token = authHeader.replace("Bearer ", "");
-    const { data } = await supabaseClient.auth.getUser(token);
+    const authHeader = req.headers.get("Authorization");
+    const token = authHeader?.replace("Bearer ", "");
+    const { data, error: authError } = token
+      ? await supabaseClient.auth.getUser(token)
+      : { data: { user: null }, error: null };
     const user = data.user;
 
-    if (!user?.email) {
-      throw new Error("User not authenticated");
+    if (authError || !user?.email) {
+      // 401 e não 500: o app só repete com backoff os erros transitórios; sessão vencida
+      // espera um token novo (PushTokenWorker.java)
+      return new Response(JSON.stringify({ error: "User not authenticated" }), {
+        headers: { ...corsHeaders, "Content-Type": "application/json" },
+        status: 401,
+      });
     }
 
     const { token: pushToken, platform } = await req.json();
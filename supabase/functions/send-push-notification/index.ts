@@ -51,24 +51,65 @@ const generateAccessToken = async (serviceAccount: any): Promise<string> => {
   }
 };
 
-const sendFirebaseNotification = async (token: string, payload: NotificationPayload, accessToken: string, projectId: string): Promise<boolean> => {
+// Mesmo aviso reenviado pelo cron (mesmo tipo, mesmos ids, mesmo dia) tem a mesma chave, e o app
+// descarta a repetição. Sem ids o app compara pelo conteúdo.
+const dedupKey = (payload: NotificationPayload): string | undefined => {
+  const data = payload.data ?? {};
+  if (data.dedup_key) return String(data.dedup_key);
+  const ids = Object.keys(data).filter(key => key.endsWith('_id')).sort().map(key => `${key}=${data[key]}`);
+  if (ids.length === 0) return undefined;
+  return `${data.type ?? 'general'}:${ids.join(',')}:${new Date().toISOString().slice(0, 10)}`;
+};
+
+// Registros que a tela aberta pelo toque mostra (mesma tabela que NotificationPrefetch.java)
+const PREFETCH_TABLES: Record<string, Array<[table: string, idField: string]>> = {
+  reminder: [['bill_reminders', 'reminder_id']],
+  bill_reminder: [['bill_reminders', 'reminder_id']],
+  subscription: [['subscriptions', 'subscription_id']],
+  subscription_renewal: [['subscriptions', 'subscription_id']],
+  overdue_subscription: [['subscriptions', 'subscription_id']],
+  budget_exceeded: [['category_budgets', 'budget_id'], ['categories', 'category_id']],
+  installment: [['installments', 'installment_id']],
+  overdue_installment: [['installments', 'installment_id']],
+};
+// O data de uma mensagem FCM vai até 4 KB; acima disso o app busca os registros ele mesmo
+const MAX_PREFETCH_RECORDS_BYTES = 3000;
+
+// Os registros vão no próprio push: o app os guarda para o toque sem ir ao Supabase, o que
+// dependeria de um token de usuário ainda válido com o app fechado
+const prefetchRecords = async (supabaseClient: any, payload: NotificationPayload): Promise<string | undefined> => {
+  const data = payload.data ?? {};
+  const tables = PREFETCH_TABLES[data.type];
+  if (!tables) return undefined;
+  const records: Record<string, unknown[]> = {};
+  for (const [table, idField] of tables) {
+    if (!data[idField]) continue;
+    const { data: rows, error } = await supabaseClient.from(table).select('*').eq('id', data[idField]);
+    if (error) {
+      console.warn(`Prefetch de ${table} para o push falhou:`, error);
+      return undefined;
+    }
+    records[table] = rows ?? [];
+  }
+  if (Object.keys(records).length === 0) return undefined;
+  const json = JSON.stringify(records);
+  return new TextEncoder().encode(json).length <= MAX_PREFETCH_RECORDS_BYTES ? json : undefined;
+};
+
+const sendFirebaseNotification = async (token: string, payload: NotificationPayload, accessToken: string, projectId: string, records?: string): Promise<boolean> => {
+  const data: Record<string, string> = payload.data ? Object.fromEntries(
+    Object.entries(payload.data).map(([key, value]) => [key, String(value)])
+  ) : {};
+  const key = dedupKey(payload);
+  if (key) data.dedup_key = key;
+  if (records) data.prefetch_records = records;
+  // Só data: o app monta a notificação (agrupando rajadas e descartando repetidas) mesmo em
+  // segundo plano; com o bloco notification o sistema exibiria cada uma direto
   const message = {
     message: {
       token: token,
-      notification: { title: payload.title, body: payload.body },
-      android: {
-        priority: "high",
-        notification: {
-          sound: "default",
-          channel_id: "finaudy_channel",
-          default_sound: true,
-          default_vibrate_timings: true,
-          default_light_settings: true,
-        },
-      },
-      data: payload.data ? Object.fromEntries(
-        Object.entries(payload.data).map(([key, value]) => [key, String(value)])
-      ) : {},
+      android: { priority: "high" },
+      data: { ...data, title: payload.title, body: payload.body },
     },
   };
 
@@ -146,9 +187,10 @@ serve(async (req) => {
     
     const serviceAccount = JSON.parse(serviceAccountKey);
     const accessToken = await generateAccessToken(serviceAccount);
+    const records = await prefetchRecords(supabaseClient, payload);
 
     const sendPromises = tokens.map(tokenInfo => 
-      sendFirebaseNotification(tokenInfo.token, payload, accessToken, serviceAccount.project_id)
+      sendFirebaseNotification(tokenInfo.token, payload, accessToken, serviceAccount.project_id, records)
         .then(sent => ({ ...tokenInfo, sent }))
     );
 
@@ -1,6 +1,8 @@
 import "https://deno.land/x/xhr@0.1.0/mod.ts"
 import { serve } from "https://deno.land/std@0.168.0/http/server.ts"
 import { toZonedTime, format as formatTz } from "https://esm.sh/date-fns-tz@3.0.0"
+import { audioUpload } from "../_shared/utils.ts"
+import { adtsToMp4 } from "../_shared/adtsToMp4.ts"
 
 const corsHeaders = {
   'Access-Control-Allow-Origin': '*',
@@ -38,11 +40,12 @@ function processBase64Chunks(base64String: string, chunkSize = 32768) {
 }
 
 // Transcription function with fallback
-async function transcribeAudio(binaryAudio: Uint8Array): Promise<string> {
+async function transcribeAudio(binaryAudio: Uint8Array, mimeType?: string): Promise<string> {
   // Prepare form data
   const formData = new FormData()
-  const blob = new Blob([binaryAudio], { type: 'audio/webm' })
-  formData.append('file', blob, 'audio.webm')
+  const upload = audioUpload(mimeType)
+  const blob = new Blob([binaryAudio], { type: upload.type })
+  formData.append('file', blob, upload.fileName)
   formData.append('language', 'pt')
 
   // Try Groq first (primary API)
@@ -229,19 +232,37 @@ serve(async (req) => {
   }
 
   try {
-    const { audio, categories } = await req.json()
+    // O app Android manda o AAC (ADTS) em streaming enquanto grava: só transcreve e devolve o
+    // texto, que a página manda de volta com as categorias quando a gravação termina
+    const contentType = req.headers.get('content-type') ?? ''
+    if (contentType.startsWith('audio/')) {
+      const adts = new Uint8Array(await req.arrayBuffer())
+      console.log(`🎙️ Transcribing streamed audio (${adts.length} bytes)...`)
+      const transcription = await transcribeAudio(adtsToMp4(adts), 'audio/mp4')
+      return new Response(JSON.stringify({ transcription }), {
+        headers: { ...corsHeaders, 'Content-Type': 'application/json' },
+      })
+    }
+
+    const { audio, mimeType, categories, transcription } = await req.json()
     
-    if (!audio) {
+    if (!audio && typeof transcription !== 'string') {
       throw new Error('No audio data provided')
     }
 
-    console.log('🎙️ Processing audio data...')
-    
-    // Process audio in chunks
-    const binaryAudio = processBase64Chunks(audio)
-    
-    // Transcribe audio with fallback
-    const transcribedText = await transcribeAudio(binaryAudio)
+    let transcribedText: string
+    if (typeof transcription === 'string') {
+      // Já transcrito durante o upload em streaming
+      transcribedText = transcription
+    } else {
+      console.log('🎙️ Processing audio data...')
+      
+      // Process audio in chunks
+      const binaryAudio = processBase64Chunks(audio)
+      
+      // Transcribe audio with fallback
+      transcribedText = await transcribeAudio(binaryAudio, mimeType)
+    }
 
     console.log('Transcribed text:', transcribedText)
 